@@ -1425,6 +1425,18 @@ func init() {
 	mGetSignedDomains.Exception("UNAUTHORIZED", "ResourceError", "")
 	sb.AddResource(mGetSignedDomains.Build())
 
+	mGetDomainChanges := rdl.NewResourceBuilder("DomainModifiedList", "GET", "/sys/domain_changes")
+	mGetDomainChanges.Comment("Wait for domain change notifications from the server. The server will return the list of domains modified since the change tag specified in the If-None-Match header. If no domains have been modified, the server will hold the request until a change takes place or the timeout expires in which case it returns NOT_MODIFIED. If the change tag is not specified or not recognized by the server, the server returns NOT_MODIFIED right away with the current change tag. The returned ETag header must be used as the matching tag in the next request. The caller must be authorized from sys.auth domain to watch domain changes (action: access, resource: domain-changes)")
+	mGetDomainChanges.Input("timeout", "Int32", false, "timeout", "", true, nil, "max number of seconds the server should wait for changes")
+	mGetDomainChanges.Input("matchingTag", "String", false, "", "If-None-Match", false, nil, "Retrieved from the previous request, this tag specifies to the server to return any domains modified since then")
+	mGetDomainChanges.Output("tag", "String", "ETag", false, "The current change tag is returned in this header")
+	mGetDomainChanges.Auth("", "", true, "")
+	mGetDomainChanges.Exception("BAD_REQUEST", "ResourceError", "")
+	mGetDomainChanges.Exception("FORBIDDEN", "ResourceError", "")
+	mGetDomainChanges.Exception("TOO_MANY_REQUESTS", "ResourceError", "")
+	mGetDomainChanges.Exception("UNAUTHORIZED", "ResourceError", "")
+	sb.AddResource(mGetDomainChanges.Build())
+
 	mGetUserToken := rdl.NewResourceBuilder("UserToken", "GET", "/user/{userName}/token")
 	mGetUserToken.Comment("Return a user/principal token for the specified authenticated user. Typical authenticated users with their native credentials are not allowed to update their domain data. They must first obtain a UserToken and then use that token for authentication and authorization of their update requests.")
 	mGetUserToken.Input("userName", "SimpleName", true, "", "", false, nil, "name of the user")
@@ -515,6 +515,42 @@ func (client ZTSClient) GetDomainSignedPolicyData(domainName DomainName, matchin
 	}
 }
 
+func (client ZTSClient) PostSignedPolicyRequest(request *SignedPolicyRequest) (*SignedPolicyDataList, error) {
+	var data *SignedPolicyDataList
+	url := client.URL + "/signed_policy_data"
+	contentBytes, err := json.Marshal(request)
+	if err != nil {
+		return data, err
+	}
+	resp, err := client.httpPost(url, nil, contentBytes)
+	if err != nil {
+		return data, err
+	}
+	defer resp.Body.Close()
+	switch resp.StatusCode {
+	case 200:
+		err = json.NewDecoder(resp.Body).Decode(&data)
+		if err != nil {
+			return data, err
+		}
+		return data, nil
+	default:
+		var errobj rdl.ResourceError
+		contentBytes, err = ioutil.ReadAll(resp.Body)
+		if err != nil {
+			return data, err
+		}
+		json.Unmarshal(contentBytes, &errobj)
+		if errobj.Code == 0 {
+			errobj.Code = resp.StatusCode
+		}
+		if errobj.Message == "" {
+			errobj.Message = string(contentBytes)
+		}
+		return data, errobj
+	}
+}
+
 func (client ZTSClient) GetRoleToken(domainName DomainName, role EntityList, minExpiryTime *int32, maxExpiryTime *int32, proxyForPrincipal EntityName) (*RoleToken, error) {
 	var data *RoleToken
 	url := client.URL + "/domain/" + fmt.Sprint(domainName) + "/token" + encodeParams(encodeStringParam("role", string(role), ""), encodeOptionalInt32Param("minExpiryTime", minExpiryTime), encodeOptionalInt32Param("maxExpiryTime", maxExpiryTime), encodeStringParam("proxyForPrincipal", string(proxyForPrincipal), ""))
@@ -1019,26 +1055,32 @@ func (client ZTSClient) PostSSHCertRequest(certRequest *SSHCertRequest) (*SSHCer
 	}
 }
 
-func (client ZTSClient) GetJWKList(rfc *bool) (*JWKList, error) {
+func (client ZTSClient) GetJWKList(rfc *bool, matchingTag string) (*JWKList, string, error) {
 	var data *JWKList
+	headers := map[string]string{
+		"If-None-Match": matchingTag,
+	}
 	url := client.URL + "/oauth2/keys" + encodeParams(encodeOptionalBoolParam("rfc", rfc))
-	resp, err := client.httpGet(url, nil)
+	resp, err := client.httpGet(url, headers)
 	if err != nil {
-		return data, err
+		return nil, "", err
 	}
 	defer resp.Body.Close()
 	switch resp.StatusCode {
-	case 200:
-		err = json.NewDecoder(resp.Body).Decode(&data)
-		if err != nil {
-			return data, err
+	case 200, 304:
+		if 304 != resp.StatusCode {
+			err = json.NewDecoder(resp.Body).Decode(&data)
+			if err != nil {
+				return nil, "", err
+			}
 		}
-		return data, nil
+		tag := resp.Header.Get(rdl.FoldHttpHeaderName("ETag"))
+		return data, tag, nil
 	default:
 		var errobj rdl.ResourceError
 		contentBytes, err := ioutil.ReadAll(resp.Body)
 		if err != nil {
-			return data, err
+			return nil, "", err
 		}
 		json.Unmarshal(contentBytes, &errobj)
 		if errobj.Code == 0 {
@@ -1047,7 +1089,7 @@ func (client ZTSClient) GetJWKList(rfc *bool) (*JWKList, error) {
 		if errobj.Message == "" {
 			errobj.Message = string(contentBytes)
 		}
-		return data, errobj
+		return nil, "", errobj
 	}
 }
 
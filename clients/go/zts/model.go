@@ -1062,6 +1062,199 @@ func (self *DomainSignedPolicyData) Validate() error {
 	return nil
 }
 
+//
+// DomainPolicyTag - A domain name along with the ETag of the signed policy
+// data the client already has for the domain
+//
+type DomainPolicyTag struct {
+
+	//
+	// name of the domain
+	//
+	DomainName DomainName `json:"domainName"`
+
+	//
+	// ETag returned for the domain signed policy data in the previous request
+	//
+	MatchingTag string `json:"matchingTag,omitempty" rdl:"optional"`
+}
+
+//
+// NewDomainPolicyTag - creates an initialized DomainPolicyTag instance, returns a pointer to it
+//
+func NewDomainPolicyTag(init ...*DomainPolicyTag) *DomainPolicyTag {
+	var o *DomainPolicyTag
+	if len(init) == 1 {
+		o = init[0]
+	} else {
+		o = new(DomainPolicyTag)
+	}
+	return o
+}
+
+type rawDomainPolicyTag DomainPolicyTag
+
+//
+// UnmarshalJSON is defined for proper JSON decoding of a DomainPolicyTag
+//
+func (self *DomainPolicyTag) UnmarshalJSON(b []byte) error {
+	var m rawDomainPolicyTag
+	err := json.Unmarshal(b, &m)
+	if err == nil {
+		o := DomainPolicyTag(m)
+		*self = o
+		err = self.Validate()
+	}
+	return err
+}
+
+//
+// Validate - checks for missing required fields, etc
+//
+func (self *DomainPolicyTag) Validate() error {
+	if self.DomainName == "" {
+		return fmt.Errorf("DomainPolicyTag.domainName is missing but is a required field")
+	} else {
+		val := rdl.Validate(ZTSSchema(), "DomainName", self.DomainName)
+		if !val.Valid {
+			return fmt.Errorf("DomainPolicyTag.domainName does not contain a valid DomainName (%v)", val.Error)
+		}
+	}
+	if self.MatchingTag != "" {
+		val := rdl.Validate(ZTSSchema(), "String", self.MatchingTag)
+		if !val.Valid {
+			return fmt.Errorf("DomainPolicyTag.matchingTag does not contain a valid String (%v)", val.Error)
+		}
+	}
+	return nil
+}
+
+//
+// SignedPolicyRequest - List of domains to retrieve signed policy data for
+//
+type SignedPolicyRequest struct {
+
+	//
+	// list of domains along with their current tags
+	//
+	Domains []*DomainPolicyTag `json:"domains"`
+}
+
+//
+// NewSignedPolicyRequest - creates an initialized SignedPolicyRequest instance, returns a pointer to it
+//
+func NewSignedPolicyRequest(init ...*SignedPolicyRequest) *SignedPolicyRequest {
+	var o *SignedPolicyRequest
+	if len(init) == 1 {
+		o = init[0]
+	} else {
+		o = new(SignedPolicyRequest)
+	}
+	return o.Init()
+}
+
+//
+// Init - sets up the instance according to its default field values, if any
+//
+func (self *SignedPolicyRequest) Init() *SignedPolicyRequest {
+	if self.Domains == nil {
+		self.Domains = make([]*DomainPolicyTag, 0)
+	}
+	return self
+}
+
+type rawSignedPolicyRequest SignedPolicyRequest
+
+//
+// UnmarshalJSON is defined for proper JSON decoding of a SignedPolicyRequest
+//
+func (self *SignedPolicyRequest) UnmarshalJSON(b []byte) error {
+	var m rawSignedPolicyRequest
+	err := json.Unmarshal(b, &m)
+	if err == nil {
+		o := SignedPolicyRequest(m)
+		*self = *((&o).Init())
+		err = self.Validate()
+	}
+	return err
+}
+
+//
+// Validate - checks for missing required fields, etc
+//
+func (self *SignedPolicyRequest) Validate() error {
+	if self.Domains == nil {
+		return fmt.Errorf("SignedPolicyRequest: Missing required field: domains")
+	}
+	return nil
+}
+
+//
+// SignedPolicyDataList - Signed policy data for a list of domains. Only
+// domains that have been modified since the given tags are included
+//
+type SignedPolicyDataList struct {
+
+	//
+	// signed policy data for the modified domains
+	//
+	Domains []*DomainSignedPolicyData `json:"domains"`
+
+	//
+	// list of requested domains not known by the server
+	//
+	UnknownDomains []DomainName `json:"unknownDomains,omitempty" rdl:"optional"`
+}
+
+//
+// NewSignedPolicyDataList - creates an initialized SignedPolicyDataList instance, returns a pointer to it
+//
+func NewSignedPolicyDataList(init ...*SignedPolicyDataList) *SignedPolicyDataList {
+	var o *SignedPolicyDataList
+	if len(init) == 1 {
+		o = init[0]
+	} else {
+		o = new(SignedPolicyDataList)
+	}
+	return o.Init()
+}
+
+//
+// Init - sets up the instance according to its default field values, if any
+//
+func (self *SignedPolicyDataList) Init() *SignedPolicyDataList {
+	if self.Domains == nil {
+		self.Domains = make([]*DomainSignedPolicyData, 0)
+	}
+	return self
+}
+
+type rawSignedPolicyDataList SignedPolicyDataList
+
+//
+// UnmarshalJSON is defined for proper JSON decoding of a SignedPolicyDataList
+//
+func (self *SignedPolicyDataList) UnmarshalJSON(b []byte) error {
+	var m rawSignedPolicyDataList
+	err := json.Unmarshal(b, &m)
+	if err == nil {
+		o := SignedPolicyDataList(m)
+		*self = *((&o).Init())
+		err = self.Validate()
+	}
+	return err
+}
+
+//
+// Validate - checks for missing required fields, etc
+//
+func (self *SignedPolicyDataList) Validate() error {
+	if self.Domains == nil {
+		return fmt.Errorf("SignedPolicyDataList: Missing required field: domains")
+	}
+	return nil
+}
+
 //
 // RoleToken - A representation of a signed RoleToken
 //
@@ -167,6 +167,23 @@ func init() {
 	tDomainSignedPolicyData.Field("keyId", "String", false, nil, "the identifier of the key used to generate the signature")
 	sb.AddType(tDomainSignedPolicyData.Build())
 
+	tDomainPolicyTag := rdl.NewStructTypeBuilder("Struct", "DomainPolicyTag")
+	tDomainPolicyTag.Comment("A domain name along with the ETag of the signed policy data the client already has for the domain")
+	tDomainPolicyTag.Field("domainName", "DomainName", false, nil, "name of the domain")
+	tDomainPolicyTag.Field("matchingTag", "String", true, nil, "ETag returned for the domain signed policy data in the previous request")
+	sb.AddType(tDomainPolicyTag.Build())
+
+	tSignedPolicyRequest := rdl.NewStructTypeBuilder("Struct", "SignedPolicyRequest")
+	tSignedPolicyRequest.Comment("List of domains to retrieve signed policy data for")
+	tSignedPolicyRequest.ArrayField("domains", "DomainPolicyTag", false, "list of domains along with their current tags")
+	sb.AddType(tSignedPolicyRequest.Build())
+
+	tSignedPolicyDataList := rdl.NewStructTypeBuilder("Struct", "SignedPolicyDataList")
+	tSignedPolicyDataList.Comment("Signed policy data for a list of domains. Only domains that have been modified since the given tags are included")
+	tSignedPolicyDataList.ArrayField("domains", "DomainSignedPolicyData", false, "signed policy data for the modified domains")
+	tSignedPolicyDataList.ArrayField("unknownDomains", "DomainName", true, "list of requested domains not known by the server")
+	sb.AddType(tSignedPolicyDataList.Build())
+
 	tRoleToken := rdl.NewStructTypeBuilder("Struct", "RoleToken")
 	tRoleToken.Comment("A representation of a signed RoleToken")
 	tRoleToken.Field("token", "String", false, nil, "")
@@ -461,6 +478,15 @@ func init() {
 	mGetDomainSignedPolicyData.Exception("NOT_FOUND", "ResourceError", "")
 	sb.AddResource(mGetDomainSignedPolicyData.Build())
 
+	mPostSignedPolicyRequest := rdl.NewResourceBuilder("SignedPolicyDataList", "POST", "/signed_policy_data")
+	mPostSignedPolicyRequest.Comment("Get the signed policy data for a list of domains in a single request. For each domain the client specifies the ETag returned for the domain in the previous request and only the domains that have been modified since then are included in the response.")
+	mPostSignedPolicyRequest.Name("PostSignedPolicyRequest")
+	mPostSignedPolicyRequest.Input("request", "SignedPolicyRequest", false, "", "", false, nil, "list of domains and their current tags")
+	mPostSignedPolicyRequest.Auth("", "", true, "")
+	mPostSignedPolicyRequest.Exception("BAD_REQUEST", "ResourceError", "")
+	mPostSignedPolicyRequest.Exception("UNAUTHORIZED", "ResourceError", "")
+	sb.AddResource(mPostSignedPolicyRequest.Build())
+
 	mGetRoleToken := rdl.NewResourceBuilder("RoleToken", "GET", "/domain/{domainName}/token")
 	mGetRoleToken.Comment("Return a security token for the specific role in the namespace that the principal can assume. If the role is omitted, then all roles in the namespace that the authenticated user can assume are returned. the caller can specify how long the RoleToken should be valid for by specifying the minExpiryTime and maxExpiryTime parameters. The minExpiryTime specifies that the returned RoleToken must be at least valid (min/lower bound) for specified number of seconds, while maxExpiryTime specifies that the RoleToken must be at most valid (max/upper bound) for specified number of seconds. If both values are the same, the server must return a RoleToken for that many seconds. If no values are specified, the server's default RoleToken Timeout value is used.")
 	mGetRoleToken.Input("domainName", "DomainName", true, "", "", false, nil, "name of the domain")
@@ -638,7 +664,10 @@ func init() {
 	sb.AddResource(mPostSSHCertRequest.Build())
 
 	mGetJWKList := rdl.NewResourceBuilder("JWKList", "GET", "/oauth2/keys")
+	mGetJWKList.Comment("Get the list of ZTS JWKs. An ETag is generated for the list that changes when any of the keys change. If the If-None-Match header is provided, and it matches the ETag that would be returned, then a NOT_MODIFIED response is returned instead of the list.")
 	mGetJWKList.Input("rfc", "Bool", false, "rfc", "", true, false, "flag to indicate ec curve names are restricted to RFC values")
+	mGetJWKList.Input("matchingTag", "String", false, "", "If-None-Match", false, nil, "Retrieved from the previous request, this tag specifies to the server to return the list only if it has been modified")
+	mGetJWKList.Output("tag", "String", "ETag", false, "The current tag of the key list is returned in this header")
 	mGetJWKList.Auth("", "", true, "")
 	mGetJWKList.Exception("BAD_REQUEST", "ResourceError", "")
 	mGetJWKList.Exception("NOT_FOUND", "ResourceError", "")
@@ -1793,6 +1793,38 @@ public class ZMSClient implements Closeable {
         }
     }
 
+    /**
+     * Wait for domain change notifications from the ZMS Server. The server
+     * returns the list of domains modified since the change tag specified
+     * in the matchingTag argument. If there are no changes, the server will
+     * hold the request for up to the timeout seconds before returning null.
+     * The client must make sure its read timeout is longer than the
+     * requested timeout value.
+     *
+     * @param timeout         (can be null) max number of seconds the server
+     *                        should wait for domain changes
+     * @param matchingTag     (can be null) contains change tag received
+     *                        with last request. If null, the server returns
+     *                        right away with the current change tag
+     * @param responseHeaders contains the "tag" returned for the change
+     *                        notifications, map key = "tag", List should
+     *                        contain a single value String to be used
+     *                        with subsequent call as matchingTag to this API
+     * @return list of modified domains or null if there were no changes
+     * @throws ZMSClientException in case of failure
+     */
+    public DomainModifiedList getDomainChanges(Integer timeout, String matchingTag,
+                                               Map<String, List<String>> responseHeaders) {
+        updatePrincipal();
+        try {
+            return client.getDomainChanges(timeout, matchingTag, responseHeaders);
+        } catch (ResourceException ex) {
+            throw new ZMSClientException(ex.getCode(), ex.getData());
+        } catch (Exception ex) {
+            throw new ZMSClientException(ZMSClientException.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
     /**
      * For the specified user credentials return the corresponding User Token that
      * can be used for authenticating other ZMS operations. The client internally
@@ -1555,6 +1555,37 @@ public class ZMSRDLGeneratedClient {
 
     }
 
+    public DomainModifiedList getDomainChanges(Integer timeout, String matchingTag, java.util.Map<String, java.util.List<String>> headers) {
+        WebTarget target = base.path("/sys/domain_changes");
+        if (timeout != null) {
+            target = target.queryParam("timeout", timeout);
+        }
+        Invocation.Builder invocationBuilder = target.request("application/json");
+        if (credsHeader != null) {
+            invocationBuilder = credsHeader.startsWith("Cookie.") ? invocationBuilder.cookie(credsHeader.substring(7),
+                credsToken) : invocationBuilder.header(credsHeader, credsToken);
+        }
+        if (matchingTag != null) {
+            invocationBuilder = invocationBuilder.header("If-None-Match", matchingTag);
+        }
+        Response response = invocationBuilder.get();
+        int code = response.getStatus();
+        switch (code) {
+        case 200:
+        case 304:
+            if (headers != null) {
+                headers.put("tag", java.util.Arrays.asList((String) response.getHeaders().getFirst("ETag")));
+            }
+            if (code == 304) {
+                return null;
+            }
+            return response.readEntity(DomainModifiedList.class);
+        default:
+            throw new ResourceException(code, response.readEntity(ResourceError.class));
+        }
+
+    }
+
     public UserToken getUserToken(String userName, String serviceNames, Boolean header) {
         WebTarget target = base.path("/user/{userName}/token")
             .resolveTemplate("userName", userName);
@@ -1958,6 +1958,34 @@ public class ZMSClientTest {
         }
     }
 
+    @Test
+    public void testGetDomainChanges() {
+        ZMSClient client = createClient(systemAdminUser);
+        ZMSRDLGeneratedClient c = Mockito.mock(ZMSRDLGeneratedClient.class);
+        client.setZMSRDLGeneratedClient(c);
+        Map<String, List<String>> respHdrs = new HashMap<>();
+        DomainModifiedList domainChanges = Mockito.mock(DomainModifiedList.class);
+        Mockito.when(c.getDomainChanges(20, "tag1", respHdrs))
+                .thenReturn(domainChanges)
+                .thenThrow(new ZMSClientException(403, "Forbidden"))
+                .thenThrow(new NullPointerException());
+
+        assertEquals(client.getDomainChanges(20, "tag1", respHdrs), domainChanges);
+
+        try {
+            client.getDomainChanges(20, "tag1", respHdrs);
+            fail();
+        } catch (ZMSClientException ex) {
+            assertEquals(ex.getCode(), 403);
+        }
+        try {
+            client.getDomainChanges(20, "tag1", respHdrs);
+            fail();
+        } catch (ZMSClientException ex) {
+            assertEquals(ex.getCode(), 400);
+        }
+    }
+
     @Test
     public void testPutDefaultAdmins() {
         ZMSClient client = createClient(systemAdminUser);
@@ -26,6 +26,7 @@ import javax.net.ssl.SSLContext;
 import javax.security.auth.x500.X500Principal;
 
 import com.yahoo.athenz.auth.token.AccessToken;
+import com.yahoo.athenz.auth.token.AccessTokenVerifier;
 import com.yahoo.athenz.auth.token.jwts.JwtsSigningKeyResolver;
 import com.yahoo.athenz.auth.util.CryptoException;
 import org.slf4j.Logger;
@@ -67,6 +68,8 @@ public class AuthZpeClient {
     private static String zpeClientImplName;
     private static int allowedOffset = 300;
     private static JwtsSigningKeyResolver accessSignKeyResolver = null;
+    private static AccessTokenVerifier accessTokenVerifier = null;
+    private static int accessTokenCacheMaxSize = 100000;
 
     private static ZpeClient zpeClt = null;
     private static PublicKeyStore publicKeyStore = null;
@@ -168,6 +171,11 @@ public class AuthZpeClient {
         
         setTokenAllowedOffset(Integer.parseInt(System.getProperty(ZpeConsts.ZPE_PROP_TOKEN_OFFSET, "300")));
 
+        // set the maximum number of validated access tokens to cache
+
+        setAccessTokenCacheMaxSize(Integer.parseInt(System.getProperty(
+                ZpeConsts.ZPE_PROP_MAX_ACCESS_TOKEN_CACHE_SIZE, "100000")));
+
         // load the x509 issuers
         
         setX509CAIssuers(System.getProperty(ZpeConsts.ZPE_PROP_X509_CA_ISSUERS));
@@ -200,6 +208,24 @@ public class AuthZpeClient {
         }
     }
     
+    /**
+     * Set the maximum number of validated access tokens that ZPE
+     * keeps in its cache. Once the limit is reached, new tokens are
+     * still validated but not cached until expired tokens are
+     * removed by the cleanup task.
+     * @param maxSize maximum number of cached access tokens
+     */
+    public static void setAccessTokenCacheMaxSize(int maxSize) {
+
+        accessTokenCacheMaxSize = maxSize;
+
+        // case of invalid value, we'll default back to 100K
+
+        if (accessTokenCacheMaxSize < 0) {
+            accessTokenCacheMaxSize = 100000;
+        }
+    }
+
     /**
      * Set the list of Athenz CA issuers with their full DNs that
      * ZPE should honor.
@@ -257,7 +283,11 @@ public class AuthZpeClient {
      * @param sslContext ssl context to be used when establishing connection
      */
     public static void setAccessTokenSignKeyResolver(final String serverUrl, SSLContext sslContext) {
+        if (accessSignKeyResolver != null) {
+            accessSignKeyResolver.shutdown();
+        }
         accessSignKeyResolver = new JwtsSigningKeyResolver(serverUrl, sslContext);
+        accessTokenVerifier = new AccessTokenVerifier(accessSignKeyResolver);
     }
 
     /**
@@ -540,9 +570,9 @@ public class AuthZpeClient {
 
             try {
                 if (cert == null && certHash == null) {
-                    acsToken = new AccessToken(accessToken, accessSignKeyResolver);
+                    acsToken = accessTokenVerifier.verify(accessToken);
                 } else {
-                    acsToken = new AccessToken(accessToken, accessSignKeyResolver, cert, certHash);
+                    acsToken = accessTokenVerifier.verify(accessToken, cert, certHash);
                 }
             } catch (CryptoException ex) {
 
@@ -560,7 +590,9 @@ public class AuthZpeClient {
                 return AccessCheckStatus.DENY_ROLETOKEN_INVALID;
             }
 
-            tokenCache.put(accessToken, acsToken);
+            if (tokenCache.size() < accessTokenCacheMaxSize) {
+                tokenCache.put(accessToken, acsToken);
+            }
 
         } else {
             zpeMetric.increment(ZpeConsts.ZPE_METRIC_NAME_CACHE_SUCCESS, acsToken.getAudience());
@@ -57,6 +57,7 @@ public final class ZpeConsts {
     public static final String ZPE_PROP_PUBLIC_KEY_CLASS      = "athenz.zpe.public_key_class";
     public static final String ZPE_PROP_CLIENT_IMPL           = "athenz.zpe.updater_class";
     public static final String ZPE_PROP_TOKEN_OFFSET          = "athenz.zpe.token_allowed_offset";
+    public static final String ZPE_PROP_MAX_ACCESS_TOKEN_CACHE_SIZE = "athenz.zpe.max_access_token_cache_size";
     public static final String ZPE_PROP_METRIC_WRITE_INTERVAL = "athenz.zpe.metric_write_interval";
     public static final String ZPE_PROP_METRIC_FILE_PATH      = "athenz.zpe.metric_file_path";
     public static final String ZPE_PROP_MON_TIMEOUT           = "athenz.zpe.monitor_timeout_secs";
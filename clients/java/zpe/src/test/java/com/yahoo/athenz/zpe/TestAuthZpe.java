@@ -884,6 +884,31 @@ public class TestAuthZpe {
         Assert.assertEquals(roleName.toString(), "matchall");
     }
 
+    @Test
+    public void testAllowAccessTokenCacheMaxSize() {
+
+        String action = "all";
+        String resource = "angler:stuff";
+        StringBuilder roleName = new StringBuilder();
+
+        List<String> roles = Collections.singletonList("matchall");
+        final String accessToken = createAccessToken("angler", roles, "0", expirationTime + 10);
+
+        // with our cache full the token is validated but not cached
+
+        AuthZpeClient.setAccessTokenCacheMaxSize(0);
+        AccessCheckStatus status = AuthZpeClient.allowAccess(accessToken, resource, action, roleName);
+        Assert.assertEquals(status, AccessCheckStatus.ALLOW);
+        assertNull(ZpeUpdPolLoader.getAccessTokenCacheMap().get(accessToken));
+
+        // invalid value resets the default size so the token is cached
+
+        AuthZpeClient.setAccessTokenCacheMaxSize(-1);
+        status = AuthZpeClient.allowAccess(accessToken, resource, action, roleName);
+        Assert.assertEquals(status, AccessCheckStatus.ALLOW);
+        assertNotNull(ZpeUpdPolLoader.getAccessTokenCacheMap().get(accessToken));
+    }
+
     @Test
     public void testAllowAccessCertHashMismatch() throws IOException {
 
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.perf;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.athenz.auth.token.AccessToken;
+import com.yahoo.athenz.auth.token.AccessTokenVerifier;
+import com.yahoo.athenz.auth.token.jwts.JwtsSigningKeyResolver;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the access token verifier against the jjwt based
+ * AccessToken constructor for uncached RS256 and ES256 tokens.
+ *
+ * mvn -Djmh test-compile exec:exec@jmh-benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessTokenVerifierBenchmark {
+
+    @Param({"RS256", "ES256"})
+    public String algorithm;
+
+    private JwtsSigningKeyResolver keyResolver;
+    private AccessTokenVerifier verifier;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+
+        KeyPair keyPair;
+        if ("RS256".equals(algorithm)) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            keyPair = generator.generateKeyPair();
+        } else {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            keyPair = generator.generateKeyPair();
+        }
+
+        keyResolver = new JwtsSigningKeyResolver(null, null);
+        keyResolver.addPublicKey("0", keyPair.getPublic());
+        verifier = new AccessTokenVerifier(keyResolver);
+
+        long now = System.currentTimeMillis() / 1000;
+        AccessToken accessToken = new AccessToken();
+        accessToken.setVersion(1);
+        accessToken.setAuthTime(now);
+        accessToken.setIssueTime(now);
+        accessToken.setExpiryTime(now + 3600);
+        accessToken.setIssuer("https://athenz.io");
+        accessToken.setAudience("coretech");
+        accessToken.setSubject("user_domain.user");
+        accessToken.setUserId("user");
+        accessToken.setClientId("user_domain.client");
+        accessToken.setScope(Arrays.asList("readers", "writers"));
+        accessToken.setConfirmEntry(AccessToken.CLAIM_CONFIRM_X509_HASH,
+                "A4DtL2JmUMhAsvJj5tKyn64SqzmuXbMrJa0n761y5v0");
+        token = accessToken.getSignedToken(keyPair.getPrivate(), "0", SignatureAlgorithm.forName(algorithm));
+    }
+
+    @Benchmark
+    public AccessToken jjwtParser() {
+        return new AccessToken(token, keyResolver);
+    }
+
+    @Benchmark
+    public AccessToken accessTokenVerifier() {
+        return verifier.verify(token);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.perf;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.athenz.auth.token.RoleToken;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the index based RoleToken parser against the String.split
+ * based parser it replaced for a typical signed role token.
+ *
+ * mvn -Djmh test-compile exec:exec@jmh-benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoleTokenParserBenchmark {
+
+    private static final String ROLE_TOKEN = "v=Z1;d=coretech;r=readers,writers,admin;c=1;p=user_domain.user;"
+            + "h=zts.athenz.io;a=aAkjbbDMhnLX;t=1603000000;e=1603003600;k=zts.prod.0;i=10.11.12.13;"
+            + "s=VNjfJpUBmgVmfrk7Hxl7QUQ1pUdP3f5mQNd6FLkD3oR2Kd4j7CZqpUaEnTuhe2K4fzcgOTPTMsHAU6RZmXWTkA--";
+
+    @Benchmark
+    public RoleToken indexParser() {
+        return new RoleToken(ROLE_TOKEN);
+    }
+
+    @Benchmark
+    public Object[] splitParser() {
+
+        final String signedToken = ROLE_TOKEN;
+        String unsignedToken = null;
+        String signature = null;
+        int idx = signedToken.indexOf(";s=");
+        if (idx != -1) {
+            unsignedToken = signedToken.substring(0, idx);
+            signature = signedToken.substring(idx + 3);
+        }
+
+        // same field extraction as the original RoleToken(String) constructor
+
+        final String parseToken = unsignedToken != null ? unsignedToken : signedToken;
+        String[] fields = new String[12];
+        boolean domainCompleteRoleSet = false;
+        long expiryTime = 0;
+        long timestamp = 0;
+        for (String item : parseToken.split(";")) {
+            String [] kv = item.split("=");
+            if (kv.length == 2) {
+                switch (kv[0]) {
+                case "a": fields[0] = kv[1]; break;
+                case "c":
+                    if (Integer.parseInt(kv[1]) == 1) {
+                        domainCompleteRoleSet = true;
+                    }
+                    break;
+                case "d": fields[1] = kv[1]; break;
+                case "e": expiryTime = Long.parseLong(kv[1]); break;
+                case "h": fields[2] = kv[1]; break;
+                case "i": fields[3] = kv[1]; break;
+                case "k": fields[4] = kv[1]; break;
+                case "p": fields[5] = kv[1]; break;
+                case "r": fields[6] = kv[1]; break;
+                case "t": timestamp = Long.parseLong(kv[1]); break;
+                case "proxy": fields[7] = kv[1]; break;
+                case "v": fields[8] = kv[1]; break;
+                }
+            }
+        }
+        if (fields[1] == null || fields[6] == null) {
+            throw new IllegalArgumentException("invalid token");
+        }
+        List<String> roles = Arrays.asList(fields[6].split(","));
+        return new Object[] { fields, roles, signature, unsignedToken, expiryTime, timestamp,
+                domainCompleteRoleSet };
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zpe.perf;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.athenz.auth.token.RoleToken;
+import com.yahoo.athenz.auth.util.Crypto;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the cost of decoding a role token signature with the cost
+ * of validating the token for RSA and EC signed role tokens.
+ *
+ * mvn -Djmh test-compile exec:exec@jmh-benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoleTokenSignatureBenchmark {
+
+    @Param({"RSA", "EC"})
+    public String algorithm;
+
+    private KeyPair keyPair;
+    private RoleToken roleToken;
+
+    @Setup
+    public void setup() throws Exception {
+
+        // Crypto only maps ECDSA keys to a signature algorithm so the
+        // EC key pair is generated with the BouncyCastle provider
+
+        Security.addProvider(new BouncyCastleProvider());
+        if ("RSA".equals(algorithm)) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            keyPair = generator.generateKeyPair();
+        } else {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("ECDSA", "BC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            keyPair = generator.generateKeyPair();
+        }
+
+        RoleToken token = new RoleToken.Builder("Z1", "coretech", Arrays.asList("readers", "writers"))
+                .principal("user_domain.user").host("zts.athenz.io").salt("aAkjbbDMhnLX")
+                .expirationWindow(3600).keyId("0").build();
+        token.sign(keyPair.getPrivate());
+        roleToken = new RoleToken(token.getSignedToken());
+    }
+
+    @Benchmark
+    public byte[] decodeSignature() {
+        return Crypto.ybase64Decode(roleToken.getSignature());
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return roleToken.validate(keyPair.getPublic(), 300, false, null);
+    }
+}
@@ -856,9 +856,26 @@ public class ZTSClient implements Closeable {
      * @return list of public keys (JWKs) on success. ZTSClientException will be thrown in case of failure
      */
     public JWKList getJWKList(boolean rfcCurveNames) {
+        return getJWKList(rfcCurveNames, null, null);
+    }
+
+    /**
+     * Retrieve list of ZTS Server public keys in Json WEB Key (JWK) format
+     * only if the list has been modified since the previous request
+     * @param rfcCurveNames EC curve names - use values defined in RFC only
+     * @param matchingTag (can be null) contains modified timestamp received
+     *     with last request. If the list has not been modified, the server
+     *     will return null
+     * @param responseHeaders contains the "tag" returned for modification
+     *   time of the list, map key = "tag", List should contain a single value string
+     * @return list of public keys (JWKs) on success or null if the list has not
+     *   been modified. ZTSClientException will be thrown in case of failure
+     */
+    public JWKList getJWKList(boolean rfcCurveNames, String matchingTag,
+            Map<String, List<String>> responseHeaders) {
         updateServicePrincipal();
         try {
-            return ztsClient.getJWKList(rfcCurveNames);
+            return ztsClient.getJWKList(rfcCurveNames, matchingTag, responseHeaders);
         } catch (ResourceException ex) {
             throw new ZTSClientException(ex.getCode(), ex.getData());
         } catch (Exception ex) {
@@ -2418,6 +2435,25 @@ public class ZTSClient implements Closeable {
         }
     }
     
+    /**
+     * Retrieve the signed policy data for the given list of domains in a single
+     * request. For each domain the client specifies the tag returned by the server
+     * in the previous request and ZTS only returns the signed policy data for
+     * the domains that have been modified since that tag was issued.
+     * @param request list of domain names along with their matching tags
+     * @return list of signed policies for the modified domains and the list of
+     *   domains not known by the server. ZTSClientException will be thrown in case of failure
+     */
+    public SignedPolicyDataList postSignedPolicyRequest(SignedPolicyRequest request) {
+        try {
+            return ztsClient.postSignedPolicyRequest(request);
+        } catch (ResourceException ex) {
+            throw new ZTSClientException(ex.getCode(), ex.getData());
+        } catch (Exception ex) {
+            throw new ZTSClientException(ZTSClientException.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
     /**
      * Verify if the given principal has access to the specified role in the
      * domain or not.
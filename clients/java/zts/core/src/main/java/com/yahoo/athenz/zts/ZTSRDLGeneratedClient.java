@@ -210,6 +210,24 @@ public class ZTSRDLGeneratedClient {
 
     }
 
+    public SignedPolicyDataList postSignedPolicyRequest(SignedPolicyRequest request) {
+        WebTarget target = base.path("/signed_policy_data");
+        Invocation.Builder invocationBuilder = target.request("application/json");
+        if (credsHeader != null) {
+            invocationBuilder = credsHeader.startsWith("Cookie.") ? invocationBuilder.cookie(credsHeader.substring(7),
+                credsToken) : invocationBuilder.header(credsHeader, credsToken);
+        }
+        Response response = invocationBuilder.post(javax.ws.rs.client.Entity.entity(request, "application/json"));
+        int code = response.getStatus();
+        switch (code) {
+        case 200:
+            return response.readEntity(SignedPolicyDataList.class);
+        default:
+            throw new ResourceException(code, response.readEntity(ResourceError.class));
+        }
+
+    }
+
     public RoleToken getRoleToken(String domainName, String role, Integer minExpiryTime, Integer maxExpiryTime, String proxyForPrincipal) {
         WebTarget target = base.path("/domain/{domainName}/token")
             .resolveTemplate("domainName", domainName);
@@ -533,7 +551,7 @@ public class ZTSRDLGeneratedClient {
 
     }
 
-    public JWKList getJWKList(Boolean rfc) {
+    public JWKList getJWKList(Boolean rfc, String matchingTag, java.util.Map<String, java.util.List<String>> headers) {
         WebTarget target = base.path("/oauth2/keys");
         if (rfc != null) {
             target = target.queryParam("rfc", rfc);
@@ -543,10 +561,20 @@ public class ZTSRDLGeneratedClient {
             invocationBuilder = credsHeader.startsWith("Cookie.") ? invocationBuilder.cookie(credsHeader.substring(7),
                 credsToken) : invocationBuilder.header(credsHeader, credsToken);
         }
+        if (matchingTag != null) {
+            invocationBuilder = invocationBuilder.header("If-None-Match", matchingTag);
+        }
         Response response = invocationBuilder.get();
         int code = response.getStatus();
         switch (code) {
         case 200:
+        case 304:
+            if (headers != null) {
+                headers.put("tag", java.util.Arrays.asList((String) response.getHeaders().getFirst("ETag")));
+            }
+            if (code == 304) {
+                return null;
+            }
             return response.readEntity(JWKList.class);
         default:
             throw new ResourceException(code, response.readEntity(ResourceError.class));
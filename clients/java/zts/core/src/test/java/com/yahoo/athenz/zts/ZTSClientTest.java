@@ -1691,6 +1691,36 @@ public class ZTSClientTest {
         client.close();
     }
 
+    @Test
+    public void testGetJWKListNotModified() {
+
+        Principal principal = SimplePrincipal.create("user_domain", "user",
+                "auth_creds", PRINCIPAL_AUTHORITY);
+
+        ZTSRDLClientMock ztsClientMock = new ZTSRDLClientMock();
+        ZTSClient client = new ZTSClient("http://localhost:4080", principal);
+        ZTSClient.cancelPrefetch();
+        client.setZTSRDLGeneratedClient(ztsClientMock);
+
+        Map<String, List<String>> responseHeaders = new HashMap<>();
+        JWKList jwkList = client.getJWKList(false, null, responseHeaders);
+        assertNotNull(jwkList);
+        final String tag = responseHeaders.get("tag").get(0);
+        assertEquals(tag, "\"jwk-tag\"");
+
+        // with the same tag we get no data back
+
+        responseHeaders.clear();
+        assertNull(client.getJWKList(false, tag, responseHeaders));
+        assertEquals(responseHeaders.get("tag").get(0), tag);
+
+        // the rfc list has its own tag
+
+        assertNotNull(client.getJWKList(true, tag, null));
+
+        client.close();
+    }
+
     @Test
     public void testGetJWKListRFC() {
 
@@ -1945,6 +1975,36 @@ public class ZTSClientTest {
         client.close();
     }
 
+    @Test
+    public void testPostSignedPolicyRequest() {
+        ZTSRDLClientMock ztsClientMock = new ZTSRDLClientMock();
+        ztsClientMock.setPolicyName("policy1");
+        Principal principal = SimplePrincipal.create("user_domain", "user",
+                "v=S1;d=user_domain;n=user;s=sig", PRINCIPAL_AUTHORITY);
+        ZTSClient client = new ZTSClient("http://localhost:4080", principal);
+        client.setZTSRDLGeneratedClient(ztsClientMock);
+
+        List<DomainPolicyTag> domainTags = new ArrayList<>();
+        domainTags.add(new DomainPolicyTag().setDomainName("coretech"));
+        domainTags.add(new DomainPolicyTag().setDomainName("sports").setMatchingTag("\"2020-01-01T00:00:00.000Z\""));
+        SignedPolicyDataList signedPolicyDataList = client.postSignedPolicyRequest(
+                new SignedPolicyRequest().setDomains(domainTags));
+        assertNotNull(signedPolicyDataList);
+        assertEquals(signedPolicyDataList.getDomains().size(), 2);
+        assertEquals(signedPolicyDataList.getDomains().get(0).getSignedPolicyData()
+                .getPolicyData().getDomain(), "coretech");
+        assertEquals(signedPolicyDataList.getDomains().get(1).getSignedPolicyData()
+                .getPolicyData().getDomain(), "sports");
+
+        try {
+            client.postSignedPolicyRequest(null);
+            fail();
+        } catch (ZTSClientException ex) {
+            assertEquals(ex.getCode(), 400);
+        }
+        client.close();
+    }
+
     @Test
     public void testGetTenantDomains() {
         ZTSRDLClientMock ztsClientMock = new ZTSRDLClientMock();
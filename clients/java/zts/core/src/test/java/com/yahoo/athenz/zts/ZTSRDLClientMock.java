@@ -87,7 +87,7 @@ public class ZTSRDLClientMock extends ZTSRDLGeneratedClient implements java.io.C
     }
 
     @Override
-    public JWKList getJWKList(Boolean rfc) {
+    public JWKList getJWKList(Boolean rfc, String matchingTag, Map<String, List<String>> headers) {
 
         if (jwkExcCode != 0) {
             if (jwkExcCode < 500) {
@@ -97,6 +97,14 @@ public class ZTSRDLClientMock extends ZTSRDLGeneratedClient implements java.io.C
             }
         }
 
+        final String tag = rfc ? "\"jwk-rfc-tag\"" : "\"jwk-tag\"";
+        if (headers != null) {
+            headers.put("tag", Collections.singletonList(tag));
+        }
+        if (tag.equals(matchingTag)) {
+            return null;
+        }
+
         JWKList jwkList = new JWKList();
         List<JWK> list = new ArrayList<>();
         if (rfc) {
@@ -314,6 +322,23 @@ public class ZTSRDLClientMock extends ZTSRDLGeneratedClient implements java.io.C
         
         return domSignedPolicyData;
     }
+
+    @Override
+    public SignedPolicyDataList postSignedPolicyRequest(SignedPolicyRequest request) {
+        if (request == null) {
+            throw new ResourceException(400, "Invalid request");
+        }
+
+        List<DomainSignedPolicyData> domains = new ArrayList<>();
+        for (DomainPolicyTag domainTag : request.getDomains()) {
+            DomainSignedPolicyData data = getDomainSignedPolicyData(domainTag.getDomainName(),
+                    domainTag.getMatchingTag(), null);
+            if (data != null) {
+                domains.add(data);
+            }
+        }
+        return new SignedPolicyDataList().setDomains(domains);
+    }
     
     @Override
     public TenantDomains getTenantDomains(String providerDomainName, String userName,
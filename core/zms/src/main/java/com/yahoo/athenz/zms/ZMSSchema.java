@@ -1661,6 +1661,22 @@ public class ZMSSchema {
             .exception("UNAUTHORIZED", "ResourceError", "")
 ;
 
+        sb.resource("DomainModifiedList", "GET", "/sys/domain_changes")
+            .comment("Wait for domain change notifications from the server. The server will return the list of domains modified since the change tag specified in the If-None-Match header. If no domains have been modified, the server will hold the request until a change takes place or the timeout expires in which case it returns NOT_MODIFIED. If the change tag is not specified or not recognized by the server, the server returns NOT_MODIFIED right away with the current change tag. The returned ETag header must be used as the matching tag in the next request. The caller must be authorized from sys.auth domain to watch domain changes (action: access, resource: domain-changes)")
+            .queryParam("timeout", "timeout", "Int32", null, "max number of seconds the server should wait for changes")
+            .headerParam("If-None-Match", "matchingTag", "String", null, "Retrieved from the previous request, this tag specifies to the server to return any domains modified since then")
+            .output("ETag", "tag", "String", "The current change tag is returned in this header")
+            .auth("", "", true)
+            .expected("OK")
+            .exception("BAD_REQUEST", "ResourceError", "")
+
+            .exception("FORBIDDEN", "ResourceError", "")
+
+            .exception("TOO_MANY_REQUESTS", "ResourceError", "")
+
+            .exception("UNAUTHORIZED", "ResourceError", "")
+;
+
         sb.resource("UserToken", "GET", "/user/{userName}/token")
             .comment("Return a user/principal token for the specified authenticated user. Typical authenticated users with their native credentials are not allowed to update their domain data. They must first obtain a UserToken and then use that token for authentication and authorization of their update requests.")
             .pathParam("userName", "SimpleName", "name of the user")
@@ -0,0 +1,50 @@
+//
+// This file generated by rdl 1.5.2. Do not modify!
+//
+
+package com.yahoo.athenz.zts;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.yahoo.rdl.*;
+
+//
+// DomainPolicyTag - A domain name along with the ETag of the signed policy
+// data the client already has for the domain
+//
+public class DomainPolicyTag {
+    public String domainName;
+    @RdlOptional
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public String matchingTag;
+
+    public DomainPolicyTag setDomainName(String domainName) {
+        this.domainName = domainName;
+        return this;
+    }
+    public String getDomainName() {
+        return domainName;
+    }
+    public DomainPolicyTag setMatchingTag(String matchingTag) {
+        this.matchingTag = matchingTag;
+        return this;
+    }
+    public String getMatchingTag() {
+        return matchingTag;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        if (this != another) {
+            if (another == null || another.getClass() != DomainPolicyTag.class) {
+                return false;
+            }
+            DomainPolicyTag a = (DomainPolicyTag) another;
+            if (domainName == null ? a.domainName != null : !domainName.equals(a.domainName)) {
+                return false;
+            }
+            if (matchingTag == null ? a.matchingTag != null : !matchingTag.equals(a.matchingTag)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+//
+// This file generated by rdl 1.5.2. Do not modify!
+//
+
+package com.yahoo.athenz.zts;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import com.yahoo.rdl.*;
+
+//
+// SignedPolicyDataList - Signed policy data for a list of domains. Only
+// domains that have been modified since the given tags are included
+//
+public class SignedPolicyDataList {
+    public List<DomainSignedPolicyData> domains;
+    @RdlOptional
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<String> unknownDomains;
+
+    public SignedPolicyDataList setDomains(List<DomainSignedPolicyData> domains) {
+        this.domains = domains;
+        return this;
+    }
+    public List<DomainSignedPolicyData> getDomains() {
+        return domains;
+    }
+    public SignedPolicyDataList setUnknownDomains(List<String> unknownDomains) {
+        this.unknownDomains = unknownDomains;
+        return this;
+    }
+    public List<String> getUnknownDomains() {
+        return unknownDomains;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        if (this != another) {
+            if (another == null || another.getClass() != SignedPolicyDataList.class) {
+                return false;
+            }
+            SignedPolicyDataList a = (SignedPolicyDataList) another;
+            if (domains == null ? a.domains != null : !domains.equals(a.domains)) {
+                return false;
+            }
+            if (unknownDomains == null ? a.unknownDomains != null : !unknownDomains.equals(a.unknownDomains)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,36 @@
+//
+// This file generated by rdl 1.5.2. Do not modify!
+//
+
+package com.yahoo.athenz.zts;
+import java.util.List;
+import com.yahoo.rdl.*;
+
+//
+// SignedPolicyRequest - List of domains to retrieve signed policy data for
+//
+public class SignedPolicyRequest {
+    public List<DomainPolicyTag> domains;
+
+    public SignedPolicyRequest setDomains(List<DomainPolicyTag> domains) {
+        this.domains = domains;
+        return this;
+    }
+    public List<DomainPolicyTag> getDomains() {
+        return domains;
+    }
+
+    @Override
+    public boolean equals(Object another) {
+        if (this != another) {
+            if (another == null || another.getClass() != SignedPolicyRequest.class) {
+                return false;
+            }
+            SignedPolicyRequest a = (SignedPolicyRequest) another;
+            if (domains == null ? a.domains != null : !domains.equals(a.domains)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
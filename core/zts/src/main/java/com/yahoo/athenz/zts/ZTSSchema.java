@@ -142,6 +142,20 @@ public class ZTSSchema {
             .field("signature", "String", false, "signature generated based on the domain policies object")
             .field("keyId", "String", false, "the identifier of the key used to generate the signature");
 
+        sb.structType("DomainPolicyTag")
+            .comment("A domain name along with the ETag of the signed policy data the client already has for the domain")
+            .field("domainName", "DomainName", false, "name of the domain")
+            .field("matchingTag", "String", true, "ETag returned for the domain signed policy data in the previous request");
+
+        sb.structType("SignedPolicyRequest")
+            .comment("List of domains to retrieve signed policy data for")
+            .arrayField("domains", "DomainPolicyTag", false, "list of domains along with their current tags");
+
+        sb.structType("SignedPolicyDataList")
+            .comment("Signed policy data for a list of domains. Only domains that have been modified since the given tags are included")
+            .arrayField("domains", "DomainSignedPolicyData", false, "signed policy data for the modified domains")
+            .arrayField("unknownDomains", "DomainName", true, "list of requested domains not known by the server");
+
         sb.structType("RoleToken")
             .comment("A representation of a signed RoleToken")
             .field("token", "String", false, "")
@@ -425,6 +439,17 @@ public class ZTSSchema {
             .exception("NOT_FOUND", "ResourceError", "")
 ;
 
+        sb.resource("SignedPolicyDataList", "POST", "/signed_policy_data")
+            .comment("Get the signed policy data for a list of domains in a single request. For each domain the client specifies the ETag returned for the domain in the previous request and only the domains that have been modified since then are included in the response.")
+            .name("PostSignedPolicyRequest")
+            .input("request", "SignedPolicyRequest", "list of domains and their current tags")
+            .auth("", "", true)
+            .expected("OK")
+            .exception("BAD_REQUEST", "ResourceError", "")
+
+            .exception("UNAUTHORIZED", "ResourceError", "")
+;
+
         sb.resource("RoleToken", "GET", "/domain/{domainName}/token")
             .comment("Return a security token for the specific role in the namespace that the principal can assume. If the role is omitted, then all roles in the namespace that the authenticated user can assume are returned. the caller can specify how long the RoleToken should be valid for by specifying the minExpiryTime and maxExpiryTime parameters. The minExpiryTime specifies that the returned RoleToken must be at least valid (min/lower bound) for specified number of seconds, while maxExpiryTime specifies that the RoleToken must be at most valid (max/upper bound) for specified number of seconds. If both values are the same, the server must return a RoleToken for that many seconds. If no values are specified, the server's default RoleToken Timeout value is used.")
             .pathParam("domainName", "DomainName", "name of the domain")
@@ -660,7 +685,10 @@ public class ZTSSchema {
 ;
 
         sb.resource("JWKList", "GET", "/oauth2/keys")
+            .comment("Get the list of ZTS JWKs. An ETag is generated for the list that changes when any of the keys change. If the If-None-Match header is provided, and it matches the ETag that would be returned, then a NOT_MODIFIED response is returned instead of the list.")
             .queryParam("rfc", "rfc", "Bool", false, "flag to indicate ec curve names are restricted to RFC values")
+            .headerParam("If-None-Match", "matchingTag", "String", null, "Retrieved from the previous request, this tag specifies to the server to return the list only if it has been modified")
+            .output("ETag", "tag", "String", "The current tag of the key list is returned in this header")
             .auth("", "", true)
             .expected("OK")
             .exception("BAD_REQUEST", "ResourceError", "")
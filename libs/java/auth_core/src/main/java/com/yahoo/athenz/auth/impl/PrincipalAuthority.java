@@ -16,6 +16,7 @@
 package com.yahoo.athenz.auth.impl;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +27,7 @@ import com.yahoo.athenz.auth.KeyStore;
 import com.yahoo.athenz.auth.Principal;
 import com.yahoo.athenz.auth.token.PrincipalToken;
 import com.yahoo.athenz.auth.token.Token;
+import com.yahoo.athenz.auth.util.Crypto;
 
 public class PrincipalAuthority implements Authority, AuthorityKeyStore {
     
@@ -37,6 +39,7 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
     static final String ATHENZ_PROP_TOKEN_OFFSET = "athenz.auth.principal.token_allowed_offset";
     private static final String ATHENZ_PROP_IP_CHECK_MODE = "athenz.auth.principal.remote_ip_check_mode";
     private static final String ATHENZ_PROP_USER_DOMAIN = "athenz.user_domain";
+    static final String ATHENZ_PROP_CACHE_MAX_SIZE = "athenz.auth.principal.cache_max_size";
     
     public static final String HTTP_HEADER = "Athenz-Principal-Auth";
     public static final String ATHENZ_AUTH_CHALLENGE = "AthenzPrincipalToken realm=\"athenz\"";
@@ -55,13 +58,39 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
     IpCheckMode ipCheckMode;
     final String userDomain;
     private String headerName;
-    
+
+    // cache of successfully authenticated tokens indexed by the digest
+    // of the signed token so we don't need to parse the token and
+    // verify its signature(s) for every request
+
+    final ConcurrentHashMap<String, CachedPrincipal> principalCache = new ConcurrentHashMap<>();
+    int cacheMaxSize;
+    private long cachePurgeTime = 0;
+
+    static class CachedPrincipal {
+        String domain;
+        String name;
+        String unsignedToken;
+        long timestamp;
+        long expiryTime;
+        String authorizedServiceName;
+        String authorizedServiceKeyId;
+        String originalRequestor;
+        String keyService;
+        String ip;
+        String keyId;
+        boolean userToken;
+        String publicKey;
+        String authorizedServicePublicKey;
+    }
+
     public PrincipalAuthority() {
         allowedOffset = Integer.parseInt(System.getProperty(ATHENZ_PROP_TOKEN_OFFSET, "300"));
         ipCheckMode = IpCheckMode.valueOf(System.getProperty(ATHENZ_PROP_IP_CHECK_MODE,
                 IpCheckMode.OPS_WRITE.toString()));
         userDomain = System.getProperty(ATHENZ_PROP_USER_DOMAIN, USER_DOMAIN);
         headerName = System.getProperty(ATHENZ_PROP_PRINCIPAL_HEADER, HTTP_HEADER);
+        cacheMaxSize = Integer.parseInt(System.getProperty(ATHENZ_PROP_CACHE_MAX_SIZE, "10000"));
         
         // case of invalid value, we'll default back to 5 minutes
         
@@ -98,6 +127,18 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
             LOG.debug("Authenticating PrincipalToken: " + signedToken);
         }
 
+        /* check if we have already authenticated this token. if the cached
+         * entry is no longer valid for this request then we'll go through
+         * the full validation so the caller gets the appropriate error */
+
+        final String cacheKey = getCacheKey(signedToken);
+        if (cacheKey != null) {
+            Principal principal = getCachedPrincipal(cacheKey, signedToken, remoteAddr, httpMethod);
+            if (principal != null) {
+                return principal;
+            }
+        }
+
         PrincipalToken serviceToken;
         try {
             serviceToken = new PrincipalToken(signedToken);
@@ -147,7 +188,9 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
          * bypass IP address mismatch for users */
         
         String authorizedServiceName = null;
+        String authorizedServicePublicKey = null;
         if (serviceToken.getAuthorizedServiceSignature() != null) {
+            authorizedServicePublicKey = getAuthorizedServicePublicKey(serviceToken);
             authorizedServiceName = validateAuthorizeService(serviceToken, errDetail);
             if (authorizedServiceName == null) {
                 errMsg.append("PrincipalAuthority:authenticate: validation of authorized service failure: ").
@@ -179,16 +222,153 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
         princ.setKeyService(keyService);
         princ.setIP(serviceToken.getIP());
         princ.setKeyId(serviceToken.getKeyId());
+
+        if (cacheKey != null) {
+            addCachedPrincipal(cacheKey, serviceToken, tokenDomain, tokenName, userToken,
+                    authorizedServiceName, publicKey, authorizedServicePublicKey);
+        }
         return princ;
     }
 
+    String getCacheKey(final String signedToken) {
+        if (cacheMaxSize <= 0 || signedToken == null) {
+            return null;
+        }
+        return Crypto.ybase64(Crypto.sha256(signedToken));
+    }
+
+    Principal getCachedPrincipal(final String cacheKey, final String signedToken,
+            final String remoteAddr, final String httpMethod) {
+
+        CachedPrincipal cachedPrincipal = principalCache.get(cacheKey);
+        if (cachedPrincipal == null) {
+            return null;
+        }
+
+        /* the token must not have expired since we have cached it */
+
+        if (cachedPrincipal.expiryTime < System.currentTimeMillis() / 1000) {
+            principalCache.remove(cacheKey);
+            return null;
+        }
+
+        /* if the public key(s) used to validate the token have changed
+         * then the cached entry is no longer valid */
+
+        final String publicKey = getPublicKey(cachedPrincipal.domain, cachedPrincipal.name,
+                cachedPrincipal.keyService, cachedPrincipal.keyId, cachedPrincipal.userToken);
+        if (publicKey == null || !publicKey.equals(cachedPrincipal.publicKey)) {
+            principalCache.remove(cacheKey);
+            return null;
+        }
+
+        if (cachedPrincipal.authorizedServicePublicKey != null) {
+            final String authorizedServiceName = cachedPrincipal.authorizedServiceName;
+            final int idx = authorizedServiceName.lastIndexOf('.');
+            final String authorizedServicePublicKey = keyStore.getPublicKey(authorizedServiceName.substring(0, idx),
+                    authorizedServiceName.substring(idx + 1), cachedPrincipal.authorizedServiceKeyId);
+            if (!cachedPrincipal.authorizedServicePublicKey.equals(authorizedServicePublicKey)) {
+                principalCache.remove(cacheKey);
+                return null;
+            }
+        }
+
+        /* the ip check depends on the request so it's always carried out */
+
+        if (cachedPrincipal.userToken && !checkRemoteIp(remoteAddr, isWriteOperation(httpMethod),
+                cachedPrincipal.ip, cachedPrincipal.authorizedServiceName)) {
+            return null;
+        }
+
+        SimplePrincipal princ = (SimplePrincipal) SimplePrincipal.create(cachedPrincipal.domain,
+                cachedPrincipal.name, signedToken, cachedPrincipal.timestamp, this);
+        princ.setUnsignedCreds(cachedPrincipal.unsignedToken);
+        princ.setAuthorizedService(cachedPrincipal.authorizedServiceName);
+        princ.setOriginalRequestor(cachedPrincipal.originalRequestor);
+        princ.setKeyService(cachedPrincipal.keyService);
+        princ.setIP(cachedPrincipal.ip);
+        princ.setKeyId(cachedPrincipal.keyId);
+        return princ;
+    }
+
+    void addCachedPrincipal(final String cacheKey, PrincipalToken serviceToken, final String tokenDomain,
+            final String tokenName, boolean userToken, final String authorizedServiceName,
+            final String publicKey, final String authorizedServicePublicKey) {
+
+        /* we're not going to cache tokens without expiry since they
+         * are only accepted for read operations */
+
+        if (serviceToken.getExpiryTime() == 0) {
+            return;
+        }
+
+        if (authorizedServiceName != null && authorizedServicePublicKey == null) {
+            return;
+        }
+
+        /* if our cache is full, we'll purge any expired entries
+         * but no more than once a minute */
+
+        if (principalCache.size() >= cacheMaxSize) {
+            final long now = System.currentTimeMillis() / 1000;
+            if (now - cachePurgeTime < 60) {
+                return;
+            }
+            cachePurgeTime = now;
+            principalCache.values().removeIf(entry -> entry.expiryTime < now);
+            if (principalCache.size() >= cacheMaxSize) {
+                return;
+            }
+        }
+
+        CachedPrincipal cachedPrincipal = new CachedPrincipal();
+        cachedPrincipal.domain = tokenDomain;
+        cachedPrincipal.name = tokenName;
+        cachedPrincipal.unsignedToken = serviceToken.getUnsignedToken();
+        cachedPrincipal.timestamp = serviceToken.getTimestamp();
+        cachedPrincipal.expiryTime = serviceToken.getExpiryTime();
+        cachedPrincipal.authorizedServiceName = authorizedServiceName;
+        cachedPrincipal.authorizedServiceKeyId = serviceToken.getAuthorizedServiceKeyId();
+        cachedPrincipal.originalRequestor = serviceToken.getOriginalRequestor();
+        cachedPrincipal.keyService = serviceToken.getKeyService();
+        cachedPrincipal.ip = serviceToken.getIP();
+        cachedPrincipal.keyId = serviceToken.getKeyId();
+        cachedPrincipal.userToken = userToken;
+        cachedPrincipal.publicKey = publicKey;
+        cachedPrincipal.authorizedServicePublicKey = authorizedServicePublicKey;
+        principalCache.put(cacheKey, cachedPrincipal);
+    }
+
+    String getAuthorizedServicePublicKey(PrincipalToken serviceToken) {
+
+        String authorizedServiceName = serviceToken.getAuthorizedServiceName();
+        if (authorizedServiceName == null) {
+            List<String> authorizedServices = serviceToken.getAuthorizedServices();
+            if (authorizedServices == null || authorizedServices.size() != 1) {
+                return null;
+            }
+            authorizedServiceName = authorizedServices.get(0);
+        }
+        int idx = authorizedServiceName.lastIndexOf('.');
+        if (idx <= 0 || idx == authorizedServiceName.length() - 1) {
+            return null;
+        }
+        return keyStore.getPublicKey(authorizedServiceName.substring(0, idx),
+                authorizedServiceName.substring(idx + 1), serviceToken.getAuthorizedServiceKeyId());
+    }
+
     boolean remoteIpCheck(String remoteAddr, boolean writeOp, PrincipalToken serviceToken,
             String authorizedServiceName) {
+        return checkRemoteIp(remoteAddr, writeOp, serviceToken.getIP(), authorizedServiceName);
+    }
+
+    boolean checkRemoteIp(String remoteAddr, boolean writeOp, String tokenIp,
+            String authorizedServiceName) {
         
         boolean checkResult = true;
         switch (ipCheckMode) {
             case OPS_ALL:
-                if (!remoteAddr.equals(serviceToken.getIP())) {
+                if (!remoteAddr.equals(tokenIp)) {
                     checkResult = false;
                 }
                 break;
@@ -197,7 +377,7 @@ public class PrincipalAuthority implements Authority, AuthorityKeyStore {
                  * mismatch then we'll allow this authenticate request to proceed only if it's
                  * been configured with authorized user only. */
                 
-                if (writeOp && !remoteAddr.equals(serviceToken.getIP())) {
+                if (writeOp && !remoteAddr.equals(tokenIp)) {
                     
                     if (authorizedServiceName == null) {
                         checkResult = false;
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.auth.token;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.athenz.auth.token.jwts.JwtsSigningKeyResolver;
+import com.yahoo.athenz.auth.util.CryptoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Verifier for access tokens issued by ZTS. Athenz access tokens have a
+ * fixed set of header fields and claims and are signed with either RS256
+ * or ES256 algorithms, so instead of going through the generic jjwt
+ * parser we decode and verify the token directly: the header and claims
+ * are processed with a streaming json parser and the signature is
+ * verified with per-thread Signature objects. Any token that does not
+ * fit the Athenz access token profile or fails validation is handed to
+ * the jjwt based AccessToken constructor so the caller gets the exact
+ * same result (and exceptions) as before.
+ */
+public class AccessTokenVerifier {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccessTokenVerifier.class);
+
+    static final String ALG_RS256 = "RS256";
+    static final String ALG_ES256 = "ES256";
+
+    static final String HDR_ALGORITHM = "alg";
+
+    static final String CLAIM_AUDIENCE = "aud";
+    static final String CLAIM_EXPIRATION = "exp";
+    static final String CLAIM_ISSUED_AT = "iat";
+    static final String CLAIM_NOT_BEFORE = "nbf";
+    static final String CLAIM_ISSUER = "iss";
+    static final String CLAIM_SUBJECT = "sub";
+
+    // same clock skew as configured for the jjwt parser in OAuth2Token
+
+    static final long ALLOWED_CLOCK_SKEW_MILLIS = 60000;
+
+    // size of the R and S values in ES256 jws signatures
+
+    static final int ES256_VALUE_SIZE = 32;
+
+    // only RSA keys with at least this size are verified by us,
+    // any shorter keys are left for the jjwt parser to process
+
+    static final int RSA_MIN_KEY_SIZE = 2048;
+
+    private static final JsonFactory JSON_FACTORY = new ObjectMapper().getFactory();
+
+    private static final ThreadLocal<Signature> RSA_SIGNATURE =
+            ThreadLocal.withInitial(() -> getSignatureInstance("SHA256withRSA"));
+    private static final ThreadLocal<Signature> EC_SIGNATURE =
+            ThreadLocal.withInitial(() -> getSignatureInstance("SHA256withECDSA"));
+
+    private final JwtsSigningKeyResolver keyResolver;
+
+    /**
+     * Create a new verifier with the given key resolver
+     * @param keyResolver JwtsSigningKeyResolver key resolver providing
+     *                    the public key for token signature validation
+     */
+    public AccessTokenVerifier(JwtsSigningKeyResolver keyResolver) {
+        this.keyResolver = keyResolver;
+    }
+
+    /**
+     * Parses and validates the given access token. The result is the
+     * same as calling new AccessToken(token, keyResolver)
+     * @param token access token
+     * @return validated access token
+     */
+    public AccessToken verify(final String token) {
+
+        AccessToken accessToken = parse(token);
+        return (accessToken != null) ? accessToken : new AccessToken(token, keyResolver);
+    }
+
+    /**
+     * Parses and validates the given mTLS bound access token. The result
+     * is the same as calling new AccessToken(token, keyResolver, x509Cert, x509CertHash)
+     * @param token access token
+     * @param x509Cert x.509 certificate to validate confirmation claim
+     * @param x509CertHash x.509 certificate hash for proxy use case
+     * @return validated access token
+     */
+    public AccessToken verify(final String token, X509Certificate x509Cert, final String x509CertHash) {
+
+        AccessToken accessToken = parse(token);
+        if (accessToken == null) {
+            return new AccessToken(token, keyResolver, x509Cert, x509CertHash);
+        }
+
+        if (!accessToken.confirmMTLSBoundToken(x509Cert, x509CertHash)) {
+            LOG.error("AccessTokenVerifier: X.509 Certificate Confirmation failure");
+            throw new CryptoException(CryptoException.CERT_HASH_MISMATCH, "X.509 Certificate Confirmation failure");
+        }
+        return accessToken;
+    }
+
+    /**
+     * Parse and validate the given token if it follows the Athenz access
+     * token profile.
+     * @param token access token
+     * @return validated access token or null if the token must be
+     *      processed by the jjwt parser
+     */
+    AccessToken parse(final String token) {
+
+        // our token must be in the jws compact serialization
+        // format: header.payload.signature
+
+        if (token == null) {
+            return null;
+        }
+
+        final int headerEnd = token.indexOf('.');
+        if (headerEnd <= 0) {
+            return null;
+        }
+        final int payloadEnd = token.indexOf('.', headerEnd + 1);
+        if (payloadEnd == -1 || payloadEnd == headerEnd + 1 || payloadEnd == token.length() - 1
+                || token.indexOf('.', payloadEnd + 1) != -1) {
+            return null;
+        }
+
+        try {
+            final Header header = parseHeader(decode(token, 0, headerEnd));
+            if (header == null || !verifySignature(token, header, payloadEnd)) {
+                return null;
+            }
+
+            return parseClaims(decode(token, headerEnd + 1, payloadEnd), System.currentTimeMillis());
+
+        } catch (Exception ex) {
+            LOG.debug("AccessTokenVerifier: unable to process token: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    static byte[] decode(final String token, int start, int end) {
+        return Base64.getUrlDecoder().decode(token.substring(start, end));
+    }
+
+    static class Header {
+        final String algorithm;
+        final String keyId;
+
+        Header(final String algorithm, final String keyId) {
+            this.algorithm = algorithm;
+            this.keyId = keyId;
+        }
+    }
+
+    /**
+     * Parse the token header and return the signature algorithm and the
+     * key id. If the header includes any other fields (e.g. compression)
+     * or the algorithm is not supported then we don't process the token.
+     */
+    Header parseHeader(final byte[] header) throws IOException {
+
+        String algorithm = null;
+        String keyId = null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(header)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                if (parser.nextToken() != JsonToken.VALUE_STRING) {
+                    return null;
+                }
+                switch (name) {
+                    case HDR_ALGORITHM:
+                        algorithm = parser.getText();
+                        break;
+                    case OAuth2Token.HDR_KEY_ID:
+                        keyId = parser.getText();
+                        break;
+                    case AccessToken.HDR_TOKEN_TYPE:
+                        break;
+                    default:
+                        return null;
+                }
+            }
+        }
+
+        if (keyId == null || !(ALG_RS256.equals(algorithm) || ALG_ES256.equals(algorithm))) {
+            return null;
+        }
+
+        return new Header(algorithm, keyId);
+    }
+
+    boolean verifySignature(final String token, final Header header, int payloadEnd) throws Exception {
+
+        PublicKey publicKey = keyResolver.getPublicKey(header.keyId);
+        if (publicKey == null) {
+            return false;
+        }
+
+        byte[] signatureBytes = decode(token, payloadEnd + 1, token.length());
+        Signature signature;
+        if (ALG_RS256.equals(header.algorithm)) {
+            if (!(publicKey instanceof RSAPublicKey)
+                    || ((RSAPublicKey) publicKey).getModulus().bitLength() < RSA_MIN_KEY_SIZE) {
+                return false;
+            }
+            signature = RSA_SIGNATURE.get();
+        } else {
+            if (!(publicKey instanceof ECPublicKey) || signatureBytes.length != 2 * ES256_VALUE_SIZE) {
+                return false;
+            }
+            signatureBytes = transcodeSignatureToDER(signatureBytes);
+            signature = EC_SIGNATURE.get();
+        }
+
+        signature.initVerify(publicKey);
+        signature.update(token.substring(0, payloadEnd).getBytes(StandardCharsets.US_ASCII));
+        return signature.verify(signatureBytes);
+    }
+
+    /**
+     * Parse the token claims and verify the token times with the same
+     * checks as the jjwt parser: the token must not be expired and if
+     * specified, the not before time must have passed, both with the
+     * configured clock skew.
+     */
+    AccessToken parseClaims(final byte[] payload, long now) throws IOException {
+
+        AccessToken accessToken = new AccessToken();
+        Long expiryTime = null;
+        Long issueTime = null;
+        Long notBeforeTime = null;
+        Long authTime = null;
+        Integer version = null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                switch (name) {
+                    case CLAIM_EXPIRATION:
+                        expiryTime = getLongValue(parser, value);
+                        break;
+                    case CLAIM_ISSUED_AT:
+                        issueTime = getLongValue(parser, value);
+                        break;
+                    case CLAIM_NOT_BEFORE:
+                        notBeforeTime = getLongValue(parser, value);
+                        break;
+                    case OAuth2Token.CLAIM_AUTH_TIME:
+                        authTime = getLongValue(parser, value);
+                        break;
+                    case OAuth2Token.CLAIM_VERSION:
+                        version = (value == JsonToken.VALUE_NUMBER_INT) ? parser.getIntValue() : null;
+                        break;
+                    case CLAIM_AUDIENCE:
+                        accessToken.setAudience(getStringValue(parser, value));
+                        break;
+                    case CLAIM_ISSUER:
+                        accessToken.setIssuer(getStringValue(parser, value));
+                        break;
+                    case CLAIM_SUBJECT:
+                        accessToken.setSubject(getStringValue(parser, value));
+                        break;
+                    case AccessToken.CLAIM_CLIENT_ID:
+                        accessToken.setClientId(getStringValue(parser, value));
+                        break;
+                    case AccessToken.CLAIM_UID:
+                        accessToken.setUserId(getStringValue(parser, value));
+                        break;
+                    case AccessToken.CLAIM_PROXY:
+                        accessToken.setProxyPrincipal(getStringValue(parser, value));
+                        break;
+                    case AccessToken.CLAIM_SCOPE:
+                        accessToken.setScope(getStringListValue(parser, value));
+                        break;
+                    case AccessToken.CLAIM_CONFIRM:
+                        accessToken.setConfirm(getMapValue(parser, value));
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        }
+
+        // the jjwt based parser requires all of these claims
+        // so we're going to let it generate the appropriate error
+
+        if (expiryTime == null || issueTime == null || authTime == null || version == null) {
+            return null;
+        }
+
+        if (now - ALLOWED_CLOCK_SKEW_MILLIS > expiryTime * 1000) {
+            return null;
+        }
+        if (notBeforeTime != null && now + ALLOWED_CLOCK_SKEW_MILLIS < notBeforeTime * 1000) {
+            return null;
+        }
+
+        accessToken.setExpiryTime(expiryTime);
+        accessToken.setIssueTime(issueTime);
+        accessToken.setAuthTime(authTime);
+        accessToken.setVersion(version);
+        return accessToken;
+    }
+
+    static Long getLongValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_INT) {
+            throw new IOException("Unsupported numeric claim value: " + value);
+        }
+        return parser.getLongValue();
+    }
+
+    static String getStringValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value != JsonToken.VALUE_STRING) {
+            throw new IOException("Unsupported string claim value: " + value);
+        }
+        return parser.getText();
+    }
+
+    static List<String> getStringListValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value != JsonToken.START_ARRAY) {
+            throw new IOException("Unsupported list claim value: " + value);
+        }
+        List<String> list = new ArrayList<>();
+        JsonToken item = parser.nextToken();
+        while (item != JsonToken.END_ARRAY) {
+            if (item != JsonToken.VALUE_STRING) {
+                throw new IOException("Unsupported list item value: " + item);
+            }
+            list.add(parser.getText());
+            item = parser.nextToken();
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    static LinkedHashMap<String, Object> getMapValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value != JsonToken.START_OBJECT) {
+            throw new IOException("Unsupported object claim value: " + value);
+        }
+        return parser.readValueAs(LinkedHashMap.class);
+    }
+
+    /**
+     * Convert the ES256 jws signature - concatenated R and S values - into
+     * the DER encoded ECDSA signature expected by the java Signature class
+     * @param jwsSignature jws signature
+     * @return DER encoded signature
+     */
+    static byte[] transcodeSignatureToDER(final byte[] jwsSignature) {
+
+        final byte[] r = encodeDERInteger(jwsSignature, 0);
+        final byte[] s = encodeDERInteger(jwsSignature, ES256_VALUE_SIZE);
+
+        // for P-256 the sequence length is always less than 128 bytes
+        // so we don't need to use the long form for the length
+
+        byte[] derSignature = new byte[2 + r.length + s.length];
+        derSignature[0] = 0x30;
+        derSignature[1] = (byte) (r.length + s.length);
+        System.arraycopy(r, 0, derSignature, 2, r.length);
+        System.arraycopy(s, 0, derSignature, 2 + r.length, s.length);
+        return derSignature;
+    }
+
+    static byte[] encodeDERInteger(final byte[] data, int offset) {
+
+        // skip any leading zeros but keep at least one byte
+
+        int start = offset;
+        final int end = offset + ES256_VALUE_SIZE;
+        while (start < end - 1 && data[start] == 0) {
+            start += 1;
+        }
+
+        // if the high bit is set we need a leading zero byte
+        // to indicate a positive value
+
+        final int padding = (data[start] & 0x80) != 0 ? 1 : 0;
+        final int length = end - start + padding;
+
+        byte[] value = new byte[2 + length];
+        value[0] = 0x02;
+        value[1] = (byte) length;
+        System.arraycopy(data, start, value, 2 + padding, end - start);
+        return value;
+    }
+
+    static Signature getSignatureInstance(final String algorithm) {
+        try {
+            return Signature.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new CryptoException(ex);
+        }
+    }
+}
@@ -15,7 +15,6 @@
  */
 package com.yahoo.athenz.auth.token;
 
-import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -224,52 +223,77 @@ public class RoleToken extends Token {
             signature = signedToken.substring(idx + 3);
         }
 
-        final String parseToken = unsignedToken != null ? unsignedToken : signedToken;
-        String roleNames = null;
-        for (String item : parseToken.split(";")) {
-            String [] kv = item.split("=");
-            if (kv.length == 2) {
-                switch (kv[0]) {
-                case "a":
-                    salt = kv[1];
-                    break;
-                case "c":
-                    if (Integer.parseInt(kv[1]) == 1) {
-                        domainCompleteRoleSet = true;
+        // we parse the fields directly from the signed token without
+        // splitting it into separate item strings. an item is only
+        // processed if it has the key=value format - items without
+        // a value or with multiple values are ignored
+
+        final int tokenEnd = (idx != -1) ? idx : signedToken.length();
+        int roleStart = -1;
+        int roleEnd = -1;
+        int itemStart = 0;
+        int separator = signedToken.indexOf('=');
+        while (itemStart < tokenEnd) {
+
+            int itemEnd = signedToken.indexOf(';', itemStart);
+            if (itemEnd == -1 || itemEnd > tokenEnd) {
+                itemEnd = tokenEnd;
+            }
+
+            if (separator != -1 && separator < itemStart) {
+                separator = signedToken.indexOf('=', itemStart);
+            }
+            final int valueStart = separator + 1;
+            final int valueEnd = (separator != -1 && separator < itemEnd) ?
+                    getFieldValueEnd(signedToken, valueStart, itemEnd) : -1;
+
+            if (valueEnd != -1) {
+                final int keyLength = valueStart - 1 - itemStart;
+                if (keyLength == 1) {
+                    switch (signedToken.charAt(itemStart)) {
+                    case 'a':
+                        salt = signedToken.substring(valueStart, valueEnd);
+                        break;
+                    case 'c':
+                        if (parseInt(signedToken, valueStart, valueEnd) == 1) {
+                            domainCompleteRoleSet = true;
+                        }
+                        break;
+                    case 'd':
+                        domain = signedToken.substring(valueStart, valueEnd);
+                        break;
+                    case 'e':
+                        expiryTime = parseLong(signedToken, valueStart, valueEnd);
+                        break;
+                    case 'h':
+                        host = signedToken.substring(valueStart, valueEnd);
+                        break;
+                    case 'i':
+                        ip = signedToken.substring(valueStart, valueEnd);
+                        break;
+                    case 'k':
+                        keyId = signedToken.substring(valueStart, valueEnd);
+                        break;
+                    case 'p':
+                        principal = signedToken.substring(valueStart, valueEnd);
+                        break;
+                    case 'r':
+                        roleStart = valueStart;
+                        roleEnd = valueEnd;
+                        break;
+                    case 't':
+                        timestamp = parseLong(signedToken, valueStart, valueEnd);
+                        break;
+                    case 'v':
+                        version = signedToken.substring(valueStart, valueEnd);
+                        break;
                     }
-                    break;
-                case "d":
-                    domain = kv[1];
-                    break;
-                case "e":
-                    expiryTime = Long.parseLong(kv[1]);
-                    break;
-                case "h":
-                    host = kv[1];
-                    break;
-                case "i":
-                    ip = kv[1];
-                    break;
-                case "k":
-                    keyId = kv[1];
-                    break;
-                case "p":
-                    principal = kv[1];
-                    break;
-                case "r":
-                    roleNames = kv[1];
-                    break;
-                case "t":
-                    timestamp = Long.parseLong(kv[1]);
-                    break;
-                case "proxy":
-                    proxyUser = kv[1];
-                    break;
-                case "v":
-                    version = kv[1];
-                    break;
+                } else if (keyLength == 5 && signedToken.startsWith("proxy", itemStart)) {
+                    proxyUser = signedToken.substring(valueStart, valueEnd);
                 }
             }
+
+            itemStart = itemEnd + 1;
         }
 
         /* the required attributes for the token are
@@ -282,11 +306,11 @@ public class RoleToken extends Token {
             throw new IllegalArgumentException("SignedToken does not contain required domain component");
         }
         
-        if (roleNames == null || roleNames.isEmpty()) {
+        if (roleStart == -1) {
             throw new IllegalArgumentException("SignedToken does not contain required roles component");
         }
         
-        roles = Arrays.asList(roleNames.split(","));
+        roles = parseList(signedToken, roleStart, roleEnd, ',');
 
         this.signedToken = signedToken;
 
@@ -294,7 +318,7 @@ public class RoleToken extends Token {
             LOG.debug("Values extracted from token " +
                     " version:" + version +
                     " domain:" + domain +
-                    " roles:" + roleNames +
+                    " roles:" + roles +
                     " principal:" + principal +
                     " host:" + host +
                     " salt:" + salt +
@@ -17,6 +17,9 @@ package com.yahoo.athenz.auth.token;
 
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -58,7 +61,17 @@ public class Token {
     }
 
     public void sign(PrivateKey key) throws CryptoException {
-        signature = Crypto.sign(unsignedToken, key, getDigestAlgorithm());
+        setSignature(Crypto.sign(unsignedToken, key, getDigestAlgorithm()));
+    }
+
+    /**
+     * Set the ybase64 encoded signature of the unsigned token generated
+     * by the caller with the token's digest algorithm (e.g. when the caller
+     * maintains its own pool of signers) and update the signed token
+     * @param signature ybase64 encoded signature of the unsigned token
+     */
+    public void setSignature(final String signature) {
+        this.signature = signature;
         signedToken = unsignedToken + ";s=" + signature;
     }
     
@@ -220,6 +233,112 @@ public class Token {
         return unsignedToken;
     }
 
+    /**
+     * Return the end index of the value of a key=value token field. Any
+     * trailing = characters are not part of the value and the field is
+     * rejected if the value is empty or includes another = character
+     * (e.g. k=v1=v2). This matches the fields accepted when splitting
+     * the field with String.split("=") and requiring 2 components.
+     * @param token token string
+     * @param valueStart index of the first character after the = separator
+     * @param itemEnd index of the ; separator or the end of the token
+     * @return end index (exclusive) of the value or -1 if the field is invalid
+     */
+    static int getFieldValueEnd(final String token, int valueStart, int itemEnd) {
+
+        int valueEnd = itemEnd;
+        while (valueEnd > valueStart && token.charAt(valueEnd - 1) == '=') {
+            valueEnd -= 1;
+        }
+        if (valueEnd == valueStart) {
+            return -1;
+        }
+        for (int i = valueStart; i < valueEnd; i++) {
+            if (token.charAt(i) == '=') {
+                return -1;
+            }
+        }
+        return valueEnd;
+    }
+
+    /**
+     * Parse the decimal number in the given range of the token. Plain
+     * digit values are parsed in place while anything else (e.g. sign
+     * characters or overflow) is delegated to Long.parseLong so that
+     * we generate the same values and exceptions.
+     * @param token token string
+     * @param start start index of the number
+     * @param end end index (exclusive) of the number
+     * @return parsed number
+     */
+    static long parseLong(final String token, int start, int end) {
+
+        // 18 digits always fit into a long value
+
+        if (end - start <= 18) {
+            long value = 0;
+            int i = start;
+            for (; i < end; i++) {
+                final char c = token.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (i == end) {
+                return value;
+            }
+        }
+        return Long.parseLong(token.substring(start, end));
+    }
+
+    static int parseInt(final String token, int start, int end) {
+
+        // 9 digits always fit into an int value
+
+        if (end - start <= 9) {
+            return (int) parseLong(token, start, end);
+        }
+        return Integer.parseInt(token.substring(start, end));
+    }
+
+    /**
+     * Split the given range of the token into a list of values with
+     * the same semantics as String.split - empty values are included
+     * except for any trailing ones.
+     * @param token token string
+     * @param start start index of the list
+     * @param end end index (exclusive) of the list
+     * @param separator value separator character
+     * @return list of values
+     */
+    static List<String> parseList(final String token, int start, int end, char separator) {
+
+        while (end > start && token.charAt(end - 1) == separator) {
+            end -= 1;
+        }
+        if (end == start) {
+            return Collections.emptyList();
+        }
+
+        int count = 1;
+        for (int i = start; i < end; i++) {
+            if (token.charAt(i) == separator) {
+                count += 1;
+            }
+        }
+
+        String[] values = new String[count];
+        int valueStart = start;
+        for (int i = 0; i < count - 1; i++) {
+            final int valueEnd = token.indexOf(separator, valueStart);
+            values[i] = token.substring(valueStart, valueEnd);
+            valueStart = valueEnd + 1;
+        }
+        values[count - 1] = token.substring(valueStart, end);
+        return Arrays.asList(values);
+    }
+
     /**
      * Helper method to parse a credential to remove the signature from the
      * raw credential string. Returning the unsigned credential.
@@ -32,7 +32,15 @@ import java.nio.file.Paths;
 import java.security.Key;
 import java.security.PublicKey;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.DeserializationFeature;
@@ -46,23 +54,96 @@ import javax.net.ssl.SSLSocketFactory;
 public class JwtsSigningKeyResolver implements SigningKeyResolver {
 
     public static final String ZTS_PROP_ATHENZ_CONF = "athenz.athenz_conf";
+    public static final String ZTS_PROP_JWK_REFRESH_INTERVAL = "athenz.jwk.refresh_interval";
+    public static final String ZTS_PROP_JWK_MIN_REFRESH_INTERVAL = "athenz.jwk.min_refresh_interval";
+
     private static final String ZTS_DEFAULT_ATHENZ_CONFIG = "/conf/athenz/athenz.conf";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(JwtsSigningKeyResolver.class);
     private static final ObjectMapper JSON_MAPPER = initJsonMapper();
 
+    // all resolvers share the same daemon thread to refresh their keys
+
+    private static ScheduledExecutorService refreshExecutor = null;
+
+    // keys loaded from the athenz.conf file or added by the caller
+
     ConcurrentHashMap<String, PublicKey> publicKeys;
 
+    // keys fetched from the server. the map is never modified once
+    // it's created - instead we replace it with the latest set of
+    // keys after each successful fetch
+
+    volatile Map<String, PublicKey> serverPublicKeys = Collections.emptyMap();
+
+    private final String serverUrl;
+    private final SSLContext sslContext;
+    private final long minRefreshIntervalMillis;
+    private final Object refreshLock = new Object();
+    private volatile String serverETag = null;
+    private volatile long lastRefreshTime = 0;
+    private ScheduledFuture<?> refreshTask = null;
+
+    final AtomicLong refreshCount = new AtomicLong();
+    final AtomicLong refreshNotModifiedCount = new AtomicLong();
+    final AtomicLong refreshFailureCount = new AtomicLong();
+    final AtomicLong refreshRateLimitedCount = new AtomicLong();
+    final AtomicLong keyMissCount = new AtomicLong();
+
     static ObjectMapper initJsonMapper() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
         return mapper;
     }
 
+    /**
+     * Create a new key resolver. The keys are loaded from the athenz.conf
+     * file and if the server url is specified, from the server as well.
+     * Keys from the server are refreshed in the background every
+     * athenz.jwk.refresh_interval seconds (default 1 hour, 0 disables
+     * the refresh) and on demand when asked for an unknown key id
+     * but no more than once every athenz.jwk.min_refresh_interval
+     * seconds (default 60 seconds).
+     * @param serverUrl server url to fetch json web keys
+     * @param sslContext ssl context to be used when establishing connection
+     */
     public JwtsSigningKeyResolver(final String serverUrl, final SSLContext sslContext) {
+
+        this.serverUrl = serverUrl;
+        this.sslContext = sslContext;
+        minRefreshIntervalMillis = TimeUnit.SECONDS.toMillis(
+                Long.parseLong(System.getProperty(ZTS_PROP_JWK_MIN_REFRESH_INTERVAL, "60")));
+
         publicKeys = new ConcurrentHashMap<>();
         loadPublicKeysFromConfig();
         loadPublicKeysFromServer(serverUrl, sslContext);
+
+        final long refreshInterval = Long.parseLong(System.getProperty(ZTS_PROP_JWK_REFRESH_INTERVAL, "3600"));
+        if (serverUrl != null && !serverUrl.isEmpty() && refreshInterval > 0) {
+            refreshTask = getRefreshExecutor().scheduleAtFixedRate(this::refreshPublicKeys,
+                    refreshInterval, refreshInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    static synchronized ScheduledExecutorService getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "JwtsSigningKeyResolver");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return refreshExecutor;
+    }
+
+    /**
+     * Stop the background refresh of the public keys from the server
+     */
+    public void shutdown() {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+            refreshTask = null;
+        }
     }
 
     @Override
@@ -76,13 +157,81 @@ public class JwtsSigningKeyResolver implements SigningKeyResolver {
     }
 
     private Key resolveSigningKey(JwsHeader jwsHeader) {
-        return publicKeys.get(jwsHeader.getKeyId());
+        return getPublicKey(jwsHeader.getKeyId());
+    }
+
+    /**
+     * Return the public key for the given key id. If the key is not
+     * known, we'll fetch the current set of keys from the server in
+     * case the keys have been rotated since our last refresh.
+     * @param keyId public key id
+     * @return public key or null if not found
+     */
+    public PublicKey getPublicKey(final String keyId) {
+
+        if (keyId == null) {
+            return null;
+        }
+
+        PublicKey publicKey = lookupPublicKey(keyId);
+        if (publicKey == null) {
+            keyMissCount.incrementAndGet();
+            if (refreshPublicKeysOnDemand()) {
+                publicKey = lookupPublicKey(keyId);
+            }
+        }
+        return publicKey;
+    }
+
+    PublicKey lookupPublicKey(final String keyId) {
+        PublicKey publicKey = serverPublicKeys.get(keyId);
+        return (publicKey != null) ? publicKey : publicKeys.get(keyId);
     }
 
     public void addPublicKey(final String keyId, final PublicKey publicKey) {
         publicKeys.put(keyId, publicKey);
     }
 
+    /**
+     * Fetch the keys from the server for an unknown key id. Only one
+     * thread fetches the keys while any other threads asking for
+     * unknown keys at the same time wait for its result. To make sure
+     * that a flood of tokens with invalid key ids does not generate
+     * a request for each token, we only contact the server if we
+     * haven't done so within the configured min refresh interval.
+     * @return true if the keys were refreshed and the lookup should be retried
+     */
+    boolean refreshPublicKeysOnDemand() {
+
+        if (serverUrl == null || serverUrl.isEmpty()) {
+            return false;
+        }
+
+        final long lastRefresh = lastRefreshTime;
+        if (System.currentTimeMillis() - lastRefresh < minRefreshIntervalMillis) {
+            refreshRateLimitedCount.incrementAndGet();
+            return false;
+        }
+
+        synchronized (refreshLock) {
+
+            // if another thread has refreshed the keys while we were
+            // waiting for the lock then we'll just use its result
+
+            if (lastRefreshTime != lastRefresh) {
+                return true;
+            }
+            loadPublicKeysFromServer(serverUrl, sslContext);
+            return true;
+        }
+    }
+
+    void refreshPublicKeys() {
+        synchronized (refreshLock) {
+            loadPublicKeysFromServer(serverUrl, sslContext);
+        }
+    }
+
     void loadPublicKeysFromServer(final String serverUrl, final SSLContext sslContext) {
 
         if (serverUrl == null || serverUrl.isEmpty()) {
@@ -90,10 +239,16 @@ public class JwtsSigningKeyResolver implements SigningKeyResolver {
             return;
         }
 
+        lastRefreshTime = System.currentTimeMillis();
+
         try {
             HttpsURLConnection con = getConnection(serverUrl);
             con.setRequestMethod("GET");
             con.setRequestProperty("Accept", "application/json");
+            final String eTag = serverETag;
+            if (eTag != null) {
+                con.setRequestProperty("If-None-Match", eTag);
+            }
             con.setReadTimeout(15000);
             con.setDoOutput(true);
             SSLSocketFactory sslSocketFactory = getSocketFactory(sslContext);
@@ -102,9 +257,17 @@ public class JwtsSigningKeyResolver implements SigningKeyResolver {
             }
             con.connect();
 
-            if (con.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            final int responseCode = con.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                LOGGER.debug("Json web keys from {} not modified", serverUrl);
+                refreshNotModifiedCount.incrementAndGet();
+                return;
+            }
+
+            if (responseCode != HttpURLConnection.HTTP_OK) {
                 LOGGER.error("Unable to extract json web keys from {} error: {}", serverUrl,
-                        con.getResponseCode());
+                        responseCode);
+                refreshFailureCount.incrementAndGet();
                 return;
             }
 
@@ -121,19 +284,64 @@ public class JwtsSigningKeyResolver implements SigningKeyResolver {
                 }
 
                 Keys keys = JSON_MAPPER.readValue(sb.toString(), Keys.class);
+                Map<String, PublicKey> keyMap = new HashMap<>();
                 for (com.yahoo.athenz.auth.token.jwts.Key key : keys.getKeys()) {
                     try {
-                        publicKeys.put(key.getKid(), key.getPublicKey());
+                        keyMap.put(key.getKid(), key.getPublicKey());
                     } catch (Exception ex) {
                         LOGGER.error("Unable to generate json web key for key-id {}", key.getKid());
                     }
                 }
+
+                // replace our server keys so any keys no longer
+                // published by the server are removed as well
+
+                serverPublicKeys = keyMap;
+                serverETag = con.getHeaderField("ETag");
+                refreshCount.incrementAndGet();
+                LOGGER.info("Loaded {} json web keys from {}", keyMap.size(), serverUrl);
             }
         } catch (Exception ex) {
             LOGGER.error("Unable to extract json web keys from {} error: {}", serverUrl, ex.getMessage());
+            refreshFailureCount.incrementAndGet();
         }
     }
 
+    /**
+     * @return number of successful key refreshes from the server
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * @return number of key refreshes where the server reported no changes
+     */
+    public long getRefreshNotModifiedCount() {
+        return refreshNotModifiedCount.get();
+    }
+
+    /**
+     * @return number of failed key refreshes from the server
+     */
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.get();
+    }
+
+    /**
+     * @return number of on demand refreshes skipped due to the min refresh interval
+     */
+    public long getRefreshRateLimitedCount() {
+        return refreshRateLimitedCount.get();
+    }
+
+    /**
+     * @return number of lookups for unknown key ids
+     */
+    public long getKeyMissCount() {
+        return keyMissCount.get();
+    }
+
     ///CLOVER:OFF
     SSLSocketFactory getSocketFactory(SSLContext sslContext) {
         return (sslContext == null) ? null : sslContext.getSocketFactory();
@@ -19,6 +19,7 @@ import java.io.*;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.cert.*;
@@ -31,8 +32,10 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.security.auth.x500.X500Principal;
 
@@ -120,6 +123,29 @@ public class Crypto {
     static final String ATHENZ_CRYPTO_BC_PROVIDER = "athenz.crypto.bc_provider";
     private static final String BC_PROVIDER = "BC";
 
+    // provider used for the sign/verify operations. By default we use
+    // Bouncycastle but the caller can specify JDK to use the default
+    // JDK providers (e.g. SunRsaSign and SunEC) if they are faster in
+    // their environment. If the JDK provider does not support the
+    // given key, we'll fall back to Bouncycastle.
+
+    static final String ATHENZ_CRYPTO_SIGNATURE_PROVIDER = "athenz.crypto.signature_provider";
+    static final String JDK_PROVIDER = "JDK";
+    static boolean USE_JDK_SIGNATURE_PROVIDER = JDK_PROVIDER.equalsIgnoreCase(
+            System.getProperty(ATHENZ_CRYPTO_SIGNATURE_PROVIDER, BC_PROVIDER));
+
+    // Signature, KeyFactory and MessageDigest objects are not thread-safe
+    // but looking up the provider and creating a new instance for every
+    // operation is expensive so we keep one instance per thread
+
+    private static final ThreadLocal<Map<String, java.security.Signature>> BC_SIGNATURES =
+            ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, java.security.Signature>> JDK_SIGNATURES =
+            ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, KeyFactory>> KEY_FACTORIES =
+            ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<MessageDigest> SHA256_DIGESTS = new ThreadLocal<>();
+
     static final SecureRandom RANDOM;
     static {
         Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
@@ -224,11 +250,35 @@ public class Crypto {
      * @throws CryptoException for any issues with provider/algorithm/signature/key
      */
     public static String sign(String message, PrivateKey key, String digestAlgorithm) throws CryptoException {
+        return sign(utf8Bytes(message), key, digestAlgorithm);
+    }
+
+    /**
+     * Sign the data with with given digest algorithm and private key. Returns the ybase64 encoding of it.
+     * @param message the data to sign
+     * @param key the private key to sign with
+     * @param digestAlgorithm supported values SHA1 and SHA256
+     * @return the ybase64 encoded signature for the data
+     * @throws CryptoException for any issues with provider/algorithm/signature/key
+     */
+    public static String sign(byte[] message, PrivateKey key, String digestAlgorithm) throws CryptoException {
+        return sign(ByteBuffer.wrap(message), key, digestAlgorithm);
+    }
+
+    /**
+     * Sign the remaining data in the buffer with with given digest algorithm and
+     * private key. Returns the ybase64 encoding of it.
+     * @param message the data to sign
+     * @param key the private key to sign with
+     * @param digestAlgorithm supported values SHA1 and SHA256
+     * @return the ybase64 encoded signature for the data
+     * @throws CryptoException for any issues with provider/algorithm/signature/key
+     */
+    public static String sign(ByteBuffer message, PrivateKey key, String digestAlgorithm) throws CryptoException {
         try {
             String signatureAlgorithm = getSignatureAlgorithm(key.getAlgorithm(), digestAlgorithm);
-            java.security.Signature signer = java.security.Signature.getInstance(signatureAlgorithm, BC_PROVIDER);
-            signer.initSign(key);
-            signer.update(utf8Bytes(message));
+            java.security.Signature signer = getSigner(signatureAlgorithm, key);
+            signer.update(message);
             byte[] sig = signer.sign();
             return ybase64(sig);
             /// CLOVER:OFF
@@ -270,13 +320,40 @@ public class Crypto {
      */
     public static boolean verify(String message, PublicKey key, String signature,
                                  String digestAlgorithm) throws CryptoException {
+        return verify(utf8Bytes(message), key, ybase64Decode(signature), digestAlgorithm);
+    }
+
+    /**
+     * Verify the signed data with given digest algorithm and the public key against the signature.
+     * @param message the signed data
+     * @param key the public key corresponding to the signing key
+     * @param signature the signature for the data (not ybase64 encoded)
+     * @param digestAlgorithm supported values SHA1 and SHA256
+     * @return true if the message was indeed signed by the signature.
+     * @throws CryptoException for any issues with provider/algorithm/signature/key
+     */
+    public static boolean verify(byte[] message, PublicKey key, byte[] signature,
+                                 String digestAlgorithm) throws CryptoException {
+        return verify(ByteBuffer.wrap(message), key, signature, digestAlgorithm);
+    }
+
+    /**
+     * Verify the remaining data in the buffer with given digest algorithm and the
+     * public key against the signature.
+     * @param message the signed data
+     * @param key the public key corresponding to the signing key
+     * @param signature the signature for the data (not ybase64 encoded)
+     * @param digestAlgorithm supported values SHA1 and SHA256
+     * @return true if the message was indeed signed by the signature.
+     * @throws CryptoException for any issues with provider/algorithm/signature/key
+     */
+    public static boolean verify(ByteBuffer message, PublicKey key, byte[] signature,
+                                 String digestAlgorithm) throws CryptoException {
         try {
-            byte [] sig = ybase64Decode(signature);
             String signatureAlgorithm = getSignatureAlgorithm(key.getAlgorithm(), digestAlgorithm);
-            java.security.Signature signer = java.security.Signature.getInstance(signatureAlgorithm, BC_PROVIDER);
-            signer.initVerify(key);
-            signer.update(utf8Bytes(message));
-            return signer.verify(sig);
+            java.security.Signature signer = getVerifier(signatureAlgorithm, key);
+            signer.update(message);
+            return signer.verify(signature);
             ///CLOVER:OFF
         } catch (NoSuchProviderException e) {
             LOG.error("verify: Caught NoSuchProviderException, check to make sure the provider is loaded correctly.");
@@ -306,6 +383,68 @@ public class Crypto {
         return verify(message, key, signature, SHA256);
     }
 
+    static java.security.Signature getSignature(final String signatureAlgorithm, boolean jdkProvider)
+            throws NoSuchAlgorithmException, NoSuchProviderException {
+
+        Map<String, java.security.Signature> signatures = jdkProvider ? JDK_SIGNATURES.get() : BC_SIGNATURES.get();
+        java.security.Signature signature = signatures.get(signatureAlgorithm);
+        if (signature == null) {
+            signature = jdkProvider ? java.security.Signature.getInstance(signatureAlgorithm)
+                    : java.security.Signature.getInstance(signatureAlgorithm, BC_PROVIDER);
+            signatures.put(signatureAlgorithm, signature);
+        }
+        return signature;
+    }
+
+    static java.security.Signature getSigner(final String signatureAlgorithm, PrivateKey key)
+            throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException {
+
+        if (USE_JDK_SIGNATURE_PROVIDER) {
+            try {
+                java.security.Signature signer = getSignature(signatureAlgorithm, true);
+                signer.initSign(key);
+                return signer;
+            } catch (NoSuchAlgorithmException | InvalidKeyException ex) {
+                LOG.debug("getSigner: JDK provider does not support {}: {}", signatureAlgorithm, ex.getMessage());
+            }
+        }
+
+        java.security.Signature signer = getSignature(signatureAlgorithm, false);
+        signer.initSign(key);
+        return signer;
+    }
+
+    static java.security.Signature getVerifier(final String signatureAlgorithm, PublicKey key)
+            throws NoSuchAlgorithmException, NoSuchProviderException, InvalidKeyException {
+
+        if (USE_JDK_SIGNATURE_PROVIDER) {
+            try {
+                java.security.Signature verifier = getSignature(signatureAlgorithm, true);
+                verifier.initVerify(key);
+                return verifier;
+            } catch (NoSuchAlgorithmException | InvalidKeyException ex) {
+                LOG.debug("getVerifier: JDK provider does not support {}: {}", signatureAlgorithm, ex.getMessage());
+            }
+        }
+
+        java.security.Signature verifier = getSignature(signatureAlgorithm, false);
+        verifier.initVerify(key);
+        return verifier;
+    }
+
+    static KeyFactory getKeyFactory(final String algorithm, final String provider)
+            throws NoSuchAlgorithmException, NoSuchProviderException {
+
+        Map<String, KeyFactory> keyFactories = KEY_FACTORIES.get();
+        final String name = algorithm + "/" + provider;
+        KeyFactory keyFactory = keyFactories.get(name);
+        if (keyFactory == null) {
+            keyFactory = KeyFactory.getInstance(algorithm, provider);
+            keyFactories.put(name, keyFactory);
+        }
+        return keyFactory;
+    }
+
     static String utf8String(byte [] b) {
         return new String(b, StandardCharsets.UTF_8);
     }
@@ -315,9 +454,12 @@ public class Crypto {
     }
 
     public static byte [] sha256(byte [] data) throws CryptoException {
-        MessageDigest sha256;
+        MessageDigest sha256 = SHA256_DIGESTS.get();
         try {
-            sha256 = MessageDigest.getInstance("SHA-256");
+            if (sha256 == null) {
+                sha256 = MessageDigest.getInstance("SHA-256");
+                SHA256_DIGESTS.set(sha256);
+            }
             ///CLOVER:OFF
         } catch (NoSuchAlgorithmException e) {
             LOG.error("sha256: Caught NoSuchAlgorithmException, check to make sure the algorithm is supported by the provider.");
@@ -484,7 +626,7 @@ public class Crypto {
             if (ecParam != null && ECDSA.equals(pubKey.getAlgorithm())) {
                 ECParameterSpec ecSpec = new ECParameterSpec(ecParam.getCurve(), ecParam.getG(),
                         ecParam.getN(), ecParam.getH(), ecParam.getSeed());
-                KeyFactory keyFactory = KeyFactory.getInstance(getECDSAAlgo(), getProvider());
+                KeyFactory keyFactory = getKeyFactory(getECDSAAlgo(), getProvider());
                 ECPublicKeySpec keySpec = new ECPublicKeySpec(((BCECPublicKey) pubKey).getQ(), ecSpec);
                 pubKey = keyFactory.generatePublic(keySpec);
             }
@@ -529,7 +671,7 @@ public class Crypto {
         switch (privateKey.getAlgorithm()) {
             case RSA:
                 try {
-                    KeyFactory kf = KeyFactory.getInstance(getRSAAlgo(), getProvider());
+                    KeyFactory kf = getKeyFactory(getRSAAlgo(), getProvider());
                     RSAPrivateCrtKey rsaCrtKey = (RSAPrivateCrtKey) privateKey;
                     RSAPublicKeySpec keySpec = new RSAPublicKeySpec(rsaCrtKey.getModulus(),
                             rsaCrtKey.getPublicExponent());
@@ -550,7 +692,7 @@ public class Crypto {
 
             case ECDSA:
                 try {
-                    KeyFactory kf = KeyFactory.getInstance(getECDSAAlgo(), getProvider());
+                    KeyFactory kf = getKeyFactory(getECDSAAlgo(), getProvider());
                     BCECPrivateKey ecPrivKey = (BCECPrivateKey) privateKey;
                     ECMultiplier ecMultiplier = new FixedPointCombMultiplier();
                     ECParameterSpec ecParamSpec = ecPrivKey.getParameters();
@@ -671,7 +813,7 @@ public class Crypto {
             if (ecParam != null && privKey != null && ECDSA.equals(privKey.getAlgorithm())) {
                 ECParameterSpec ecSpec = new ECParameterSpec(ecParam.getCurve(), ecParam.getG(),
                         ecParam.getN(), ecParam.getH(), ecParam.getSeed());
-                KeyFactory keyFactory = KeyFactory.getInstance(getECDSAAlgo(), getProvider());
+                KeyFactory keyFactory = getKeyFactory(getECDSAAlgo(), getProvider());
                 ECPrivateKeySpec keySpec = new ECPrivateKeySpec(((BCECPrivateKey) privKey).getS(), ecSpec);
                 privKey = keyFactory.generatePrivate(keySpec);
             }
@@ -1130,6 +1272,50 @@ public class Crypto {
             PrivateKey caPrivateKey, X500Name issuer, int validityTimeout,
             boolean basicConstraints) {
 
+        return generateX509Certificate(certReq, getContentSigner(caPrivateKey), issuer,
+                BigInteger.valueOf(System.currentTimeMillis()), validityTimeout, basicConstraints);
+    }
+
+    /**
+     * Create a content signer for the given CA private key. The signer
+     * may be reused to sign multiple certificates but it is not
+     * thread-safe so it must not be shared between threads.
+     * @param caPrivateKey CA private key
+     * @return content signer object
+     */
+    public static ContentSigner getContentSigner(PrivateKey caPrivateKey) {
+
+        try {
+            String signatureAlgorithm = getSignatureAlgorithm(caPrivateKey.getAlgorithm(), SHA256);
+            return new JcaContentSignerBuilder(signatureAlgorithm)
+                    .setProvider(BC_PROVIDER).build(caPrivateKey);
+        } catch (OperatorCreationException ex) {
+            LOG.error("getContentSigner: Caught OperatorCreationException when creating JcaContentSignerBuilder: "
+                    + ex.getMessage());
+            throw new CryptoException(ex);
+        } catch (NoSuchAlgorithmException ex) {
+            LOG.error("getContentSigner: Caught NoSuchAlgorithmException, check to make sure the algorithm is supported by the provider: "
+                    + ex.getMessage());
+            throw new CryptoException(ex);
+        }
+    }
+
+    /**
+     * Generate a X509 certificate for the given request signed with the
+     * given content signer. The caller is responsible for providing a
+     * unique serial number for the certificate.
+     * @param certReq certificate request
+     * @param caSigner content signer for the CA private key
+     * @param issuer issuer name
+     * @param serialNumber certificate serial number
+     * @param validityTimeout certificate validity time in minutes
+     * @param basicConstraints value for the basic constraints extension
+     * @return X509 certificate
+     */
+    public static X509Certificate generateX509Certificate(PKCS10CertificationRequest certReq,
+            ContentSigner caSigner, X500Name issuer, BigInteger serialNumber, int validityTimeout,
+            boolean basicConstraints) {
+
         // set validity for the given number of minutes from now
 
         Date notBefore = new Date();
@@ -1146,8 +1332,7 @@ public class Crypto {
             PublicKey publicKey = jcaPKCS10CertificationRequest.getPublicKey();
 
             X509v3CertificateBuilder caBuilder = new JcaX509v3CertificateBuilder(
-                    issuer, BigInteger.valueOf(System.currentTimeMillis()),
-                    notBefore, notAfter, certReq.getSubject(), publicKey)
+                    issuer, serialNumber, notBefore, notAfter, certReq.getSubject(), publicKey)
                     .addExtension(Extension.basicConstraints, false,
                             new BasicConstraints(basicConstraints))
                     .addExtension(Extension.keyUsage, true,
@@ -1186,10 +1371,6 @@ public class Crypto {
                 }
             }
 
-            String signatureAlgorithm = getSignatureAlgorithm(caPrivateKey.getAlgorithm(), SHA256);
-            ContentSigner caSigner = new JcaContentSignerBuilder(signatureAlgorithm)
-                    .setProvider(BC_PROVIDER).build(caPrivateKey);
-
             JcaX509CertificateConverter converter = new JcaX509CertificateConverter().setProvider(BC_PROVIDER);
             cert = converter.getCertificate(caBuilder.build(caSigner));
             ///CLOVER:OFF
@@ -1197,10 +1378,6 @@ public class Crypto {
             LOG.error("generateX509Certificate: Caught CertificateException when generating certificate: "
                     + ex.getMessage());
             throw new CryptoException(ex);
-        } catch (OperatorCreationException ex) {
-            LOG.error("generateX509Certificate: Caught OperatorCreationException when creating JcaContentSignerBuilder: "
-                    + ex.getMessage());
-            throw new CryptoException(ex);
         } catch (InvalidKeyException ex) {
             LOG.error("generateX509Certificate: Caught InvalidKeySpecException, invalid key spec is being used: "
                     + ex.getMessage());
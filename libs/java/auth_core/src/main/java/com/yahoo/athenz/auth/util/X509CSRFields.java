@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.auth.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERIA5String;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.pkcs.Attribute;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x500.style.IETFUtils;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+
+/**
+ * Immutable set of fields extracted from a PKCS10 certificate request.
+ * The subject and the subject alternative name extensions are processed
+ * in a single pass, instead of walking the same structures for every
+ * field as the individual Crypto.extractX509CSR* methods do. The values
+ * returned are identical to the values returned by those methods.
+ */
+public class X509CSRFields {
+
+    private final List<String> commonNames;
+    private final List<String> subjectOFields;
+    private final List<String> subjectOUFields;
+    private final List<String> dnsNames;
+    private final List<String> ipAddresses;
+    private final List<String> uris;
+    private final List<String> emails;
+    private final String publicKey;
+
+    public X509CSRFields(PKCS10CertificationRequest certReq) {
+
+        List<String> cnList = new ArrayList<>();
+        List<String> oList = new ArrayList<>();
+        List<String> ouList = new ArrayList<>();
+
+        X500Name x500name = certReq.getSubject();
+        if (x500name != null) {
+            for (RDN rdn : x500name.getRDNs()) {
+                addSubjectField(rdn, BCStyle.CN, cnList);
+                addSubjectField(rdn, BCStyle.O, oList);
+                addSubjectField(rdn, BCStyle.OU, ouList);
+            }
+        }
+
+        List<String> dnsList = new ArrayList<>();
+        List<String> ipList = new ArrayList<>();
+        List<String> uriList = new ArrayList<>();
+        List<String> emailList = new ArrayList<>();
+
+        Attribute[] attributes = certReq.getAttributes(PKCSObjectIdentifiers.pkcs_9_at_extensionRequest);
+        for (Attribute attribute : (attributes != null) ? attributes : new Attribute[0]) {
+            for (ASN1Encodable value : attribute.getAttributeValues()) {
+                Extensions extensions = Extensions.getInstance(value);
+                GeneralNames gns = GeneralNames.fromExtensions(extensions, Extension.subjectAlternativeName);
+                ///CLOVER:OFF
+                if (gns == null) {
+                    continue;
+                }
+                ///CLOVER:ON
+                for (GeneralName name : gns.getNames()) {
+                    switch (name.getTagNo()) {
+                        case GeneralName.dNSName:
+                            dnsList.add(((DERIA5String) name.getName()).getString());
+                            break;
+                        case GeneralName.uniformResourceIdentifier:
+                            uriList.add(((DERIA5String) name.getName()).getString());
+                            break;
+                        case GeneralName.rfc822Name:
+                            emailList.add(((DERIA5String) name.getName()).getString());
+                            break;
+                        case GeneralName.iPAddress:
+                            try {
+                                InetAddress addr = InetAddress.getByAddress(((DEROctetString) name.getName()).getOctets());
+                                ipList.add(addr.getHostAddress());
+                            } catch (UnknownHostException ignored) {
+                            }
+                            break;
+                    }
+                }
+            }
+        }
+
+        commonNames = Collections.unmodifiableList(cnList);
+        subjectOFields = Collections.unmodifiableList(oList);
+        subjectOUFields = Collections.unmodifiableList(ouList);
+        dnsNames = Collections.unmodifiableList(dnsList);
+        ipAddresses = Collections.unmodifiableList(ipList);
+        uris = Collections.unmodifiableList(uriList);
+        emails = Collections.unmodifiableList(emailList);
+        publicKey = Crypto.extractX509CSRPublicKey(certReq);
+    }
+
+    private static void addSubjectField(RDN rdn, ASN1ObjectIdentifier id, List<String> values) {
+
+        // we follow the same logic as X500Name.getRDNs(id) where a
+        // multi-valued rdn matches if any of its types match
+
+        for (AttributeTypeAndValue typeAndValue : rdn.getTypesAndValues()) {
+            if (typeAndValue.getType().equals(id)) {
+                values.add(IETFUtils.valueToString(rdn.getFirst().getValue()));
+                return;
+            }
+        }
+    }
+
+    private static String getSubjectField(List<String> values) {
+
+        // we're only supporting a single field in Athenz certificates so
+        // any other multiple value will be considered invalid
+
+        if (values.isEmpty()) {
+            return null;
+        }
+
+        if (values.size() != 1) {
+            throw new CryptoException("CSR Subject contains multiple values for the same field.");
+        }
+
+        return values.get(0);
+    }
+
+    /**
+     * @return the subject CN field or null if not present
+     * @throws CryptoException if the subject contains multiple CN fields
+     */
+    public String getCommonName() {
+        return getSubjectField(commonNames);
+    }
+
+    /**
+     * @return the subject O field or null if not present
+     * @throws CryptoException if the subject contains multiple O fields
+     */
+    public String getSubjectOField() {
+        return getSubjectField(subjectOFields);
+    }
+
+    /**
+     * @return the subject OU field or null if not present
+     * @throws CryptoException if the subject contains multiple OU fields
+     */
+    public String getSubjectOUField() {
+        return getSubjectField(subjectOUFields);
+    }
+
+    public List<String> getDnsNames() {
+        return dnsNames;
+    }
+
+    public List<String> getIPAddresses() {
+        return ipAddresses;
+    }
+
+    public List<String> getURIs() {
+        return uris;
+    }
+
+    public List<String> getEmails() {
+        return emails;
+    }
+
+    /**
+     * @return the public key in PEM format or null if it could not be extracted
+     */
+    public String getPublicKey() {
+        return publicKey;
+    }
+}
@@ -15,6 +15,8 @@
  */
 package com.yahoo.athenz.auth.util;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -61,70 +63,41 @@ public class YBase64 {
             (byte) 0xee, (byte) 0xee, (byte) 0xee, (byte) 0xee
     };
 
-    private static byte decodeByte(int index) {
-        // java has signed bytes, and the good values are up to 122, so any
-        // negative indexes are signed byte conversions of >128 and invalid
-        if (index < 0 || index >= Y64_DECODE_ARRAY.length) {
-            return (byte) 0xee;
-        }
-        return Y64_DECODE_ARRAY[index];
-    }
+    // table driven codec: each 12-bit input value is encoded into two
+    // characters with a single lookup and each character is decoded
+    // into its 6-bit value (or one of the markers below)
 
-    private static byte encode1(byte ba) {
-        // enc1: Y64_array[(a >> 2)];
-        // have to make value into an int so we can do shifts.
-        // but we need to mask off the sign bit.
-        final int a = ((int) ba) & 0x00ff;
-        final int i = (a >> 2);
-        ///CLOVER:OFF
-        if (i < 0 || i >= Y64_DECODE_ARRAY.length) {
-            return (byte) 0xee;
-        }
-        ///CLOVER:ON
-        return Y64_ARRAY[i];
-    }
+    private static final int DECODE_PAD = -2;
+    private static final int DECODE_INVALID = -1;
 
-    private static byte encode2(byte ba, byte bb) {
-        // enc2: Y64_array[((a << 4) & 0x30) + (b >> 4)];
-        // have to make value into an int so we can do shifts.
-        // but we need to mask off the sign bit.
-        final int a = ((int) ba) & 0x00ff;
-        final int b = ((int) bb) & 0x00ff;
-        final int i = ((a << 4) & 0x30) + (b >> 4);
-        ///CLOVER:OFF
-        if (i < 0 || i >= Y64_DECODE_ARRAY.length) {
-            return (byte) 0xee;
+    private static final short[] ENCODE_TABLE = initEncodeTable();
+    private static final int[] DECODE_TABLE = initDecodeTable();
+
+    private static short[] initEncodeTable() {
+        short[] table = new short[4096];
+        for (int i = 0; i < 4096; i++) {
+            table[i] = (short) ((Y64_ARRAY[i >> 6] << 8) | Y64_ARRAY[i & 0x3f]);
         }
-        ///CLOVER:ON
-        return Y64_ARRAY[i];
+        return table;
     }
 
-    private static byte encode3(byte bb, byte bc) {
-        // enc3: Y64_array[((b << 2) & 0x3C) + (c >> 6)];
-        // have to make value into an int so we can do shifts.
-        // but we need to mask off the sign bit.
-        final int b = ((int) bb) & 0x00ff;
-        final int c = ((int) bc) & 0x00ff;
-        final int i = ((b << 2) & 0x3C) + (c >> 6);
-        ///CLOVER:OFF
-        if (i < 0 || i >= Y64_DECODE_ARRAY.length) {
-            return (byte) 0xee;
+    private static int[] initDecodeTable() {
+        int[] table = new int[256];
+        Arrays.fill(table, DECODE_INVALID);
+        for (int i = 0; i < Y64_ARRAY.length; i++) {
+            table[Y64_ARRAY[i]] = i;
         }
-        ///CLOVER:ON
-        return Y64_ARRAY[i];
+        table['-'] = DECODE_PAD;
+        return table;
     }
 
-    private static byte encode4(byte bc) {
-        // enc4: Y64_array[c & 0x3F];
-        // have to make value into an int so we can do shifts.
-        // but we need to mask off the sign bit.
-        final int i = ((int) bc) & 0x003f;
-        ///CLOVER:OFF
-        if (i < 0 || i >= Y64_DECODE_ARRAY.length) {
+    private static byte decodeByte(int index) {
+        // java has signed bytes, and the good values are up to 122, so any
+        // negative indexes are signed byte conversions of >128 and invalid
+        if (index < 0 || index >= Y64_DECODE_ARRAY.length) {
             return (byte) 0xee;
         }
-        ///CLOVER:ON
-        return Y64_ARRAY[i];
+        return Y64_DECODE_ARRAY[index];
     }
 
     private static byte decode1(byte a, byte b) {
@@ -151,9 +124,64 @@ public class YBase64 {
             throw new NullPointerException("Null input buffer");
         }
 
+        final int len = getDecodeInputLength(inBytes, 0, inBytes.length);
+        final int outLen = getDecodeOutputLength(inBytes, 0, len);
+
+        byte[] out = new byte[outLen];
+        final int j = decode(inBytes, 0, len, out, 0);
+        return (j == outLen) ? out : Arrays.copyOf(out, j);
+    }
+
+    /**
+     * Decode the remaining bytes of the input buffer into the output
+     * buffer. Upon return the input buffer position is at its limit
+     * and the output buffer position is advanced by the number of
+     * decoded bytes.
+     * @param in buffer with y64 encoded data
+     * @param out buffer for the decoded data
+     * @return number of decoded bytes written to the output buffer
+     * @throws CryptoException in case of invalid padding or characters
+     * @throws java.nio.BufferOverflowException if the output buffer does not
+     *      have enough space for the decoded data
+     */
+    public static int decode(ByteBuffer in, ByteBuffer out) {
+
+        final int inLen = in.remaining();
+        byte[] src;
+        int srcOff;
+        if (in.hasArray()) {
+            src = in.array();
+            srcOff = in.arrayOffset() + in.position();
+        } else {
+            src = new byte[inLen];
+            srcOff = 0;
+            in.duplicate().get(src);
+        }
+
+        final int len = getDecodeInputLength(src, srcOff, inLen);
+        final int outLen = getDecodeOutputLength(src, srcOff, len);
+        if (out.remaining() < outLen) {
+            throw new BufferOverflowException();
+        }
+
+        int j;
+        if (out.hasArray()) {
+            j = decode(src, srcOff, len, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + j);
+        } else {
+            byte[] dst = new byte[outLen];
+            j = decode(src, srcOff, len, dst, 0);
+            out.put(dst, 0, j);
+        }
+
+        in.position(in.limit());
+        return j;
+    }
+
+    private static int getDecodeInputLength(byte[] inBytes, int off, int len) {
+
         /* Sanity check, should always be padded at the end. */
-        int len = inBytes.length;
-        if (len % 4 != 0 && inBytes[len - 1] == '\0') {
+        if (len % 4 != 0 && inBytes[off + len - 1] == '\0') {
             len -= 1;
         }
 
@@ -161,66 +189,105 @@ public class YBase64 {
             throw new CryptoException("String not padded ie, input string not modulo 4 len =  " + len
                             + " len%4= " + len % 4);
         }
+        return len;
+    }
 
-        byte[] out = new byte[y64decodeLen(len)];
+    private static int getDecodeOutputLength(byte[] inBytes, int off, int len) {
 
-        int i = 0;
-        int j = 0;
-        int tlen;
-        while (i < len) {
-            tlen = (len - i);
-            if (tlen > 4) {
-                tlen = 4;
-            }
+        // unless there is padding in the middle of the input (which we
+        // accept for backward compatibility) we know the exact length
+        // of our output based on the padding in the last block
 
-            /* Figure out how long "tlen" really is */
-            if (inBytes[i + 3] == '-') {
-                tlen--;
+        int outLen = len / 4 * 3;
+        if (len > 0) {
+            if (inBytes[off + len - 1] == '-') {
+                outLen -= 1;
             }
-            if (inBytes[i + 2] == '-') {
-                tlen--;
+            if (inBytes[off + len - 2] == '-') {
+                outLen -= 1;
             }
+        }
+        return outLen;
+    }
 
-            if (inBytes[i + 1] == '-') { /* This case should NEVER happen. */
-                throw new CryptoException("Too Many pad characters ( this should never happen )");
-            }
+    private static int decode(byte[] inBytes, int off, int len, byte[] out, int outOff) {
+
+        int j = outOff;
+        final int end = off + len;
+        for (int i = off; i < end; i += 4) {
 
-            /* decode */
-            byte a = decodeByte(inBytes[i++]);
-            byte b = decodeByte(inBytes[i++]);
-            byte c = decodeByte(inBytes[i++]);
-            byte d = decodeByte(inBytes[i++]);
+            final int a = DECODE_TABLE[inBytes[i] & 0xff];
+            final int b = DECODE_TABLE[inBytes[i + 1] & 0xff];
+            final int c = DECODE_TABLE[inBytes[i + 2] & 0xff];
+            final int d = DECODE_TABLE[inBytes[i + 3] & 0xff];
 
-            /* validate */
-            if (a == (byte) 0xee || b == (byte) 0xee || c == (byte) 0xee || d == (byte) 0xee) {
-                throw new CryptoException("Unrecognized characters in y64-encoded input starting at: " + (i - 4));
+            // if we have 4 valid characters then we can decode the
+            // block with a single combined value. otherwise we have
+            // padding or invalid characters, and we need to go through
+            // the full validation of the block
+
+            if ((a | b | c | d) >= 0) {
+                final int bits = (a << 18) | (b << 12) | (c << 6) | d;
+                out[j++] = (byte) (bits >> 16);
+                out[j++] = (byte) (bits >> 8);
+                out[j++] = (byte) bits;
+            } else {
+                j = decodeBlock(inBytes, i, i - off, out, j);
             }
+        }
+        return j - outOff;
+    }
+
+    private static int decodeBlock(byte[] inBytes, int i, int pos, byte[] out, int j) {
+
+        int tlen = 4;
 
-            if (tlen == 4) {
-                // dec1: ((a << 2) + (b >> 4));
-                out[j++] = decode1(a, b);
-                // dec2: ((b << 4) + (c >> 2));
-                out[j++] = decode2(b, c);
-                // dec3: ((c << 6) + d);
-                out[j++] = decode3(c, d);
-            } else if (tlen == 3) {
-                if ((c & (byte) 0x03) != 0) {
-                    throw new CryptoException("Unknown decode error c & 0x03 failed, c-pos: " + (i - 2));
-                }
-                // dec1: ((a << 2) + (b >> 4));
-                out[j++] = decode1(a, b);
-                // dec2: ((b << 4) + (c >> 2));
-                out[j++] = decode2(b, c);
-            } else { /* tlen == 2 */
-                if ((b & (byte) 0x0F) != 0) {
-                    throw new CryptoException("Invalid decode. b & 0x0f failed, b-pos: " + (i - 3));
-                }
-                // dec1: ((a << 2) + (b >> 4));
-                out[j++] = decode1(a, b);
+        /* Figure out how long "tlen" really is */
+        if (inBytes[i + 3] == '-') {
+            tlen--;
+        }
+        if (inBytes[i + 2] == '-') {
+            tlen--;
+        }
+
+        if (inBytes[i + 1] == '-') { /* This case should NEVER happen. */
+            throw new CryptoException("Too Many pad characters ( this should never happen )");
+        }
+
+        /* decode */
+        byte a = decodeByte(inBytes[i]);
+        byte b = decodeByte(inBytes[i + 1]);
+        byte c = decodeByte(inBytes[i + 2]);
+        byte d = decodeByte(inBytes[i + 3]);
+
+        /* validate */
+        if (a == (byte) 0xee || b == (byte) 0xee || c == (byte) 0xee || d == (byte) 0xee) {
+            throw new CryptoException("Unrecognized characters in y64-encoded input starting at: " + pos);
+        }
+
+        if (tlen == 4) {
+            // dec1: ((a << 2) + (b >> 4));
+            out[j++] = decode1(a, b);
+            // dec2: ((b << 4) + (c >> 2));
+            out[j++] = decode2(b, c);
+            // dec3: ((c << 6) + d);
+            out[j++] = decode3(c, d);
+        } else if (tlen == 3) {
+            if ((c & (byte) 0x03) != 0) {
+                throw new CryptoException("Unknown decode error c & 0x03 failed, c-pos: " + (pos + 2));
+            }
+            // dec1: ((a << 2) + (b >> 4));
+            out[j++] = decode1(a, b);
+            // dec2: ((b << 4) + (c >> 2));
+            out[j++] = decode2(b, c);
+        } else { /* tlen == 2 */
+            if ((b & (byte) 0x0F) != 0) {
+                throw new CryptoException("Invalid decode. b & 0x0f failed, b-pos: " + (pos + 1));
             }
+            // dec1: ((a << 2) + (b >> 4));
+            out[j++] = decode1(a, b);
         }
-        
-        return Arrays.copyOf(out, j);
+        return j;
     }
 
     /**
@@ -235,64 +302,88 @@ public class YBase64 {
             throw new NullPointerException("input buffer was null");
         }
 
-        /* Sanity check, should always be padded at the end. */
-        if (inBytes.length < 1) {
-            return new byte[] {};
+        byte[] out = new byte[y64encodeLen(inBytes.length) - 1];
+        encode(inBytes, 0, inBytes.length, out, 0);
+        return out;
+    }
+
+    /**
+     * Encode the remaining bytes of the input buffer into Y64 format.
+     * Upon return the input buffer position is at its limit and the
+     * output buffer position is advanced by the number of encoded bytes.
+     * @param in buffer with data to be encoded
+     * @param out buffer for the encoded data
+     * @return number of encoded bytes written to the output buffer
+     * @throws java.nio.BufferOverflowException if the output buffer does not
+     *      have y64encodeLen(in.remaining()) - 1 bytes remaining
+     */
+    public static int encode(ByteBuffer in, ByteBuffer out) {
+
+        final int len = in.remaining();
+        final int outLen = y64encodeLen(len) - 1;
+        if (out.remaining() < outLen) {
+            throw new BufferOverflowException();
+        }
+
+        byte[] src;
+        int srcOff;
+        if (in.hasArray()) {
+            src = in.array();
+            srcOff = in.arrayOffset() + in.position();
+        } else {
+            src = new byte[len];
+            srcOff = 0;
+            in.duplicate().get(src);
         }
 
-        int len = inBytes.length;
-        int encodeLen = y64encodeLen(len);
-        byte[] out = new byte[encodeLen];
-        int j = 0;
-        int tlen;
+        if (out.hasArray()) {
+            encode(src, srcOff, len, out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + outLen);
+        } else {
+            byte[] dst = new byte[outLen];
+            encode(src, srcOff, len, dst, 0);
+            out.put(dst);
+        }
 
-        for (int i = 0; i < len; i += 3) {
+        in.position(in.limit());
+        return outLen;
+    }
 
-            tlen = (len - i);
-            if (tlen > 3) {
-                tlen = 3;
-            }
+    private static void encode(byte[] inBytes, int off, int len, byte[] out, int outOff) {
 
-            byte a;
-            byte b;
-            byte c;
-
-            if (tlen == 1) {
-                a = inBytes[i];
-                b = 0;
-                // enc1: Y64_array[(a >> 2)];
-                out[j++] = encode1(a);
-                // enc2: Y64_array[((a << 4) & 0x30) + (b >> 4)];
-                out[j++] = encode2(a, b);
-                out[j++] = '-';
-                out[j++] = '-';
-            } else if (tlen == 2) {
-                a = inBytes[i];
-                b = inBytes[i + 1];
-                c = 0;
-                // enc1: Y64_array[(a >> 2)];
-                out[j++] = encode1(a);
-                // enc2: Y64_array[((a << 4) & 0x30) + (b >> 4)];
-                out[j++] = encode2(a, b);
-                // enc3: Y64_array[((b << 2) & 0x3C) + (c >> 6)];
-                out[j++] = encode3(b, c);
-                out[j++] = '-';
-            } else {
-                a = inBytes[i];
-                b = inBytes[i + 1];
-                c = inBytes[i + 2];
-                // enc1: Y64_array[(a >> 2)];
-                out[j++] = encode1(a);
-                // enc2: Y64_array[((a << 4) & 0x30) + (b >> 4)];
-                out[j++] = encode2(a, b);
-                // enc3: Y64_array[((b << 2) & 0x3C) + (c >> 6)];
-                out[j++] = encode3(b, c);
-                // enc4: Y64_array[c & 0x3F];
-                out[j++] = encode4(c);
-            }
+        int i = off;
+        int j = outOff;
+
+        // encode all full 3 byte blocks into 4 characters
+
+        final int end = off + len / 3 * 3;
+        while (i < end) {
+            final int bits = (inBytes[i++] & 0xff) << 16 | (inBytes[i++] & 0xff) << 8 | (inBytes[i++] & 0xff);
+            final short hi = ENCODE_TABLE[bits >>> 12];
+            final short lo = ENCODE_TABLE[bits & 0xfff];
+            out[j++] = (byte) (hi >> 8);
+            out[j++] = (byte) hi;
+            out[j++] = (byte) (lo >> 8);
+            out[j++] = (byte) lo;
         }
 
-        return Arrays.copyOf(out, j);
+        // and the last block with padding if required
+
+        final int tlen = off + len - i;
+        if (tlen == 1) {
+            final int a = inBytes[i] & 0xff;
+            out[j++] = Y64_ARRAY[a >> 2];
+            out[j++] = Y64_ARRAY[(a << 4) & 0x30];
+            out[j++] = '-';
+            out[j] = '-';
+        } else if (tlen == 2) {
+            final int a = inBytes[i] & 0xff;
+            final int b = inBytes[i + 1] & 0xff;
+            out[j++] = Y64_ARRAY[a >> 2];
+            out[j++] = Y64_ARRAY[((a << 4) & 0x30) + (b >> 4)];
+            out[j++] = Y64_ARRAY[(b << 2) & 0x3c];
+            out[j] = '-';
+        }
     }
     
     static int y64decodeLen(int len) {
@@ -306,4 +397,3 @@ public class YBase64 {
         return ((len + 2) / 3 * 4) + 1;
     }
 }
-
@@ -723,4 +723,102 @@ public class PrincipalAuthorityTest {
         // Create a token for validation using the signed data
         serviceAuthority.validateAuthorizeService(userTokenToSign, null);
     }
+
+    @Test
+    public void testAuthenticateCachedPrincipal() throws IOException {
+
+        PrincipalAuthority serviceAuthority = new PrincipalAuthority();
+        KeyStore keyStore = Mockito.spy(new KeyStoreMock());
+        serviceAuthority.setKeyStore(keyStore);
+
+        PrincipalToken serviceToken = new PrincipalToken.Builder(svcVersion, svcDomain, svcName)
+                .host(host).salt(salt).expirationWindow(expirationTime).keyId("0")
+                .originalRequestor("athenz.ci").build();
+        serviceToken.sign(servicePrivateKeyStringK0);
+        final String signedToken = serviceToken.getSignedToken();
+
+        Principal principal1 = serviceAuthority.authenticate(signedToken, "10.1.1.1", "GET", null);
+        assertNotNull(principal1);
+        assertEquals(serviceAuthority.principalCache.size(), 1);
+
+        // the second request is served from the cache with the same attributes
+
+        Principal principal2 = serviceAuthority.authenticate(signedToken, "10.1.1.2", "POST", null);
+        assertNotNull(principal2);
+        assertNotSame(principal2, principal1);
+        assertEquals(principal2.getDomain(), principal1.getDomain());
+        assertEquals(principal2.getName(), principal1.getName());
+        assertEquals(principal2.getCredentials(), signedToken);
+        assertEquals(principal2.getUnsignedCredentials(), principal1.getUnsignedCredentials());
+        assertEquals(principal2.getIssueTime(), principal1.getIssueTime());
+        assertEquals(principal2.getKeyId(), "0");
+        assertEquals(principal2.getOriginalRequestor(), "athenz.ci");
+        assertEquals(principal2.getAuthority(), serviceAuthority);
+
+        // an expired cache entry is removed and the token is validated again
+
+        serviceAuthority.principalCache.values().iterator().next().expiryTime = 0;
+        assertNotNull(serviceAuthority.authenticate(signedToken, "10.1.1.1", "GET", null));
+        assertEquals(serviceAuthority.principalCache.size(), 1);
+
+        // once the public key changes the cached entry is no longer valid
+
+        final String newPublicKey = keyStore.getPublicKey("sports", "fantasy", "1");
+        doReturn(newPublicKey).when(keyStore).getPublicKey("sports", "fantasy", "0");
+        StringBuilder errMsg = new StringBuilder();
+        assertNull(serviceAuthority.authenticate(signedToken, "10.1.1.1", "GET", errMsg));
+        assertTrue(errMsg.toString().contains("service token validation failure"));
+        assertTrue(serviceAuthority.principalCache.isEmpty());
+    }
+
+    @Test
+    public void testAuthenticateCachedPrincipalIpCheck() throws IOException {
+
+        PrincipalAuthority serviceAuthority = new PrincipalAuthority();
+        serviceAuthority.setKeyStore(new KeyStoreMock());
+
+        PrincipalToken userToken = new PrincipalToken.Builder(usrVersion, usrDomain, usrName)
+                .salt(salt).ip("127.0.0.2").expirationWindow(expirationTime).keyId("0").build();
+        userToken.sign(servicePrivateKeyStringK0);
+        final String signedToken = userToken.getSignedToken();
+
+        // read operation from a different ip is allowed and cached
+
+        assertNotNull(serviceAuthority.authenticate(signedToken, "127.0.0.3", "GET", null));
+        assertEquals(serviceAuthority.principalCache.size(), 1);
+
+        // write operation from a different ip must still be rejected
+
+        StringBuilder errMsg = new StringBuilder();
+        assertNull(serviceAuthority.authenticate(signedToken, "127.0.0.3", "POST", errMsg));
+        assertTrue(errMsg.toString().contains("IP Mismatch"));
+        assertNotNull(serviceAuthority.authenticate(signedToken, "127.0.0.2", "POST", null));
+    }
+
+    @Test
+    public void testAuthenticateCacheDisabledAndFull() throws IOException {
+
+        PrincipalAuthority serviceAuthority = new PrincipalAuthority();
+        serviceAuthority.setKeyStore(new KeyStoreMock());
+        serviceAuthority.cacheMaxSize = 0;
+
+        PrincipalToken serviceToken1 = new PrincipalToken.Builder(svcVersion, svcDomain, svcName)
+                .host(host).salt(salt).expirationWindow(expirationTime).keyId("0").build();
+        serviceToken1.sign(servicePrivateKeyStringK0);
+        assertNotNull(serviceAuthority.authenticate(serviceToken1.getSignedToken(), null, "GET", null));
+        assertTrue(serviceAuthority.principalCache.isEmpty());
+
+        // with a full cache new tokens are not added
+
+        serviceAuthority.cacheMaxSize = 1;
+        assertNotNull(serviceAuthority.authenticate(serviceToken1.getSignedToken(), null, "GET", null));
+        assertEquals(serviceAuthority.principalCache.size(), 1);
+
+        PrincipalToken serviceToken2 = new PrincipalToken.Builder(svcVersion, svcDomain, svcName)
+                .host(host).salt("othersalt").expirationWindow(expirationTime).keyId("0").build();
+        serviceToken2.sign(servicePrivateKeyStringK0);
+        assertNotNull(serviceAuthority.authenticate(serviceToken2.getSignedToken(), null, "GET", null));
+        assertEquals(serviceAuthority.principalCache.size(), 1);
+        assertNotNull(serviceAuthority.principalCache.get(serviceAuthority.getCacheKey(serviceToken1.getSignedToken())));
+    }
 }
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.auth.token;
+
+import com.yahoo.athenz.auth.token.jwts.JwtsSigningKeyResolver;
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.CryptoException;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.impl.crypto.EllipticCurveProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class AccessTokenVerifierTest {
+
+    private final File ecPrivateKey = new File("./src/test/resources/ec_private.key");
+    private final File ecPublicKey = new File("./src/test/resources/ec_public.key");
+    private final File rsaPrivateKey = new File("./src/test/resources/rsa_private.key");
+    private final File rsaPublicKey = new File("./src/test/resources/rsa_public.key");
+
+    // the rsa key in our test resources is too short for the verifier
+    // so we generate a new one to validate the RS256 tokens
+
+    private static final KeyPair RSA_KEY_PAIR = generateRSAKeyPair();
+
+    private static KeyPair generateRSAKeyPair() {
+        try {
+            KeyPairGenerator keyGenerator = KeyPairGenerator.getInstance("RSA");
+            keyGenerator.initialize(AccessTokenVerifier.RSA_MIN_KEY_SIZE);
+            return keyGenerator.generateKeyPair();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private JwtsSigningKeyResolver getKeyResolver() {
+        JwtsSigningKeyResolver resolver = new JwtsSigningKeyResolver(null, null);
+        resolver.addPublicKey("eckey1", Crypto.loadPublicKey(ecPublicKey));
+        resolver.addPublicKey("rsakey1", Crypto.loadPublicKey(rsaPublicKey));
+        resolver.addPublicKey("rsakey2", RSA_KEY_PAIR.getPublic());
+        return resolver;
+    }
+
+    private X509Certificate loadCertificate(final String fileName) throws IOException {
+        return Crypto.loadX509Certificate(new String(Files.readAllBytes(Paths.get(fileName))));
+    }
+
+    private AccessToken createAccessToken(long now) throws IOException {
+
+        AccessToken accessToken = new AccessToken();
+        accessToken.setAuthTime(now);
+        accessToken.setScope(Arrays.asList("readers", "writers"));
+        accessToken.setSubject("subject");
+        accessToken.setUserId("userid");
+        accessToken.setExpiryTime(now + 3600);
+        accessToken.setIssueTime(now);
+        accessToken.setClientId("mtls");
+        accessToken.setAudience("coretech");
+        accessToken.setVersion(1);
+        accessToken.setIssuer("athenz");
+        accessToken.setProxyPrincipal("proxy.user");
+        accessToken.setConfirmEntry("x5t#uri", "spiffe://athenz/sa/api");
+        accessToken.setConfirmX509CertHash(loadCertificate("src/test/resources/mtls_token_spec.cert"));
+        return accessToken;
+    }
+
+    private void assertAccessTokenEquals(AccessToken actual, AccessToken expected) {
+        assertEquals(actual.getAuthTime(), expected.getAuthTime());
+        assertEquals(actual.getScope(), expected.getScope());
+        assertEquals(actual.getSubject(), expected.getSubject());
+        assertEquals(actual.getUserId(), expected.getUserId());
+        assertEquals(actual.getExpiryTime(), expected.getExpiryTime());
+        assertEquals(actual.getIssueTime(), expected.getIssueTime());
+        assertEquals(actual.getClientId(), expected.getClientId());
+        assertEquals(actual.getAudience(), expected.getAudience());
+        assertEquals(actual.getVersion(), expected.getVersion());
+        assertEquals(actual.getIssuer(), expected.getIssuer());
+        assertEquals(actual.getProxyPrincipal(), expected.getProxyPrincipal());
+        assertEquals(actual.getConfirm(), expected.getConfirm());
+    }
+
+    @Test
+    public void testVerifyES256Token() throws IOException {
+
+        long now = System.currentTimeMillis() / 1000;
+        final String accessJws = createAccessToken(now).getSignedToken(Crypto.loadPrivateKey(ecPrivateKey),
+                "eckey1", SignatureAlgorithm.ES256);
+
+        JwtsSigningKeyResolver resolver = getKeyResolver();
+        AccessTokenVerifier verifier = new AccessTokenVerifier(resolver);
+
+        // the token must be processed by our verifier and not the jjwt parser
+
+        AccessToken accessToken = verifier.parse(accessJws);
+        assertNotNull(accessToken);
+        assertAccessTokenEquals(accessToken, new AccessToken(accessJws, resolver));
+
+        assertAccessTokenEquals(verifier.verify(accessJws), new AccessToken(accessJws, resolver));
+    }
+
+    @Test
+    public void testVerifyRS256Token() throws IOException {
+
+        long now = System.currentTimeMillis() / 1000;
+        final String accessJws = createAccessToken(now).getSignedToken(RSA_KEY_PAIR.getPrivate(),
+                "rsakey2", SignatureAlgorithm.RS256);
+
+        JwtsSigningKeyResolver resolver = getKeyResolver();
+        AccessTokenVerifier verifier = new AccessTokenVerifier(resolver);
+
+        AccessToken accessToken = verifier.parse(accessJws);
+        assertNotNull(accessToken);
+        assertAccessTokenEquals(accessToken, new AccessToken(accessJws, resolver));
+    }
+
+    @Test
+    public void testVerifyMTLSBoundToken() throws IOException {
+
+        long now = System.currentTimeMillis() / 1000;
+        final String accessJws = createAccessToken(now).getSignedToken(Crypto.loadPrivateKey(ecPrivateKey),
+                "eckey1", SignatureAlgorithm.ES256);
+
+        AccessTokenVerifier verifier = new AccessTokenVerifier(getKeyResolver());
+
+        AccessToken accessToken = verifier.verify(accessJws,
+                loadCertificate("src/test/resources/mtls_token_spec.cert"), null);
+        assertEquals(accessToken.getClientId(), "mtls");
+
+        try {
+            verifier.verify(accessJws, loadCertificate("src/test/resources/rsa_public_x509.cert"), null);
+            fail();
+        } catch (CryptoException ex) {
+            assertEquals(ex.getCode(), CryptoException.CERT_HASH_MISMATCH);
+        }
+    }
+
+    @Test
+    public void testVerifyExpiredToken() throws IOException {
+
+        // token expired 2 minutes ago - outside of our 60 second skew
+
+        long now = System.currentTimeMillis() / 1000;
+        AccessToken token = createAccessToken(now - 3720);
+        final String accessJws = token.getSignedToken(Crypto.loadPrivateKey(ecPrivateKey),
+                "eckey1", SignatureAlgorithm.ES256);
+
+        AccessTokenVerifier verifier = new AccessTokenVerifier(getKeyResolver());
+        assertNull(verifier.parse(accessJws));
+
+        try {
+            verifier.verify(accessJws);
+            fail();
+        } catch (ExpiredJwtException ignored) {
+        }
+
+        // token expired 30 seconds ago is still valid with the skew
+
+        token = createAccessToken(now - 3630);
+        final String skewJws = token.getSignedToken(Crypto.loadPrivateKey(ecPrivateKey),
+                "eckey1", SignatureAlgorithm.ES256);
+        assertNotNull(verifier.parse(skewJws));
+    }
+
+    @Test
+    public void testVerifyNotBeforeToken() {
+
+        long now = System.currentTimeMillis() / 1000;
+        final String accessJws = Jwts.builder().setSubject("subject")
+                .setIssuedAt(Date.from(Instant.ofEpochSecond(now)))
+                .setExpiration(Date.from(Instant.ofEpochSecond(now + 3600)))
+                .setNotBefore(Date.from(Instant.ofEpochSecond(now + 600)))
+                .claim(OAuth2Token.CLAIM_AUTH_TIME, now)
+                .claim(OAuth2Token.CLAIM_VERSION, 1)
+                .setHeaderParam(OAuth2Token.HDR_KEY_ID, "eckey1")
+                .signWith(SignatureAlgorithm.ES256, Crypto.loadPrivateKey(ecPrivateKey))
+                .compact();
+
+        AccessTokenVerifier verifier = new AccessTokenVerifier(getKeyResolver());
+        assertNull(verifier.parse(accessJws));
+        try {
+            verifier.verify(accessJws);
+            fail();
+        } catch (Exception ignored) {
+        }
+    }
+
+    @Test
+    public void testVerifyInvalidSignature() throws IOException {
+
+        long now = System.currentTimeMillis() / 1000;
+        final String accessJws = createAccessToken(now).getSignedToken(RSA_KEY_PAIR.getPrivate(),
+                "rsakey2", SignatureAlgorithm.RS256);
+
+        // replace the payload with one from a different token
+
+        final String otherJws = createAccessToken(now + 1).getSignedToken(RSA_KEY_PAIR.getPrivate(),
+                "rsakey2", SignatureAlgorithm.RS256);
+        String[] parts = accessJws.split("\\.");
+        String[] otherParts = otherJws.split("\\.");
+        final String invalidJws = parts[0] + "." + otherParts[1] + "." + parts[2];
+
+        AccessTokenVerifier verifier = new AccessTokenVerifier(getKeyResolver());
+        assertNull(verifier.parse(invalidJws));
+        try {
+            verifier.verify(invalidJws);
+            fail();
+        } catch (SignatureException ignored) {
+        }
+    }
+
+    @Test
+    public void testVerifyUnknownKeyId() throws IOException {
+
+        long now = System.currentTimeMillis() / 1000;
+        final String accessJws = createAccessToken(now).getSignedToken(Crypto.loadPrivateKey(ecPrivateKey),
+                "unknown", SignatureAlgorithm.ES256);
+
+        AccessTokenVerifier verifier = new AccessTokenVerifier(getKeyResolver());
+        assertNull(verifier.parse(accessJws));
+        try {
+            verifier.verify(accessJws);
+            fail();
+        } catch (Exception ignored) {
+        }
+    }
+
+    @Test
+    public void testVerifyKeyTypeMismatch() throws IOException {
+
+        // rs256 token with the ec key id
+
+        long now = System.currentTimeMillis() / 1000;
+        final String accessJws = createAccessToken(now).getSignedToken(Crypto.loadPrivateKey(rsaPrivateKey),
+                "eckey1", SignatureAlgorithm.RS256);
+
+        AccessTokenVerifier verifier = new AccessTokenVerifier(getKeyResolver());
+        assertNull(verifier.parse(accessJws));
+    }
+
+    @Test
+    public void testVerifyRS256WeakKey() throws IOException {
+
+        // tokens signed with rsa keys shorter than 2048 bits are
+        // not verified by us and must be processed by jjwt
+
+        long now = System.currentTimeMillis() / 1000;
+        final String accessJws = createAccessToken(now).getSignedToken(Crypto.loadPrivateKey(rsaPrivateKey),
+                "rsakey1", SignatureAlgorithm.RS256);
+
+        JwtsSigningKeyResolver resolver = getKeyResolver();
+        AccessTokenVerifier verifier = new AccessTokenVerifier(resolver);
+
+        assertNull(verifier.parse(accessJws));
+        assertAccessTokenEquals(verifier.verify(accessJws), new AccessToken(accessJws, resolver));
+    }
+
+    @Test
+    public void testVerifyFallbackToken() {
+
+        // tokens that don't match our profile are processed by jjwt:
+        // unsupported header fields, missing required claims
+
+        long now = System.currentTimeMillis() / 1000;
+        final String x5uJws = Jwts.builder().setSubject("subject")
+                .setIssuedAt(Date.from(Instant.ofEpochSecond(now)))
+                .setExpiration(Date.from(Instant.ofEpochSecond(now + 3600)))
+                .setAudience("coretech")
+                .claim(OAuth2Token.CLAIM_AUTH_TIME, now)
+                .claim(OAuth2Token.CLAIM_VERSION, 1)
+                .setHeaderParam(OAuth2Token.HDR_KEY_ID, "rsakey1")
+                .setHeaderParam("x5u", "https://athenz.io/keys")
+                .signWith(SignatureAlgorithm.RS256, Crypto.loadPrivateKey(rsaPrivateKey))
+                .compact();
+
+        JwtsSigningKeyResolver resolver = getKeyResolver();
+        AccessTokenVerifier verifier = new AccessTokenVerifier(resolver);
+        assertNull(verifier.parse(x5uJws));
+        assertEquals(verifier.verify(x5uJws).getAudience(), "coretech");
+
+        final String noVersionJws = Jwts.builder().setSubject("subject")
+                .setIssuedAt(Date.from(Instant.ofEpochSecond(now)))
+                .setExpiration(Date.from(Instant.ofEpochSecond(now + 3600)))
+                .claim(OAuth2Token.CLAIM_AUTH_TIME, now)
+                .setHeaderParam(OAuth2Token.HDR_KEY_ID, "rsakey1")
+                .signWith(SignatureAlgorithm.RS256, Crypto.loadPrivateKey(rsaPrivateKey))
+                .compact();
+        assertNull(verifier.parse(noVersionJws));
+        try {
+            verifier.verify(noVersionJws);
+            fail();
+        } catch (Exception ignored) {
+        }
+    }
+
+    @Test
+    public void testParseInvalidTokens() {
+
+        AccessTokenVerifier verifier = new AccessTokenVerifier(getKeyResolver());
+        assertNull(verifier.parse(null));
+        assertNull(verifier.parse(""));
+        assertNull(verifier.parse("header"));
+        assertNull(verifier.parse(".payload.signature"));
+        assertNull(verifier.parse("header..signature"));
+        assertNull(verifier.parse("header.payload."));
+        assertNull(verifier.parse("header.payload.signature.extra"));
+        assertNull(verifier.parse("header.payload.signature"));
+
+        final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        final String payload = encoder.encodeToString("{}".getBytes(StandardCharsets.UTF_8));
+        final String[] headers = {
+            "[]", "{\"alg\":\"RS256\"}", "{\"alg\":\"HS256\",\"kid\":\"rsakey1\"}",
+            "{\"alg\":\"RS256\",\"kid\":\"rsakey1\",\"zip\":\"DEF\"}", "{\"alg\":1,\"kid\":\"rsakey1\"}"
+        };
+        for (String header : headers) {
+            final String token = encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8))
+                    + "." + payload + ".c2lnbmF0dXJl";
+            assertNull(verifier.parse(token), header);
+        }
+    }
+
+    @Test
+    public void testParseClaims() throws IOException {
+
+        AccessTokenVerifier verifier = new AccessTokenVerifier(getKeyResolver());
+        long now = System.currentTimeMillis();
+        long nowSecs = now / 1000;
+
+        final String claims = "{\"ver\":1,\"exp\":" + (nowSecs + 3600) + ",\"iat\":" + nowSecs
+                + ",\"auth_time\":" + nowSecs + ",\"aud\":\"coretech\",\"iss\":null,\"jti\":{\"id\":[1,2]},"
+                + "\"scp\":[\"readers\"],\"cnf\":{\"x5t#S256\":\"hash\"},\"nbf\":" + nowSecs + "}";
+        AccessToken accessToken = verifier.parseClaims(claims.getBytes(StandardCharsets.UTF_8), now);
+        assertNotNull(accessToken);
+        assertEquals(accessToken.getAudience(), "coretech");
+        assertNull(accessToken.getIssuer());
+        assertEquals(accessToken.getScope(), Collections.singletonList("readers"));
+        assertEquals(accessToken.getConfirmEntry("x5t#S256"), "hash");
+        assertEquals(accessToken.getExpiryTime(), nowSecs + 3600);
+
+        // unsupported claim value types
+
+        final String[] invalidClaims = {
+            "[]", "{\"ver\":1,\"exp\":\"" + nowSecs + "\"}", "{\"aud\":[\"coretech\"]}",
+            "{\"scp\":\"readers\"}", "{\"scp\":[1]}", "{\"cnf\":\"hash\"}"
+        };
+        for (String invalidClaim : invalidClaims) {
+            try {
+                assertNull(verifier.parseClaims(invalidClaim.getBytes(StandardCharsets.UTF_8), now));
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void testTranscodeSignatureToDER() throws Exception {
+
+        // compare our encoding with the jjwt implementation including
+        // values with leading zeros and high bits set
+
+        Random random = new Random(2020);
+        for (int i = 0; i < 1000; i++) {
+            byte[] signature = new byte[64];
+            random.nextBytes(signature);
+            if (i % 3 == 1) {
+                signature[0] = 0;
+                signature[1] = 0;
+                signature[32] = 0;
+            } else if (i % 3 == 2) {
+                signature[0] = (byte) 0x80;
+                signature[32] = (byte) 0xff;
+            }
+            assertEquals(AccessTokenVerifier.transcodeSignatureToDER(signature),
+                    EllipticCurveProvider.transcodeSignatureToDER(signature));
+        }
+
+        // a zero value must still be encoded with a single byte
+
+        byte[] signature = new byte[64];
+        signature[63] = 1;
+        assertEquals(AccessTokenVerifier.transcodeSignatureToDER(signature),
+                new byte[] { 0x30, 0x06, 0x02, 0x01, 0x00, 0x02, 0x01, 0x01 });
+    }
+
+    @Test
+    public void testGetSignatureInstanceInvalid() {
+        try {
+            AccessTokenVerifier.getSignatureInstance("unknown");
+            fail();
+        } catch (CryptoException ignored) {
+        }
+    }
+}
@@ -22,11 +22,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
+import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.auth.util.CryptoException;
 
 public class RoleTokenTest {
@@ -120,6 +123,27 @@ public class RoleTokenTest {
         assertTrue(rollTokenToValidate.validate(ztsPublicKeyStringK0, 300, false));
     }
 
+    @Test
+    public void testRoleTokenSetSignature() throws CryptoException {
+
+        List<String> roles = new ArrayList<>();
+        roles.add("reader");
+        roles.add("writer");
+
+        // sign the token externally and set the signature
+
+        RoleToken rollTokenToSign = new RoleToken.Builder(rolVersion, svcDomain, roles)
+                .salt(salt).expirationWindow(expirationTime).keyId("1").build();
+        final String signature = Crypto.sign(rollTokenToSign.getUnsignedToken(),
+                Crypto.loadPrivateKey(ztsPrivateKeyStringK1));
+        rollTokenToSign.setSignature(signature);
+        assertEquals(rollTokenToSign.getSignature(), signature);
+        assertEquals(rollTokenToSign.getSignedToken(), rollTokenToSign.getUnsignedToken() + ";s=" + signature);
+
+        RoleToken rollTokenToValidate = new RoleToken(rollTokenToSign.getSignedToken());
+        assertTrue(rollTokenToValidate.validate(ztsPublicKeyStringK1, 300, false));
+    }
+
     @Test
     public void testRoleTokenInvalidParamsAtEnd() throws CryptoException {
         // Add some roles
@@ -520,4 +544,144 @@ public class RoleTokenTest {
         assertEquals(token.getHost(), "host");
         assertNull(token.getProxyUser());
     }
+
+    /**
+     * Reference implementation of the role token parser based on
+     * String.split that was used before the index based parser
+     */
+    private static String[] parseRoleTokenWithSplit(final String signedToken) {
+
+        String unsignedToken = null;
+        String signature = null;
+        int idx = signedToken.indexOf(";s=");
+        if (idx != -1) {
+            unsignedToken = signedToken.substring(0, idx);
+            signature = signedToken.substring(idx + 3);
+        }
+
+        String version = null, domain = null, roleNames = null, salt = null, host = null;
+        String ip = null, keyId = "0", principal = null, proxyUser = null;
+        long expiryTime = 0, timestamp = 0;
+        boolean domainCompleteRoleSet = false;
+
+        final String parseToken = unsignedToken != null ? unsignedToken : signedToken;
+        for (String item : parseToken.split(";")) {
+            String [] kv = item.split("=");
+            if (kv.length == 2) {
+                switch (kv[0]) {
+                case "a": salt = kv[1]; break;
+                case "c":
+                    if (Integer.parseInt(kv[1]) == 1) {
+                        domainCompleteRoleSet = true;
+                    }
+                    break;
+                case "d": domain = kv[1]; break;
+                case "e": expiryTime = Long.parseLong(kv[1]); break;
+                case "h": host = kv[1]; break;
+                case "i": ip = kv[1]; break;
+                case "k": keyId = kv[1]; break;
+                case "p": principal = kv[1]; break;
+                case "r": roleNames = kv[1]; break;
+                case "t": timestamp = Long.parseLong(kv[1]); break;
+                case "proxy": proxyUser = kv[1]; break;
+                case "v": version = kv[1]; break;
+                }
+            }
+        }
+
+        if (domain == null || domain.isEmpty()) {
+            throw new IllegalArgumentException("SignedToken does not contain required domain component");
+        }
+        if (roleNames == null || roleNames.isEmpty()) {
+            throw new IllegalArgumentException("SignedToken does not contain required roles component");
+        }
+
+        return new String[] { version, domain, Arrays.asList(roleNames.split(",")).toString(),
+                salt, host, ip, keyId, principal, proxyUser, Long.toString(expiryTime),
+                Long.toString(timestamp), Boolean.toString(domainCompleteRoleSet), signature,
+                unsignedToken, signedToken };
+    }
+
+    private static String[] getRoleTokenFields(final RoleToken token) {
+        return new String[] { token.getVersion(), token.getDomain(), token.getRoles().toString(),
+                token.getSalt(), token.getHost(), token.getIP(), token.getKeyId(), token.getPrincipal(),
+                token.getProxyUser(), Long.toString(token.getExpiryTime()),
+                Long.toString(token.getTimestamp()), Boolean.toString(token.getDomainCompleteRoleSet()),
+                token.getSignature(), token.getUnsignedToken(), token.getSignedToken() };
+    }
+
+    private static String parseRoleTokenResult(final String signedToken, boolean useSplit) {
+        try {
+            String[] fields = useSplit ? parseRoleTokenWithSplit(signedToken)
+                    : getRoleTokenFields(new RoleToken(signedToken));
+            return Arrays.toString(fields);
+        } catch (Exception ex) {
+            return ex.getClass().getName() + ": " + ex.getMessage();
+        }
+    }
+
+    @Test
+    public void testRoleTokenParserConformance() {
+
+        final String[] fragments = { "v", "d", "r", "c", "p", "h", "a", "t", "e", "k", "i", "proxy",
+                "s", "x", "=", "==", ";", ";;", ",", ",,", "1", "0", "-1", "+7", "12345678901234567890",
+                "2147483648", "Z1", "sports", "role1", "user.joe", "10.1.1.1", "" };
+
+        Random random = new Random(20201018L);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder builder = new StringBuilder();
+            final int count = random.nextInt(24);
+            for (int j = 0; j < count; j++) {
+                builder.append(fragments[random.nextInt(fragments.length)]);
+            }
+            final String token = builder.toString();
+            if (token.isEmpty()) {
+                continue;
+            }
+            assertEquals(parseRoleTokenResult(token, false), parseRoleTokenResult(token, true), token);
+        }
+
+        // well formed tokens with random field values
+
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder builder = new StringBuilder("v=Z1;d=dom").append(random.nextInt(100))
+                    .append(";r=");
+            final int roles = random.nextInt(4);
+            for (int j = 0; j < roles; j++) {
+                builder.append(fragments[random.nextInt(fragments.length)]);
+            }
+            builder.append(";c=").append(random.nextInt(3))
+                    .append(";t=").append(random.nextLong())
+                    .append(";e=").append(random.nextInt() & Integer.MAX_VALUE)
+                    .append(";k=").append(random.nextInt(10))
+                    .append(";proxy=").append(fragments[random.nextInt(fragments.length)])
+                    .append(";s=").append(Long.toHexString(random.nextLong()));
+            final String token = builder.toString();
+            assertEquals(parseRoleTokenResult(token, false), parseRoleTokenResult(token, true), token);
+        }
+    }
+
+    @Test
+    public void testRoleTokenParseInvalidFields() {
+
+        RoleToken token = new RoleToken("v=Z1;d=coretech;r=role1,,role2,,;h=host=;i=10=1;a=;k;t=+10;e=0020;s=sig");
+        assertEquals(token.getDomain(), "coretech");
+        assertEquals(token.getRoles(), Arrays.asList("role1", "", "role2"));
+        assertEquals(token.getHost(), "host");
+        assertNull(token.getIP());
+        assertNull(token.getSalt());
+        assertEquals(token.getKeyId(), "0");
+        assertEquals(token.getTimestamp(), 10);
+        assertEquals(token.getExpiryTime(), 20);
+        assertEquals(token.getSignature(), "sig");
+
+        token = new RoleToken("v=Z1;d=coretech;r=,,");
+        assertTrue(token.getRoles().isEmpty());
+
+        try {
+            new RoleToken("v=Z1;d=coretech;r=role1;e=1a");
+            fail();
+        } catch (NumberFormatException ignored) {
+        }
+    }
 }
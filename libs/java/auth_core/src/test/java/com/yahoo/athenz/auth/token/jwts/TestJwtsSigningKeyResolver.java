@@ -21,14 +21,67 @@ import org.testng.annotations.Test;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
-import static org.testng.Assert.assertNotNull;
-import static org.testng.Assert.assertNull;
+import static org.testng.Assert.*;
 
 public class TestJwtsSigningKeyResolver {
 
+    private static final String RSA_KEY_N = "AMV3cnZXxYJL-A0TYY8Fy245HKSOBCYt9atNAUQVtbEwx9QaZGj8moYIe4nXgx"
+            + "72Ktwg0Gruh8sS7GQLBizCXg7fCk62sDV_MZINnwON9gsKbxxgn9mLFeYSaatUzk-VRphDoHNIBC-qeDtYnZhs"
+            + "HYcV9Jp0GPkLNquhN1TXA7gT";
+
+    private static String jwkKeys(final String keyId) {
+        return "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"" + keyId + "\",\"alg\":\"RS256\","
+                + "\"use\":\"sig\",\"n\":\"" + RSA_KEY_N + "\",\"e\":\"AQAB\"}]}";
+    }
+
+    static class ServerKeysResolver extends JwtsSigningKeyResolver {
+
+        static int responseCode = 200;
+        static String responseBody = jwkKeys("key1");
+        static String responseETag = "\"etag1\"";
+
+        int connectionCount;
+        List<String> eTags = new ArrayList<>();
+
+        ServerKeysResolver(final String serverUrl) {
+            super(serverUrl, null);
+        }
+
+        @Override
+        public HttpsURLConnection getConnection(final String serverUrl) throws IOException {
+            connectionCount += 1;
+            HttpsURLConnection con = Mockito.mock(HttpsURLConnection.class);
+            Mockito.doAnswer(invocation -> {
+                if ("If-None-Match".equals(invocation.getArgument(0))) {
+                    eTags.add(invocation.getArgument(1));
+                }
+                return null;
+            }).when(con).setRequestProperty(Mockito.anyString(), Mockito.anyString());
+            Mockito.when(con.getResponseCode()).thenReturn(responseCode);
+            Mockito.when(con.getHeaderField("ETag")).thenReturn(responseETag);
+            Mockito.when(con.getInputStream()).thenReturn(
+                    new ByteArrayInputStream(responseBody.getBytes(StandardCharsets.UTF_8)));
+            return con;
+        }
+
+        @Override
+        public SSLSocketFactory getSocketFactory(SSLContext sslContext) {
+            return null;
+        }
+    }
+
     @Test
     public void testGetConnection() throws IOException {
 
@@ -106,4 +159,142 @@ public class TestJwtsSigningKeyResolver {
             System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF, oldConf);
         }
     }
+
+    @Test
+    public void testRefreshPublicKeysConditional() {
+
+        final String oldConf = System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF,
+                "src/test/resources/athenz.conf");
+
+        ServerKeysResolver.responseCode = 200;
+        ServerKeysResolver.responseBody = jwkKeys("key1");
+        ServerKeysResolver.responseETag = "\"etag1\"";
+
+        ServerKeysResolver resolver = new ServerKeysResolver("https://localhost:4443");
+        assertNotNull(resolver.getPublicKey("key1"));
+        assertNotNull(resolver.getPublicKey("eckey1"));
+        assertEquals(resolver.getRefreshCount(), 1);
+        assertTrue(resolver.eTags.isEmpty());
+
+        // the server reports no changes so we keep our keys
+
+        ServerKeysResolver.responseCode = 304;
+        resolver.refreshPublicKeys();
+        assertEquals(resolver.eTags.size(), 1);
+        assertEquals(resolver.eTags.get(0), "\"etag1\"");
+        assertEquals(resolver.getRefreshNotModifiedCount(), 1);
+        assertNotNull(resolver.getPublicKey("key1"));
+
+        // the key has been rotated so the old one must be removed
+        // while our config keys are still available
+
+        ServerKeysResolver.responseCode = 200;
+        ServerKeysResolver.responseBody = jwkKeys("key2");
+        ServerKeysResolver.responseETag = "\"etag2\"";
+        resolver.refreshPublicKeys();
+        assertEquals(resolver.getRefreshCount(), 2);
+        assertNotNull(resolver.lookupPublicKey("key2"));
+        assertNull(resolver.lookupPublicKey("key1"));
+        assertNotNull(resolver.lookupPublicKey("eckey1"));
+
+        // failures keep the current set of keys
+
+        ServerKeysResolver.responseCode = 500;
+        resolver.refreshPublicKeys();
+        assertEquals(resolver.getRefreshFailureCount(), 1);
+        assertEquals(resolver.eTags.get(2), "\"etag2\"");
+        assertNotNull(resolver.lookupPublicKey("key2"));
+
+        resolver.shutdown();
+        resolver.shutdown();
+
+        if (oldConf == null) {
+            System.clearProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF);
+        } else {
+            System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF, oldConf);
+        }
+    }
+
+    @Test
+    public void testGetPublicKeyOnDemandRateLimited() {
+
+        final String oldConf = System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF,
+                "src/test/resources/athenz.conf");
+
+        ServerKeysResolver.responseCode = 200;
+        ServerKeysResolver.responseBody = jwkKeys("key1");
+        ServerKeysResolver.responseETag = null;
+
+        ServerKeysResolver resolver = new ServerKeysResolver("https://localhost:4443");
+        assertEquals(resolver.connectionCount, 1);
+
+        // with the default min refresh interval unknown keys
+        // must not trigger any requests to the server
+
+        ServerKeysResolver.responseBody = jwkKeys("key2");
+        for (int i = 0; i < 100; i++) {
+            assertNull(resolver.getPublicKey("key2"));
+        }
+        assertEquals(resolver.connectionCount, 1);
+        assertEquals(resolver.getKeyMissCount(), 100);
+        assertEquals(resolver.getRefreshRateLimitedCount(), 100);
+        resolver.shutdown();
+
+        if (oldConf == null) {
+            System.clearProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF);
+        } else {
+            System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF, oldConf);
+        }
+    }
+
+    @Test
+    public void testGetPublicKeyOnDemandRefresh() throws InterruptedException {
+
+        final String oldConf = System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF,
+                "src/test/resources/athenz.conf");
+        System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_JWK_MIN_REFRESH_INTERVAL, "1");
+        System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_JWK_REFRESH_INTERVAL, "0");
+
+        ServerKeysResolver.responseCode = 200;
+        ServerKeysResolver.responseBody = jwkKeys("key1");
+        ServerKeysResolver.responseETag = null;
+
+        ServerKeysResolver resolver = new ServerKeysResolver("https://localhost:4443");
+        assertEquals(resolver.connectionCount, 1);
+
+        // wait until our min refresh interval has passed and then
+        // ask for the rotated key from multiple threads - only a
+        // single request must be sent to the server
+
+        ServerKeysResolver.responseBody = jwkKeys("key2");
+        Thread.sleep(1100);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch latch = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignored) {
+                }
+                assertNotNull(resolver.getPublicKey("key2"));
+            });
+        }
+        latch.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(resolver.connectionCount, 2);
+        assertEquals(resolver.getRefreshCount(), 2);
+        assertNotNull(resolver.getPublicKey("key2"));
+        assertNull(resolver.lookupPublicKey("key1"));
+
+        System.clearProperty(JwtsSigningKeyResolver.ZTS_PROP_JWK_MIN_REFRESH_INTERVAL);
+        System.clearProperty(JwtsSigningKeyResolver.ZTS_PROP_JWK_REFRESH_INTERVAL);
+        if (oldConf == null) {
+            System.clearProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF);
+        } else {
+            System.setProperty(JwtsSigningKeyResolver.ZTS_PROP_ATHENZ_CONF, oldConf);
+        }
+    }
 }
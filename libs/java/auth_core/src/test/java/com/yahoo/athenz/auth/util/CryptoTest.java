@@ -16,6 +16,9 @@
 package com.yahoo.athenz.auth.util;
 
 import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -35,6 +38,7 @@ import org.bouncycastle.asn1.DERIA5String;
 import org.bouncycastle.asn1.x500.RDN;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
 import org.mockito.Mockito;
 import org.testng.annotations.DataProvider;
@@ -552,6 +556,43 @@ public class CryptoTest {
         }
     }
 
+    @Test
+    public void testGenerateX509CertificateContentSigner() throws IOException {
+
+        Path path = Paths.get("src/test/resources/valid.csr");
+        String certStr = new String(Files.readAllBytes(path));
+
+        PKCS10CertificationRequest certReq = Crypto.getPKCS10CertRequest(certStr);
+        X509Certificate caCertificate = Crypto.loadX509Certificate(ecPublicX509Cert);
+        PrivateKey caPrivateKey = Crypto.loadPrivateKey(privateEncryptedKey, encryptedKeyPassword);
+        X500Name issuer = X500Name.getInstance(caCertificate.getSubjectX500Principal().getEncoded());
+
+        // the same content signer can be used for multiple certificates
+
+        ContentSigner caSigner = Crypto.getContentSigner(caPrivateKey);
+        X509Certificate cert1 = Crypto.generateX509Certificate(certReq, caSigner, issuer,
+                BigInteger.valueOf(1001), 600, false);
+        X509Certificate cert2 = Crypto.generateX509Certificate(certReq, caSigner, issuer,
+                BigInteger.valueOf(1002), 600, false);
+
+        assertEquals(cert1.getSerialNumber(), BigInteger.valueOf(1001));
+        assertEquals(cert2.getSerialNumber(), BigInteger.valueOf(1002));
+        assertEquals(cert2.getIssuerX500Principal().getName(),
+                "CN=athenz.syncer,O=My Test Company,L=Sunnyvale,ST=CA,C=US");
+    }
+
+    @Test
+    public void testGetContentSignerInvalidKey() {
+
+        PrivateKey caPrivateKey = Mockito.mock(PrivateKey.class);
+        Mockito.when(caPrivateKey.getAlgorithm()).thenReturn("DSA");
+        try {
+            Crypto.getContentSigner(caPrivateKey);
+            fail();
+        } catch (CryptoException ignored) {
+        }
+    }
+
     @Test
     public void testX509CertificateToPem() {
         X509Certificate cert = Crypto.loadX509Certificate(ecPublicX509Cert);
@@ -1041,4 +1082,74 @@ public class CryptoTest {
         byte[] data = Files.readAllBytes(Paths.get(caFile.toURI()));
         assertEquals(certs1PEM, new String(data));
     }
+
+    @Test
+    public void testSignVerifyByteArrayAndBuffer() {
+
+        PrivateKey privateKey = Crypto.loadPrivateKey(rsaPrivateKey);
+        PublicKey publicKey = Crypto.loadPublicKey(rsaPublicKey);
+        final byte[] data = serviceToken.getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(Crypto.sign(data, privateKey, Crypto.SHA256), serviceRSASignature);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data);
+        buffer.flip();
+        assertEquals(Crypto.sign(buffer, privateKey, Crypto.SHA256), serviceRSASignature);
+
+        final byte[] signature = Crypto.ybase64Decode(serviceRSASignature);
+        assertTrue(Crypto.verify(data, publicKey, signature, Crypto.SHA256));
+        assertTrue(Crypto.verify(ByteBuffer.wrap(data), publicKey, signature, Crypto.SHA256));
+        assertFalse(Crypto.verify("invalid".getBytes(StandardCharsets.UTF_8), publicKey,
+                signature, Crypto.SHA256));
+
+        // the same thread reuses the same signature object
+
+        try {
+            assertSame(Crypto.getSignature("SHA256withRSA", false), Crypto.getSignature("SHA256withRSA", false));
+            assertNotSame(Crypto.getSignature("SHA256withRSA", false), Crypto.getSignature("SHA256withRSA", true));
+        } catch (Exception ex) {
+            fail(ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testSignVerifyJdkProvider() {
+
+        Crypto.USE_JDK_SIGNATURE_PROVIDER = true;
+        try {
+            PrivateKey privateKey = Crypto.loadPrivateKey(rsaPrivateKey);
+            assertEquals(Crypto.sign(serviceToken, privateKey), serviceRSASignature);
+            PublicKey publicKey = Crypto.loadPublicKey(rsaPublicKey);
+            assertTrue(Crypto.verify(serviceToken, publicKey, serviceRSASignature));
+            assertFalse(Crypto.verify(serviceToken + "x", publicKey, serviceRSASignature));
+
+            privateKey = Crypto.loadPrivateKey(ecPrivateKey);
+            String signature = Crypto.sign(serviceToken, privateKey);
+            publicKey = Crypto.loadPublicKey(ecPublicKey);
+            assertTrue(Crypto.verify(serviceToken, publicKey, signature));
+            assertTrue(Crypto.verify(serviceToken, publicKey, serviceECSignature));
+        } finally {
+            Crypto.USE_JDK_SIGNATURE_PROVIDER = false;
+        }
+
+        // signatures generated with the jdk provider are verified with bc
+
+        PrivateKey privateKey = Crypto.loadPrivateKey(ecPrivateKey);
+        Crypto.USE_JDK_SIGNATURE_PROVIDER = true;
+        String signature;
+        try {
+            signature = Crypto.sign(serviceToken, privateKey);
+        } finally {
+            Crypto.USE_JDK_SIGNATURE_PROVIDER = false;
+        }
+        assertTrue(Crypto.verify(serviceToken, Crypto.loadPublicKey(ecPublicKey), signature));
+    }
+
+    @Test
+    public void testSha256Reuse() {
+        byte[] first = Crypto.sha256("check");
+        Crypto.sha256("other data");
+        assertEquals(Crypto.sha256("check"), first);
+    }
 }
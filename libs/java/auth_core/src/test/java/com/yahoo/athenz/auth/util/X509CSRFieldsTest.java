@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.auth.util;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.PrivateKey;
+
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.mockito.Mockito;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class X509CSRFieldsTest {
+
+    @DataProvider
+    public static Object[][] csrFiles() {
+        return new Object[][] {
+                { "src/test/resources/valid.csr" },
+                { "src/test/resources/csr_altnames.csr" },
+                { "src/test/resources/multiple_ips.csr" },
+                { "src/test/resources/valid_email.csr" },
+                { "src/test/resources/valid_emails.csr" },
+                { "src/test/resources/valid_multiple_uri.csr" },
+                { "src/test/resources/valid_noemail.csr" },
+                { "src/test/resources/valid_single_uri.csr" },
+        };
+    }
+
+    @Test(dataProvider = "csrFiles")
+    public void testFieldsMatchCryptoExtract(final String fileName) throws IOException {
+
+        final String csr = new String(Files.readAllBytes(Paths.get(fileName)));
+        PKCS10CertificationRequest certReq = Crypto.getPKCS10CertRequest(csr);
+        X509CSRFields csrFields = new X509CSRFields(certReq);
+
+        assertEquals(csrFields.getCommonName(), Crypto.extractX509CSRCommonName(certReq));
+        assertEquals(csrFields.getSubjectOField(), Crypto.extractX509CSRSubjectOField(certReq));
+        assertEquals(csrFields.getSubjectOUField(), Crypto.extractX509CSRSubjectOUField(certReq));
+        assertEquals(csrFields.getDnsNames(), Crypto.extractX509CSRDnsNames(certReq));
+        assertEquals(csrFields.getIPAddresses(), Crypto.extractX509CSRIPAddresses(certReq));
+        assertEquals(csrFields.getURIs(), Crypto.extractX509CSRURIs(certReq));
+        assertEquals(csrFields.getEmails(), Crypto.extractX509CSREmails(certReq));
+        assertEquals(csrFields.getPublicKey(), Crypto.extractX509CSRPublicKey(certReq));
+    }
+
+    @Test
+    public void testFieldsImmutable() throws IOException {
+
+        final String csr = new String(Files.readAllBytes(Paths.get("src/test/resources/csr_altnames.csr")));
+        X509CSRFields csrFields = new X509CSRFields(Crypto.getPKCS10CertRequest(csr));
+
+        try {
+            csrFields.getDnsNames().add("api.athenz.cloud");
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+    }
+
+    @Test
+    public void testMultipleSubjectFields() throws Exception {
+
+        PrivateKey privateKey = Crypto.loadPrivateKey(new File("./src/test/resources/rsa_private.key"));
+        GeneralName[] sanArray = new GeneralName[] {
+                new GeneralName(GeneralName.dNSName, "api.athenz.cloud"),
+                new GeneralName(GeneralName.iPAddress, "10.11.12.13"),
+        };
+        final String csr = Crypto.generateX509CSR(privateKey,
+                "cn=athenz.api,ou=Testing Domain,ou=Athenz,o=Athenz,c=US", sanArray);
+        PKCS10CertificationRequest certReq = Crypto.getPKCS10CertRequest(csr);
+        X509CSRFields csrFields = new X509CSRFields(certReq);
+
+        assertEquals(csrFields.getCommonName(), "athenz.api");
+        assertEquals(csrFields.getSubjectOField(), "Athenz");
+        assertEquals(csrFields.getDnsNames(), Crypto.extractX509CSRDnsNames(certReq));
+        assertEquals(csrFields.getIPAddresses(), Crypto.extractX509CSRIPAddresses(certReq));
+        assertEquals(csrFields.getIPAddresses().get(0), "10.11.12.13");
+
+        try {
+            csrFields.getSubjectOUField();
+            fail();
+        } catch (CryptoException ex) {
+            assertTrue(ex.getMessage().contains("multiple values"));
+        }
+        try {
+            Crypto.extractX509CSRSubjectOUField(certReq);
+            fail();
+        } catch (CryptoException ex) {
+            assertTrue(ex.getMessage().contains("multiple values"));
+        }
+    }
+
+    @Test
+    public void testEmptyRequest() {
+
+        PKCS10CertificationRequest certReq = Mockito.mock(PKCS10CertificationRequest.class);
+        Mockito.when(certReq.getSubject()).thenReturn(null);
+        Mockito.when(certReq.getAttributes(Mockito.any())).thenReturn(null);
+        Mockito.when(certReq.getSubjectPublicKeyInfo()).thenReturn(null);
+
+        X509CSRFields csrFields = new X509CSRFields(certReq);
+        assertNull(csrFields.getCommonName());
+        assertNull(csrFields.getSubjectOField());
+        assertNull(csrFields.getSubjectOUField());
+        assertTrue(csrFields.getDnsNames().isEmpty());
+        assertTrue(csrFields.getIPAddresses().isEmpty());
+        assertTrue(csrFields.getURIs().isEmpty());
+        assertTrue(csrFields.getEmails().isEmpty());
+        assertNull(csrFields.getPublicKey());
+    }
+}
@@ -25,8 +25,18 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.client.Entity;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.ssl.SSLContexts;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 
 import org.slf4j.Logger;
@@ -41,12 +51,55 @@ public class InstanceProviderClient {
 
     public InstanceProviderClient(String url, SSLContext sslContext,
             HostnameVerifier hostnameVerifier, int connectTimeout, int readTimeout) {
+        this(url, sslContext, hostnameVerifier, connectTimeout, readTimeout, 0, 0, 0);
+    }
+
+    public InstanceProviderClient(String url, SSLContext sslContext, HostnameVerifier hostnameVerifier,
+            int connectTimeout, int readTimeout, int maxPoolPerRoute, int maxPoolTotal) {
+        this(url, sslContext, hostnameVerifier, connectTimeout, readTimeout, maxPoolPerRoute, maxPoolTotal, 0);
+    }
+
+    /**
+     * Create a new provider client
+     * @param url provider endpoint
+     * @param sslContext ssl context for the connections
+     * @param hostnameVerifier hostname verifier for the provider endpoint
+     * @param connectTimeout connect timeout in milliseconds
+     * @param readTimeout read timeout in milliseconds
+     * @param maxPoolPerRoute maximum number of persistent connections per route.
+     *      0 uses the connector defaults
+     * @param maxPoolTotal maximum number of persistent connections in total.
+     *      0 uses the connector defaults
+     * @param connRequestTimeout timeout in milliseconds to wait for a connection
+     *      from our pool. Requests that time out fail with a GATEWAY_TIMEOUT
+     *      ResourceException. 0 waits until a connection is available
+     */
+    public InstanceProviderClient(String url, SSLContext sslContext, HostnameVerifier hostnameVerifier,
+            int connectTimeout, int readTimeout, int maxPoolPerRoute, int maxPoolTotal,
+            int connRequestTimeout) {
 
         final ClientConfig config = new ClientConfig()
                 .property(ClientProperties.CONNECT_TIMEOUT, connectTimeout)
                 .property(ClientProperties.READ_TIMEOUT, readTimeout)
                 .connectorProvider(new ApacheConnectorProvider());
 
+        // if requested, configure our own connection pool. Since the
+        // connector no longer creates the socket factories in this case
+        // we need to include our ssl context and hostname verifier
+
+        if (maxPoolPerRoute > 0 && maxPoolTotal > 0) {
+            config.property(ApacheClientProperties.CONNECTION_MANAGER,
+                    createConnectionManager(sslContext, hostnameVerifier, maxPoolPerRoute, maxPoolTotal));
+        }
+
+        // do not let requests wait forever for a connection from
+        // our pool if the provider is not keeping up
+
+        if (connRequestTimeout > 0) {
+            config.property(ApacheClientProperties.REQUEST_CONFIG,
+                    RequestConfig.custom().setConnectionRequestTimeout(connRequestTimeout).build());
+        }
+
         ClientBuilder builder = ClientBuilder.newBuilder();
         if (sslContext != null) {
             builder = builder.sslContext(sslContext);
@@ -58,6 +111,21 @@ public class InstanceProviderClient {
         base = client.target(url);
     }
 
+    PoolingHttpClientConnectionManager createConnectionManager(SSLContext sslContext,
+            HostnameVerifier hostnameVerifier, int maxPoolPerRoute, int maxPoolTotal) {
+
+        final SSLContext context = (sslContext != null) ? sslContext : SSLContexts.createDefault();
+        final Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("https", new SSLConnectionSocketFactory(context, hostnameVerifier))
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .build();
+
+        PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(registry);
+        connManager.setDefaultMaxPerRoute(maxPoolPerRoute);
+        connManager.setMaxTotal(maxPoolTotal);
+        return connManager;
+    }
+
     public void close() {
         client.close();
     }
@@ -88,6 +156,25 @@ public class InstanceProviderClient {
         return data.replace('\n', ' ');
     }
 
+    /**
+     * Requests that could not get a connection from our pool in time
+     * have not been sent to the provider so we report them as
+     * GATEWAY_TIMEOUT so the clients can retry them. Any other
+     * failure is reported as FORBIDDEN.
+     * @param message exception message
+     * @param ex exception thrown by the client
+     * @return resource exception to be thrown
+     */
+    ResourceException requestException(final String message, Exception ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectionPoolTimeoutException) {
+                return new ResourceException(ResourceException.GATEWAY_TIMEOUT,
+                        message + ": connection pool timeout", ex);
+            }
+        }
+        return new ResourceException(ResourceException.FORBIDDEN, message, ex);
+    }
+
     public InstanceConfirmation postInstanceConfirmation(InstanceConfirmation confirmation) {
         WebTarget target = base.path("/instance");
         Invocation.Builder invocationBuilder = target.request(MediaType.APPLICATION_JSON);
@@ -97,7 +184,7 @@ public class InstanceProviderClient {
         } catch (Exception ex) {
             LOGGER.error("Unable to confirm register object for {}/{}.{}: {}", confirmation.getProvider(),
                     confirmation.getDomain(), confirmation.getService(), ex.getMessage());
-            throw new ResourceException(ResourceException.FORBIDDEN, "Register Confirmation Exception");
+            throw requestException("Register Confirmation Exception", ex);
         }
         int code = response.getStatus();
         if (code == ResourceException.OK) {
@@ -115,7 +202,7 @@ public class InstanceProviderClient {
         } catch (Exception ex) {
             LOGGER.error("Unable to confirm refresh object for {}/{}.{}: {}", confirmation.getProvider(),
                     confirmation.getDomain(), confirmation.getService(), ex.getMessage());
-            throw new ResourceException(ResourceException.FORBIDDEN, "Refresh Confirmation Exception");
+            throw requestException("Refresh Confirmation Exception", ex);
         }
         int code = response.getStatus();
         if (code == ResourceException.OK) {
@@ -20,6 +20,8 @@ public class ResourceException extends RuntimeException {
     public final static int OK = 200;
     public final static int FORBIDDEN = 403;
     public final static int NOT_FOUND = 404;
+    public final static int SERVICE_UNAVAILABLE = 503;
+    public final static int GATEWAY_TIMEOUT = 504;
 
     final private int code;
 
@@ -32,6 +34,19 @@ public class ResourceException extends RuntimeException {
         this.code = code;
     }
 
+    /**
+     * Create a new exception for a request that could not be
+     * completed due to the given error (e.g. connection failure)
+     * instead of being rejected by the provider
+     * @param code response code
+     * @param message error message
+     * @param cause the error that caused the request to fail
+     */
+    public ResourceException(int code, String message, Throwable cause) {
+        super("ResourceException (" + code + "): " + message, cause);
+        this.code = code;
+    }
+
     public int getCode() {
         return code;
     }
@@ -20,6 +20,7 @@ import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -62,7 +63,16 @@ public class InstanceAWSProvider implements InstanceProvider {
 
     static final String AWS_PROP_CERT_VALIDITY_STS_ONLY = "athenz.zts.aws_cert_validity_sts_only";
 
+    static final String AWS_PROP_DOC_VERIFY_CACHE_TIMEOUT = "athenz.zts.aws_doc_verify_cache_timeout";
+    static final String AWS_PROP_DOC_VERIFY_CACHE_SIZE    = "athenz.zts.aws_doc_verify_cache_size";
+
+    // all aws providers use the same public certificate so we only
+    // need to load and parse it once
+
+    static final Map<String, PublicKey> AWS_PUBLIC_KEYS = new ConcurrentHashMap<>();
+
     PublicKey awsPublicKey = null;      // AWS public key for validating instance documents
+    VerifiedDocumentCache verifiedDocuments = null; // verified documents for refresh requests
     long bootTimeOffset;                // boot time offset in milliseconds
     long certValidityTime;              // cert validity for STS creds only case
     boolean supportRefresh = false;
@@ -80,9 +90,10 @@ public class InstanceAWSProvider implements InstanceProvider {
         
         String awsCertFileName = System.getProperty(AWS_PROP_PUBLIC_CERT);
         if (awsCertFileName != null && !awsCertFileName.isEmpty()) {
-            File awsCertFile = new File(awsCertFileName);
-            X509Certificate awsCert = Crypto.loadX509Certificate(awsCertFile);
-            awsPublicKey = awsCert.getPublicKey();
+            awsPublicKey = AWS_PUBLIC_KEYS.computeIfAbsent(awsCertFileName, fileName -> {
+                X509Certificate awsCert = Crypto.loadX509Certificate(new File(fileName));
+                return awsCert.getPublicKey();
+            });
         }
         
         if (awsPublicKey == null) {
@@ -113,6 +124,16 @@ public class InstanceAWSProvider implements InstanceProvider {
         // get the aws region
 
         awsRegion = System.getProperty(AWS_PROP_REGION_NAME);
+
+        // if configured, refresh requests with an identity document that
+        // has already been verified skip the signature validation
+
+        long verifyCacheTimeout = Long.parseLong(System.getProperty(AWS_PROP_DOC_VERIFY_CACHE_TIMEOUT, "0"));
+        if (verifyCacheTimeout > 0) {
+            int verifyCacheSize = Integer.parseInt(System.getProperty(AWS_PROP_DOC_VERIFY_CACHE_SIZE, "10000"));
+            verifiedDocuments = new VerifiedDocumentCache(TimeUnit.SECONDS.toMillis(verifyCacheTimeout),
+                    verifyCacheSize);
+        }
     }
 
     public ResourceException error(String message) {
@@ -185,13 +206,37 @@ public class InstanceAWSProvider implements InstanceProvider {
         
         return valid;
     }
+
+    boolean verifyAWSSignature(final String document, final String signature, boolean refresh,
+            StringBuilder errMsg) {
+
+        if (verifiedDocuments == null) {
+            return validateAWSSignature(document, signature, errMsg);
+        }
+
+        // register requests always validate the signature while
+        // refresh requests can use a previously verified document
+
+        if (refresh && verifiedDocuments.isVerified(document, signature)) {
+            return true;
+        }
+
+        if (!validateAWSSignature(document, signature, errMsg)) {
+            return false;
+        }
+        verifiedDocuments.add(document, signature);
+        return true;
+    }
     
     boolean validateAWSDocument(final String provider, AWSAttestationData info,
             final String awsAccount, final String instanceId, boolean checkTime,
             StringBuilder errMsg) {
         
+        // the boot time is only checked for register requests which
+        // must always validate the document signature
+
         final String document = info.getDocument();
-        if (!validateAWSSignature(document, info.getSignature(), errMsg)) {
+        if (!verifyAWSSignature(document, info.getSignature(), !checkTime, errMsg)) {
             return false;
         }
         
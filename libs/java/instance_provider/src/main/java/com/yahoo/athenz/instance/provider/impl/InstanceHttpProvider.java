@@ -28,6 +28,9 @@ public class InstanceHttpProvider implements InstanceProvider {
     InstanceProviderClient client;
     private static final String PROP_READ_TIMEOUT     = "athenz.instance.provider.client.read_timeout";
     private static final String PROP_CONNECT_TIMEOUT  = "athenz.instance.provider.client.connect_timeout";
+    private static final String PROP_MAX_POOL_ROUTE   = "athenz.instance.provider.client.max_pool_per_route";
+    private static final String PROP_MAX_POOL_TOTAL   = "athenz.instance.provider.client.max_pool_total";
+    private static final String PROP_CONN_REQ_TIMEOUT = "athenz.instance.provider.client.connection_request_timeout";
 
     @Override
     public Scheme getProviderScheme() {
@@ -41,8 +44,11 @@ public class InstanceHttpProvider implements InstanceProvider {
         ProviderHostnameVerifier hostnameVerifier = new ProviderHostnameVerifier(provider);
         int readTimeout = Integer.parseInt(System.getProperty(PROP_READ_TIMEOUT, "30000"));
         int connectTimeout = Integer.parseInt(System.getProperty(PROP_CONNECT_TIMEOUT, "30000"));
+        int maxPoolPerRoute = Integer.parseInt(System.getProperty(PROP_MAX_POOL_ROUTE, "64"));
+        int maxPoolTotal = Integer.parseInt(System.getProperty(PROP_MAX_POOL_TOTAL, "256"));
+        int connRequestTimeout = Integer.parseInt(System.getProperty(PROP_CONN_REQ_TIMEOUT, "5000"));
         client = new InstanceProviderClient(providerEndpoint, sslContext, hostnameVerifier,
-                connectTimeout, readTimeout);
+                connectTimeout, readTimeout, maxPoolPerRoute, maxPoolTotal, connRequestTimeout);
     }
 
     @Override
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.instance.provider.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of identity documents whose signatures have already
+ * been verified. The entries are keyed by the SHA-256 digest of the
+ * document and its signature so the documents themselves are not kept
+ * in memory. Each entry is valid for the configured timeout only.
+ * Once the cache is full, expired entries are removed and if there is
+ * still no room the new entry is not added.
+ */
+public class VerifiedDocumentCache {
+
+    private final Map<String, Long> verifiedDocuments = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+    private final int maxSize;
+
+    /**
+     * Create a new cache
+     * @param timeoutMs number of milliseconds a verified document is cached
+     * @param maxSize maximum number of cached documents
+     */
+    public VerifiedDocumentCache(long timeoutMs, int maxSize) {
+        this.timeoutMs = timeoutMs;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Check if the given document has been verified with the
+     * given signature within the cache timeout
+     * @param document identity document
+     * @param signature document signature
+     * @return true if the document is in the cache, false otherwise
+     */
+    public boolean isVerified(final String document, final String signature) {
+
+        final String key = documentDigest(document, signature);
+        if (key == null) {
+            return false;
+        }
+
+        Long expiry = verifiedDocuments.get(key);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry < System.currentTimeMillis()) {
+            verifiedDocuments.remove(key, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Add the document with its verified signature to the cache
+     * @param document identity document
+     * @param signature verified document signature
+     */
+    public void add(final String document, final String signature) {
+
+        final String key = documentDigest(document, signature);
+        if (key == null) {
+            return;
+        }
+
+        if (verifiedDocuments.size() >= maxSize) {
+            removeExpiredEntries();
+            if (verifiedDocuments.size() >= maxSize) {
+                return;
+            }
+        }
+        verifiedDocuments.put(key, System.currentTimeMillis() + timeoutMs);
+    }
+
+    public int size() {
+        return verifiedDocuments.size();
+    }
+
+    void removeExpiredEntries() {
+        final long now = System.currentTimeMillis();
+        verifiedDocuments.values().removeIf(expiry -> expiry < now);
+    }
+
+    static String documentDigest(final String document, final String signature) {
+
+        if (document == null || signature == null) {
+            return null;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            return null;
+        }
+
+        // include the document length so the document and signature
+        // boundary can't be shifted to produce the same digest
+
+        digest.update(Integer.toString(document.length()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(document.getBytes(StandardCharsets.UTF_8));
+        digest.update(signature.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+}
@@ -17,12 +17,15 @@ package com.yahoo.athenz.instance.provider;
 
 import static org.testng.Assert.*;
 
+import javax.net.ssl.SSLContext;
 import javax.ws.rs.*;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.mockito.Mockito;
 import org.testng.annotations.Test;
 
@@ -281,6 +284,7 @@ public class InstanceProviderClientTest {
             fail();
         } catch (ResourceException ex) {
             assertEquals(ex.getCode(), 403);
+            assertTrue(ex.getCause() instanceof ProcessingException);
         }
 
         try {
@@ -288,8 +292,73 @@ public class InstanceProviderClientTest {
             fail();
         } catch (ResourceException ex) {
             assertEquals(ex.getCode(), 403);
+            assertTrue(ex.getCause() instanceof ProcessingException);
         }
 
         provClient.close();
     }
+
+    @Test
+    public void testInstanceProviderClientConnectionPoolTimeout() {
+
+        String url = "http://localhost:10099/instance";
+        ProviderHostnameVerifier hostnameVerifier = new ProviderHostnameVerifier("athenz.provider");
+        InstanceProviderClient provClient = new InstanceProviderClient(url, null, hostnameVerifier,
+                10000, 10000, 1, 1, 100);
+
+        WebTarget base = Mockito.mock(WebTarget.class);
+        provClient.setBase(base);
+
+        WebTarget target = Mockito.mock(WebTarget.class);
+        Mockito.when(base.path("/instance")).thenReturn(target);
+        Mockito.when(base.path("/refresh")).thenReturn(target);
+
+        Invocation.Builder builder = Mockito.mock(Invocation.Builder.class);
+        Mockito.when(target.request("application/json")).thenReturn(builder);
+
+        InstanceConfirmation confirmation = new InstanceConfirmation()
+                .setAttestationData("data").setDomain("athenz")
+                .setProvider("provider").setService("service");
+        Entity<?> entity = Entity.entity(confirmation, "application/json");
+        Mockito.when(builder.post(entity)).thenThrow(new ProcessingException(
+                new ConnectionPoolTimeoutException("Timeout waiting for connection from pool")));
+
+        // requests that did not get a connection were never sent
+        // to the provider so they can be retried
+
+        try {
+            provClient.postInstanceConfirmation(confirmation);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.GATEWAY_TIMEOUT);
+            assertTrue(ex.getCause() instanceof ProcessingException);
+        }
+
+        try {
+            provClient.postRefreshConfirmation(confirmation);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.GATEWAY_TIMEOUT);
+            assertTrue(ex.getCause() instanceof ProcessingException);
+        }
+
+        provClient.close();
+    }
+
+    @Test
+    public void testInstanceProviderClientConnectionPool() throws Exception {
+
+        String url = "https://localhost:10099/instance";
+        ProviderHostnameVerifier hostnameVerifier = new ProviderHostnameVerifier("athenz.provider");
+        InstanceProviderClient provClient = new InstanceProviderClient(url, SSLContext.getDefault(),
+                hostnameVerifier, 10000, 10000, 10, 20);
+
+        PoolingHttpClientConnectionManager connManager = provClient.createConnectionManager(null,
+                hostnameVerifier, 10, 20);
+        assertEquals(connManager.getDefaultMaxPerRoute(), 10);
+        assertEquals(connManager.getMaxTotal(), 20);
+        connManager.close();
+
+        provClient.close();
+    }
 }
@@ -767,4 +767,110 @@ public class InstanceAWSProviderTest {
             assertEquals(ex.getCode(), 403);
         }
     }
+
+    private InstanceConfirmation createRefreshConfirmation(final String document, final String signature) {
+        InstanceConfirmation confirmation = new InstanceConfirmation()
+                .setAttestationData("{\"document\": \"" + document.replace("\"", "\\\"") + "\","
+                        + "\"signature\": \"" + signature + "\",\"role\": \"athenz.service\"}")
+                .setDomain("athenz").setProvider("athenz.aws.us-west-2").setService("service");
+        HashMap<String, String> attributes = new HashMap<>();
+        attributes.put("cloudAccount", "1234");
+        attributes.put("sanDNS", "service.athenz.athenz.cloud,i-1234.instanceid.athenz.athenz.cloud");
+        attributes.put("instanceId", "i-1234");
+        confirmation.setAttributes(attributes);
+        return confirmation;
+    }
+
+    @Test
+    public void testRefreshInstanceVerifiedDocumentCache() {
+
+        System.setProperty(InstanceAWSProvider.AWS_PROP_DOC_VERIFY_CACHE_TIMEOUT, "3600");
+        System.setProperty(InstanceAWSProvider.AWS_PROP_PUBLIC_CERT, "src/test/resources/aws_public.cert");
+
+        // use a mock sts client instead of contacting aws
+
+        MockInstanceAWSProvider provider = new MockInstanceAWSProvider();
+        provider.setIdentitySuper(true);
+        AWSSecurityTokenServiceClient mockClient = Mockito.mock(AWSSecurityTokenServiceClient.class);
+        GetCallerIdentityResult callerIdentity = Mockito.mock(GetCallerIdentityResult.class);
+        Mockito.when(callerIdentity.getArn()).thenReturn("arn:aws:sts::1234:assumed-role/athenz.service/athenz.service");
+        Mockito.when(mockClient.getCallerIdentity(ArgumentMatchers.any())).thenReturn(callerIdentity);
+        provider.setStsClient(mockClient);
+        provider.initialize("provider", "com.yahoo.athenz.instance.provider.impl.InstanceAWSProvider", null, null);
+        assertNotNull(provider.verifiedDocuments);
+
+        final String document = "{\"accountId\": \"1234\",\"pendingTime\": \""
+                + Timestamp.fromMillis(System.currentTimeMillis() - 100).toString()
+                + "\",\"region\": \"us-west-2\",\"instanceId\": \"i-1234\"}";
+
+        // the first refresh validates the signature while
+        // the following ones use the verified document
+
+        provider.refreshInstance(createRefreshConfirmation(document, "signature"));
+        assertEquals(provider.signatureChecks, 1);
+        provider.refreshInstance(createRefreshConfirmation(document, "signature"));
+        provider.refreshInstance(createRefreshConfirmation(document, "signature"));
+        assertEquals(provider.signatureChecks, 1);
+
+        // the identity credentials are still verified for every request
+
+        Mockito.verify(mockClient, Mockito.times(3)).getCallerIdentity(ArgumentMatchers.any());
+
+        // a different signature is not in the cache
+
+        provider.setSignatureResult(false);
+        try {
+            provider.refreshInstance(createRefreshConfirmation(document, "signature2"));
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), 403);
+        }
+        assertEquals(provider.signatureChecks, 2);
+
+        // register requests always validate the signature
+
+        InstanceConfirmation confirmation = createRefreshConfirmation(document, "signature");
+        confirmation.getAttributes().remove("instanceId");
+        try {
+            provider.confirmInstance(confirmation);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), 403);
+        }
+        assertEquals(provider.signatureChecks, 3);
+
+        provider.close();
+        System.clearProperty(InstanceAWSProvider.AWS_PROP_DOC_VERIFY_CACHE_TIMEOUT);
+        System.clearProperty(InstanceAWSProvider.AWS_PROP_PUBLIC_CERT);
+    }
+
+    @Test
+    public void testVerifyAWSSignatureCacheInvalidSignature() {
+
+        System.setProperty(InstanceAWSProvider.AWS_PROP_DOC_VERIFY_CACHE_TIMEOUT, "3600");
+        System.setProperty(InstanceAWSProvider.AWS_PROP_PUBLIC_CERT, "src/test/resources/aws_public.cert");
+
+        MockInstanceAWSProvider provider = new MockInstanceAWSProvider();
+        provider.setSignatureSuper(true);
+        provider.initialize("provider", "com.yahoo.athenz.instance.provider.impl.InstanceAWSProvider", null, null);
+
+        // failed validations are never cached
+
+        StringBuilder errMsg = new StringBuilder(256);
+        assertFalse(provider.verifyAWSSignature("document", "invalid-signature", true, errMsg));
+        assertFalse(provider.verifyAWSSignature("document", "invalid-signature", true, errMsg));
+        assertEquals(provider.signatureChecks, 2);
+        assertEquals(provider.verifiedDocuments.size(), 0);
+
+        // the public key is shared by all providers
+
+        InstanceAWSProvider provider2 = new InstanceAWSProvider();
+        provider2.initialize("provider2", "com.yahoo.athenz.instance.provider.impl.InstanceAWSProvider", null, null);
+        assertTrue(provider.awsPublicKey == provider2.awsPublicKey);
+
+        provider.close();
+        provider2.close();
+        System.clearProperty(InstanceAWSProvider.AWS_PROP_DOC_VERIFY_CACHE_TIMEOUT);
+        System.clearProperty(InstanceAWSProvider.AWS_PROP_PUBLIC_CERT);
+    }
 }
@@ -23,6 +23,8 @@ public class MockInstanceAWSProvider extends InstanceAWSProvider {
     boolean signatureResult = true;
     boolean identityResult = true;
     boolean identitySuper = false;
+    boolean signatureSuper = false;
+    int signatureChecks = 0;
     AWSSecurityTokenService stsClient;
     
     void setSignatureResult(boolean value) {
@@ -37,13 +39,18 @@ public class MockInstanceAWSProvider extends InstanceAWSProvider {
         identitySuper = value;
     }
     
+    void setSignatureSuper(boolean value) {
+        signatureSuper = value;
+    }
+    
     void setStsClient(AWSSecurityTokenService client) {
         stsClient = client;
     }
     
     @Override
     public boolean validateAWSSignature(final String document, final String signature, StringBuilder errMsg) {
-        return signatureResult;
+        signatureChecks += 1;
+        return signatureSuper ? super.validateAWSSignature(document, signature, errMsg) : signatureResult;
     }
     
     @Override
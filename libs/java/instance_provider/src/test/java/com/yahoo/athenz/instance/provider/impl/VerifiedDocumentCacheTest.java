@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.instance.provider.impl;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.Test;
+
+public class VerifiedDocumentCacheTest {
+
+    @Test
+    public void testVerifiedDocuments() {
+
+        VerifiedDocumentCache cache = new VerifiedDocumentCache(60000, 10);
+        assertFalse(cache.isVerified("document", "signature"));
+
+        cache.add("document", "signature");
+        assertEquals(cache.size(), 1);
+        assertTrue(cache.isVerified("document", "signature"));
+        assertFalse(cache.isVerified("document", "signature2"));
+        assertFalse(cache.isVerified("document2", "signature"));
+
+        // the document and signature boundary is part of the digest
+
+        assertFalse(cache.isVerified("documentsig", "nature"));
+
+        // null values are never cached
+
+        cache.add(null, "signature");
+        cache.add("document", null);
+        assertEquals(cache.size(), 1);
+        assertFalse(cache.isVerified(null, "signature"));
+        assertFalse(cache.isVerified("document", null));
+    }
+
+    @Test
+    public void testExpiredDocuments() throws InterruptedException {
+
+        VerifiedDocumentCache cache = new VerifiedDocumentCache(50, 10);
+        cache.add("document", "signature");
+        assertTrue(cache.isVerified("document", "signature"));
+
+        Thread.sleep(100);
+
+        assertFalse(cache.isVerified("document", "signature"));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testMaxSize() throws InterruptedException {
+
+        VerifiedDocumentCache cache = new VerifiedDocumentCache(50, 2);
+        cache.add("document1", "signature");
+        cache.add("document2", "signature");
+        cache.add("document3", "signature");
+        assertEquals(cache.size(), 2);
+        assertFalse(cache.isVerified("document3", "signature"));
+
+        // once the entries expire there is room for new ones
+
+        Thread.sleep(100);
+
+        cache.add("document3", "signature");
+        assertEquals(cache.size(), 1);
+        assertTrue(cache.isVerified("document3", "signature"));
+    }
+
+    @Test
+    public void testDocumentDigest() {
+
+        assertNull(VerifiedDocumentCache.documentDigest(null, "signature"));
+        assertNull(VerifiedDocumentCache.documentDigest("document", null));
+        assertEquals(VerifiedDocumentCache.documentDigest("document", "signature"),
+                VerifiedDocumentCache.documentDigest("document", "signature"));
+        assertNotEquals(VerifiedDocumentCache.documentDigest("document", "signature"),
+                VerifiedDocumentCache.documentDigest("documen", "tsignature"));
+    }
+}
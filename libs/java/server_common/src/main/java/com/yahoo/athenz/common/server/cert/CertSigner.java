@@ -15,6 +15,10 @@
  */
 package com.yahoo.athenz.common.server.cert;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface CertSigner {
 
     /**
@@ -32,6 +36,56 @@ public interface CertSigner {
         return null;
     }
 
+    /**
+     * Asynchronously generate a signed X509 Certificate based on the given
+     * request. The returned future completes with the certificate in PEM
+     * format or null if the signer was unable to generate the certificate.
+     * The default implementation calls the synchronous method in the
+     * caller's thread so signers that can process requests without
+     * blocking should override this method. Signers that implement the
+     * synchronous method on top of this one must override both.
+     * @param csr Certificate request
+     * @param keyUsage Requested key usage (null for both server and client,
+     * otherwise specified usage type: server or client)
+     * @param expiryTime Requested certificate expiration time in minutes.
+     * CertSigner might override this value with a smaller value.
+     * @return future for the X509 Certificate in PEM format
+     */
+    default CompletableFuture<String> generateX509CertificateAsync(String csr, String keyUsage, int expiryTime) {
+        return CompletableFuture.completedFuture(generateX509Certificate(csr, keyUsage, expiryTime));
+    }
+
+    /**
+     * Indicates whether the signer is able to process multiple
+     * certificate requests in a single call to its backend. If true,
+     * ZTS may group concurrent requests with the same key usage
+     * and expiry time and pass them to generateX509Certificates.
+     * @return true if batch signing is supported
+     */
+    default boolean isBatchSigningSupported() {
+        return false;
+    }
+
+    /**
+     * Generate signed X509 Certificates for the given list of requests.
+     * The result must include an entry for each request in the same order
+     * with null for any request the signer was unable to process. The
+     * default implementation signs each request individually.
+     * @param csrs list of certificate requests
+     * @param keyUsage Requested key usage (null for both server and client,
+     * otherwise specified usage type: server or client)
+     * @param expiryTime Requested certificate expiration time in minutes.
+     * CertSigner might override this value with a smaller value.
+     * @return list of X509 Certificates in PEM format
+     */
+    default List<String> generateX509Certificates(List<String> csrs, String keyUsage, int expiryTime) {
+        List<String> pemCerts = new ArrayList<>(csrs.size());
+        for (String csr : csrs) {
+            pemCerts.add(generateX509Certificate(csr, keyUsage, expiryTime));
+        }
+        return pemCerts;
+    }
+
     /**
      * Retrieve the CA certificate in PEM format. This will be returned
      * along with the x509 certificate back to the client.
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.common.server.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yahoo.rdl.Schema;
+import com.yahoo.rdl.Validator;
+
+/**
+ * Wrapper around the RDL schema validator for the request parameters
+ * validated by the servers on every call. The name based string types
+ * (SimpleName, CompoundName and its aliases, EntityList, ResourceName
+ * and ResourceNames) share the same patterns in both ZMS and ZTS
+ * schemas so they're validated with simple character checks instead of
+ * regular expressions. All other string values that are successfully
+ * validated by the RDL validator are kept in a small bounded cache so
+ * that we don't evaluate the same regular expression for the same value
+ * repeatedly. Invalid values are always validated by the RDL validator
+ * so the error messages returned to the caller are not changed.
+ */
+public class SchemaValidator {
+
+    public static final String TYPE_SIMPLE_NAME = "SimpleName";
+    public static final String TYPE_COMPOUND_NAME = "CompoundName";
+    public static final String TYPE_DOMAIN_NAME = "DomainName";
+    public static final String TYPE_ENTITY_NAME = "EntityName";
+    public static final String TYPE_SERVICE_NAME = "ServiceName";
+    public static final String TYPE_LOCATION_NAME = "LocationName";
+    public static final String TYPE_ACTION_NAME = "ActionName";
+    public static final String TYPE_AUTHORITY_NAME = "AuthorityName";
+    public static final String TYPE_ENTITY_LIST = "EntityList";
+    public static final String TYPE_RESOURCE_NAME = "ResourceName";
+    public static final String TYPE_RESOURCE_NAMES = "ResourceNames";
+
+    // we only cache short values since those are the ones that are
+    // typically repeated (e.g. domain, role and service names)
+
+    static final int MAX_CACHED_VALUE_LENGTH = 256;
+
+    static final String[] FAST_CHECK_SAMPLES = {
+        "athenz", "_athenz-api", "athenz.api", "athenz:api", "athenz.api:resource.name",
+        "athenz,sports", "athenz.api,sports:resource", "", "-athenz", "athenz.", ".athenz",
+        "athenz..api", "athenz:", "athenz,", "athenz api", "athenz/api", "athenz*", "*"
+    };
+
+    private final Validator validator;
+    private final Map<String, Predicate<String>> fastChecks;
+    private final Cache<String, Boolean> validValues;
+
+    /**
+     * Create a new validator for the given schema
+     * @param schema RDL schema
+     * @param cacheSize maximum number of validated values to cache.
+     *      0 disables the cache
+     */
+    public SchemaValidator(Schema schema, int cacheSize) {
+
+        validator = new Validator(schema);
+
+        fastChecks = new HashMap<>();
+        addFastCheck(TYPE_SIMPLE_NAME, SchemaValidator::isSimpleName);
+        addFastCheck(TYPE_COMPOUND_NAME, SchemaValidator::isCompoundName);
+        addFastCheck(TYPE_DOMAIN_NAME, SchemaValidator::isCompoundName);
+        addFastCheck(TYPE_ENTITY_NAME, SchemaValidator::isCompoundName);
+        addFastCheck(TYPE_SERVICE_NAME, SchemaValidator::isCompoundName);
+        addFastCheck(TYPE_LOCATION_NAME, SchemaValidator::isCompoundName);
+        addFastCheck(TYPE_ACTION_NAME, SchemaValidator::isCompoundName);
+        addFastCheck(TYPE_AUTHORITY_NAME, SchemaValidator::isCompoundName);
+        addFastCheck(TYPE_ENTITY_LIST, SchemaValidator::isEntityList);
+        addFastCheck(TYPE_RESOURCE_NAME, SchemaValidator::isResourceName);
+        addFastCheck(TYPE_RESOURCE_NAMES, SchemaValidator::isResourceNames);
+
+        validValues = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).build() : null;
+    }
+
+    /**
+     * Register the character based check for the given type only if the
+     * type is defined in our schema and the RDL validator agrees with our
+     * check for all the sample values. This way if the schema does not
+     * include the type or its pattern is changed, we'll always fall back
+     * to the RDL validator.
+     */
+    void addFastCheck(final String type, Predicate<String> fastCheck) {
+        for (String sample : FAST_CHECK_SAMPLES) {
+            if (validator.validate(sample, type).valid != fastCheck.test(sample)) {
+                return;
+            }
+        }
+        fastChecks.put(type, fastCheck);
+    }
+
+    boolean hasFastCheck(final String type) {
+        return fastChecks.containsKey(type);
+    }
+
+    /**
+     * Validate the given value against the given schema type
+     * @param val value to be validated
+     * @param type schema type name
+     * @return null if the value is valid, otherwise the error message
+     *      returned by the RDL validator
+     */
+    public String validate(Object val, final String type) {
+
+        String cacheKey = null;
+        if (val instanceof String) {
+
+            final String value = (String) val;
+            Predicate<String> fastCheck = fastChecks.get(type);
+            if (fastCheck != null) {
+                if (fastCheck.test(value)) {
+                    return null;
+                }
+            } else if (validValues != null && value.length() <= MAX_CACHED_VALUE_LENGTH) {
+                cacheKey = type + ':' + value;
+                if (validValues.getIfPresent(cacheKey) != null) {
+                    return null;
+                }
+            }
+        }
+
+        Validator.Result result = validator.validate(val, type);
+        if (!result.valid) {
+            return result.error;
+        }
+
+        if (cacheKey != null) {
+            validValues.put(cacheKey, Boolean.TRUE);
+        }
+        return null;
+    }
+
+    long cacheSize() {
+        return validValues == null ? 0 : validValues.size();
+    }
+
+    static boolean isNameStartChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    static boolean isNameChar(char c) {
+        return isNameStartChar(c) || c == '-';
+    }
+
+    /**
+     * Match a simple name - [a-zA-Z0-9_][a-zA-Z0-9_-]* - starting at the
+     * given index.
+     * @return index after the last matched character or -1 if no match
+     */
+    static int matchSimpleName(final String value, int index) {
+        final int length = value.length();
+        if (index >= length || !isNameStartChar(value.charAt(index))) {
+            return -1;
+        }
+        index += 1;
+        while (index < length && isNameChar(value.charAt(index))) {
+            index += 1;
+        }
+        return index;
+    }
+
+    /**
+     * Match a compound name - one or more simple names separated by dots -
+     * starting at the given index.
+     * @return index after the last matched character or -1 if no match
+     */
+    static int matchCompoundName(final String value, int index) {
+        final int length = value.length();
+        while (true) {
+            index = matchSimpleName(value, index);
+            if (index == -1 || index == length || value.charAt(index) != '.') {
+                return index;
+            }
+            index += 1;
+        }
+    }
+
+    /**
+     * Match a resource name - compound name optionally followed by
+     * a colon and another compound name - starting at the given index.
+     * @return index after the last matched character or -1 if no match
+     */
+    static int matchResourceName(final String value, int index) {
+        index = matchCompoundName(value, index);
+        if (index == -1 || index == value.length() || value.charAt(index) != ':') {
+            return index;
+        }
+        return matchCompoundName(value, index + 1);
+    }
+
+    static boolean isSimpleName(final String value) {
+        return matchSimpleName(value, 0) == value.length();
+    }
+
+    static boolean isCompoundName(final String value) {
+        return matchCompoundName(value, 0) == value.length();
+    }
+
+    static boolean isResourceName(final String value) {
+        return matchResourceName(value, 0) == value.length();
+    }
+
+    static boolean isEntityList(final String value) {
+        final int length = value.length();
+        int index = 0;
+        while (true) {
+            index = matchCompoundName(value, index);
+            if (index == -1 || index == length || value.charAt(index) != ',') {
+                return index == length;
+            }
+            index += 1;
+        }
+    }
+
+    static boolean isResourceNames(final String value) {
+        final int length = value.length();
+        int index = 0;
+        while (true) {
+            index = matchResourceName(value, index);
+            if (index == -1 || index == length || value.charAt(index) != ',') {
+                return index == length;
+            }
+            index += 1;
+        }
+    }
+}
@@ -15,6 +15,10 @@
  */
 package com.yahoo.athenz.common.server.cert;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import org.testng.annotations.*;
 import org.mockito.Mockito;
 
@@ -40,6 +44,8 @@ public class CertSignerTest {
         };
 
         assertNull(signer.generateX509Certificate("csr", "client", 60));
+        assertNull(signer.generateX509CertificateAsync("csr", "client", 60).join());
+        assertFalse(signer.isBatchSigningSupported());
         assertNull(signer.getCACertificate());
         assertEquals(signer.getMaxCertExpiryTimeMins(), 0);
         signer.close();
@@ -63,4 +69,36 @@ public class CertSignerTest {
 
         testSigner.close();
     }
+
+    @Test
+    public void testCertSignerDefaultAsync() {
+
+        CertSigner signer = new CertSigner() {
+            @Override
+            public String generateX509Certificate(String csr, String keyUsage, int expiryTime) {
+                return "cert-" + csr;
+            }
+        };
+
+        CompletableFuture<String> future = signer.generateX509CertificateAsync("csr", "client", 60);
+        assertTrue(future.isDone());
+        assertEquals(future.join(), "cert-csr");
+    }
+
+    @Test
+    public void testCertSignerDefaultBatch() {
+
+        CertSigner signer = new CertSigner() {
+            @Override
+            public String generateX509Certificate(String csr, String keyUsage, int expiryTime) {
+                return "csr2".equals(csr) ? null : "cert-" + csr;
+            }
+        };
+
+        List<String> certs = signer.generateX509Certificates(Arrays.asList("csr1", "csr2", "csr3"), "client", 60);
+        assertEquals(certs.size(), 3);
+        assertEquals(certs.get(0), "cert-csr1");
+        assertNull(certs.get(1));
+        assertEquals(certs.get(2), "cert-csr3");
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.common.server.util;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import com.yahoo.athenz.zts.ZTSSchema;
+import com.yahoo.rdl.Validator;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class SchemaValidatorTest {
+
+    private static final String SAMPLE_CHARS = "aZ9_-.:,* /";
+
+    private static final String[] ZTS_FAST_CHECK_TYPES = {
+        SchemaValidator.TYPE_SIMPLE_NAME, SchemaValidator.TYPE_COMPOUND_NAME,
+        SchemaValidator.TYPE_DOMAIN_NAME, SchemaValidator.TYPE_ENTITY_NAME,
+        SchemaValidator.TYPE_SERVICE_NAME, SchemaValidator.TYPE_ACTION_NAME,
+        SchemaValidator.TYPE_AUTHORITY_NAME, SchemaValidator.TYPE_ENTITY_LIST,
+        SchemaValidator.TYPE_RESOURCE_NAME
+    };
+
+    static String generateValue(Random random) {
+        final int length = random.nextInt(12);
+        StringBuilder value = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            value.append(SAMPLE_CHARS.charAt(random.nextInt(SAMPLE_CHARS.length())));
+        }
+        return value.toString();
+    }
+
+    @Test
+    public void testFastCheckConformance() {
+
+        // for every type handled by our character checks, generate random
+        // values and verify that we get the same result as the rdl validator
+        // with the regular expression patterns from the schema
+
+        SchemaValidator schemaValidator = new SchemaValidator(ZTSSchema.instance(), 0);
+        Validator validator = new Validator(ZTSSchema.instance());
+
+        Random random = new Random(2020);
+        for (String type : ZTS_FAST_CHECK_TYPES) {
+            assertTrue(schemaValidator.hasFastCheck(type), type);
+            for (int i = 0; i < 20000; i++) {
+                final String value = generateValue(random);
+                Validator.Result result = validator.validate(value, type);
+                assertEquals(schemaValidator.validate(value, type) == null, result.valid, type + ": " + value);
+                if (!result.valid) {
+                    assertEquals(schemaValidator.validate(value, type), result.error);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFastCheckUnknownTypes() {
+
+        // types not defined in the zts schema must not be registered
+
+        SchemaValidator schemaValidator = new SchemaValidator(ZTSSchema.instance(), 0);
+        assertFalse(schemaValidator.hasFastCheck(SchemaValidator.TYPE_LOCATION_NAME));
+        assertFalse(schemaValidator.hasFastCheck(SchemaValidator.TYPE_RESOURCE_NAMES));
+    }
+
+    @Test
+    public void testResourceNamesConformance() {
+
+        // the resource names type is only defined in the zms schema
+
+        final String resourceName = "([a-zA-Z0-9_][a-zA-Z0-9_-]*\\.)*[a-zA-Z0-9_][a-zA-Z0-9_-]*"
+                + "(:([a-zA-Z0-9_][a-zA-Z0-9_-]*\\.)*[a-zA-Z0-9_][a-zA-Z0-9_-]*)?";
+        Pattern pattern = Pattern.compile("(" + resourceName + ",)*" + resourceName);
+
+        Random random = new Random(2020);
+        for (int i = 0; i < 20000; i++) {
+            final String value = generateValue(random);
+            assertEquals(SchemaValidator.isResourceNames(value), pattern.matcher(value).matches(), value);
+        }
+        assertTrue(SchemaValidator.isResourceNames("athenz:resource,sports.api:data.table,coretech"));
+        assertFalse(SchemaValidator.isResourceNames("athenz:resource,"));
+    }
+
+    @Test
+    public void testValidateCache() {
+
+        SchemaValidator schemaValidator = new SchemaValidator(ZTSSchema.instance(), 10);
+
+        // name types are not cached
+
+        assertNull(schemaValidator.validate("coretech.api", SchemaValidator.TYPE_DOMAIN_NAME));
+        assertEquals(schemaValidator.cacheSize(), 0);
+
+        // other string types are cached once validated
+
+        assertNull(schemaValidator.validate("data-token_v1", "YBase64"));
+        assertNull(schemaValidator.validate("data-token_v1", "YBase64"));
+        assertEquals(schemaValidator.cacheSize(), 1);
+
+        // invalid values are not cached and return the validator error
+
+        assertNotNull(schemaValidator.validate("data token", "YBase64"));
+        assertNotNull(schemaValidator.validate("coretech..api", SchemaValidator.TYPE_DOMAIN_NAME));
+        assertEquals(schemaValidator.cacheSize(), 1);
+
+        // same value is not valid for a different type
+
+        assertNotNull(schemaValidator.validate("data-token_v1", "AWSRolePath"));
+
+        // values exceeding our max length are not cached
+
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i <= SchemaValidator.MAX_CACHED_VALUE_LENGTH; i++) {
+            value.append('a');
+        }
+        assertNull(schemaValidator.validate(value.toString(), "YBase64"));
+        assertEquals(schemaValidator.cacheSize(), 1);
+    }
+
+    @Test
+    public void testValidateCacheDisabled() {
+
+        SchemaValidator schemaValidator = new SchemaValidator(ZTSSchema.instance(), 0);
+        assertNull(schemaValidator.validate("data-token_v1", "YBase64"));
+        assertEquals(schemaValidator.cacheSize(), 0);
+    }
+
+    @Test
+    public void testValidateNonStringValues() {
+
+        SchemaValidator schemaValidator = new SchemaValidator(ZTSSchema.instance(), 10);
+        assertNotNull(schemaValidator.validate(new Object(), SchemaValidator.TYPE_DOMAIN_NAME));
+        assertEquals(schemaValidator.cacheSize(), 0);
+    }
+}
@@ -43,6 +43,7 @@ public class DBService {
     AuditLogger auditLogger;
     Cache<String, DataCache> cacheStore;
     QuotaChecker quotaCheck;
+    DomainChangeTracker domainChangeTracker;
     int retrySleepTime;
     int defaultRetryCount;
     int defaultOpTimeout;
@@ -102,6 +103,10 @@ public class DBService {
         // create our quota checker class
         
         quotaCheck = new QuotaChecker();
+
+        // create our domain change tracker for change notifications
+
+        domainChangeTracker = new DomainChangeTracker();
     }
 
     void setAuditRefObjectBits() {
@@ -231,6 +236,10 @@ public class DBService {
         con.commitChanges();
         con.updateDomainModTimestamp(domainName);
         cacheStore.invalidate(domainName);
+
+        // notify any clients waiting for domain changes
+
+        domainChangeTracker.recordChange(domainName);
     }
     
     void auditLogRequest(ResourceContext ctx, String domainName, String auditRef,
@@ -3499,6 +3508,11 @@ public class DBService {
         }
     }
     
+    List<DomainModified> waitForDomainChanges(final String matchingTag, long timeoutMillis,
+            StringBuilder changeTag) {
+        return domainChangeTracker.waitForChanges(matchingTag, timeoutMillis, changeTag);
+    }
+
     DomainModifiedList listModifiedDomains(long modifiedSince) {
         
         // since this is the operation executed by ZTS servers to
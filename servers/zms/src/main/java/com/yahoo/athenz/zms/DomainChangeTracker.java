@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the domains modified through this ZMS server so that
+ * clients (e.g. ZTS servers) can long-poll for domain changes instead
+ * of periodically requesting the list of modified domains.
+ * Each change is assigned a sequence number and the change tag returned
+ * to the client is made of the tracker id and the sequence number. If
+ * the client does not provide a tag or the tag is not recognized (e.g.
+ * the server was restarted or the changes have already been evicted)
+ * then the client is returned the current tag without any changes.
+ * The tracker only knows about the changes processed by this server
+ * instance so clients must still periodically poll for changes as
+ * a fallback.
+ */
+class DomainChangeTracker {
+
+    private static final String TAG_SEPARATOR = "-";
+
+    private final String trackerId;
+    private final int maxEntries;
+    private final int maxWaiters;
+    private final LinkedHashMap<String, DomainChange> changes;
+
+    private long sequence = 0;
+    private long evictedSequence = 0;
+    private int waiters = 0;
+
+    static class DomainChange {
+
+        final String domainName;
+        final long sequence;
+        final long modified;
+
+        DomainChange(final String domainName, long sequence, long modified) {
+            this.domainName = domainName;
+            this.sequence = sequence;
+            this.modified = modified;
+        }
+    }
+
+    DomainChangeTracker() {
+        this(Integer.parseInt(System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_MAX_ENTRIES, "10000")),
+                Integer.parseInt(System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_MAX_WAITERS, "100")));
+    }
+
+    DomainChangeTracker(int maxEntries, int maxWaiters) {
+        this.trackerId = Long.toString(System.currentTimeMillis());
+        this.maxEntries = maxEntries;
+        this.maxWaiters = maxWaiters;
+
+        // we're using an insertion ordered map and when a domain is
+        // modified again, we remove and add the entry so it's moved to
+        // the end of the list. this way the oldest entry is always first
+
+        changes = new LinkedHashMap<>();
+    }
+
+    /**
+     * Record that the given domain has been modified and notify
+     * any clients waiting for changes.
+     * @param domainName name of the modified domain
+     */
+    synchronized void recordChange(final String domainName) {
+
+        sequence += 1;
+        changes.remove(domainName);
+        changes.put(domainName, new DomainChange(domainName, sequence, System.currentTimeMillis()));
+
+        // if we have exceeded our limit then we need to remove the oldest
+        // entries and remember the latest evicted sequence number so that
+        // we know we can no longer guarantee complete results for any
+        // clients with tags older than that value
+
+        Iterator<Map.Entry<String, DomainChange>> iterator = changes.entrySet().iterator();
+        while (changes.size() > maxEntries && iterator.hasNext()) {
+            evictedSequence = iterator.next().getValue().sequence;
+            iterator.remove();
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Return the list of changes that have taken place since the given
+     * change tag. If there are no changes, the caller will wait up to
+     * the given timeout for any changes to take place.
+     * @param matchingTag change tag returned from the previous call
+     * @param timeoutMillis max number of milliseconds to wait for changes
+     * @param changeTag string builder that will be updated with the
+     *      change tag that the client must use in the next call
+     * @return list of modified domains (empty list if no changes or
+     *      the given tag was not recognized)
+     */
+    synchronized List<DomainModified> waitForChanges(final String matchingTag, long timeoutMillis,
+            StringBuilder changeTag) {
+
+        // if we don't recognize the tag then we're going to return the
+        // current tag so the client can start receiving notifications
+
+        final long since = getSequence(matchingTag);
+        if (since == -1) {
+            changeTag.append(trackerId).append(TAG_SEPARATOR).append(sequence);
+            return new ArrayList<>();
+        }
+
+        // we'll only wait if we have no changes to report and
+        // we're still within our configured limit of waiting clients
+
+        List<DomainModified> modList = getChanges(since);
+        if (modList.isEmpty() && timeoutMillis > 0 && waiters < maxWaiters) {
+
+            waiters += 1;
+            try {
+                final long expiry = System.currentTimeMillis() + timeoutMillis;
+                long remaining = timeoutMillis;
+                while (modList.isEmpty() && remaining > 0) {
+                    wait(remaining);
+                    modList = getChanges(since);
+                    remaining = expiry - System.currentTimeMillis();
+                }
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiters -= 1;
+            }
+        }
+
+        changeTag.append(trackerId).append(TAG_SEPARATOR).append(sequence);
+        return modList;
+    }
+
+    List<DomainModified> getChanges(long since) {
+
+        List<DomainModified> modList = new ArrayList<>();
+        for (DomainChange change : changes.values()) {
+            if (change.sequence > since) {
+                modList.add(new DomainModified().setName(change.domainName)
+                        .setModified(change.modified));
+            }
+        }
+        return modList;
+    }
+
+    long getSequence(final String matchingTag) {
+
+        // if we're not given a tag or the tag was generated by a different
+        // tracker instance (e.g. before the server was restarted) or our
+        // tag is older than any entries we have evicted, then we're going
+        // to return -1 to indicate that we can't process the request
+
+        if (matchingTag == null || matchingTag.isEmpty()) {
+            return -1;
+        }
+
+        int idx = matchingTag.indexOf(TAG_SEPARATOR);
+        if (idx == -1 || !trackerId.equals(matchingTag.substring(0, idx))) {
+            return -1;
+        }
+
+        long value;
+        try {
+            value = Long.parseLong(matchingTag.substring(idx + 1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+
+        if (value < evictedSequence || value > sequence) {
+            return -1;
+        }
+
+        return value;
+    }
+
+    synchronized int getWaiters() {
+        return waiters;
+    }
+
+    String getTrackerId() {
+        return trackerId;
+    }
+}
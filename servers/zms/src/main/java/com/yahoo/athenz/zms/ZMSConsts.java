@@ -40,6 +40,7 @@ public final class ZMSConsts {
     public static final String ZMS_PROP_VIRTUAL_DOMAIN_LIMIT = "athenz.zms.virtual_domain_limit";
     public static final String ZMS_PROP_READ_ONLY_MODE       = "athenz.zms.read_only_mode";
     public static final String ZMS_PROP_DOMAIN_NAME_MAX_SIZE = "athenz.zms.domain_name_max_len";
+    public static final String ZMS_PROP_VALIDATOR_CACHE_SIZE = "athenz.zms.validator_cache_size";
     public static final String ZMS_PROP_HEALTH_CHECK_PATH    = "athenz.zms.health_check_path";
     public static final String ZMS_PROP_SERVER_REGION        = "athenz.zms.server_region";
 
@@ -98,6 +99,12 @@ public final class ZMSConsts {
     public static final String ZMS_PROP_VALIDATE_SERVICE_MEMBERS_SKIP_DOMAINS = "athenz.zms.validate_service_members_skip_domains";
     public static final String ZMS_PROP_MASTER_COPY_FOR_SIGNED_DOMAINS        = "athenz.zms.master_copy_for_signed_domains";
 
+    // properties used to configure domain change notifications
+
+    public static final String ZMS_PROP_DOMAIN_CHANGE_MAX_ENTRIES = "athenz.zms.domain_change_max_entries";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_MAX_WAITERS = "athenz.zms.domain_change_max_waiters";
+    public static final String ZMS_PROP_DOMAIN_CHANGE_MAX_TIMEOUT = "athenz.zms.domain_change_max_timeout";
+
     // properties used to over-ride default Audit logger
  
     public static final String ZMS_PROP_METRIC_FACTORY_CLASS            = "athenz.zms.metric_factory_class";
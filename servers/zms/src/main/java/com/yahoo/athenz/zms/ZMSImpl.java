@@ -30,6 +30,7 @@ import com.yahoo.athenz.common.server.notification.NotificationManager;
 import com.yahoo.athenz.common.server.rest.Http;
 import com.yahoo.athenz.common.server.rest.Http.AuthorityList;
 import com.yahoo.athenz.common.server.util.ConfigProperties;
+import com.yahoo.athenz.common.server.util.SchemaValidator;
 import com.yahoo.athenz.common.server.util.ServletRequestUtil;
 import com.yahoo.athenz.common.server.util.StringUtils;
 import com.yahoo.athenz.common.utils.SignUtils;
@@ -46,8 +47,6 @@ import com.yahoo.rdl.JSON;
 import com.yahoo.rdl.Schema;
 import com.yahoo.rdl.Timestamp;
 import com.yahoo.rdl.UUID;
-import com.yahoo.rdl.Validator;
-import com.yahoo.rdl.Validator.Result;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -141,8 +140,9 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
     protected boolean validateUserRoleMembers = false;
     protected boolean validateServiceRoleMembers = false;
     protected boolean useMasterCopyForSignedDomains = false;
+    protected int domainChangeMaxTimeout = 30;
     protected Set<String> validateServiceMemberSkipDomains;
-    protected static Validator validator;
+    protected static SchemaValidator validator;
     protected String userDomain;
     protected String userDomainPrefix;
     protected String homeDomain;
@@ -483,7 +483,8 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
 
     void loadSchemaValidator() {
         schema = ZMSSchema.instance();
-        validator = new Validator(schema);
+        validator = new SchemaValidator(schema,
+                Integer.parseInt(System.getProperty(ZMSConsts.ZMS_PROP_VALIDATOR_CACHE_SIZE, "10000")));
     }
 
     void loadConfigurationSettings() {
@@ -586,6 +587,14 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         useMasterCopyForSignedDomains = Boolean.parseBoolean(
                 System.getProperty(ZMSConsts.ZMS_PROP_MASTER_COPY_FOR_SIGNED_DOMAINS, "false"));
 
+        // max number of seconds we'll hold domain change notification requests
+
+        domainChangeMaxTimeout = Integer.parseInt(
+                System.getProperty(ZMSConsts.ZMS_PROP_DOMAIN_CHANGE_MAX_TIMEOUT, "30"));
+        if (domainChangeMaxTimeout < 0) {
+            domainChangeMaxTimeout = 30;
+        }
+
         // get the maximum length allowed for a top level domain name
 
         domainNameMaxLen = Integer.parseInt(System.getProperty(
@@ -1446,6 +1455,22 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
         return accessStatus == AccessStatus.ALLOWED;
     }
 
+    boolean isAllowedDomainChangesAccess(Principal principal) {
+
+        // the authorization policy resides in official sys.auth domain
+
+        AthenzDomain domain = getAthenzDomain(SYS_AUTH, true);
+
+        // evaluate our domain's roles and policies to see if access
+        // is allowed or not for the given operation and resource
+
+        String resource = SYS_AUTH + ":domain-changes";
+        AccessStatus accessStatus = evaluateAccess(domain, principal.getFullName(), "access",
+                resource, null, null);
+
+        return accessStatus == AccessStatus.ALLOWED;
+    }
+
     boolean isAllowedResourceLookForAllUsers(Principal principal) {
 
         // the authorization policy resides in official sys.auth domain
@@ -4908,6 +4933,55 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
                 .header("ETag", eTag.toString()).build();
     }
     
+    @Override
+    public Response getDomainChanges(ResourceContext ctx, Integer timeout, String matchingTag) {
+
+        final String caller = "getdomainchanges";
+        metric.increment(ZMSConsts.HTTP_GET);
+        metric.increment(ZMSConsts.HTTP_REQUEST);
+        metric.increment(caller);
+        final String principalDomain = getPrincipalDomain(ctx);
+        logPrincipal(ctx);
+
+        validateRequest(ctx.request(), caller);
+
+        // since the request might be held by the server until there
+        // are domain changes, this api is only available for principals
+        // (e.g. zts servers) authorized in the sys.auth domain with
+        // action access on resource sys.auth:domain-changes
+
+        Principal principal = ((RsrcCtxWrapper) ctx).principal();
+        if (!isAllowedDomainChangesAccess(principal)) {
+            throw ZMSUtils.forbiddenError("getDomainChanges: principal is not authorized to watch domain changes",
+                    caller);
+        }
+
+        if (timeout != null && timeout < 0) {
+            throw ZMSUtils.requestError("getDomainChanges: invalid timeout value: " + timeout, caller);
+        }
+
+        // make sure we don't hold the request longer than our configured limit
+
+        long timeoutSecs = (timeout == null || timeout > domainChangeMaxTimeout) ? domainChangeMaxTimeout : timeout;
+
+        Object timerMetric = metric.startTiming("getdomainchanges_timing", null, principalDomain);
+        StringBuilder changeTag = new StringBuilder(64);
+        List<DomainModified> modList = dbService.waitForDomainChanges(
+                matchingTag == null ? null : removeQuotes(matchingTag),
+                TimeUnit.SECONDS.toMillis(timeoutSecs), changeTag);
+        metric.stopTiming(timerMetric, null, principalDomain);
+
+        EntityTag eTag = new EntityTag(changeTag.toString());
+        if (modList.isEmpty()) {
+            return Response.status(ResourceException.NOT_MODIFIED)
+                    .header("ETag", eTag.toString()).build();
+        }
+
+        DomainModifiedList domainModifiedList = new DomainModifiedList().setNameModList(modList);
+        return Response.status(ResourceException.OK).entity(domainModifiedList)
+                .header("ETag", eTag.toString()).build();
+    }
+
     List<Policy> getPolicyListWithoutAssertionId(List<Policy> policies) {
         
         if (policies == null) {
@@ -6256,9 +6330,9 @@ public class ZMSImpl implements Authorizer, KeyStore, ZMSHandler {
             throw ZMSUtils.requestError("Missing or malformed " + type, caller);
         }
         
-        Result result = validator.validate(val, type);
-        if (!result.valid) {
-            throw ZMSUtils.requestError("Invalid " + type  + " error: " + result.error, caller);
+        final String error = validator.validate(val, type);
+        if (error != null) {
+            throw ZMSUtils.requestError("Invalid " + type  + " error: " + error, caller);
         }
     }
     
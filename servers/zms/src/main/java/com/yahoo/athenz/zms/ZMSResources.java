@@ -1871,6 +1871,32 @@ public class ZMSResources {
         }
     }
 
+    @GET
+    @Path("/sys/domain_changes")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDomainChanges(@QueryParam("timeout") Integer timeout, @HeaderParam("If-None-Match") String matchingTag) {
+        try {
+            ResourceContext context = this.delegate.newResourceContext(this.request, this.response);
+            context.authenticate();
+            return this.delegate.getDomainChanges(context, timeout, matchingTag);
+        } catch (ResourceException e) {
+            int code = e.getCode();
+            switch (code) {
+            case ResourceException.BAD_REQUEST:
+                throw typedException(code, e, ResourceError.class);
+            case ResourceException.FORBIDDEN:
+                throw typedException(code, e, ResourceError.class);
+            case ResourceException.TOO_MANY_REQUESTS:
+                throw typedException(code, e, ResourceError.class);
+            case ResourceException.UNAUTHORIZED:
+                throw typedException(code, e, ResourceError.class);
+            default:
+                System.err.println("*** Warning: undeclared exception (" + code + ") for resource getDomainChanges");
+                throw typedException(code, e, ResourceError.class);
+            }
+        }
+    }
+
     @GET
     @Path("/user/{userName}/token")
     @Produces(MediaType.APPLICATION_JSON)
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zms;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class DomainChangeTrackerTest {
+
+    @Test
+    public void testWaitForChangesNoTag() {
+
+        DomainChangeTracker tracker = new DomainChangeTracker(10, 10);
+        tracker.recordChange("coretech");
+        tracker.recordChange("sports");
+
+        // without a tag we get back the current tag only
+
+        StringBuilder changeTag = new StringBuilder();
+        List<DomainModified> modList = tracker.waitForChanges(null, 30000, changeTag);
+        assertTrue(modList.isEmpty());
+        assertEquals(changeTag.toString(), tracker.getTrackerId() + "-2");
+
+        // same result with an unknown tag
+
+        changeTag = new StringBuilder();
+        modList = tracker.waitForChanges("12345-1", 30000, changeTag);
+        assertTrue(modList.isEmpty());
+        assertEquals(changeTag.toString(), tracker.getTrackerId() + "-2");
+    }
+
+    @Test
+    public void testWaitForChangesWithTag() {
+
+        DomainChangeTracker tracker = new DomainChangeTracker(10, 10);
+        tracker.recordChange("coretech");
+        tracker.recordChange("sports");
+
+        StringBuilder changeTag = new StringBuilder();
+        tracker.waitForChanges(null, 0, changeTag);
+
+        tracker.recordChange("weather");
+        StringBuilder weatherChangeTag = new StringBuilder();
+        List<DomainModified> modList = tracker.waitForChanges(changeTag.toString(), 0, weatherChangeTag);
+        assertEquals(modList.size(), 1);
+        assertEquals(modList.get(0).getName(), "weather");
+
+        // modify coretech again so it moves to the end of the list
+
+        tracker.recordChange("coretech");
+
+        StringBuilder newChangeTag = new StringBuilder();
+        modList = tracker.waitForChanges(changeTag.toString(), 0, newChangeTag);
+        assertEquals(modList.size(), 2);
+        assertEquals(modList.get(0).getName(), "weather");
+        assertEquals(modList.get(1).getName(), "coretech");
+        assertEquals(newChangeTag.toString(), tracker.getTrackerId() + "-4");
+
+        // no changes with our new tag
+
+        StringBuilder lastChangeTag = new StringBuilder();
+        modList = tracker.waitForChanges(newChangeTag.toString(), 0, lastChangeTag);
+        assertTrue(modList.isEmpty());
+        assertEquals(lastChangeTag.toString(), newChangeTag.toString());
+    }
+
+    @Test
+    public void testWaitForChangesTimeout() {
+
+        DomainChangeTracker tracker = new DomainChangeTracker(10, 10);
+        tracker.recordChange("coretech");
+
+        StringBuilder changeTag = new StringBuilder();
+        tracker.waitForChanges(null, 0, changeTag);
+
+        long start = System.currentTimeMillis();
+        List<DomainModified> modList = tracker.waitForChanges(changeTag.toString(), 100, new StringBuilder());
+        assertTrue(modList.isEmpty());
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        assertEquals(tracker.getWaiters(), 0);
+    }
+
+    @Test
+    public void testWaitForChangesNotify() throws InterruptedException {
+
+        DomainChangeTracker tracker = new DomainChangeTracker(10, 10);
+        tracker.recordChange("coretech");
+
+        StringBuilder changeTag = new StringBuilder();
+        tracker.waitForChanges(null, 0, changeTag);
+
+        Thread thread = new Thread(() -> {
+            while (tracker.getWaiters() == 0) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException ignored) {
+                }
+            }
+            tracker.recordChange("sports");
+        });
+        thread.start();
+
+        List<DomainModified> modList = tracker.waitForChanges(changeTag.toString(), 30000, new StringBuilder());
+        assertEquals(modList.size(), 1);
+        assertEquals(modList.get(0).getName(), "sports");
+        thread.join();
+    }
+
+    @Test
+    public void testWaitForChangesMaxWaiters() {
+
+        DomainChangeTracker tracker = new DomainChangeTracker(10, 0);
+        tracker.recordChange("coretech");
+
+        StringBuilder changeTag = new StringBuilder();
+        tracker.waitForChanges(null, 0, changeTag);
+
+        // with no waiters allowed we should return right away
+
+        long start = System.currentTimeMillis();
+        List<DomainModified> modList = tracker.waitForChanges(changeTag.toString(), 30000, new StringBuilder());
+        assertTrue(modList.isEmpty());
+        assertTrue(System.currentTimeMillis() - start < 30000);
+    }
+
+    @Test
+    public void testRecordChangeEviction() {
+
+        DomainChangeTracker tracker = new DomainChangeTracker(2, 10);
+        tracker.recordChange("coretech");
+
+        StringBuilder changeTag = new StringBuilder();
+        tracker.waitForChanges(null, 0, changeTag);
+
+        tracker.recordChange("sports");
+        StringBuilder sportsChangeTag = new StringBuilder();
+        tracker.waitForChanges(changeTag.toString(), 0, sportsChangeTag);
+
+        tracker.recordChange("weather");
+        tracker.recordChange("news");
+
+        // our first tag is older than the evicted entries so we
+        // only get back the current tag
+
+        StringBuilder newChangeTag = new StringBuilder();
+        List<DomainModified> modList = tracker.waitForChanges(changeTag.toString(), 0, newChangeTag);
+        assertTrue(modList.isEmpty());
+        assertEquals(newChangeTag.toString(), tracker.getTrackerId() + "-4");
+
+        // our second tag is still valid since sports was the last
+        // entry evicted
+
+        modList = tracker.waitForChanges(sportsChangeTag.toString(), 0, new StringBuilder());
+        assertEquals(modList.size(), 2);
+        assertEquals(modList.get(0).getName(), "weather");
+        assertEquals(modList.get(1).getName(), "news");
+    }
+
+    @Test
+    public void testGetSequence() {
+
+        DomainChangeTracker tracker = new DomainChangeTracker(10, 10);
+        tracker.recordChange("coretech");
+        tracker.recordChange("sports");
+
+        final String trackerId = tracker.getTrackerId();
+        assertEquals(tracker.getSequence(null), -1);
+        assertEquals(tracker.getSequence(""), -1);
+        assertEquals(tracker.getSequence("invalid"), -1);
+        assertEquals(tracker.getSequence("12345-1"), -1);
+        assertEquals(tracker.getSequence(trackerId + "-abc"), -1);
+        assertEquals(tracker.getSequence(trackerId + "-3"), -1);
+        assertEquals(tracker.getSequence(trackerId + "-0"), 0);
+        assertEquals(tracker.getSequence(trackerId + "-1"), 1);
+        assertEquals(tracker.getSequence(trackerId + "-2"), 2);
+    }
+}
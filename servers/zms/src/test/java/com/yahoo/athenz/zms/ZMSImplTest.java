@@ -557,6 +557,33 @@ public class ZMSImplTest {
         zms.deletePolicy(mockDomRsrcCtx, "sys.auth", "metaadmin", auditRef);
     }
 
+    private void setupPrincipalDomainChangesAccess(ZMSImpl zms, final String principal) {
+
+        Role role = createRoleObject("sys.auth", "domainchanges", null, principal, null);
+        zms.putRole(mockDomRsrcCtx, "sys.auth", "domainchanges", auditRef, role);
+
+        Policy policy = new Policy();
+        policy.setName("domainchanges");
+
+        Assertion assertion = new Assertion();
+        assertion.setAction("access");
+        assertion.setEffect(AssertionEffect.ALLOW);
+        assertion.setResource("sys.auth:domain-changes");
+        assertion.setRole("sys.auth:role.domainchanges");
+
+        List<Assertion> assertList = new ArrayList<>();
+        assertList.add(assertion);
+        policy.setAssertions(assertList);
+
+        zms.putPolicy(mockDomRsrcCtx, "sys.auth", "domainchanges", auditRef, policy);
+    }
+
+    private void cleanupPrincipalDomainChangesAccess(ZMSImpl zms) {
+
+        zms.deleteRole(mockDomRsrcCtx, "sys.auth", "domainchanges", auditRef);
+        zms.deletePolicy(mockDomRsrcCtx, "sys.auth", "domainchanges", auditRef);
+    }
+
     private void setupTenantDomainProviderService(String tenantDomain, String providerDomain,
             String providerService, String providerEndpoint) {
         setupTenantDomainProviderService(zms, tenantDomain, providerDomain, providerService, providerEndpoint);
@@ -15717,6 +15744,113 @@ public class ZMSImplTest {
         zms.deleteTopLevelDomain(mockDomRsrcCtx, "SignedDom1", auditRef);
     }
 
+    @Test
+    public void testGetDomainChanges() {
+
+        Authority principalAuthority = new com.yahoo.athenz.common.server.debug.DebugPrincipalAuthority();
+        Principal sysPrincipal = principalAuthority.authenticate("v=U1;d=sys;n=zts;s=signature",
+                "10.11.12.13", "GET", null);
+        ResourceContext rsrcCtx = createResourceContext(sysPrincipal);
+
+        setupPrincipalDomainChangesAccess(zms, "sys.zts");
+
+        // get our current change tag without waiting
+
+        Response response = zms.getDomainChanges(rsrcCtx, 0, null);
+        String changeTag = (String) response.getHeaders().getFirst("ETag");
+        assertNotNull(changeTag);
+
+        TopLevelDomain dom1 = createTopLevelDomainObject("ChangeDom1",
+                "Test Domain1", "testOrg", adminUser);
+        zms.postTopLevelDomain(mockDomRsrcCtx, auditRef, dom1);
+
+        DomainMeta meta = createDomainMetaObject("Tenant Domain1", null, true, false, "12345", 0);
+        zms.putDomainMeta(mockDomRsrcCtx, "changedom1", auditRef, meta);
+
+        response = zms.getDomainChanges(rsrcCtx, 1, changeTag);
+        assertEquals(response.getStatus(), ResourceException.OK);
+        DomainModifiedList modList = (DomainModifiedList) response.getEntity();
+        boolean domFound = false;
+        for (DomainModified dmod : modList.getNameModList()) {
+            if (dmod.getName().equals("changedom1")) {
+                domFound = true;
+            }
+        }
+        assertTrue(domFound);
+
+        // with the new tag we should get no changes
+
+        changeTag = (String) response.getHeaders().getFirst("ETag");
+        response = zms.getDomainChanges(rsrcCtx, 0, changeTag);
+        assertEquals(response.getStatus(), ResourceException.NOT_MODIFIED);
+        assertEquals(response.getHeaders().getFirst("ETag"), changeTag);
+
+        zms.deleteTopLevelDomain(mockDomRsrcCtx, "ChangeDom1", auditRef);
+        cleanupPrincipalDomainChangesAccess(zms);
+    }
+
+    @Test
+    public void testGetDomainChangesNotSystemPrincipal() {
+
+        try {
+            zms.getDomainChanges(mockDomRsrcCtx, 0, null);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.FORBIDDEN);
+        }
+    }
+
+    @Test
+    public void testGetDomainChangesSystemPrincipalNotAuthorized() {
+
+        Authority principalAuthority = new com.yahoo.athenz.common.server.debug.DebugPrincipalAuthority();
+        Principal sysPrincipal = principalAuthority.authenticate("v=U1;d=sys;n=zts;s=signature",
+                "10.11.12.13", "GET", null);
+        ResourceContext rsrcCtx = createResourceContext(sysPrincipal);
+
+        // without the sys.auth policy even system principals are rejected
+
+        try {
+            zms.getDomainChanges(rsrcCtx, 0, null);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.FORBIDDEN);
+        }
+
+        // access is granted to the principal listed in the policy only
+
+        setupPrincipalDomainChangesAccess(zms, "sys.zms");
+
+        try {
+            zms.getDomainChanges(rsrcCtx, 0, null);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.FORBIDDEN);
+        }
+
+        cleanupPrincipalDomainChangesAccess(zms);
+    }
+
+    @Test
+    public void testGetDomainChangesInvalidTimeout() {
+
+        Authority principalAuthority = new com.yahoo.athenz.common.server.debug.DebugPrincipalAuthority();
+        Principal sysPrincipal = principalAuthority.authenticate("v=U1;d=sys;n=zts;s=signature",
+                "10.11.12.13", "GET", null);
+        ResourceContext rsrcCtx = createResourceContext(sysPrincipal);
+
+        setupPrincipalDomainChangesAccess(zms, "sys.zts");
+
+        try {
+            zms.getDomainChanges(rsrcCtx, -1, null);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.BAD_REQUEST);
+        }
+
+        cleanupPrincipalDomainChangesAccess(zms);
+    }
+
     @Test
     public void testGetSignedDomainsException503() {
 
@@ -0,0 +1 @@
+ALTER TABLE `zts_store`.`certificates` ADD INDEX `idx_provider_time` (`provider` ASC, `currentTime` ASC);
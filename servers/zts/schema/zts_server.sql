@@ -31,7 +31,8 @@ CREATE TABLE IF NOT EXISTS `zts_store`.`certificates` (
   `prevTime` DATETIME(3) NOT NULL,
   `prevIP` VARCHAR(64) NOT NULL,
   `clientCert` TINYINT(1) NOT NULL DEFAULT 0,
-  PRIMARY KEY (`provider`, `instanceId`, `service`))
+  PRIMARY KEY (`provider`, `instanceId`, `service`),
+  INDEX `idx_provider_time` (`provider` ASC, `currentTime` ASC))
 ENGINE = InnoDB;
 
 
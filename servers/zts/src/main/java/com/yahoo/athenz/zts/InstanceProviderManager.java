@@ -20,16 +20,26 @@ import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.yahoo.athenz.auth.KeyStore;
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.common.metrics.impl.NoOpMetric;
 import com.yahoo.athenz.instance.provider.InstanceProvider;
 import com.yahoo.athenz.instance.provider.impl.InstanceHttpProvider;
 import com.yahoo.athenz.zts.cache.DataCache;
 import com.yahoo.athenz.zts.store.DataStore;
+import com.yahoo.athenz.zts.utils.CircuitBreaker;
 
 import javax.net.ssl.SSLContext;
 
@@ -39,10 +49,23 @@ public class InstanceProviderManager {
     private static final String SCHEME_HTTPS = "https";
     private static final String SCHEME_CLASS = "class";
 
+    // replaced https providers are closed after this delay so that
+    // any requests still using the provider can complete
+
+    private static final long PROVIDER_CLOSE_DELAY_MS = TimeUnit.MINUTES.toMillis(2);
+
     private ConcurrentHashMap<String, InstanceProvider> providerMap;
+    private ConcurrentHashMap<String, ManagedInstanceProvider> httpProviderMap;
+    private Set<ManagedInstanceProvider> retiredProviders;
     private DataStore dataStore;
     private KeyStore keyStore;
     private SSLContext sslContext;
+    private Metric metric;
+    private ThreadPoolExecutor providerExecutor;
+    private ScheduledExecutorService providerScheduler;
+    private long confirmTimeout;
+    private int circuitFailureThreshold;
+    private long circuitOpenTime;
     List<String> providerEndpoints = Collections.emptyList();
 
     enum ProviderScheme {
@@ -52,11 +75,43 @@ public class InstanceProviderManager {
     }
     
     public InstanceProviderManager(DataStore dataStore, SSLContext sslContext, KeyStore keyStore) {
+        this(dataStore, sslContext, keyStore, new NoOpMetric());
+    }
+
+    public InstanceProviderManager(DataStore dataStore, SSLContext sslContext, KeyStore keyStore,
+            Metric metric) {
         
         this.dataStore = dataStore;
         this.keyStore = keyStore;
         this.sslContext = sslContext;
+        this.metric = metric;
         providerMap = new ConcurrentHashMap<>();
+        httpProviderMap = new ConcurrentHashMap<>();
+        retiredProviders = ConcurrentHashMap.newKeySet();
+
+        // https providers are shared between requests so they keep
+        // their persistent connections. The confirmation requests are
+        // executed with a deadline and a per provider circuit breaker
+
+        confirmTimeout = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_PROVIDER_CONFIRM_TIMEOUT, "0"));
+        circuitFailureThreshold = Integer.parseInt(
+                System.getProperty(ZTSConsts.ZTS_PROP_PROVIDER_CIRCUIT_FAILURE_THRESHOLD, "0"));
+        circuitOpenTime = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_PROVIDER_CIRCUIT_OPEN_TIME, "30000"));
+
+        final int clientThreads = Integer.parseInt(
+                System.getProperty(ZTSConsts.ZTS_PROP_PROVIDER_CLIENT_THREADS, "64"));
+        providerExecutor = new ThreadPoolExecutor(clientThreads, clientThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(clientThreads * 16), runnable -> {
+                    Thread thread = new Thread(runnable, "zts-provider-client");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        providerExecutor.allowCoreThreadTimeOut(true);
+        providerScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zts-provider-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
         
         // get the list of valid provider endpoints
         
@@ -125,8 +180,7 @@ public class InstanceProviderManager {
         ProviderScheme schemeType = getProviderEndpointScheme(uri);
         switch (schemeType) {
         case HTTPS:
-            instanceProvider = new InstanceHttpProvider();
-            instanceProvider.initialize(provider, providerEndpoint, sslContext, keyStore);
+            instanceProvider = getHttpProvider(provider, providerEndpoint);
             break;
         case CLASS:
             instanceProvider = getClassProvider(uri.getHost(), provider);
@@ -138,6 +192,95 @@ public class InstanceProviderManager {
         return instanceProvider;
     }
     
+    ManagedInstanceProvider getHttpProvider(final String providerName, final String providerEndpoint) {
+
+        while (true) {
+
+            ManagedInstanceProvider current = httpProviderMap.get(providerName);
+            if (current != null && current.getProviderEndpoint().equals(providerEndpoint)) {
+                return current;
+            }
+
+            // either we don't have a provider yet or the endpoint has been
+            // updated. the provider is created outside of the map update
+            // so other requests are not blocked while its client is set up
+
+            ManagedInstanceProvider provider = createHttpProvider(providerName, providerEndpoint);
+            if (current == null) {
+                if (httpProviderMap.putIfAbsent(providerName, provider) == null) {
+                    return provider;
+                }
+            } else if (httpProviderMap.replace(providerName, current, provider)) {
+
+                // close the old provider once any pending requests have completed
+
+                LOGGER.info("getHttpProvider: Provider {} endpoint updated to {}", providerName, providerEndpoint);
+                retireHttpProvider(current);
+                return provider;
+            }
+
+            // another request has updated the provider first so we'll
+            // discard ours and use the provider from the map instead
+
+            provider.closeProvider();
+        }
+    }
+
+    ManagedInstanceProvider createHttpProvider(final String providerName, final String providerEndpoint) {
+        InstanceProvider httpProvider = new InstanceHttpProvider();
+        httpProvider.initialize(providerName, providerEndpoint, sslContext, keyStore);
+        return new ManagedInstanceProvider(providerName, providerEndpoint, httpProvider, providerExecutor,
+                providerScheduler, new CircuitBreaker(circuitFailureThreshold, circuitOpenTime),
+                confirmTimeout, metric);
+    }
+
+    void retireHttpProvider(ManagedInstanceProvider provider) {
+        retiredProviders.add(provider);
+        try {
+            providerScheduler.schedule(() -> {
+                if (retiredProviders.remove(provider)) {
+                    provider.closeProvider();
+                }
+            }, PROVIDER_CLOSE_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+
+            // the manager is being closed and will close the provider
+
+            LOGGER.error("retireHttpProvider: Unable to schedule close for provider: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Stop the provider executors and close all cached providers
+     * including the replaced https providers that are still waiting
+     * to be closed. Called when the server is shut down.
+     */
+    public void close() {
+
+        // we don't interrupt the executors so any pending requests are
+        // still completed or failed by their deadline timers instead
+        // of leaving the callers waiting for the result
+
+        providerScheduler.shutdown();
+        providerExecutor.shutdown();
+
+        for (ManagedInstanceProvider provider : httpProviderMap.values()) {
+            provider.closeProvider();
+        }
+        httpProviderMap.clear();
+
+        for (ManagedInstanceProvider provider : retiredProviders) {
+            if (retiredProviders.remove(provider)) {
+                provider.closeProvider();
+            }
+        }
+
+        for (InstanceProvider provider : providerMap.values()) {
+            provider.close();
+        }
+        providerMap.clear();
+    }
+
     InstanceProvider getClassProvider(String className, String providerName) {
         final String classKey = className + "-" + providerName;
         InstanceProvider provider = providerMap.get(classKey);
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.net.ssl.SSLContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yahoo.athenz.auth.KeyStore;
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.instance.provider.InstanceConfirmation;
+import com.yahoo.athenz.instance.provider.InstanceProvider;
+import com.yahoo.athenz.instance.provider.ResourceException;
+import com.yahoo.athenz.zts.utils.CircuitBreaker;
+
+/**
+ * Long lived wrapper for an initialized instance provider that is shared
+ * by all requests for the same provider. The confirmation requests are
+ * executed with a deadline and a per provider circuit breaker so that a
+ * slow or unavailable provider is rejected quickly instead of holding
+ * server threads until the client read timeout expires. Such requests
+ * fail with a SERVICE_UNAVAILABLE or GATEWAY_TIMEOUT ResourceException
+ * so they can be told apart from requests rejected by the provider.
+ * Since the provider is shared, the close method does not release
+ * the provider resources - that is done by the provider manager
+ * with the closeProvider method once the provider is no longer used.
+ */
+public class ManagedInstanceProvider implements InstanceProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ManagedInstanceProvider.class);
+    private static final int SERVER_ERROR = 500;
+
+    private final String providerName;
+    private final String providerEndpoint;
+    private final InstanceProvider provider;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final CircuitBreaker circuitBreaker;
+    private final long timeoutMs;
+    private final Metric metric;
+
+    /**
+     * Create a new managed provider
+     * @param providerName name of the provider service
+     * @param providerEndpoint endpoint of the provider
+     * @param provider initialized provider object
+     * @param executor executor for the confirmation requests
+     * @param scheduler scheduler for the request deadlines
+     * @param circuitBreaker circuit breaker for the provider
+     * @param timeoutMs request deadline in milliseconds. 0 disables the deadline
+     * @param metric metric object to report rejected requests
+     */
+    public ManagedInstanceProvider(final String providerName, final String providerEndpoint,
+            InstanceProvider provider, ExecutorService executor, ScheduledExecutorService scheduler,
+            CircuitBreaker circuitBreaker, long timeoutMs, Metric metric) {
+        this.providerName = providerName;
+        this.providerEndpoint = providerEndpoint;
+        this.provider = provider;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.circuitBreaker = circuitBreaker;
+        this.timeoutMs = timeoutMs;
+        this.metric = metric;
+    }
+
+    public String getProviderEndpoint() {
+        return providerEndpoint;
+    }
+
+    InstanceProvider getProvider() {
+        return provider;
+    }
+
+    @Override
+    public Scheme getProviderScheme() {
+        return provider.getProviderScheme();
+    }
+
+    @Override
+    public void initialize(String provider, String endpoint, SSLContext sslContext, KeyStore keyStore) {
+        // the wrapped provider is already initialized
+    }
+
+    @Override
+    public InstanceConfirmation confirmInstance(InstanceConfirmation confirmation) {
+        if (timeoutMs <= 0) {
+            return executeDirect(() -> provider.confirmInstance(confirmation));
+        }
+        return getResult(executeAsync(() -> provider.confirmInstance(confirmation)));
+    }
+
+    @Override
+    public InstanceConfirmation refreshInstance(InstanceConfirmation confirmation) {
+        if (timeoutMs <= 0) {
+            return executeDirect(() -> provider.refreshInstance(confirmation));
+        }
+        return getResult(executeAsync(() -> provider.refreshInstance(confirmation)));
+    }
+
+    @Override
+    public void close() {
+        // shared provider so the resources are released with closeProvider
+    }
+
+    /**
+     * Close the wrapped provider and release its resources
+     */
+    public void closeProvider() {
+        provider.close();
+    }
+
+    InstanceConfirmation executeDirect(Supplier<InstanceConfirmation> request) {
+
+        if (!circuitBreaker.allowRequest()) {
+            throw circuitOpenException();
+        }
+
+        try {
+            InstanceConfirmation confirmation = request.get();
+            circuitBreaker.recordSuccess();
+            return confirmation;
+        } catch (RuntimeException ex) {
+            recordResult(ex);
+            throw ex;
+        }
+    }
+
+    CompletableFuture<InstanceConfirmation> executeAsync(Supplier<InstanceConfirmation> request) {
+
+        CompletableFuture<InstanceConfirmation> result = new CompletableFuture<>();
+        if (!circuitBreaker.allowRequest()) {
+            result.completeExceptionally(circuitOpenException());
+            return result;
+        }
+
+        Future<?> task;
+        try {
+            // the result is recorded before completing the request so
+            // the circuit state is up to date once the caller is notified.
+            // if the deadline has already expired the failure has been
+            // recorded by our timer
+
+            task = executor.submit(() -> {
+                try {
+                    InstanceConfirmation confirmation = request.get();
+                    if (!result.isDone()) {
+                        circuitBreaker.recordSuccess();
+                    }
+                    result.complete(confirmation);
+                } catch (Throwable ex) {
+                    if (!result.isDone()) {
+                        recordResult(ex);
+                    }
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            LOGGER.error("Unable to submit request for provider {}: {}", providerName, ex.getMessage());
+            metric.increment("provider_request_rejected", providerName);
+            result.completeExceptionally(new ResourceException(ResourceException.SERVICE_UNAVAILABLE,
+                    "Provider " + providerName + " has too many pending requests"));
+            return result;
+        }
+
+        // if the provider does not respond within our deadline we fail
+        // the request and cancel the task so the thread is released
+        // as soon as possible
+
+        if (timeoutMs > 0) {
+            ScheduledFuture<?> timer = scheduler.schedule(() -> {
+                if (result.completeExceptionally(new ResourceException(ResourceException.GATEWAY_TIMEOUT,
+                        "Provider " + providerName + " confirmation timeout"))) {
+                    LOGGER.error("Provider {} did not respond within {} ms", providerName, timeoutMs);
+                    circuitBreaker.recordFailure();
+                    metric.increment("provider_confirm_timeout", providerName);
+                    task.cancel(true);
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            result.whenComplete((confirmation, ex) -> timer.cancel(false));
+        }
+
+        return result;
+    }
+
+    void recordResult(Throwable ex) {
+
+        // a request rejected by the provider means the provider is
+        // working as expected. We only count transport failures
+        // and server errors against the provider
+
+        if (ex instanceof ResourceException) {
+            ResourceException resourceEx = (ResourceException) ex;
+            if (resourceEx.getCause() == null && resourceEx.getCode() < SERVER_ERROR) {
+                circuitBreaker.recordSuccess();
+                return;
+            }
+        }
+        circuitBreaker.recordFailure();
+    }
+
+    ResourceException circuitOpenException() {
+        LOGGER.error("Provider {} circuit open, rejecting request", providerName);
+        metric.increment("provider_circuit_open", providerName);
+        return new ResourceException(ResourceException.SERVICE_UNAVAILABLE,
+                "Provider " + providerName + " is not available");
+    }
+
+    InstanceConfirmation getResult(CompletableFuture<InstanceConfirmation> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ResourceException(ResourceException.FORBIDDEN,
+                    "Provider " + providerName + " confirmation exception", cause);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yahoo.athenz.auth.ServerPrivateKey;
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.CryptoException;
+import com.yahoo.athenz.common.metrics.Metric;
+
+/**
+ * Pool of server private keys used to sign the tokens issued by ZTS.
+ * The keys are used in round-robin order and each thread keeps its own
+ * initialized Signature object for every key, so we don't have to look up
+ * the provider and initialize the signature for every token we sign.
+ * All keys in the pool must be included in the zts public keys in
+ * athenz.conf since those make up the server's JWK list.
+ */
+class SigningKeyPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SigningKeyPool.class);
+
+    static final String METRIC_TOKEN_SIGN = "token_sign";
+    static final String METRIC_TOKEN_SIGN_TIMING = "token_sign_timing";
+    static final String METRIC_TOKEN_SIGN_FAILURE = "token_sign_failure";
+
+    private static final String ECDSA_SHA256 = "SHA256withECDSA";
+    private static final String RSA_SHA256 = "SHA256withRSA";
+
+    private final List<ServerPrivateKey> keys;
+    private final Metric metric;
+    private final AtomicInteger keyIndex = new AtomicInteger();
+    private final ThreadLocal<Map<ServerPrivateKey, Signature>> signers =
+            ThreadLocal.withInitial(IdentityHashMap::new);
+
+    SigningKeyPool(final List<ServerPrivateKey> keys, final Metric metric) {
+        if (keys == null || keys.isEmpty()) {
+            throw new IllegalArgumentException("No signing keys specified");
+        }
+        this.keys = Collections.unmodifiableList(new ArrayList<>(keys));
+        this.metric = metric;
+    }
+
+    /**
+     * Load any additional signing keys configured in the given value. The
+     * value is a comma separated list of keyId:path entries where path
+     * is the location of the pem encoded private key.
+     * @param value comma separated list of keyId:path entries
+     * @return list of additional signing keys
+     */
+    static List<ServerPrivateKey> loadSigningKeys(final String value) {
+
+        List<ServerPrivateKey> signingKeys = new ArrayList<>();
+        if (value == null || value.isEmpty()) {
+            return signingKeys;
+        }
+
+        for (String entry : value.split(",")) {
+            int idx = entry.indexOf(':');
+            if (idx <= 0 || idx == entry.length() - 1) {
+                LOGGER.error("Invalid signing key entry: {}", entry);
+                throw new IllegalArgumentException("Invalid signing key entry: " + entry);
+            }
+            final String keyId = entry.substring(0, idx).trim();
+            final String keyPath = entry.substring(idx + 1).trim();
+            signingKeys.add(new ServerPrivateKey(Crypto.loadPrivateKey(new File(keyPath)), keyId));
+        }
+        return signingKeys;
+    }
+
+    /**
+     * Return the key that should be used to sign the next token
+     * @return server private key
+     */
+    ServerPrivateKey getSigningKey() {
+        if (keys.size() == 1) {
+            return keys.get(0);
+        }
+        return keys.get(Math.floorMod(keyIndex.getAndIncrement(), keys.size()));
+    }
+
+    List<ServerPrivateKey> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Sign the given data with the specified key and return the ybase64
+     * encoded signature (same format as Crypto.sign)
+     * @param data data to be signed
+     * @param key server private key
+     * @return ybase64 encoded signature
+     */
+    String sign(final String data, final ServerPrivateKey key) {
+
+        metric.increment(METRIC_TOKEN_SIGN);
+        Object timerMetric = metric.startTiming(METRIC_TOKEN_SIGN_TIMING, null);
+        try {
+            Signature signer = getSigner(key);
+            signer.update(data.getBytes(StandardCharsets.UTF_8));
+            return Crypto.ybase64(signer.sign());
+        } catch (GeneralSecurityException ex) {
+
+            // our signer is in an unknown state so we'll remove it
+            // and let the next request create a new one
+
+            signers.get().remove(key);
+            metric.increment(METRIC_TOKEN_SIGN_FAILURE);
+            LOGGER.error("Unable to sign data with key {}: {}", key.getId(), ex.getMessage());
+            throw new CryptoException(ex.getMessage());
+        } finally {
+            metric.stopTiming(timerMetric);
+        }
+    }
+
+    Signature getSigner(final ServerPrivateKey key) throws GeneralSecurityException {
+
+        // after the sign call completes, the signature object is reset
+        // to the state it was in after initSign so we can reuse it
+
+        Map<ServerPrivateKey, Signature> threadSigners = signers.get();
+        Signature signer = threadSigners.get(key);
+        if (signer == null) {
+            final String algorithm = (key.getAlgorithm() == SignatureAlgorithm.ES256) ?
+                    ECDSA_SHA256 : RSA_SHA256;
+            signer = Signature.getInstance(algorithm, BouncyCastleProvider.PROVIDER_NAME);
+            signer.initSign(key.getKey());
+            threadSigners.put(key, signer);
+        }
+        return signer;
+    }
+}
@@ -16,14 +16,45 @@
 package com.yahoo.athenz.zts;
 
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
 
 public class ZTS extends ResourceConfig {
+
     public ZTS() {
         register(JsonGeneralExceptionMapper.class, 1);
         register(JsonMappingExceptionMapper.class, 1);
         register(JsonParseExceptionMapper.class, 1);
         register(JsonProcessingExceptionMapper.class, 1);
+        register(ZTSResponseWriter.AccessTokenResponseWriter.class);
+        register(ZTSResponseWriter.RoleTokenWriter.class);
+        register(ZTSResponseWriter.InstanceIdentityWriter.class);
+        register(ZTSResponseWriter.DomainSignedPolicyDataWriter.class);
         register(ZTSResources.class);
-        register(new ZTSBinder());
+        ZTSBinder binder = new ZTSBinder();
+        register(binder);
+        register(new ZTSLifecycleListener(binder));
+    }
+
+    static class ZTSLifecycleListener implements ContainerLifecycleListener {
+
+        private final ZTSBinder binder;
+
+        ZTSLifecycleListener(ZTSBinder binder) {
+            this.binder = binder;
+        }
+
+        @Override
+        public void onStartup(Container container) {
+        }
+
+        @Override
+        public void onReload(Container container) {
+        }
+
+        @Override
+        public void onShutdown(Container container) {
+            binder.close();
+        }
     }
 }
@@ -19,8 +19,17 @@ import org.glassfish.jersey.internal.inject.AbstractBinder;
 
 public class ZTSBinder extends AbstractBinder  {
 
+    private ZTSImpl ztsImpl;
+
     @Override
     protected void configure() {
-        bind(new ZTSImpl()).to(ZTSHandler.class);
+        ztsImpl = new ZTSImpl();
+        bind(ztsImpl).to(ZTSHandler.class);
+    }
+
+    void close() {
+        if (ztsImpl != null) {
+            ztsImpl.close();
+        }
     }
 }
@@ -59,6 +59,7 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_CERT_ALLOWED_O_VALUES  = "athenz.zts.cert_allowed_o_values";
     public static final String ZTS_PROP_CERT_ALLOWED_OU_VALUES = "athenz.zts.cert_allowed_ou_values";
     public static final String ZTS_PROP_INSTANCE_CERT_IP_FNAME = "athenz.zts.instance_cert_ip_fname";
+    public static final String ZTS_PROP_CERT_IP_BLOCKS_RELOAD_INTERVAL = "athenz.zts.cert_ip_blocks_reload_interval";
     public static final String ZTS_PROP_CERT_BUNDLES_FNAME     = "athenz.zts.cert_authority_bundles_fname";
 
     public static final String ZTS_PROP_OAUTH_ISSUER           = "athenz.zts.oauth_issuer";
@@ -69,12 +70,22 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_CERTSIGN_CONNECT_TIMEOUT = "athenz.zts.certsign_connect_timeout";
     public static final String ZTS_PROP_CERTSIGN_RETRY_COUNT     = "athenz.zts.certsign_retry_count";
     public static final String ZTS_PROP_CERTSIGN_MAX_EXPIRY_TIME = "athenz.zts.certsign_max_expiry_time";
+    public static final String ZTS_PROP_CERTSIGN_HEDGE_DELAY     = "athenz.zts.certsign_hedge_delay";
+    public static final String ZTS_PROP_CERTSIGN_RETRY_BACKOFF   = "athenz.zts.certsign_retry_backoff";
+    public static final String ZTS_PROP_CERTSIGN_CIRCUIT_FAILURES = "athenz.zts.certsign_circuit_failure_threshold";
+    public static final String ZTS_PROP_CERTSIGN_CIRCUIT_OPEN_TIME = "athenz.zts.certsign_circuit_open_time";
     
     public static final String ZTS_PROP_LEAST_PRIVILEGE_PRINCIPLE  = "athenz.zts.least_privilege_principle";
     public static final String ZTS_PROP_ROLE_TOKEN_MAX_TIMEOUT     = "athenz.zts.role_token_max_timeout";
     public static final String ZTS_PROP_ROLE_TOKEN_DEFAULT_TIMEOUT = "athenz.zts.role_token_default_timeout";
     public static final String ZTS_PROP_ID_TOKEN_MAX_TIMEOUT       = "athenz.zts.id_token_max_timeout";
     public static final String ZTS_PROP_SIGNED_POLICY_TIMEOUT      = "athenz.zts.signed_policy_timeout";
+    public static final String ZTS_PROP_SIGNED_POLICY_CACHE_SIZE   = "athenz.zts.signed_policy_cache_size";
+    public static final String ZTS_PROP_SIGNED_POLICY_MAX_DOMAINS  = "athenz.zts.signed_policy_max_domains";
+    public static final String ZTS_PROP_ADDITIONAL_SIGNING_KEYS    = "athenz.zts.additional_signing_keys";
+    public static final String ZTS_PROP_ISSUED_TOKEN_CACHE_WINDOW  = "athenz.zts.issued_token_cache_window";
+    public static final String ZTS_PROP_ISSUED_TOKEN_CACHE_SIZE    = "athenz.zts.issued_token_cache_size";
+    public static final String ZTS_PROP_VALIDATOR_CACHE_SIZE       = "athenz.zts.validator_cache_size";
     public static final String ZTS_PROP_AUTHORIZED_PROXY_USERS     = "athenz.zts.authorized_proxy_users";
     public static final String ZTS_PROP_SECURE_REQUESTS_ONLY       = "athenz.zts.secure_requests_only";
     public static final String ZTS_PROP_STATUS_CERT_SIGNER         = "athenz.zts.status_cert_signer";
@@ -83,6 +94,7 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_SELF_SIGNER_PRIVATE_KEY_FNAME    = "athenz.zts.self_signer_private_key_fname";
     public static final String ZTS_PROP_SELF_SIGNER_PRIVATE_KEY_PASSWORD = "athenz.zts.self_signer_private_key_password";
     public static final String ZTS_PROP_SELF_SIGNER_CERT_DN              = "athenz.zts.self_signer_cert_dn";
+    public static final String ZTS_PROP_SELF_SIGNER_THREADS              = "athenz.zts.self_signer_threads";
     public static final String ZTS_PROP_OSTK_HOST_SIGNER_SERVICE         = "athenz.zts.ostk_host_signer_service";
     public static final String ZTS_PROP_CERT_REFRESH_VERIFY_HOSTNAMES    = "athenz.zts.cert_refresh_verify_hostnames";
     public static final String ZTS_PROP_CERT_REFRESH_RESET_TIME          = "athenz.zts.cert_refresh_reset_time";
@@ -101,8 +113,23 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_CERT_FILE_STORE_NAME         = "athenz.zts.cert_file_store_name";
     public static final String ZTS_PROP_CERT_DYNAMODB_TABLE_NAME     = "athenz.zts.cert_dynamodb_table_name";
     public static final String ZTS_PROP_CERT_DYNAMODB_ITEM_TTL_HOURS = "athenz.zts.cert_dynamodb_item_ttl_hours";
+    public static final String ZTS_PROP_CERT_WRITE_BEHIND_ENABLED     = "athenz.zts.cert_write_behind_enabled";
+    public static final String ZTS_PROP_CERT_WRITE_BEHIND_INTERVAL    = "athenz.zts.cert_write_behind_interval_ms";
+    public static final String ZTS_PROP_CERT_WRITE_BEHIND_MAX_PENDING = "athenz.zts.cert_write_behind_max_pending";
+    public static final String ZTS_PROP_CERT_CLEANUP_INTERVAL         = "athenz.zts.cert_cleanup_interval";
+    public static final String ZTS_PROP_CERT_CLEANUP_BATCH_SIZE       = "athenz.zts.cert_cleanup_batch_size";
+    public static final String ZTS_PROP_CERT_CLEANUP_DELETE_RATE      = "athenz.zts.cert_cleanup_delete_rate";
+    public static final String ZTS_PROP_CERT_CLEANUP_MAX_RUN_TIME     = "athenz.zts.cert_cleanup_max_run_time";
+    public static final String ZTS_PROP_CERT_SIGN_BATCH_WINDOW        = "athenz.zts.cert_sign_batch_window";
+    public static final String ZTS_PROP_CERT_SIGN_BATCH_SIZE          = "athenz.zts.cert_sign_batch_size";
+    public static final String ZTS_PROP_CERT_SIGN_BATCH_THREADS       = "athenz.zts.cert_sign_batch_threads";
+    public static final String ZTS_PROP_CERT_SIGN_BATCH_TIMEOUT       = "athenz.zts.cert_sign_batch_timeout";
 
     public static final String ZTS_PROP_PROVIDER_ENDPOINTS      = "athenz.zts.provider_endpoints";
+    public static final String ZTS_PROP_PROVIDER_CONFIRM_TIMEOUT           = "athenz.zts.provider_confirm_timeout";
+    public static final String ZTS_PROP_PROVIDER_CLIENT_THREADS            = "athenz.zts.provider_client_threads";
+    public static final String ZTS_PROP_PROVIDER_CIRCUIT_FAILURE_THRESHOLD = "athenz.zts.provider_circuit_failure_threshold";
+    public static final String ZTS_PROP_PROVIDER_CIRCUIT_OPEN_TIME         = "athenz.zts.provider_circuit_open_time";
     public static final String ZTS_PROP_INSTANCE_NTOKEN_TIMEOUT = "athenz.zts.instance_token_timeout";
     public static final String ZTS_PROP_X509_CA_CERT_FNAME      = "athenz.zts.x509_ca_cert_fname";
     public static final String ZTS_PROP_SSH_HOST_CA_CERT_FNAME  = "athenz.zts.ssh_host_ca_cert_fname";
@@ -160,6 +187,9 @@ public final class ZTSConsts {
     public static final String ZTS_PROP_AWS_BOOT_TIME_OFFSET     = "athenz.zts.aws_boot_time_offset";
     public static final String ZTS_PROP_AWS_CREDS_CACHE_TIMEOUT  = "athenz.zts.aws_creds_cache_timeout";
     public static final String ZTS_PROP_AWS_CREDS_INVALID_CACHE_TIMEOUT  = "athenz.zts.aws_creds_invalid_cache_timeout";
+    public static final String ZTS_PROP_AWS_CREDS_CACHE_MAX_SIZE  = "athenz.zts.aws_creds_cache_max_size";
+    public static final String ZTS_PROP_AWS_CREDS_REFRESH_INTERVAL  = "athenz.zts.aws_creds_refresh_interval";
+    public static final String ZTS_PROP_AWS_CREDS_REFRESH_MIN_HITS  = "athenz.zts.aws_creds_refresh_min_hits";
 
     public static final String ZTS_PROP_METRIC_FACTORY_CLASS             = "athenz.zts.metric_factory_class";
     public static final String ZTS_PROP_CERT_SIGNER_FACTORY_CLASS        = "athenz.zts.cert_signer_factory_class";
@@ -19,6 +19,7 @@ public interface ZTSHandler {
     PublicKeyEntry getPublicKeyEntry(ResourceContext context, String domainName, String serviceName, String keyId);
     HostServices getHostServices(ResourceContext context, String host);
     Response getDomainSignedPolicyData(ResourceContext context, String domainName, String matchingTag);
+    SignedPolicyDataList postSignedPolicyRequest(ResourceContext context, SignedPolicyRequest request);
     RoleToken getRoleToken(ResourceContext context, String domainName, String role, Integer minExpiryTime, Integer maxExpiryTime, String proxyForPrincipal);
     RoleToken postRoleCertificateRequest(ResourceContext context, String domainName, String roleName, RoleCertificateRequest req);
     Access getAccess(ResourceContext context, String domainName, String roleName, String principal);
@@ -34,7 +35,7 @@ public interface ZTSHandler {
     DomainMetrics postDomainMetrics(ResourceContext context, String domainName, DomainMetrics req);
     Status getStatus(ResourceContext context);
     Response postSSHCertRequest(ResourceContext context, SSHCertRequest certRequest);
-    JWKList getJWKList(ResourceContext context, Boolean rfc);
+    Response getJWKList(ResourceContext context, Boolean rfc, String matchingTag);
     AccessTokenResponse postAccessTokenRequest(ResourceContext context, String request);
     RoleCertificate postRoleCertificateRequestExt(ResourceContext context, RoleCertificateRequest req);
     Schema getRdlSchema(ResourceContext context);
@@ -20,6 +20,7 @@ import java.net.InetAddress;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.cert.X509Certificate;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
@@ -60,6 +61,7 @@ import com.yahoo.athenz.common.server.log.AuditLoggerFactory;
 import com.yahoo.athenz.common.server.rest.Http;
 import com.yahoo.athenz.common.server.rest.Http.AuthorityList;
 import com.yahoo.athenz.common.server.util.ConfigProperties;
+import com.yahoo.athenz.common.server.util.SchemaValidator;
 import com.yahoo.athenz.common.server.util.ServletRequestUtil;
 import com.yahoo.athenz.common.server.util.StringUtils;
 import com.yahoo.athenz.common.utils.SignUtils;
@@ -67,15 +69,16 @@ import com.yahoo.athenz.instance.provider.InstanceConfirmation;
 import com.yahoo.athenz.instance.provider.InstanceProvider;
 import com.yahoo.athenz.zms.DomainData;
 import com.yahoo.athenz.zts.cache.DataCache;
+import com.yahoo.athenz.zts.cache.IssuedTokenCache;
+import com.yahoo.athenz.zts.cache.SignedPolicyCache;
 import com.yahoo.athenz.zts.store.ChangeLogStore;
 import com.yahoo.athenz.zts.store.ChangeLogStoreFactory;
 import com.yahoo.athenz.zts.store.CloudStore;
 import com.yahoo.athenz.zts.store.DataStore;
 import com.yahoo.athenz.zts.utils.ZTSUtils;
+import com.yahoo.rdl.JSON;
 import com.yahoo.rdl.Schema;
 import com.yahoo.rdl.Timestamp;
-import com.yahoo.rdl.Validator;
-import com.yahoo.rdl.Validator.Result;
 
 /**
  * An implementation of ZTS.
@@ -93,6 +96,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     protected ServerPrivateKey privateKey = null;
     protected ServerPrivateKey privateECKey = null;
     protected ServerPrivateKey privateRSAKey = null;
+    protected SigningKeyPool signingKeyPool = null;
     protected PrivateKeyStore privateKeyStore = null;
     protected HostnameResolver hostnameResolver = null;
     protected int roleTokenDefaultTimeout;
@@ -100,6 +104,9 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     protected int idTokenMaxTimeout;
     protected long x509CertRefreshResetTime;
     protected long signedPolicyTimeout;
+    protected SignedPolicyCache signedPolicyCache = null;
+    protected int signedPolicyMaxDomains;
+    protected IssuedTokenCache issuedTokenCache = null;
     protected static String serverHostName = null;
     protected String ostkHostSignerDomain = null;
     protected String ostkHostSignerService = null;
@@ -147,6 +154,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     private static final String TYPE_RESOURCE_NAME = "ResourceName";
     private static final String TYPE_PATH_ELEMENT = "PathElement";
     private static final String TYPE_AWS_ARN_ROLE_NAME = "AWSArnRoleName";
+    private static final String TYPE_SIGNED_POLICY_REQUEST = "SignedPolicyRequest";
     
     private static final String ZTS_ROLE_TOKEN_VERSION = "Z1";
     private static final String ZTS_REQUEST_LOG_SKIP_QUERY = "com.yahoo.athenz.uri.skip_query";
@@ -169,6 +177,9 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     private static final String OAUTH_GRANT_CREDENTIALS = "client_credentials";
     private static final String OAUTH_BEARER_TOKEN = "Bearer";
 
+    private static final String ROLE_TOKEN_CACHE_TYPE = "roletoken";
+    private static final String ACCESS_TOKEN_CACHE_TYPE = "accesstoken";
+
     // domain metrics prefix
     private static final String DOM_METRIX_PREFIX = "dom_metric_";
 
@@ -176,7 +187,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     
     protected Http.AuthorityList authorities = null;
     protected ZTSAuthorizer authorizer;
-    protected static Validator validator;
+    protected static SchemaValidator validator;
     
     enum AthenzObject {
         DOMAIN_METRICS {
@@ -261,6 +272,10 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         
         loadMetricObject();
 
+        // set up our pool of keys used to sign issued tokens
+
+        loadSigningKeyPool();
+
         // check if we need to load our hostname resolver for cert requests
 
         loadHostnameResolver();
@@ -268,6 +283,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
        // create our cloud store if configured
 
         cloudStore = (implCloudStore == null) ? new CloudStore() : implCloudStore;
+        cloudStore.setMetric(metric);
 
         // create our change log store
         
@@ -291,21 +307,36 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
             dataStore = implDataStore;
         }
 
+        // make sure all our signing keys are published in our jwk list
+
+        verifySigningKeyPool();
+
         // set our authorizer
 
         authorizer = new ZTSAuthorizer(dataStore);
 
         // create our instance manager and provider
         
-        instanceCertManager = new InstanceCertManager(privateKeyStore, authorizer, readOnlyMode);
+        instanceCertManager = new InstanceCertManager(privateKeyStore, authorizer, metric, readOnlyMode);
 
         instanceProviderManager = new InstanceProviderManager(dataStore,
-                ZTSUtils.createServerClientSSLContext(privateKeyStore), this);
+                ZTSUtils.createServerClientSSLContext(privateKeyStore), this, metric);
         
         // make sure to set the keystore for any instance that requires it
         
         setAuthorityKeyStore();
     }
+
+    /**
+     * Stop the background tasks started by the server, write any
+     * pending certificate record updates to the cert record store
+     * and close the instance providers.
+     * Called when the container is shut down.
+     */
+    public void close() {
+        instanceCertManager.shutdown();
+        instanceProviderManager.close();
+    }
     
     void loadSystemProperties() {
         String propFile = System.getProperty(ZTSConsts.ZTS_PROP_FILE_NAME,
@@ -370,6 +401,33 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         timeout = TimeUnit.SECONDS.convert(7, TimeUnit.DAYS);
         signedPolicyTimeout = 1000 * Long.parseLong(
                 System.getProperty(ZTSConsts.ZTS_PROP_SIGNED_POLICY_TIMEOUT, Long.toString(timeout)));
+
+        // signed policy documents are cached and re-signed only when
+        // the domain is modified or when half of the timeout has passed
+
+        long signedPolicyCacheSize = Long.parseLong(
+                System.getProperty(ZTSConsts.ZTS_PROP_SIGNED_POLICY_CACHE_SIZE, "10000"));
+        if (signedPolicyCacheSize > 0) {
+            signedPolicyCache = new SignedPolicyCache(signedPolicyCacheSize, signedPolicyTimeout / 2);
+        }
+
+        // max number of domains a client can request signed policy
+        // data for in a single request
+
+        signedPolicyMaxDomains = Integer.parseInt(
+                System.getProperty(ZTSConsts.ZTS_PROP_SIGNED_POLICY_MAX_DOMAINS, "100"));
+
+        // issued role and access tokens can be returned for identical
+        // requests within the configured window (in seconds). by default
+        // the cache is disabled
+
+        long issuedTokenCacheWindow = Long.parseLong(
+                System.getProperty(ZTSConsts.ZTS_PROP_ISSUED_TOKEN_CACHE_WINDOW, "0"));
+        if (issuedTokenCacheWindow > 0) {
+            long issuedTokenCacheSize = Long.parseLong(
+                    System.getProperty(ZTSConsts.ZTS_PROP_ISSUED_TOKEN_CACHE_SIZE, "100000"));
+            issuedTokenCache = new IssuedTokenCache(issuedTokenCacheSize, issuedTokenCacheWindow);
+        }
         
         // default token timeout for issued tokens
         
@@ -502,7 +560,8 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     
     void loadSchemaValidator() {
         schema = ZTSSchema.instance();
-        validator = new Validator(schema);
+        validator = new SchemaValidator(schema,
+                Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_VALIDATOR_CACHE_SIZE, "10000")));
     }
     
     ChangeLogStore getChangeLogStore(String homeDir) {
@@ -604,6 +663,58 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         }
     }
     
+    void loadSigningKeyPool() {
+
+        // our primary private key is always part of the pool and
+        // then we'll add any additional signing keys if configured
+
+        List<ServerPrivateKey> signingKeys = new ArrayList<>();
+        signingKeys.add(privateKey);
+        signingKeys.addAll(SigningKeyPool.loadSigningKeys(
+                System.getProperty(ZTSConsts.ZTS_PROP_ADDITIONAL_SIGNING_KEYS)));
+
+        signingKeyPool = new SigningKeyPool(signingKeys, metric);
+    }
+
+    void verifySigningKeyPool() {
+
+        // the additional signing keys are not published by the server
+        // so they must be included in the zts public keys in athenz.conf
+        // since those make up our jwk list used by clients to validate
+        // our tokens. to detect any mismatches we sign a test value with
+        // every key and verify it with the configured public key
+
+        for (ServerPrivateKey signingKey : signingKeyPool.getKeys()) {
+
+            if (signingKey == privateKey) {
+                continue;
+            }
+
+            final String keyId = signingKey.getId();
+            final PublicKey publicKey = dataStore.getZtsPublicKey(keyId);
+            if (publicKey == null) {
+                LOGGER.error("Signing key {} is not included in the ZTS public keys", keyId);
+                throw new IllegalArgumentException("Signing key " + keyId
+                        + " is not included in the ZTS public keys");
+            }
+
+            if (!isMatchingPublicKey(signingKey, publicKey)) {
+                LOGGER.error("Signing key {} does not match the ZTS public key", keyId);
+                throw new IllegalArgumentException("Signing key " + keyId
+                        + " does not match the ZTS public key");
+            }
+        }
+    }
+
+    boolean isMatchingPublicKey(final ServerPrivateKey signingKey, final PublicKey publicKey) {
+        try {
+            final String signature = Crypto.sign(signingKey.getId(), signingKey.getKey());
+            return Crypto.verify(signingKey.getId(), publicKey, signature);
+        } catch (CryptoException ex) {
+            return false;
+        }
+    }
+
     void loadAuthorities() {
         
         // get our authorities
@@ -990,17 +1101,113 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         metric.increment(caller, domainName, principalDomain);
         
         Timestamp modified = domainData.getModified();
-        EntityTag eTag = new EntityTag(modified.toString());
-        String tag = eTag.toString();
+        final String tag = getETag(modified);
         
         // Set timestamp for domain rather than youngest policy.
         // Since a policy could have been deleted, and can only be detected
         // via the domain modified timestamp.
         
-        if (matchingTag != null && matchingTag.equals(tag)) {
+        if (tag != null && tag.equals(matchingTag)) {
             return Response.status(ResourceException.NOT_MODIFIED).header("ETag", tag).build();
         }
         
+        // serve the pre-serialized signed policy data if available
+        // otherwise fall back to the object itself
+
+        SignedPolicyCache.Entry entry = getSignedPolicyEntry(domainName, domainData);
+        Object result = entry.getData() != null ? entry.getData() : entry.getSignedPolicyData();
+
+        metric.stopTiming(timerMetric, domainName, principalDomain);
+        return setETag(Response.status(ResourceException.OK).entity(result), tag).build();
+    }
+
+    String getETag(final Timestamp modified) {
+        return (modified == null) ? null : new EntityTag(modified.toString()).toString();
+    }
+
+    Response.ResponseBuilder setETag(Response.ResponseBuilder builder, final String tag) {
+
+        // we only include the header if we were able to compute the
+        // tag for the returned data
+
+        return (tag == null) ? builder : builder.header("ETag", tag);
+    }
+
+    public SignedPolicyDataList postSignedPolicyRequest(ResourceContext ctx, SignedPolicyRequest request) {
+
+        final String caller = "postsignedpolicyrequest";
+        final String callerTiming = "postsignedpolicyrequest_timing";
+        metric.increment(HTTP_POST);
+        final String principalDomain = logPrincipalAndGetDomain(ctx);
+
+        validateRequest(ctx.request(), principalDomain, caller);
+        validate(request, TYPE_SIGNED_POLICY_REQUEST, principalDomain, caller);
+
+        final List<DomainPolicyTag> domainTags = request.getDomains();
+
+        // the request covers multiple domains so there is no single
+        // request domain to report the error against
+
+        if (domainTags.size() > signedPolicyMaxDomains) {
+            throw requestError("Too many domains requested: " + domainTags.size()
+                    + ", the limit is " + signedPolicyMaxDomains + " domains per request",
+                    caller, null, principalDomain);
+        }
+
+        metric.increment(HTTP_REQUEST);
+        metric.increment(caller);
+        Object timerMetric = metric.startTiming(callerTiming, null, principalDomain);
+
+        List<DomainSignedPolicyData> domains = new ArrayList<>();
+        List<String> unknownDomains = new ArrayList<>();
+        for (DomainPolicyTag domainTag : domainTags) {
+
+            // for consistent handling of all requests, we're going to convert
+            // all incoming object values into lower case since ZMS Server
+            // saves all of its object names in lower case
+
+            final String domainName = domainTag.getDomainName().toLowerCase();
+            DomainData domainData = dataStore.getDomainData(domainName);
+            if (domainData == null) {
+                unknownDomains.add(domainName);
+                continue;
+            }
+
+            // we only include the domains that have been modified since
+            // the client retrieved its copy of the policy data
+
+            final String tag = getETag(domainData.getModified());
+            if (tag != null && tag.equals(domainTag.getMatchingTag())) {
+                continue;
+            }
+
+            domains.add(getSignedPolicyEntry(domainName, domainData).getSignedPolicyData());
+        }
+
+        SignedPolicyDataList result = new SignedPolicyDataList().setDomains(domains);
+        if (!unknownDomains.isEmpty()) {
+            result.setUnknownDomains(unknownDomains);
+        }
+
+        metric.stopTiming(timerMetric, null, principalDomain);
+        return result;
+    }
+
+    SignedPolicyCache.Entry getSignedPolicyEntry(final String domainName, DomainData domainData) {
+
+        // check if we have already signed the policy data for this
+        // version of the domain with our current key
+
+        final Timestamp modified = domainData.getModified();
+        final String keyId = privateKey.getId();
+        if (signedPolicyCache != null && modified != null) {
+            SignedPolicyCache.Entry entry = signedPolicyCache.getEntry(domainName,
+                    modified.millis(), keyId);
+            if (entry != null) {
+                return entry;
+            }
+        }
+
         // first get our PolicyData object
         
         PolicyData policyData = new PolicyData()
@@ -1019,13 +1226,22 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
                 .setZmsSignature(domainData.getPolicies().getSignature());
 
         String signature = Crypto.sign(SignUtils.asCanonicalString(signedPolicyData), privateKey.getKey());
-        DomainSignedPolicyData result = new DomainSignedPolicyData()
+        DomainSignedPolicyData domainSignedPolicyData = new DomainSignedPolicyData()
             .setSignedPolicyData(signedPolicyData)
             .setSignature(signature)
-            .setKeyId(privateKey.getId());
-        
-        metric.stopTiming(timerMetric, domainName, principalDomain);
-        return Response.status(ResourceException.OK).entity(result).header("ETag", tag).build();
+            .setKeyId(keyId);
+
+        // serialize the signed policy data and keep it in our cache
+        // so subsequent requests return the same data without any
+        // signing or json encoding
+
+        SignedPolicyCache.Entry entry = new SignedPolicyCache.Entry(modified == null ? 0 : modified.millis(),
+                keyId, expires.millis(), domainSignedPolicyData, JSON.bytes(domainSignedPolicyData));
+        if (signedPolicyCache != null && modified != null && entry.getData() != null) {
+            signedPolicyCache.putEntry(domainName, entry);
+        }
+
+        return entry;
     }
 
     String convertEmptyStringToNull(String value) {
@@ -1462,19 +1678,36 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         // generate and return role token
 
         long tokenTimeout = determineTokenTimeout(data, roles, minExpiryTime, maxExpiryTime);
-        List<String> roleList = new ArrayList<>(roles);
         boolean domainCompleteRoleSet = (includeRoleCompleteFlag && roleNames == null);
+        final String remoteAddr = ServletRequestUtil.getRemoteAddress(ctx.request());
+
+        // check if we have already issued an identical token recently
+
+        final String tokenCacheKey = getIssuedTokenCacheKey(ROLE_TOKEN_CACHE_TYPE, data, domainName,
+                principalName, roles, tokenTimeout, proxyUser, remoteAddr, Boolean.toString(domainCompleteRoleSet));
+        IssuedTokenCache.Entry tokenEntry = getIssuedTokenEntry(tokenCacheKey,
+                minExpiryTime == null ? 0 : Math.min(minExpiryTime, tokenTimeout), domainName, principalDomain);
+        if (tokenEntry != null) {
+            metric.stopTiming(timerMetric, domainName, principalDomain);
+            return new RoleToken().setToken(tokenEntry.getToken()).setExpiryTime(tokenEntry.getExpiryTime());
+        }
+
+        List<String> roleList = new ArrayList<>(roles);
+        final ServerPrivateKey signingKey = signingKeyPool.getSigningKey();
         com.yahoo.athenz.auth.token.RoleToken token =
                 new com.yahoo.athenz.auth.token.RoleToken.Builder(ZTS_ROLE_TOKEN_VERSION, domainName, roleList)
-                    .expirationWindow(tokenTimeout).host(serverHostName).keyId(privateKey.getId())
-                    .principal(principalName).ip(ServletRequestUtil.getRemoteAddress(ctx.request()))
+                    .expirationWindow(tokenTimeout).host(serverHostName).keyId(signingKey.getId())
+                    .principal(principalName).ip(remoteAddr)
                     .proxyUser(proxyUser).domainCompleteRoleSet(domainCompleteRoleSet).build();
-        token.sign(privateKey.getKey());
+        token.setSignature(signingKeyPool.sign(token.getUnsignedToken(), signingKey));
         
         RoleToken roleToken = new RoleToken();
         roleToken.setToken(token.getSignedToken());
         roleToken.setExpiryTime(token.getExpiryTime());
 
+        putIssuedTokenEntry(tokenCacheKey, tokenTimeout, new IssuedTokenCache.Entry(token.getSignedToken(),
+                null, token.getTimestamp(), token.getExpiryTime()));
+
         metric.stopTiming(timerMetric, domainName, principalDomain);
         return roleToken;
     }
@@ -1728,32 +1961,36 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
             accessToken.setConfirmX509CertHash(cert);
         }
 
-        String accessJwts = accessToken.getSignedToken(privateKey.getKey(), privateKey.getId(), privateKey.getAlgorithm());
+        // check if we have already issued identical tokens recently
 
-        // now let's check to see if we need to create openid token
+        final boolean openidScope = tokenRequest.isOpenidScope();
+        final String tokenCacheKey = getIssuedTokenCacheKey(ACCESS_TOKEN_CACHE_TYPE, data, domainName,
+                principalName, roles, tokenTimeout, proxyUser,
+                (String) accessToken.getConfirmEntry(AccessToken.CLAIM_CONFIRM_X509_HASH),
+                openidScope ? tokenRequest.getServiceName() : null);
+        IssuedTokenCache.Entry tokenEntry = getIssuedTokenEntry(tokenCacheKey, 0, domainName, principalDomain);
 
+        String accessJwts;
         String idJwts = null;
-        if (tokenRequest.isOpenidScope()) {
-
-            final String serviceName = tokenRequest.getServiceName();
-            validate(serviceName, TYPE_SIMPLE_NAME, principalDomain, caller);
-
-            IdToken idToken = new IdToken();
-            idToken.setVersion(1);
-            idToken.setAudience(tokenRequest.getDomainName() + "." + serviceName);
-            idToken.setSubject(principalName);
-            idToken.setIssuer(ztsOAuthIssuer);
+        if (tokenEntry != null) {
+            accessJwts = tokenEntry.getToken();
+            idJwts = tokenEntry.getIdToken();
+            tokenTimeout = tokenEntry.getExpiryTime() - iat;
+        } else {
+            final ServerPrivateKey signingKey = signingKeyPool.getSigningKey();
+            accessJwts = accessToken.getSignedToken(signingKey.getKey(), signingKey.getId(), signingKey.getAlgorithm());
 
-            // id tokens are only valid for up to 12 hours max
-            // (value configured as a system property).
-            // we'll use the user specified timeout unless it's
-            // over the configured max
+            // now let's check to see if we need to create openid token
 
-            idToken.setIssueTime(iat);
-            idToken.setAuthTime(iat);
-            idToken.setExpiryTime(iat + determineIdTokenTimeout(tokenTimeout));
+            long idTokenTimeout = tokenTimeout;
+            if (openidScope) {
+                idTokenTimeout = determineIdTokenTimeout(tokenTimeout);
+                idJwts = getIdToken(tokenRequest, principalName, iat, idTokenTimeout, signingKey,
+                        principalDomain, caller);
+            }
 
-            idJwts = idToken.getSignedToken(privateKey.getKey(), privateKey.getId(), privateKey.getAlgorithm());
+            putIssuedTokenEntry(tokenCacheKey, Math.min(tokenTimeout, idTokenTimeout),
+                    new IssuedTokenCache.Entry(accessJwts, idJwts, iat, iat + tokenTimeout));
         }
 
         AccessTokenResponse response = new AccessTokenResponse().setAccess_token(accessJwts)
@@ -1778,6 +2015,79 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         return response;
     }
 
+    String getIdToken(AccessTokenRequest tokenRequest, final String principalName, long iat,
+            long idTokenTimeout, ServerPrivateKey signingKey, final String principalDomain,
+            final String caller) {
+
+        final String serviceName = tokenRequest.getServiceName();
+        validate(serviceName, TYPE_SIMPLE_NAME, principalDomain, caller);
+
+        IdToken idToken = new IdToken();
+        idToken.setVersion(1);
+        idToken.setAudience(tokenRequest.getDomainName() + "." + serviceName);
+        idToken.setSubject(principalName);
+        idToken.setIssuer(ztsOAuthIssuer);
+
+        // id tokens are only valid for up to 12 hours max
+        // (value configured as a system property).
+        // the caller has already determined the timeout based
+        // on the user specified value and the configured max
+
+        idToken.setIssueTime(iat);
+        idToken.setAuthTime(iat);
+        idToken.setExpiryTime(iat + idTokenTimeout);
+
+        return idToken.getSignedToken(signingKey.getKey(), signingKey.getId(), signingKey.getAlgorithm());
+    }
+
+    String getIssuedTokenCacheKey(final String tokenType, DataCache data, final String domainName,
+            final String principalName, Set<String> roles, long tokenTimeout, final String... attributes) {
+
+        if (issuedTokenCache == null || !issuedTokenCache.isCacheable(tokenTimeout)) {
+            return null;
+        }
+
+        // the key includes the domain modified timestamp so any changes
+        // in the domain are reflected in the issued tokens immediately.
+        // since the roles are always resolved before we check the cache,
+        // any membership changes in other domains (e.g. delegated roles)
+        // are also reflected since they change the set of roles
+
+        final Timestamp modified = data.getDomainData().getModified();
+        List<String> keyAttributes = new ArrayList<>(Arrays.asList(attributes));
+        keyAttributes.add(Long.toString(tokenTimeout));
+        return IssuedTokenCache.generateKey(tokenType, domainName, modified == null ? 0 : modified.millis(),
+                principalName, roles, keyAttributes.toArray(new String[0]));
+    }
+
+    IssuedTokenCache.Entry getIssuedTokenEntry(final String tokenCacheKey, long minExpiryTime,
+            final String domainName, final String principalDomain) {
+
+        if (tokenCacheKey == null) {
+            return null;
+        }
+
+        // a cached token is only returned if it's still valid for
+        // the minimum expiry time requested by the caller
+
+        IssuedTokenCache.Entry entry = issuedTokenCache.getEntry(tokenCacheKey, minExpiryTime);
+        if (entry != null) {
+            metric.increment("issued_token_cache_hit", domainName, principalDomain);
+        }
+        return entry;
+    }
+
+    void putIssuedTokenEntry(final String tokenCacheKey, long tokenTimeout, IssuedTokenCache.Entry entry) {
+
+        // we only cache the tokens if they still have enough lifetime
+        // remaining at the end of our reuse window
+
+        if (tokenCacheKey == null || !issuedTokenCache.isCacheable(tokenTimeout)) {
+            return;
+        }
+        issuedTokenCache.putEntry(tokenCacheKey, entry);
+    }
+
     boolean compareRoleSets(Set<String> set1, Set<String> set2) {
 
         if (set1.size() != set2.size()) {
@@ -2594,8 +2904,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
             instance = instanceProvider.confirmInstance(instance);
         } catch (Exception ex) {
             metric.increment("providerconfirm_failure", domain, provider);
-            throw forbiddenError("unable to verify attestation data: " + ex.getMessage(),
-                    caller, domain, principalDomain);
+            throw providerConfirmError(ex, caller, domain, principalDomain);
         } finally {
             metric.stopTiming(timerProviderMetric, provider, principalDomain);
             instanceProvider.close();
@@ -2705,6 +3014,33 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
                 .header("Location", location).build();
     }
 
+    boolean isProviderUnavailable(Exception ex) {
+
+        if (!(ex instanceof com.yahoo.athenz.instance.provider.ResourceException)) {
+            return false;
+        }
+
+        final int code = ((com.yahoo.athenz.instance.provider.ResourceException) ex).getCode();
+        return code == com.yahoo.athenz.instance.provider.ResourceException.SERVICE_UNAVAILABLE
+                || code == com.yahoo.athenz.instance.provider.ResourceException.GATEWAY_TIMEOUT;
+    }
+
+    RuntimeException providerConfirmError(Exception ex, final String caller, final String domain,
+            final String principalDomain) {
+
+        // if the provider was not available or did not respond in time
+        // (e.g. its circuit is open) we return the same error code so
+        // the client retries the request instead of treating it as
+        // rejected by the provider
+
+        if (isProviderUnavailable(ex)) {
+            return error(((com.yahoo.athenz.instance.provider.ResourceException) ex).getCode(),
+                    "unable to verify attestation data: " + ex.getMessage(), caller, domain, principalDomain);
+        }
+        return forbiddenError("unable to verify attestation data: " + ex.getMessage(),
+                caller, domain, principalDomain);
+    }
+
     InstanceConfirmation generateInstanceConfirmObject(ResourceContext ctx, final String provider,
             final String domain, final String service, final String attestationData,
             final String instanceId, final String instanceHostname, X509CertRequest certReq,
@@ -2748,7 +3084,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
         // to provide the public key in the CSR
 
         if (providerScheme == InstanceProvider.Scheme.CLASS) {
-            attributes.put(InstanceProvider.ZTS_INSTANCE_CSR_PUBLIC_KEY, Crypto.extractX509CSRPublicKey(certReq.getCertReq()));
+            attributes.put(InstanceProvider.ZTS_INSTANCE_CSR_PUBLIC_KEY, certReq.getCsrFields().getPublicKey());
         }
 
         // include the hostname if one is specified
@@ -2928,11 +3264,12 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
             // for backward compatibility initially we'll only look for
             // specifically 403 response and treat responses like 404
             // as success. Later, we'll change the behavior to only
-            // accept 200 as the expected response
+            // accept 200 as the expected response. Requests that the
+            // provider was not able to process are always rejected
             
-            if (ex.getCode() == com.yahoo.athenz.instance.provider.ResourceException.FORBIDDEN) {
-                throw forbiddenError("unable to verify attestation data: " + ex.getMessage(),
-                        caller, domain, principalDomain);
+            if (ex.getCode() == com.yahoo.athenz.instance.provider.ResourceException.FORBIDDEN
+                    || isProviderUnavailable(ex)) {
+                throw providerConfirmError(ex, caller, domain, principalDomain);
             }
         } finally {
             metric.stopTiming(timerProviderMetric, provider, principalDomain);
@@ -3456,7 +3793,7 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
     }
 
     @Override
-    public JWKList getJWKList(ResourceContext ctx, Boolean rfc) {
+    public Response getJWKList(ResourceContext ctx, Boolean rfc, String matchingTag) {
 
         final String caller = "getjwklist";
         final String callerTiming = "getjwklist_timing";
@@ -3470,10 +3807,22 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
 
         validateRequest(ctx.request(), principalDomain, caller);
 
-        final JWKList jwkList = dataStore.getZtsJWKList(rfc);
+        // our jwk list is serialized when the keys are loaded so
+        // we can return the data without any processing
+
+        final DataStore.JWKListEntry entry = dataStore.getZtsJWKListEntry(rfc);
+        final String tag = entry.getTag();
+
+        Response response;
+        if (tag != null && tag.equals(matchingTag)) {
+            response = Response.status(ResourceException.NOT_MODIFIED).header("ETag", tag).build();
+        } else {
+            response = setETag(Response.status(ResourceException.OK)
+                    .entity(entry.getData() != null ? entry.getData() : entry.getJWKList()), tag).build();
+        }
 
         metric.stopTiming(timerMetric, null, principalDomain);
-        return jwkList;
+        return response;
     }
 
     /// CLOVER:OFF
@@ -3969,9 +4318,9 @@ public class ZTSImpl implements KeyStore, ZTSHandler {
                     ZTSConsts.ZTS_UNKNOWN_DOMAIN, principalDomain);
         }
         
-        Result result = validator.validate(val, type);
-        if (!result.valid) {
-            throw requestError("Invalid " + type  + " error: " + result.error, caller,
+        final String error = validator.validate(val, type);
+        if (error != null) {
+            throw requestError("Invalid " + type  + " error: " + error, caller,
                     ZTSConsts.ZTS_UNKNOWN_DOMAIN, principalDomain);
         }
     }
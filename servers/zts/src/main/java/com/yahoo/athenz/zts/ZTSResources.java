@@ -177,6 +177,29 @@ public class ZTSResources {
         }
     }
 
+    @POST
+    @Path("/signed_policy_data")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public SignedPolicyDataList postSignedPolicyRequest(SignedPolicyRequest request) {
+        try {
+            ResourceContext context = this.delegate.newResourceContext(this.request, this.response);
+            context.authenticate();
+            return this.delegate.postSignedPolicyRequest(context, request);
+        } catch (ResourceException e) {
+            int code = e.getCode();
+            switch (code) {
+            case ResourceException.BAD_REQUEST:
+                throw typedException(code, e, ResourceError.class);
+            case ResourceException.UNAUTHORIZED:
+                throw typedException(code, e, ResourceError.class);
+            default:
+                System.err.println("*** Warning: undeclared exception (" + code + ") for resource postSignedPolicyRequest");
+                throw typedException(code, e, ResourceError.class);
+            }
+        }
+    }
+
     @GET
     @Path("/domain/{domainName}/token")
     @Produces(MediaType.APPLICATION_JSON)
@@ -579,11 +602,11 @@ public class ZTSResources {
     @GET
     @Path("/oauth2/keys")
     @Produces(MediaType.APPLICATION_JSON)
-    public JWKList getJWKList(@QueryParam("rfc") @DefaultValue("false") Boolean rfc) {
+    public Response getJWKList(@QueryParam("rfc") @DefaultValue("false") Boolean rfc, @HeaderParam("If-None-Match") String matchingTag) {
         try {
             ResourceContext context = this.delegate.newResourceContext(this.request, this.response);
             context.authenticate();
-            return this.delegate.getJWKList(context, rfc);
+            return this.delegate.getJWKList(context, rfc, matchingTag);
         } catch (ResourceException e) {
             int code = e.getCode();
             switch (code) {
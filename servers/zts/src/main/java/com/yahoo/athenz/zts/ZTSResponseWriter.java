@@ -0,0 +1,259 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.yahoo.rdl.Timestamp;
+
+/**
+ * Streaming json writers for the responses returned by the most frequently
+ * called ZTS endpoints. Instead of going through the generic jackson
+ * object mapper which introspects the objects to determine how they
+ * should be serialized, we write the fields directly with a json generator.
+ * The generated json is identical to the one generated by the object
+ * mapper: required fields are always included (null if not set) while
+ * optional fields are only included if they're not empty.
+ * @param <T> response object type
+ */
+public abstract class ZTSResponseWriter<T> implements MessageBodyWriter<T> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final Class<T> responseType;
+
+    ZTSResponseWriter(Class<T> responseType) {
+        this.responseType = responseType;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == responseType;
+    }
+
+    @Override
+    public long getSize(T value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(T value, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+
+        // we don't want to close the entity stream once we're done
+        // since that's handled by the container
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(entityStream)) {
+            write(generator, value);
+        }
+    }
+
+    abstract void write(JsonGenerator generator, T value) throws IOException;
+
+    @Provider
+    @Produces(MediaType.APPLICATION_JSON)
+    public static class AccessTokenResponseWriter extends ZTSResponseWriter<AccessTokenResponse> {
+
+        public AccessTokenResponseWriter() {
+            super(AccessTokenResponse.class);
+        }
+
+        @Override
+        void write(JsonGenerator generator, AccessTokenResponse value) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("access_token", value.getAccess_token());
+            generator.writeStringField("token_type", value.getToken_type());
+            if (value.getExpires_in() != null) {
+                generator.writeNumberField("expires_in", value.getExpires_in());
+            }
+            writeOptionalStringField(generator, "scope", value.getScope());
+            writeOptionalStringField(generator, "refresh_token", value.getRefresh_token());
+            writeOptionalStringField(generator, "id_token", value.getId_token());
+            generator.writeEndObject();
+        }
+    }
+
+    @Provider
+    @Produces(MediaType.APPLICATION_JSON)
+    public static class RoleTokenWriter extends ZTSResponseWriter<RoleToken> {
+
+        public RoleTokenWriter() {
+            super(RoleToken.class);
+        }
+
+        @Override
+        void write(JsonGenerator generator, RoleToken value) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("token", value.getToken());
+            generator.writeNumberField("expiryTime", value.getExpiryTime());
+            generator.writeEndObject();
+        }
+    }
+
+    @Provider
+    @Produces(MediaType.APPLICATION_JSON)
+    public static class InstanceIdentityWriter extends ZTSResponseWriter<InstanceIdentity> {
+
+        public InstanceIdentityWriter() {
+            super(InstanceIdentity.class);
+        }
+
+        @Override
+        void write(JsonGenerator generator, InstanceIdentity value) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("provider", value.getProvider());
+            generator.writeStringField("name", value.getName());
+            generator.writeStringField("instanceId", value.getInstanceId());
+            writeOptionalStringField(generator, "x509Certificate", value.getX509Certificate());
+            writeOptionalStringField(generator, "x509CertificateSigner", value.getX509CertificateSigner());
+            writeOptionalStringField(generator, "sshCertificate", value.getSshCertificate());
+            writeOptionalStringField(generator, "sshCertificateSigner", value.getSshCertificateSigner());
+            writeOptionalStringField(generator, "serviceToken", value.getServiceToken());
+            final Map<String, String> attributes = value.getAttributes();
+            if (attributes != null && !attributes.isEmpty()) {
+                generator.writeObjectFieldStart("attributes");
+                for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                    generator.writeStringField(entry.getKey(), entry.getValue());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    @Provider
+    @Produces(MediaType.APPLICATION_JSON)
+    public static class DomainSignedPolicyDataWriter extends ZTSResponseWriter<DomainSignedPolicyData> {
+
+        public DomainSignedPolicyDataWriter() {
+            super(DomainSignedPolicyData.class);
+        }
+
+        @Override
+        void write(JsonGenerator generator, DomainSignedPolicyData value) throws IOException {
+            generator.writeStartObject();
+            generator.writeFieldName("signedPolicyData");
+            writeSignedPolicyData(generator, value.getSignedPolicyData());
+            generator.writeStringField("signature", value.getSignature());
+            generator.writeStringField("keyId", value.getKeyId());
+            generator.writeEndObject();
+        }
+
+        void writeSignedPolicyData(JsonGenerator generator, SignedPolicyData value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartObject();
+            generator.writeFieldName("policyData");
+            writePolicyData(generator, value.getPolicyData());
+            generator.writeStringField("zmsSignature", value.getZmsSignature());
+            generator.writeStringField("zmsKeyId", value.getZmsKeyId());
+            writeTimestampField(generator, "modified", value.getModified());
+            writeTimestampField(generator, "expires", value.getExpires());
+            generator.writeEndObject();
+        }
+
+        void writePolicyData(JsonGenerator generator, PolicyData value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartObject();
+            generator.writeStringField("domain", value.getDomain());
+            generator.writeFieldName("policies");
+            final List<Policy> policies = value.getPolicies();
+            if (policies == null) {
+                generator.writeNull();
+            } else {
+                generator.writeStartArray();
+                for (Policy policy : policies) {
+                    writePolicy(generator, policy);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+
+        void writePolicy(JsonGenerator generator, Policy value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartObject();
+            generator.writeStringField("name", value.getName());
+            if (value.getModified() != null) {
+                writeTimestampField(generator, "modified", value.getModified());
+            }
+            generator.writeFieldName("assertions");
+            final List<Assertion> assertions = value.getAssertions();
+            if (assertions == null) {
+                generator.writeNull();
+            } else {
+                generator.writeStartArray();
+                for (Assertion assertion : assertions) {
+                    writeAssertion(generator, assertion);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        }
+
+        void writeAssertion(JsonGenerator generator, Assertion value) throws IOException {
+            if (value == null) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartObject();
+            generator.writeStringField("role", value.getRole());
+            generator.writeStringField("resource", value.getResource());
+            generator.writeStringField("action", value.getAction());
+            if (value.getEffect() != null) {
+                generator.writeStringField("effect", value.getEffect().name());
+            }
+            if (value.getId() != null) {
+                generator.writeNumberField("id", value.getId());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    static void writeOptionalStringField(JsonGenerator generator, final String name,
+            final String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    static void writeTimestampField(JsonGenerator generator, final String name,
+            final Timestamp value) throws IOException {
+        generator.writeStringField(name, value == null ? null : value.toString());
+    }
+}
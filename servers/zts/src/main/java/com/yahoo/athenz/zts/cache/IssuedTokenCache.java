@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Short-lived cache of signed tokens issued by ZTS. Clients frequently
+ * request tokens with identical parameters within seconds of each other
+ * so instead of signing a new token for each request we return the token
+ * that was issued within the configured reuse window as long as it
+ * still has at least half of its lifetime remaining.
+ */
+public class IssuedTokenCache {
+
+    private static final char KEY_SEPARATOR = ';';
+
+    private final Cache<String, Entry> cache;
+    private final long reuseWindow;
+
+    public static class Entry {
+
+        private final String token;
+        private final String idToken;
+        private final long issueTime;
+        private final long expiryTime;
+
+        public Entry(final String token, final String idToken, long issueTime, long expiryTime) {
+            this.token = token;
+            this.idToken = idToken;
+            this.issueTime = issueTime;
+            this.expiryTime = expiryTime;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public String getIdToken() {
+            return idToken;
+        }
+
+        public long getIssueTime() {
+            return issueTime;
+        }
+
+        public long getExpiryTime() {
+            return expiryTime;
+        }
+    }
+
+    /**
+     * Create a new issued token cache
+     * @param maxSize maximum number of tokens to keep in the cache
+     * @param reuseWindow number of seconds an issued token can be
+     *      returned for identical requests
+     */
+    public IssuedTokenCache(long maxSize, long reuseWindow) {
+        this.reuseWindow = reuseWindow;
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize)
+                .expireAfterWrite(reuseWindow, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * Generate the cache key for the given token request. The caller must
+     * include all attributes that are included in the issued token
+     * along with the domain modification timestamp so any changes in the
+     * domain are immediately reflected in the issued tokens.
+     * @param tokenType type of the token (e.g. role or access token)
+     * @param domainName name of the domain
+     * @param modified domain modified timestamp in milliseconds
+     * @param principalName name of the principal the token is issued for
+     * @param roles set of roles included in the token
+     * @param attributes any other attributes that are included in the token
+     * @return cache key
+     */
+    public static String generateKey(final String tokenType, final String domainName, long modified,
+            final String principalName, Collection<String> roles, final String... attributes) {
+
+        // the set of roles is not ordered so we need to sort our
+        // values to generate the same key for identical requests
+
+        List<String> roleList = new ArrayList<>(roles);
+        Collections.sort(roleList);
+
+        StringBuilder key = new StringBuilder(256);
+        key.append(tokenType).append(KEY_SEPARATOR).append(domainName).append(KEY_SEPARATOR)
+                .append(modified).append(KEY_SEPARATOR).append(principalName).append(KEY_SEPARATOR)
+                .append(String.join(",", roleList));
+        for (String attribute : attributes) {
+            key.append(KEY_SEPARATOR);
+            if (attribute != null) {
+                key.append(attribute);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Check if a token with the given lifetime can be cached. We only
+     * cache tokens that would still have at least half of their lifetime
+     * remaining at the end of the reuse window.
+     * @param tokenTimeout token lifetime in seconds
+     * @return true if the token can be cached
+     */
+    public boolean isCacheable(long tokenTimeout) {
+        return tokenTimeout >= 2 * reuseWindow;
+    }
+
+    /**
+     * Return the token entry for the given key if one was issued within
+     * the reuse window
+     * @param key cache key generated with generateKey method
+     * @return token entry or null if not available
+     */
+    public Entry getEntry(final String key) {
+        return getEntry(key, 0);
+    }
+
+    /**
+     * Return the token entry for the given key if one was issued within
+     * the reuse window and it's still valid for at least the given
+     * number of seconds
+     * @param key cache key generated with generateKey method
+     * @param minExpiryTime minimum number of seconds the token must
+     *      still be valid for
+     * @return token entry or null if not available
+     */
+    public Entry getEntry(final String key, long minExpiryTime) {
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+
+        // the cache automatically expires our entries after the reuse
+        // window but we'll verify the entry age in case the server clock
+        // has been adjusted
+
+        long now = System.currentTimeMillis() / 1000;
+        long age = now - entry.issueTime;
+        if (age < 0 || age > reuseWindow) {
+            cache.invalidate(key);
+            return null;
+        }
+
+        // the caller requires a token valid for at least the given
+        // time so we can't return an older token with a shorter
+        // remaining lifetime. we keep the entry in the cache since
+        // it might still satisfy other requests
+
+        if (entry.expiryTime - now < minExpiryTime) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Add the issued token entry to the cache
+     * @param key cache key generated with generateKey method
+     * @param entry token entry
+     */
+    public void putEntry(final String key, final Entry entry) {
+        cache.put(key, entry);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yahoo.athenz.zts.DomainSignedPolicyData;
+
+/**
+ * Cache of signed domain policy data objects along with their serialized
+ * json representation. Since the signed policy data only changes when the
+ * domain is modified or the server signing key is changed, we keep the
+ * signed response for each domain and return it until it's close to its
+ * expiry time.
+ */
+public class SignedPolicyCache {
+
+    private final Cache<String, Entry> cache;
+    private final long refreshTime;
+
+    public static class Entry {
+
+        private final long modified;
+        private final String keyId;
+        private final long expiryTime;
+        private final DomainSignedPolicyData signedPolicyData;
+        private final byte[] data;
+
+        public Entry(long modified, final String keyId, long expiryTime,
+                final DomainSignedPolicyData signedPolicyData, final byte[] data) {
+            this.modified = modified;
+            this.keyId = keyId;
+            this.expiryTime = expiryTime;
+            this.signedPolicyData = signedPolicyData;
+            this.data = data;
+        }
+
+        public DomainSignedPolicyData getSignedPolicyData() {
+            return signedPolicyData;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Create a new signed policy cache
+     * @param maxSize maximum number of domains to keep in the cache
+     * @param refreshTime the number of milliseconds before the signed
+     *      policy data expires that the cache entry is no longer returned
+     *      and the policy data must be signed again
+     */
+    public SignedPolicyCache(long maxSize, long refreshTime) {
+        this.refreshTime = refreshTime;
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Return the signed policy data entry for the given domain if the
+     * cached entry was generated for the same domain modified timestamp and
+     * signing key and it's not within the refresh window of its expiry time
+     * @param domainName name of the domain
+     * @param modified domain modified timestamp in milliseconds
+     * @param keyId id of the key used to sign the policy data
+     * @return signed policy data entry or null if not available
+     */
+    public Entry getEntry(final String domainName, long modified, final String keyId) {
+
+        Entry entry = cache.getIfPresent(domainName);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.modified != modified || !entry.keyId.equals(keyId)) {
+            return null;
+        }
+
+        if (entry.expiryTime - System.currentTimeMillis() < refreshTime) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Add the signed policy data entry for the given domain to the cache
+     * @param domainName name of the domain
+     * @param entry signed policy data entry
+     */
+    public void putEntry(final String domainName, final Entry entry) {
+        cache.put(domainName, entry);
+    }
+
+    /**
+     * Remove the signed policy data for the given domain from the cache
+     * @param domainName name of the domain
+     */
+    public void invalidate(final String domainName) {
+        cache.invalidate(domainName);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
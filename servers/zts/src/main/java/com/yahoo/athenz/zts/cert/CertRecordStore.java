@@ -54,4 +54,11 @@ public interface CertRecordStore {
      */
     void log(final Principal principal, final String ip, final String provider,
              final String instanceId, final X509Certificate x509Cert);
+
+    /**
+     * Release any resources held by the store and complete any
+     * pending operations. Called when the server is shut down.
+     */
+    default void close() {
+    }
 }
@@ -16,6 +16,8 @@
 package com.yahoo.athenz.zts.cert;
 
 import java.io.Closeable;
+import java.util.Date;
+import java.util.List;
 
 public interface CertRecordStoreConnection extends Closeable {
 
@@ -45,6 +47,32 @@ public interface CertRecordStoreConnection extends Closeable {
      * @return true on success otherwise false
      */
     boolean updateX509CertRecord(X509CertRecord certRecord);
+
+    /**
+     * Update the specified list of certificate records in the store. Each
+     * record is only updated if the current serial number of the record in
+     * the store still matches the corresponding entry in the currentSerials
+     * list, so an update based on a stale view of the record cannot overwrite
+     * a newer update made by another server. The default implementation checks
+     * the serial number of each record before updating it, which is not atomic,
+     * so implementations should override this method to carry out the check
+     * and the update in a single conditional statement.
+     * @param certRecords list of X509CertRecords to be updated
+     * @param currentSerials expected current serial numbers of the records in the store
+     * @return array with true for each record that was updated and false for each
+     *     record that was not found or had a different current serial number
+     */
+    default boolean[] updateX509CertRecords(List<X509CertRecord> certRecords, List<String> currentSerials) {
+        boolean[] results = new boolean[certRecords.size()];
+        for (int i = 0; i < results.length; i++) {
+            final X509CertRecord certRecord = certRecords.get(i);
+            final X509CertRecord storeRecord = getX509CertRecord(certRecord.getProvider(),
+                    certRecord.getInstanceId(), certRecord.getService());
+            results[i] = storeRecord != null && currentSerials.get(i).equals(storeRecord.getCurrentSerial())
+                    && updateX509CertRecord(certRecord);
+        }
+        return results;
+    }
     
     /**
      * Insert a new certificate record in the store
@@ -70,4 +98,56 @@ public interface CertRecordStoreConnection extends Closeable {
      * @return number of records deleted
      */
     int deleteExpiredX509CertRecords(int expiryTimeMins);
+
+    /**
+     * Retrieve the list of providers that have certificate records in
+     * the store. The expired record cleaner uses the providers to partition
+     * the cleanup so it can be carried out in small batches. Stores that
+     * do not support batched cleanup return null and the cleaner uses
+     * the deleteExpiredX509CertRecords(int) method instead.
+     * @return list of providers or null if batched cleanup is not supported
+     */
+    default List<String> getX509CertRecordProviders() {
+        return null;
+    }
+
+    /**
+     * Delete up to the specified number of certificate records for the
+     * given provider that have not been updated since the expiry time.
+     * Only called if the store returns a list of providers from the
+     * getX509CertRecordProviders method.
+     * Stores that do not support batched deletes return -1 and the
+     * cleaner uses the deleteExpiredX509CertRecords(int) method instead.
+     * @param provider name of the provider
+     * @param expiryTime records not updated since this time are deleted
+     * @param limit maximum number of records to delete
+     * @return number of records deleted or -1 if batched deletes are not supported
+     */
+    default int deleteExpiredX509CertRecords(String provider, Date expiryTime, int limit) {
+        return -1;
+    }
+
+    /**
+     * Acquire the cleanup lock for the given provider so that only one
+     * server in the cluster removes its expired certificate records
+     * at the same time. The caller must release the lock with the
+     * unlockX509CertRecordProvider method since closing a pooled
+     * connection does not release it.
+     * @param provider name of the provider
+     * @return true if the lock was acquired, false if it is held by another server
+     */
+    default boolean lockX509CertRecordProvider(String provider) {
+        return true;
+    }
+
+    /**
+     * Release the cleanup lock for the given provider. If the lock
+     * cannot be released, the connection is no longer usable and
+     * must be closed without any further operations.
+     * @param provider name of the provider
+     * @return true if the lock was released, false otherwise
+     */
+    default boolean unlockX509CertRecordProvider(String provider) {
+        return true;
+    }
 }
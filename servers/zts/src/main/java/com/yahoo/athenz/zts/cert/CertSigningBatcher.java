@@ -0,0 +1,328 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.common.server.cert.CertSigner;
+
+/**
+ * Groups concurrent certificate signing requests into batches so that
+ * a burst of instance registrations results in a small number of calls
+ * to a cert signer that supports batch signing. A batch is sent once
+ * it reaches the configured size or when the configured window expires
+ * after the first request was queued. Requests within a batch must
+ * have the same key usage and expiry time. Any request that is not
+ * processed by the batch call is signed individually. Callers only
+ * wait for their certificate up to the configured request timeout.
+ */
+public class CertSigningBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CertSigningBatcher.class);
+
+    static final String METRIC_CERT_SIGN_BATCH          = "zts_cert_sign_batch";
+    static final String METRIC_CERT_SIGN_BATCH_REQUESTS = "zts_cert_sign_batch_requests";
+    static final String METRIC_CERT_SIGN_BATCH_TIMING   = "zts_cert_sign_batch_timing";
+    static final String METRIC_CERT_SIGN_BATCH_FALLBACK = "zts_cert_sign_batch_fallback";
+    static final String METRIC_CERT_SIGN_REQUEST_TIMING = "zts_cert_sign_request_timing";
+
+    private final CertSigner certSigner;
+    private final Metric metric;
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+    private final long requestTimeoutMs;
+    private final BlockingQueue<SigningRequest> pendingRequests = new LinkedBlockingQueue<>();
+    private final ExecutorService batchExecutor;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    /**
+     * Create a new batcher and start the dispatcher thread
+     * @param certSigner cert signer that processes the batches
+     * @param metric metric object to report batch stats
+     * @param maxBatchSize maximum number of requests in a batch
+     * @param batchWindowMs number of milliseconds to wait for additional
+     *      requests once the first request for a batch has been queued
+     * @param batchThreads number of batches that can be processed concurrently
+     * @param requestTimeoutMs number of milliseconds a request waits for its
+     *      certificate once its batch window has expired. This must cover both
+     *      the batch call and the individual fallback calls to the cert signer
+     */
+    public CertSigningBatcher(CertSigner certSigner, Metric metric, int maxBatchSize,
+            long batchWindowMs, int batchThreads, long requestTimeoutMs) {
+
+        this.certSigner = certSigner;
+        this.metric = metric;
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMs);
+        this.requestTimeoutMs = batchWindowMs + requestTimeoutMs;
+
+        batchExecutor = Executors.newFixedThreadPool(Math.max(batchThreads, 1));
+        dispatcher = new Thread(this::dispatchRequests, "zts-cert-sign-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queue the request for the next batch and wait for the signed certificate
+     * @param csr Certificate request
+     * @param keyUsage Requested key usage
+     * @param expiryTime Requested certificate expiration time in minutes
+     * @return X509 Certificate in PEM format or null if the request failed
+     *      or did not complete within the request timeout
+     */
+    public String generateX509Certificate(final String csr, final String keyUsage, int expiryTime) {
+
+        Object timerMetric = metric.startTiming(METRIC_CERT_SIGN_REQUEST_TIMING, null);
+        SigningRequest request = new SigningRequest(csr, keyUsage, expiryTime);
+        try {
+            pendingRequests.add(request);
+
+            // if we have been shutdown there is no dispatcher to
+            // process our request so we'll process it ourselves
+
+            if (!running) {
+                signPendingRequests();
+            }
+            return request.result.get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("CertSigningBatcher: interrupted while waiting for certificate");
+            return null;
+        } catch (TimeoutException ex) {
+            LOGGER.error("CertSigningBatcher: certificate not generated within {} ms", requestTimeoutMs);
+            return null;
+        } catch (ExecutionException ex) {
+            LOGGER.error("CertSigningBatcher: unable to generate certificate: {}", ex.getMessage());
+            return null;
+        } finally {
+
+            // if we're giving up on the request make sure it's
+            // not sent to the signer if it's still queued
+
+            if (request.result.completeExceptionally(new CancellationException("request abandoned"))) {
+                pendingRequests.remove(request);
+            }
+            metric.stopTiming(timerMetric);
+        }
+    }
+
+    /**
+     * Stop the dispatcher thread. Any requests that have been queued
+     * but not dispatched yet are signed individually.
+     */
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        batchExecutor.shutdown();
+        signPendingRequests();
+    }
+
+    void signPendingRequests() {
+        SigningRequest request;
+        while ((request = pendingRequests.poll()) != null) {
+            try {
+                request.result.complete(signRequest(request));
+            } finally {
+                request.failIfNotCompleted();
+            }
+        }
+    }
+
+    void dispatchRequests() {
+
+        // our dispatcher must keep running no matter what happens
+        // with a batch otherwise all future requests are stuck
+        // until they time out
+
+        while (running) {
+            List<SigningRequest> batch = null;
+            try {
+                batch = collectBatch();
+                submitBatches(batch);
+            } catch (InterruptedException ex) {
+                break;
+            } catch (Throwable ex) {
+                LOGGER.error("CertSigningBatcher: unable to dispatch batch: {}", ex.getMessage());
+                if (batch != null) {
+                    batch.forEach(SigningRequest::failIfNotCompleted);
+                }
+            }
+        }
+    }
+
+    List<SigningRequest> collectBatch() throws InterruptedException {
+
+        // wait for our first request and then collect any additional
+        // requests until the batch is full or our window expires
+
+        List<SigningRequest> batch = new ArrayList<>();
+        batch.add(pendingRequests.take());
+
+        final long deadline = System.nanoTime() + batchWindowNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            SigningRequest request;
+            try {
+                request = pendingRequests.poll(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (request == null) {
+                break;
+            }
+            batch.add(request);
+        }
+        return batch;
+    }
+
+    void submitBatches(List<SigningRequest> requests) {
+
+        // the signer can only process requests with the same key
+        // usage and expiry time in a single call
+
+        Map<String, List<SigningRequest>> batches = new LinkedHashMap<>();
+        for (SigningRequest request : requests) {
+            batches.computeIfAbsent(request.getBatchKey(), k -> new ArrayList<>()).add(request);
+        }
+
+        for (List<SigningRequest> batch : batches.values()) {
+            try {
+                batchExecutor.execute(() -> signBatch(batch));
+            } catch (RejectedExecutionException ex) {
+                signBatch(batch);
+            }
+        }
+    }
+
+    void signBatch(List<SigningRequest> batch) {
+
+        // regardless how we exit, none of our callers must be left
+        // waiting for a result that will never be completed
+
+        try {
+            processBatch(batch);
+        } catch (Throwable ex) {
+            LOGGER.error("CertSigningBatcher: unable to process batch of {} requests: {}",
+                    batch.size(), ex.getMessage());
+        } finally {
+            batch.forEach(SigningRequest::failIfNotCompleted);
+        }
+    }
+
+    void processBatch(List<SigningRequest> batch) {
+
+        metric.increment(METRIC_CERT_SIGN_BATCH);
+        metric.increment(METRIC_CERT_SIGN_BATCH_REQUESTS, null, batch.size());
+
+        if (batch.size() == 1) {
+            SigningRequest request = batch.get(0);
+            request.result.complete(signRequest(request));
+            return;
+        }
+
+        List<String> csrs = new ArrayList<>(batch.size());
+        for (SigningRequest request : batch) {
+            csrs.add(request.csr);
+        }
+
+        final SigningRequest first = batch.get(0);
+        List<String> pemCerts = null;
+        Object timerMetric = metric.startTiming(METRIC_CERT_SIGN_BATCH_TIMING, null);
+        try {
+            pemCerts = certSigner.generateX509Certificates(csrs, first.keyUsage, first.expiryTime);
+        } catch (Exception ex) {
+            LOGGER.error("CertSigningBatcher: unable to sign batch of {} requests: {}",
+                    batch.size(), ex.getMessage());
+        } finally {
+            metric.stopTiming(timerMetric);
+        }
+
+        if (pemCerts != null && pemCerts.size() != batch.size()) {
+            LOGGER.error("CertSigningBatcher: signer returned {} certificates for {} requests",
+                    pemCerts.size(), batch.size());
+            pemCerts = null;
+        }
+
+        // any request that was not processed by the batch call
+        // is retried individually
+
+        for (int i = 0; i < batch.size(); i++) {
+            SigningRequest request = batch.get(i);
+            if (request.result.isDone()) {
+                continue;
+            }
+            String pemCert = (pemCerts != null) ? pemCerts.get(i) : null;
+            if (pemCert == null || pemCert.isEmpty()) {
+                metric.increment(METRIC_CERT_SIGN_BATCH_FALLBACK);
+                pemCert = signRequest(request);
+            }
+            request.result.complete(pemCert);
+        }
+    }
+
+    String signRequest(SigningRequest request) {
+        try {
+            return certSigner.generateX509Certificate(request.csr, request.keyUsage, request.expiryTime);
+        } catch (Exception ex) {
+            LOGGER.error("CertSigningBatcher: unable to sign request: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    static class SigningRequest {
+
+        final String csr;
+        final String keyUsage;
+        final int expiryTime;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        SigningRequest(final String csr, final String keyUsage, int expiryTime) {
+            this.csr = csr;
+            this.keyUsage = keyUsage;
+            this.expiryTime = expiryTime;
+        }
+
+        String getBatchKey() {
+            return keyUsage + ":" + expiryTime;
+        }
+
+        void failIfNotCompleted() {
+            result.completeExceptionally(new IllegalStateException("request not processed"));
+        }
+    }
+}
@@ -29,6 +29,8 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.auth.util.CryptoException;
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.common.metrics.impl.NoOpMetric;
 import com.yahoo.athenz.zts.utils.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,13 +56,20 @@ public class InstanceCertManager {
 
     private static final String CA_TYPE_X509 = "x509";
 
+    private static final String METRIC_CERT_CLEANUP_DELETED    = "zts_cert_cleanup_deleted";
+    private static final String METRIC_CERT_CLEANUP_LOCKED     = "zts_cert_cleanup_locked";
+    private static final String METRIC_CERT_CLEANUP_TIMING     = "zts_cert_cleanup_batch_timing";
+
     private Authorizer authorizer;
     private CertSigner certSigner;
+    private CertSigningBatcher certSigningBatcher = null;
     private SSHSigner sshSigner;
     private CertRecordStore certStore = null;
+    private Metric metric;
     private ScheduledExecutorService scheduledExecutor;
-    private List<IPBlock> certRefreshIPBlocks;
-    private Map<String, List<IPBlock>> instanceCertIPBlocks;
+    private ScheduledExecutorService ipBlocksReloader;
+    private volatile IPBlockTrie certRefreshIPBlocks;
+    private volatile Map<String, IPBlockTrie> instanceCertIPBlocks;
     private String caX509CertificateSigner = null;
     private String sshUserCertificateSigner = null;
     private String sshHostCertificateSigner = null;
@@ -71,10 +80,16 @@ public class InstanceCertManager {
 
     public InstanceCertManager(final PrivateKeyStore keyStore, Authorizer authorizer,
             boolean readOnlyMode) {
+        this(keyStore, authorizer, new NoOpMetric(), readOnlyMode);
+    }
+
+    public InstanceCertManager(final PrivateKeyStore keyStore, Authorizer authorizer,
+            Metric metric, boolean readOnlyMode) {
 
-        // set our authorizer object
+        // set our authorizer and metric objects
 
         this.authorizer = authorizer;
+        this.metric = metric;
 
         // initialize our jackson object mapper
 
@@ -85,6 +100,11 @@ public class InstanceCertManager {
 
         loadCertSigner();
 
+        // if configured and supported by the signer, group concurrent
+        // certificate requests into batches
+
+        loadCertSigningBatcher();
+
         // create our ssh signer object
 
         loadSSHSigner(authorizer);
@@ -93,7 +113,7 @@ public class InstanceCertManager {
         // track of serial and instance values to make sure the same
         // certificate is not asked to be refreshed by multiple hosts
         
-        loadCertificateObjectStore(keyStore);
+        loadCertificateObjectStore(keyStore, readOnlyMode);
 
         // load any configuration wrt certificate signers and any
         // configured certificate bundles
@@ -105,30 +125,54 @@ public class InstanceCertManager {
 
         // load our allowed cert refresh and instance register ip blocks
         
-        certRefreshIPBlocks = new ArrayList<>();
-        loadAllowedIPAddresses(certRefreshIPBlocks, System.getProperty(ZTSConsts.ZTS_PROP_CERT_REFRESH_IP_FNAME));
+        IPBlockTrie refreshIPBlocks = new IPBlockTrie();
+        loadAllowedIPAddresses(refreshIPBlocks, System.getProperty(ZTSConsts.ZTS_PROP_CERT_REFRESH_IP_FNAME));
+        certRefreshIPBlocks = refreshIPBlocks;
 
-        if (!loadAllowedInstanceCertIPAddresses()) {
+        instanceCertIPBlocks = loadAllowedInstanceCertIPAddresses();
+        if (instanceCertIPBlocks == null) {
             throw new ResourceException(ResourceException.INTERNAL_SERVER_ERROR,
                     "Unable to load Provider Allowed IP Blocks");
         }
 
+        // if configured, periodically reload our ip blocks so any changes
+        // in the files are picked up without restarting the server
+
+        long ipBlocksReloadInterval = Long.parseLong(
+                System.getProperty(ZTSConsts.ZTS_PROP_CERT_IP_BLOCKS_RELOAD_INTERVAL, "0"));
+        if (ipBlocksReloadInterval > 0) {
+            ipBlocksReloader = Executors.newScheduledThreadPool(1);
+            ipBlocksReloader.scheduleAtFixedRate(this::reloadAllowedIPAddresses,
+                    ipBlocksReloadInterval, ipBlocksReloadInterval, TimeUnit.MINUTES);
+        }
+
         // start our thread to delete expired cert records once a day
-        // unless we're running in read-only mode thus no modifications
-        // to the database
+        // (by default) unless we're running in read-only mode thus
+        // no modifications to the database
 
         if (!readOnlyMode && certStore != null && certSigner != null) {
+            long cleanupInterval = Long.parseLong(
+                    System.getProperty(ZTSConsts.ZTS_PROP_CERT_CLEANUP_INTERVAL, "1440"));
             scheduledExecutor = Executors.newScheduledThreadPool(1);
             scheduledExecutor.scheduleAtFixedRate(
                     new ExpiredX509CertRecordCleaner(certStore, certSigner.getMaxCertExpiryTimeMins()),
-                    0, 1, TimeUnit.DAYS);
+                    0, cleanupInterval, TimeUnit.MINUTES);
         }
     }
     
-    void shutdown() {
+    public void shutdown() {
         if (scheduledExecutor != null) {
             scheduledExecutor.shutdownNow();
         }
+        if (ipBlocksReloader != null) {
+            ipBlocksReloader.shutdownNow();
+        }
+        if (certStore != null) {
+            certStore.close();
+        }
+        if (certSigningBatcher != null) {
+            certSigningBatcher.shutdown();
+        }
     }
 
     private boolean loadCertificateAuthorityBundles() {
@@ -249,9 +293,9 @@ public class InstanceCertManager {
         }
     }
 
-    private boolean loadAllowedInstanceCertIPAddresses() {
+    private Map<String, IPBlockTrie> loadAllowedInstanceCertIPAddresses() {
 
-        instanceCertIPBlocks = new HashMap<>();
+        Map<String, IPBlockTrie> providerIPBlocks = new HashMap<>();
 
         // read the file list of providers and allowed IP addresses
         // if the config is not set then we have no restrictions
@@ -259,12 +303,12 @@ public class InstanceCertManager {
 
         String providerIPMapFile =  System.getProperty(ZTSConsts.ZTS_PROP_INSTANCE_CERT_IP_FNAME);
         if (providerIPMapFile == null || providerIPMapFile.isEmpty()) {
-            return true;
+            return providerIPBlocks;
         }
 
         byte[] data = readFileContents(providerIPMapFile);
         if (data == null) {
-            return false;
+            return null;
         }
 
         ProviderIPBlocks ipBlocks = null;
@@ -275,27 +319,22 @@ public class InstanceCertManager {
         }
 
         if (ipBlocks == null) {
-            return false;
+            return null;
         }
 
         for (ProviderIPBlock ipBlock : ipBlocks.getIpblocks()) {
 
-            List<IPBlock> certIPBlocks;
+            IPBlockTrie certIPBlocks = new IPBlockTrie();
             final String filename = ipBlock.getFilename();
-            if (filename == null) {
-                certIPBlocks = Collections.emptyList();
-            } else {
-                certIPBlocks = new ArrayList<>();
-                if (!loadAllowedIPAddresses(certIPBlocks, filename)) {
-                    LOGGER.error("Invalid provider ip file {}", filename);
-                    return false;
-                }
+            if (filename != null && !loadAllowedIPAddresses(certIPBlocks, filename)) {
+                LOGGER.error("Invalid provider ip file {}", filename);
+                return null;
             }
             for (String provider : ipBlock.getProviders()) {
-                instanceCertIPBlocks.put(provider, certIPBlocks);
+                providerIPBlocks.put(provider, certIPBlocks);
             }
         }
-        return true;
+        return providerIPBlocks;
     }
 
     private void loadCertSigner() {
@@ -316,6 +355,33 @@ public class InstanceCertManager {
         certSigner = certSignerFactory.create();
     }
 
+    void loadCertSigningBatcher() {
+
+        long batchWindow = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERT_SIGN_BATCH_WINDOW, "0"));
+        if (batchWindow <= 0 || certSigner == null) {
+            return;
+        }
+
+        if (!certSigner.isBatchSigningSupported()) {
+            LOGGER.info("CertSigner does not support batch signing, requests will be signed individually");
+            return;
+        }
+
+        int batchSize = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERT_SIGN_BATCH_SIZE, "100"));
+        int batchThreads = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERT_SIGN_BATCH_THREADS, "8"));
+        long batchTimeout = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERT_SIGN_BATCH_TIMEOUT, "60000"));
+        certSigningBatcher = new CertSigningBatcher(certSigner, metric, batchSize, batchWindow,
+                batchThreads, batchTimeout);
+    }
+
+    void setCertSigningBatcher(CertSigningBatcher certSigningBatcher) {
+        this.certSigningBatcher = certSigningBatcher;
+    }
+
+    boolean isCertSigningBatchEnabled() {
+        return certSigningBatcher != null;
+    }
+
     private void loadSSHSigner(Authorizer authorizer) {
 
         String sshSignerFactoryClass = System.getProperty(ZTSConsts.ZTS_PROP_SSH_SIGNER_FACTORY_CLASS);
@@ -385,7 +451,39 @@ public class InstanceCertManager {
         return new String(data);
     }
 
-    boolean loadAllowedIPAddresses(List<IPBlock> ipBlocks, final String ipAddressFileName) {
+    /**
+     * Reload the allowed cert refresh and instance register ip blocks.
+     * The new blocks replace the current ones only if all files were
+     * loaded successfully. Requests being verified while the files are
+     * reloaded continue to use the current blocks without waiting.
+     * @return true if the ip blocks were reloaded successfully
+     */
+    public boolean reloadAllowedIPAddresses() {
+
+        try {
+            IPBlockTrie refreshIPBlocks = new IPBlockTrie();
+            final String refreshIPFile = System.getProperty(ZTSConsts.ZTS_PROP_CERT_REFRESH_IP_FNAME);
+            if (!loadAllowedIPAddresses(refreshIPBlocks, refreshIPFile)) {
+                LOGGER.error("Unable to reload cert refresh IP blocks, keeping current blocks");
+                return false;
+            }
+
+            Map<String, IPBlockTrie> providerIPBlocks = loadAllowedInstanceCertIPAddresses();
+            if (providerIPBlocks == null) {
+                LOGGER.error("Unable to reload provider IP blocks, keeping current blocks");
+                return false;
+            }
+
+            certRefreshIPBlocks = refreshIPBlocks;
+            instanceCertIPBlocks = providerIPBlocks;
+            return true;
+        } catch (Exception ex) {
+            LOGGER.error("Unable to reload IP blocks: {}", ex.getMessage());
+            return false;
+        }
+    }
+
+    boolean loadAllowedIPAddresses(IPBlockTrie ipBlocks, final String ipAddressFileName) {
 
         if (ipAddressFileName == null || ipAddressFileName.isEmpty()) {
             return true;
@@ -414,27 +512,38 @@ public class InstanceCertManager {
         }
         
         for (IPPrefix prefix : prefixList) {
-            
-            // for now we're only supporting IPv4 blocks
-            
-            final String ipEntry = prefix.getIpv4Prefix();
-            if (ipEntry == null) {
-                continue;
-            }
-            
-            try {
-                ipBlocks.add(new IPBlock(ipEntry));
-            } catch (Exception ex) {
-                LOGGER.error("Skipping invalid ip block entry: {}, error: {}",
-                        ipEntry, ex.getMessage());
+
+            if (!addAllowedIPBlock(ipBlocks, prefix.getIpv4Prefix())) {
                 return false;
             }
+
+            // ipv6 entries were not processed in earlier releases so
+            // for backward compatibility invalid entries are skipped
+            // instead of rejecting the full file
+
+            addAllowedIPBlock(ipBlocks, prefix.getIpv6Prefix());
         }
         
         return true;
     }
     
-    private void loadCertificateObjectStore(PrivateKeyStore keyStore) {
+    private boolean addAllowedIPBlock(IPBlockTrie ipBlocks, final String ipEntry) {
+
+        if (ipEntry == null) {
+            return true;
+        }
+
+        try {
+            ipBlocks.add(ipEntry);
+        } catch (Exception ex) {
+            LOGGER.error("Skipping invalid ip block entry: {}, error: {}",
+                    ipEntry, ex.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    private void loadCertificateObjectStore(PrivateKeyStore keyStore, boolean readOnlyMode) {
         
         String certRecordStoreFactoryClass = System.getProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_STORE_FACTORY_CLASS,
                 ZTSConsts.ZTS_CERT_RECORD_STORE_FACTORY_CLASS);
@@ -450,6 +559,18 @@ public class InstanceCertManager {
         // create our cert record store instance
         
         certStore = certRecordStoreFactory.create(keyStore);
+
+        // if configured, defer the updates of the cert records during
+        // refresh requests and write them to the store in batches
+
+        if (!readOnlyMode && certStore != null &&
+                Boolean.parseBoolean(System.getProperty(ZTSConsts.ZTS_PROP_CERT_WRITE_BEHIND_ENABLED, "false"))) {
+            long flushInterval = Long.parseLong(
+                    System.getProperty(ZTSConsts.ZTS_PROP_CERT_WRITE_BEHIND_INTERVAL, "1000"));
+            int maxPending = Integer.parseInt(
+                    System.getProperty(ZTSConsts.ZTS_PROP_CERT_WRITE_BEHIND_MAX_PENDING, "1000"));
+            certStore = new WriteBehindCertRecordStore(certStore, metric, flushInterval, maxPending);
+        }
     }
     
     public void setCertStore(CertRecordStore certStore) {
@@ -539,7 +660,9 @@ public class InstanceCertManager {
 
     public String generateX509Certificate(final String csr, final String keyUsage, int expiryTime) {
 
-        String pemCert = certSigner.generateX509Certificate(csr, keyUsage, expiryTime);
+        String pemCert = (certSigningBatcher != null) ?
+                certSigningBatcher.generateX509Certificate(csr, keyUsage, expiryTime) :
+                certSigner.generateX509Certificate(csr, keyUsage, expiryTime);
         if (pemCert == null || pemCert.isEmpty()) {
             LOGGER.error("generateX509Certificate: CertSigner was unable to generate X509 certificate");
         }
@@ -713,34 +836,25 @@ public class InstanceCertManager {
 
     public boolean verifyInstanceCertIPAddress(final String provider, final String ipAddress) {
 
-        final List<IPBlock> certIPBlocks = instanceCertIPBlocks.get(provider);
+        final Map<String, IPBlockTrie> providerIPBlocks = instanceCertIPBlocks;
+        final IPBlockTrie certIPBlocks = providerIPBlocks.get(provider);
 
         // if we have no blocks defined for the provider, then we'll return
         // failure if we have others defined or success if there are no
         // providers defined at all
 
         if (certIPBlocks == null) {
-            return instanceCertIPBlocks.isEmpty();
+            return providerIPBlocks.isEmpty();
         }
 
         return verifyIPAddressAccess(ipAddress, certIPBlocks);
     }
 
-    private boolean verifyIPAddressAccess(final String ipAddress, final List<IPBlock> ipBlocks) {
+    private boolean verifyIPAddressAccess(final String ipAddress, final IPBlockTrie ipBlocks) {
         
         // if the list has no IP addresses then we allow all
         
-        if (ipBlocks.isEmpty()) {
-            return true;
-        }
-        
-        long ipAddr = IPBlock.convertIPToLong(ipAddress);
-        for (IPBlock ipBlock : ipBlocks) {
-            if (ipBlock.ipCheck(ipAddr)) {
-                return true;
-            }
-        }
-        return false;
+        return ipBlocks.isEmpty() || ipBlocks.contains(ipAddress);
     }
 
     public void log(final Principal principal, final String ip, final String provider,
@@ -765,10 +879,33 @@ public class InstanceCertManager {
         
         private CertRecordStore store;
         private int expiryTimeMins;
+        private int batchSize;
+        private int deleteRate;
+        private long maxRunTimeMs;
+
+        // state of the current cleanup cycle which allows us
+        // to resume the cleanup during the next run if we
+        // exceeded our time limit
+
+        private Date cycleExpiryTime = null;
+        private final Set<String> completedProviders = new HashSet<>();
+        private int runDeletedRecords;
+        private boolean batchDeleteSupported = true;
         
         public ExpiredX509CertRecordCleaner(CertRecordStore store, int expiryTimeMins) {
+            this(store, expiryTimeMins,
+                    Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERT_CLEANUP_BATCH_SIZE, "0")),
+                    Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERT_CLEANUP_DELETE_RATE, "1000")),
+                    Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERT_CLEANUP_MAX_RUN_TIME, "3600")));
+        }
+
+        ExpiredX509CertRecordCleaner(CertRecordStore store, int expiryTimeMins, int batchSize,
+                int deleteRate, long maxRunTime) {
             this.store = store;
             this.expiryTimeMins = expiryTimeMins;
+            this.batchSize = batchSize;
+            this.deleteRate = deleteRate;
+            this.maxRunTimeMs = TimeUnit.SECONDS.toMillis(maxRunTime);
         }
         
         @Override
@@ -778,7 +915,8 @@ public class InstanceCertManager {
             
             int deletedRecords = 0;
             try {
-                deletedRecords = cleanupExpiredX509CertRecords();
+                deletedRecords = (batchSize > 0) ? cleanupExpiredX509CertRecordsInBatches() :
+                        cleanupExpiredX509CertRecords();
             } catch (Throwable t) {
                 LOGGER.error("ExpiredX509CertRecordCleaner: unable to cleanup expired cert records: {}",
                         t.getMessage());
@@ -790,11 +928,138 @@ public class InstanceCertManager {
         
         int cleanupExpiredX509CertRecords() {
             
-            int deletedRecords;
             try (CertRecordStoreConnection storeConnection = store.getConnection()) {
-                deletedRecords = storeConnection.deleteExpiredX509CertRecords(expiryTimeMins);
+                return deleteExpiredX509CertRecords(storeConnection);
             }
+        }
+
+        int deleteExpiredX509CertRecords(CertRecordStoreConnection storeConnection) {
+            int deletedRecords = storeConnection.deleteExpiredX509CertRecords(expiryTimeMins);
+            metric.increment(METRIC_CERT_CLEANUP_DELETED, null, deletedRecords);
             return deletedRecords;
         }
+
+        int cleanupExpiredX509CertRecordsInBatches() {
+
+            final long startTime = System.currentTimeMillis();
+            runDeletedRecords = 0;
+
+            try (CertRecordStoreConnection storeConnection = store.getConnection()) {
+
+                // if the store does not support batched cleanup then
+                // we'll just carry out our regular cleanup operation
+
+                List<String> providers = batchDeleteSupported ? storeConnection.getX509CertRecordProviders() : null;
+                if (providers == null) {
+                    return deleteExpiredX509CertRecords(storeConnection);
+                }
+
+                // if the previous run completed then we start a new
+                // cycle otherwise we continue with the same expiry
+                // time and skip all the providers already processed
+
+                if (cycleExpiryTime == null) {
+                    cycleExpiryTime = new Date(startTime - TimeUnit.MINUTES.toMillis(expiryTimeMins));
+                    completedProviders.clear();
+                }
+
+                for (String provider : providers) {
+
+                    if (completedProviders.contains(provider)) {
+                        continue;
+                    }
+
+                    // if another server is already processing this provider
+                    // then there is nothing for us to do
+
+                    if (!storeConnection.lockX509CertRecordProvider(provider)) {
+                        metric.increment(METRIC_CERT_CLEANUP_LOCKED, provider);
+                        completedProviders.add(provider);
+                        continue;
+                    }
+
+                    boolean completed;
+                    boolean released;
+                    try {
+                        completed = cleanupProviderExpiredX509CertRecords(storeConnection, provider, startTime);
+                    } finally {
+                        released = storeConnection.unlockX509CertRecordProvider(provider);
+                    }
+
+                    // if we couldn't release the lock then the connection has
+                    // been discarded so we'll resume with this provider during
+                    // the next run
+
+                    if (!released) {
+                        LOGGER.error("ExpiredX509CertRecordCleaner: unable to release lock, cleanup will resume with provider {}",
+                                provider);
+                        return runDeletedRecords;
+                    }
+
+                    // if the store does not support batched deletes then
+                    // we'll carry out our regular cleanup operation instead
+
+                    if (!batchDeleteSupported) {
+                        cycleExpiryTime = null;
+                        return runDeletedRecords + deleteExpiredX509CertRecords(storeConnection);
+                    }
+
+                    if (!completed) {
+                        LOGGER.info("ExpiredX509CertRecordCleaner: run time exceeded, cleanup will resume with provider {}",
+                                provider);
+                        return runDeletedRecords;
+                    }
+                    completedProviders.add(provider);
+                }
+            }
+
+            cycleExpiryTime = null;
+            return runDeletedRecords;
+        }
+
+        boolean cleanupProviderExpiredX509CertRecords(CertRecordStoreConnection storeConnection,
+                final String provider, long startTime) {
+
+            while (System.currentTimeMillis() - startTime < maxRunTimeMs) {
+
+                long batchStartTime = System.currentTimeMillis();
+                Object timerMetric = metric.startTiming(METRIC_CERT_CLEANUP_TIMING, provider);
+                int count;
+                try {
+                    count = storeConnection.deleteExpiredX509CertRecords(provider, cycleExpiryTime, batchSize);
+                } finally {
+                    metric.stopTiming(timerMetric);
+                }
+
+                if (count < 0) {
+                    LOGGER.info("ExpiredX509CertRecordCleaner: store does not support batched deletes");
+                    batchDeleteSupported = false;
+                    return true;
+                }
+
+                runDeletedRecords += count;
+                metric.increment(METRIC_CERT_CLEANUP_DELETED, provider, count);
+
+                if (count < batchSize) {
+                    return true;
+                }
+
+                // pause before the next batch so we don't exceed
+                // our configured delete rate
+
+                if (deleteRate > 0) {
+                    long sleepTime = count * 1000L / deleteRate - (System.currentTimeMillis() - batchStartTime);
+                    if (sleepTime > 0) {
+                        try {
+                            Thread.sleep(sleepTime);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
     }
 }
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yahoo.athenz.auth.Principal;
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.common.metrics.impl.NoOpMetric;
+
+/**
+ * Cert record store that wraps another store and defers the updates
+ * of existing certificate records. Updates for the same instance
+ * are coalesced in memory and written to the underlying store in a
+ * single batch by a background thread on the configured interval,
+ * when the number of pending records reaches the configured limit,
+ * and when the store is closed. Pending records are returned for
+ * lookups so the serial number checks for the refresh requests
+ * processed by this server see the latest state.
+ *
+ * Each pending record remembers the serial number the underlying store
+ * had when the record was read, and it is only written if the store
+ * still has that serial number. If another server has updated (or
+ * revoked) the record in the meantime, the pending update is not
+ * written since it would overwrite the newer state in the store.
+ * Instead the conflict is reported with an error log entry and the
+ * conflict metric, and the record is read from the store again.
+ *
+ * Updates are written through to the underlying store, so the caller
+ * gets the result of the update, when the number of pending records
+ * has reached the limit, when the last batch write failed, or when the
+ * record was not read through this store. Inserts, deletes and
+ * revocations are always written through.
+ */
+public class WriteBehindCertRecordStore implements CertRecordStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindCertRecordStore.class);
+
+    static final String REVOKED_SERIAL = "-1";
+
+    static final String METRIC_WRITE_BEHIND_CONFLICT      = "zts_cert_write_behind_conflict";
+    static final String METRIC_WRITE_BEHIND_FLUSH_FAILURE = "zts_cert_write_behind_flush_failure";
+
+    // serial numbers of the records that have been read are only
+    // needed until the request that read them updates the record.
+    // if an entry is evicted before then, the update is written through
+
+    private static final long STORE_SERIAL_TIMEOUT_SECS = 300;
+
+    private final CertRecordStore store;
+    private final Metric metric;
+    private final int maxPendingRecords;
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduledExecutor;
+    private volatile boolean flushFailed = false;
+    final Map<String, PendingCertRecord> pendingRecords = new ConcurrentHashMap<>();
+    final Cache<String, String> storeSerials;
+
+    public WriteBehindCertRecordStore(CertRecordStore store, long flushIntervalMs, int maxPendingRecords) {
+        this(store, new NoOpMetric(), flushIntervalMs, maxPendingRecords);
+    }
+
+    public WriteBehindCertRecordStore(CertRecordStore store, Metric metric, long flushIntervalMs,
+            int maxPendingRecords) {
+
+        this.store = store;
+        this.metric = metric;
+        this.maxPendingRecords = Math.max(maxPendingRecords, 1);
+
+        storeSerials = CacheBuilder.newBuilder().maximumSize(this.maxPendingRecords * 10L)
+                .expireAfterWrite(STORE_SERIAL_TIMEOUT_SECS, TimeUnit.SECONDS).build();
+
+        // pending records are only written to the store by our
+        // background thread so request threads never wait for
+        // a batch to complete
+
+        scheduledExecutor = Executors.newScheduledThreadPool(1);
+        if (flushIntervalMs > 0) {
+            scheduledExecutor.scheduleAtFixedRate(new PendingCertRecordFlusher(),
+                    flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public CertRecordStoreConnection getConnection() {
+        return new WriteBehindCertRecordStoreConnection();
+    }
+
+    @Override
+    public void setOperationTimeout(int opTimeout) {
+        store.setOperationTimeout(opTimeout);
+    }
+
+    @Override
+    public void clearConnections() {
+        store.clearConnections();
+    }
+
+    @Override
+    public void log(final Principal principal, final String ip, final String provider,
+            final String instanceId, final X509Certificate x509Cert) {
+        store.log(principal, ip, provider, instanceId, x509Cert);
+    }
+
+    /**
+     * Stop the background flusher, write all pending records
+     * to the underlying store and close the underlying store.
+     */
+    @Override
+    public void close() {
+        scheduledExecutor.shutdownNow();
+        flush();
+        store.close();
+    }
+
+    int getPendingRecordCount() {
+        return pendingRecords.size();
+    }
+
+    boolean isFlushFailed() {
+        return flushFailed;
+    }
+
+    void requestFlush() {
+
+        // we only need one outstanding request for our background
+        // thread since it writes all pending records at once
+
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduledExecutor.execute(new PendingCertRecordFlusher());
+        } catch (RejectedExecutionException ex) {
+            flushRequested.set(false);
+        }
+    }
+
+    /**
+     * Write all pending records to the underlying store in a single
+     * batch. Each record is only written if the store still has the
+     * serial number the record was based on. A record is removed from
+     * the pending set once it has been written, unless it has been
+     * replaced by a newer update in the meantime, so lookups never fall
+     * through to a store that does not yet have the latest state.
+     * Records that were updated by another server are not written and
+     * each conflict is reported with an error log entry and a metric.
+     * @return number of records written to the store
+     */
+    int flush() {
+
+        flushRequested.set(false);
+        synchronized (flushLock) {
+
+            if (pendingRecords.isEmpty()) {
+                return 0;
+            }
+
+            List<Map.Entry<String, PendingCertRecord>> entries = new ArrayList<>(pendingRecords.entrySet());
+            List<X509CertRecord> certRecords = new ArrayList<>(entries.size());
+            List<String> currentSerials = new ArrayList<>(entries.size());
+            for (Map.Entry<String, PendingCertRecord> entry : entries) {
+                certRecords.add(entry.getValue().certRecord);
+                currentSerials.add(entry.getValue().storeSerial);
+            }
+
+            boolean[] results;
+            try (CertRecordStoreConnection storeConnection = store.getConnection()) {
+                results = storeConnection.updateX509CertRecords(certRecords, currentSerials);
+            } catch (Exception ex) {
+                LOGGER.error("Unable to flush {} pending cert records: {}",
+                        certRecords.size(), ex.getMessage());
+                metric.increment(METRIC_WRITE_BEHIND_FLUSH_FAILURE);
+                flushFailed = true;
+                return 0;
+            }
+            flushFailed = false;
+
+            int updatedRecords = 0;
+            for (int i = 0; i < entries.size(); i++) {
+
+                final String key = entries.get(i).getKey();
+                final PendingCertRecord pendingRecord = entries.get(i).getValue();
+
+                if (results[i]) {
+
+                    // if the record was updated again while we were writing
+                    // it then the store now has our serial number
+
+                    updatedRecords += 1;
+                    final String storeSerial = pendingRecord.certRecord.getCurrentSerial();
+                    pendingRecords.computeIfPresent(key, (k, v) -> v == pendingRecord ? null :
+                            new PendingCertRecord(v.certRecord, storeSerial));
+
+                } else {
+
+                    // another server has updated or revoked the record so
+                    // writing our update would overwrite the newer state.
+                    // our update and any newer ones based on it are no
+                    // longer valid so we report the conflict and the
+                    // record is read from the store again
+
+                    LOGGER.error("Conflicting cert record update not written for provider: {} instance id: {} " +
+                            "service: {} serial: {} - store no longer has serial: {}",
+                            pendingRecord.certRecord.getProvider(), pendingRecord.certRecord.getInstanceId(),
+                            pendingRecord.certRecord.getService(), pendingRecord.certRecord.getCurrentSerial(),
+                            pendingRecord.storeSerial);
+                    metric.increment(METRIC_WRITE_BEHIND_CONFLICT, pendingRecord.certRecord.getProvider());
+                    pendingRecords.remove(key);
+                    storeSerials.invalidate(key);
+                }
+            }
+            return updatedRecords;
+        }
+    }
+
+    static String getRecordKey(final String provider, final String instanceId, final String service) {
+        return provider + ":" + instanceId + ":" + service;
+    }
+
+    static class PendingCertRecord {
+
+        final X509CertRecord certRecord;
+        final String storeSerial;
+
+        PendingCertRecord(X509CertRecord certRecord, final String storeSerial) {
+            this.certRecord = certRecord;
+            this.storeSerial = storeSerial;
+        }
+    }
+
+    class WriteBehindCertRecordStoreConnection implements CertRecordStoreConnection {
+
+        private CertRecordStoreConnection storeConnection;
+        private int opTimeout = 0;
+
+        CertRecordStoreConnection getStoreConnection() {
+
+            // we only open a connection to the underlying store
+            // if the request cannot be served from the pending set
+
+            if (storeConnection == null) {
+                storeConnection = store.getConnection();
+                if (opTimeout > 0) {
+                    storeConnection.setOperationTimeout(opTimeout);
+                }
+            }
+            return storeConnection;
+        }
+
+        @Override
+        public void close() {
+            if (storeConnection != null) {
+                storeConnection.close();
+                storeConnection = null;
+            }
+        }
+
+        @Override
+        public void setOperationTimeout(int opTimeout) {
+            this.opTimeout = opTimeout;
+            if (storeConnection != null) {
+                storeConnection.setOperationTimeout(opTimeout);
+            }
+        }
+
+        @Override
+        public X509CertRecord getX509CertRecord(String provider, String instanceId, String service) {
+
+            // we keep track of the serial number the store has (or will
+            // have once the pending record is written) so the update
+            // for this record can be made conditional on it
+
+            final String key = getRecordKey(provider, instanceId, service);
+            PendingCertRecord pendingRecord = pendingRecords.get(key);
+            if (pendingRecord != null) {
+                storeSerials.put(key, pendingRecord.certRecord.getCurrentSerial());
+                return new X509CertRecord(pendingRecord.certRecord);
+            }
+
+            X509CertRecord certRecord = getStoreConnection().getX509CertRecord(provider, instanceId, service);
+            if (certRecord != null && certRecord.getCurrentSerial() != null) {
+                storeSerials.put(key, certRecord.getCurrentSerial());
+            }
+            return certRecord;
+        }
+
+        @Override
+        public boolean updateX509CertRecord(X509CertRecord certRecord) {
+
+            final String key = getRecordKey(certRecord.getProvider(), certRecord.getInstanceId(),
+                    certRecord.getService());
+
+            // revoked records must be persisted before we return since
+            // losing them would allow the certificate to be refreshed
+
+            if (REVOKED_SERIAL.equals(certRecord.getCurrentSerial())) {
+                synchronized (flushLock) {
+                    pendingRecords.remove(key);
+                    storeSerials.invalidate(key);
+                    return getStoreConnection().updateX509CertRecord(certRecord);
+                }
+            }
+
+            // an update for a pending record keeps the serial number the
+            // pending record was based on. otherwise we can only defer the
+            // update if we know what serial number the store has and we
+            // have not reached our limit or failed to write the last batch
+
+            final X509CertRecord pendingCertRecord = new X509CertRecord(certRecord);
+            final String storeSerial = storeSerials.getIfPresent(key);
+            PendingCertRecord pendingRecord = pendingRecords.compute(key, (k, v) -> {
+                if (v != null) {
+                    return new PendingCertRecord(pendingCertRecord, v.storeSerial);
+                }
+                if (storeSerial == null || flushFailed || pendingRecords.size() >= maxPendingRecords) {
+                    return null;
+                }
+                return new PendingCertRecord(pendingCertRecord, storeSerial);
+            });
+            storeSerials.invalidate(key);
+
+            if (pendingRecords.size() >= maxPendingRecords) {
+                requestFlush();
+            }
+            return pendingRecord != null || getStoreConnection().updateX509CertRecord(certRecord);
+        }
+
+        @Override
+        public boolean insertX509CertRecord(X509CertRecord certRecord) {
+
+            // we hold the flush lock so that an in-progress flush
+            // cannot overwrite the record after we have inserted it
+
+            final String key = getRecordKey(certRecord.getProvider(), certRecord.getInstanceId(),
+                    certRecord.getService());
+            synchronized (flushLock) {
+                pendingRecords.remove(key);
+                storeSerials.invalidate(key);
+                return getStoreConnection().insertX509CertRecord(certRecord);
+            }
+        }
+
+        @Override
+        public boolean deleteX509CertRecord(String provider, String instanceId, String service) {
+
+            final String key = getRecordKey(provider, instanceId, service);
+            synchronized (flushLock) {
+                pendingRecords.remove(key);
+                storeSerials.invalidate(key);
+                return getStoreConnection().deleteX509CertRecord(provider, instanceId, service);
+            }
+        }
+
+        @Override
+        public int deleteExpiredX509CertRecords(int expiryTimeMins) {
+
+            // make sure the store has the latest update times before
+            // we determine which records have expired
+
+            flush();
+            return getStoreConnection().deleteExpiredX509CertRecords(expiryTimeMins);
+        }
+
+        @Override
+        public List<String> getX509CertRecordProviders() {
+            return getStoreConnection().getX509CertRecordProviders();
+        }
+
+        @Override
+        public int deleteExpiredX509CertRecords(String provider, Date expiryTime, int limit) {
+            flush();
+            return getStoreConnection().deleteExpiredX509CertRecords(provider, expiryTime, limit);
+        }
+
+        @Override
+        public boolean lockX509CertRecordProvider(String provider) {
+            return getStoreConnection().lockX509CertRecordProvider(provider);
+        }
+
+        @Override
+        public boolean unlockX509CertRecordProvider(String provider) {
+            return getStoreConnection().unlockX509CertRecordProvider(provider);
+        }
+    }
+
+    class PendingCertRecordFlusher implements Runnable {
+
+        @Override
+        public void run() {
+
+            try {
+                int updatedRecords = flush();
+                if (updatedRecords > 0 && LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("PendingCertRecordFlusher: flushed {} cert records", updatedRecords);
+                }
+            } catch (Throwable t) {
+                LOGGER.error("PendingCertRecordFlusher: unable to flush cert records: {}",
+                        t.getMessage());
+            }
+        }
+    }
+}
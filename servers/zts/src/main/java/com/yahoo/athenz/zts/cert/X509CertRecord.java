@@ -33,6 +33,23 @@ public class X509CertRecord {
     public X509CertRecord() {
     }
 
+    public X509CertRecord(X509CertRecord certRecord) {
+        provider = certRecord.provider;
+        instanceId = certRecord.instanceId;
+        service = certRecord.service;
+        currentSerial = certRecord.currentSerial;
+        currentTime = copyDate(certRecord.currentTime);
+        currentIP = certRecord.currentIP;
+        prevSerial = certRecord.prevSerial;
+        prevTime = copyDate(certRecord.prevTime);
+        prevIP = certRecord.prevIP;
+        clientCert = certRecord.clientCert;
+    }
+
+    private static Date copyDate(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
     public String getInstanceId() {
         return instanceId;
     }
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.auth.util.CryptoException;
+import com.yahoo.athenz.auth.util.X509CSRFields;
 
 public class X509CertRequest {
 
@@ -41,6 +42,7 @@ public class X509CertRequest {
     private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
 
     protected PKCS10CertificationRequest certReq;
+    protected X509CSRFields csrFields;
     protected String instanceId = null;
     protected String spiffeUri = null;
     protected String normCsrPublicKey = null;
@@ -58,27 +60,32 @@ public class X509CertRequest {
             throw new CryptoException("Invalid csr provided");
         }
 
+        // decode all the fields that we need from the request in a
+        // single pass instead of walking the subject and extensions
+        // for every field separately
+
+        csrFields = new X509CSRFields(certReq);
 
         // extract the dns names but we can't process them now
         // since we need to know what the provider and domain
         // allowed dns suffix values
 
-        dnsNames = Crypto.extractX509CSRDnsNames(certReq);
+        dnsNames = csrFields.getDnsNames();
         providerDnsNames = new ArrayList<>();
 
-        ipAddresses = Crypto.extractX509CSRIPAddresses(certReq);
+        ipAddresses = csrFields.getIPAddresses();
 
         // extract the common name for the request
 
         try {
-            cn = Crypto.extractX509CSRCommonName(certReq);
+            cn = csrFields.getCommonName();
         } catch (Exception ex) {
             throw new CryptoException("Unable to extract CN from CSR:" + ex.getMessage());
         }
 
         // extract our URI values
 
-        uris = Crypto.extractX509CSRURIs(certReq);
+        uris = csrFields.getURIs();
 
         // process to make sure we only have a single spiffe uri
         // present in our request
@@ -94,6 +101,11 @@ public class X509CertRequest {
     
     public void setCertReq(PKCS10CertificationRequest certReq) {
         this.certReq = certReq;
+        this.csrFields = new X509CSRFields(certReq);
+    }
+
+    public X509CSRFields getCsrFields() {
+        return csrFields;
     }
 
     public boolean parseCertRequest(StringBuilder errorMsg) {
@@ -445,7 +457,7 @@ public class X509CertRequest {
         }
 
         try {
-            final String value = Crypto.extractX509CSRSubjectOField(certReq);
+            final String value = csrFields.getSubjectOField();
             if (value == null) {
                 return true;
             }
@@ -464,7 +476,7 @@ public class X509CertRequest {
             Set<String> validValues) {
 
         try {
-            final String value = Crypto.extractX509CSRSubjectOUField(certReq);
+            final String value = csrFields.getSubjectOUField();
             if (value == null) {
                 return true;
             }
@@ -500,7 +512,7 @@ public class X509CertRequest {
         
         // otherwise process this request
         
-        final String csrPublicKey = Crypto.extractX509CSRPublicKey(certReq);
+        final String csrPublicKey = csrFields.getPublicKey();
         if (csrPublicKey == null) {
             LOGGER.error("comparePublicKeys: unable to get public key");
             return false;
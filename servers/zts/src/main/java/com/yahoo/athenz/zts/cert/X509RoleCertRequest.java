@@ -147,7 +147,7 @@ public class X509RoleCertRequest extends X509CertRequest {
         // request. it must be of the following format: principal@[dns-suffix]
         // and we must have only a single value specified
 
-        List<String> emails = Crypto.extractX509CSREmails(certReq);
+        List<String> emails = csrFields.getEmails();
         if (emails.size() != 1) {
             LOGGER.error("validateRoleCertificateRequest: csr has incorrect number of emails: {}",
                     emails.size());
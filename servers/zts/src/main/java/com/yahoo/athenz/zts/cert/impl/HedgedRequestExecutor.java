@@ -0,0 +1,299 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yahoo.athenz.zts.utils.CircuitBreaker;
+
+/**
+ * Executes asynchronous requests against a remote cert signer with
+ * hedged retries and a circuit breaker. If a request has not completed
+ * within the hedge delay, another attempt is started and the first
+ * successful response is returned. Failed attempts are retried after
+ * an exponentially increasing backoff until the configured number of
+ * attempts is reached. After the configured number of consecutive failed
+ * requests the circuit is opened and requests fail immediately until the
+ * open time expires, at which point a single request is allowed through
+ * to probe the signer. Requests are considered failed if they complete
+ * exceptionally or with a null value. Attempts that complete with a
+ * {@link NonRetryableRequestException}, e.g. the signer rejected the
+ * request, complete the request with null right away without any
+ * retries and are not counted as failures by the circuit breaker.
+ */
+public class HedgedRequestExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HedgedRequestExecutor.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final int maxAttempts;
+    private final long hedgeDelayMs;
+    private final long retryBackoffMs;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Create a new executor
+     * @param scheduler executor used to start hedged attempts
+     * @param maxAttempts maximum number of attempts for a single request
+     * @param hedgeDelayMs delay in milliseconds before a hedged attempt is
+     *      started for a request that has not completed. 0 disables hedging
+     * @param failureThreshold number of consecutive failed requests that
+     *      opens the circuit. 0 disables the circuit breaker
+     * @param openTimeMs number of milliseconds the circuit stays open
+     */
+    public HedgedRequestExecutor(ScheduledExecutorService scheduler, int maxAttempts, long hedgeDelayMs,
+            int failureThreshold, long openTimeMs) {
+        this(scheduler, maxAttempts, hedgeDelayMs, 0, failureThreshold, openTimeMs);
+    }
+
+    /**
+     * Create a new executor
+     * @param scheduler executor used to start hedged and retried attempts
+     * @param maxAttempts maximum number of attempts for a single request
+     * @param hedgeDelayMs delay in milliseconds before a hedged attempt is
+     *      started for a request that has not completed. 0 disables hedging
+     * @param retryBackoffMs delay in milliseconds before the first failed
+     *      attempt is retried. The delay is doubled for every following
+     *      retry. 0 retries failed attempts right away
+     * @param failureThreshold number of consecutive failed requests that
+     *      opens the circuit. 0 disables the circuit breaker
+     * @param openTimeMs number of milliseconds the circuit stays open
+     */
+    public HedgedRequestExecutor(ScheduledExecutorService scheduler, int maxAttempts, long hedgeDelayMs,
+            long retryBackoffMs, int failureThreshold, long openTimeMs) {
+        this.scheduler = scheduler;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.retryBackoffMs = (scheduler != null) ? retryBackoffMs : 0;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openTimeMs);
+    }
+
+    /**
+     * Return the delay before the given failed attempt is retried
+     * @param attempt number of the failed attempt starting with 1
+     * @return delay in milliseconds
+     */
+    long getRetryBackoffMs(int attempt) {
+        return (retryBackoffMs > 0) ? retryBackoffMs << Math.min(attempt - 1, 16) : 0;
+    }
+
+    /**
+     * Return the total time spent waiting between the attempts if all
+     * the attempts of a request fail so callers can include it in their
+     * request deadline
+     * @return delay in milliseconds
+     */
+    public long getMaxRetryBackoffMs() {
+        long backoff = 0;
+        for (int attempt = 1; attempt < maxAttempts; attempt++) {
+            backoff += getRetryBackoffMs(attempt);
+        }
+        return backoff;
+    }
+
+    /**
+     * Execute the request returned by the given supplier. The supplier
+     * is called once for every attempt.
+     * @param request supplier that starts a new attempt of the request
+     * @param <T> type of the response
+     * @return future that completes with the first successful response
+     *      or null if all attempts failed or the circuit is open
+     */
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> request) {
+
+        if (!circuitBreaker.allowRequest()) {
+            LOGGER.error("HedgedRequestExecutor: circuit open, rejecting request");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        HedgedRequest<T> hedgedRequest = new HedgedRequest<>(request);
+        sendAttempt(hedgedRequest);
+        return hedgedRequest.result;
+    }
+
+    /**
+     * Wait for the given request, returned by the execute method, to
+     * complete. If the request does not complete within the deadline,
+     * it is completed with null so no further attempts are started and
+     * the request is counted as failed by the circuit breaker.
+     * @param result future returned by the execute method
+     * @param deadlineMs maximum number of milliseconds to wait
+     * @param <T> type of the response
+     * @return the response or null if the request failed or did not
+     *      complete within the deadline
+     */
+    public <T> T join(CompletableFuture<T> result, long deadlineMs) {
+
+        try {
+            return result.get(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            LOGGER.error("HedgedRequestExecutor: request not completed within {} ms", deadlineMs);
+        } catch (InterruptedException ex) {
+            LOGGER.error("HedgedRequestExecutor: interrupted while waiting for request");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            LOGGER.error("HedgedRequestExecutor: request failed: {}", ex.getMessage());
+        }
+
+        if (result.complete(null)) {
+            circuitBreaker.recordFailure();
+        }
+        return null;
+    }
+
+    <T> void sendAttempt(HedgedRequest<T> hedgedRequest) {
+
+        if (!hedgedRequest.startAttempt()) {
+            return;
+        }
+
+        CompletableFuture<T> attempt;
+        try {
+            attempt = hedgedRequest.request.get();
+        } catch (Exception ex) {
+            attempt = new CompletableFuture<>();
+            attempt.completeExceptionally(ex);
+        }
+
+        // if the attempt does not complete within our hedge delay
+        // we'll start another one and use whichever completes first
+
+        final ScheduledFuture<?> hedge = (hedgeDelayMs > 0 && hedgedRequest.hasAttemptsLeft()) ?
+                scheduler.schedule(() -> sendAttempt(hedgedRequest), hedgeDelayMs, TimeUnit.MILLISECONDS) : null;
+
+        attempt.whenComplete((value, ex) -> {
+
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+
+            if (ex == null && value != null) {
+                if (hedgedRequest.result.complete(value)) {
+                    circuitBreaker.recordSuccess();
+                }
+                return;
+            }
+
+            // if the signer has rejected our request there is no point
+            // in retrying it. since the signer is responding, this is
+            // not counted as a failure by our circuit breaker
+
+            final Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ?
+                    ex.getCause() : ex;
+            if (cause instanceof NonRetryableRequestException) {
+                LOGGER.error("HedgedRequestExecutor: request rejected: {}", cause.getMessage());
+                if (hedgedRequest.result.complete(null)) {
+                    circuitBreaker.recordSuccess();
+                }
+                return;
+            }
+
+            if (cause != null) {
+                LOGGER.error("HedgedRequestExecutor: request attempt failed: {}", cause.getMessage());
+            }
+
+            final int attempts = hedgedRequest.getAttempts();
+            if (hedgedRequest.attemptFailed()) {
+                if (hedgedRequest.result.complete(null)) {
+                    circuitBreaker.recordFailure();
+                }
+            } else {
+                retryAttempt(hedgedRequest, getRetryBackoffMs(attempts));
+            }
+        });
+    }
+
+    <T> void retryAttempt(HedgedRequest<T> hedgedRequest, long backoffMs) {
+
+        if (backoffMs <= 0) {
+            sendAttempt(hedgedRequest);
+            return;
+        }
+
+        try {
+            scheduler.schedule(() -> sendAttempt(hedgedRequest), backoffMs, TimeUnit.MILLISECONDS);
+        } catch (Exception ex) {
+            LOGGER.error("HedgedRequestExecutor: unable to schedule retry: {}", ex.getMessage());
+            if (hedgedRequest.result.complete(null)) {
+                circuitBreaker.recordFailure();
+            }
+        }
+    }
+
+    public boolean isCircuitOpen() {
+        return circuitBreaker.isCircuitOpen();
+    }
+
+    class HedgedRequest<T> {
+
+        final Supplier<CompletableFuture<T>> request;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        private int attempts = 0;
+        private int pending = 0;
+
+        HedgedRequest(Supplier<CompletableFuture<T>> request) {
+            this.request = request;
+        }
+
+        synchronized boolean startAttempt() {
+            if (result.isDone() || attempts >= maxAttempts) {
+                return false;
+            }
+            attempts += 1;
+            pending += 1;
+            return true;
+        }
+
+        synchronized int getAttempts() {
+            return attempts;
+        }
+
+        synchronized boolean hasAttemptsLeft() {
+            return attempts < maxAttempts;
+        }
+
+        /**
+         * Record a failed attempt
+         * @return true if this was the last pending attempt and
+         *      no other attempts can be started
+         */
+        synchronized boolean attemptFailed() {
+            pending -= 1;
+            return pending == 0 && attempts >= maxAttempts;
+        }
+    }
+
+    /**
+     * Exception used to complete an attempt for a request that
+     * must not be retried, e.g. the signer rejected the request
+     */
+    public static class NonRetryableRequestException extends RuntimeException {
+
+        public NonRetryableRequestException(String message) {
+            super(message);
+        }
+    }
+}
@@ -17,9 +17,13 @@ package com.yahoo.athenz.zts.cert.impl;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.yahoo.athenz.auth.PrivateKeyStore;
 import com.yahoo.athenz.auth.PrivateKeyStoreFactory;
@@ -33,6 +37,8 @@ import com.yahoo.athenz.zts.utils.ZTSUtils;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
 import org.eclipse.jetty.client.util.StringContentProvider;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
@@ -45,8 +51,11 @@ public class HttpCertSigner implements CertSigner {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpCertSigner.class);
     private static final String CONTENT_JSON = "application/json";
+    private static final long MAX_REQUEST_TIMEOUT = 30;
 
     private HttpClient httpClient;
+    private ScheduledExecutorService hedgeScheduler;
+    HedgedRequestExecutor requestExecutor;
     String x509CertUri;
     long requestTimeout;
     int requestRetryCount;
@@ -82,6 +91,18 @@ public class HttpCertSigner implements CertSigner {
                     "No CertSigner base uri specified: " + ZTSConsts.ZTS_PROP_CERTSIGN_BASE_URI);
         }
         x509CertUri = serverBaseUri + "/x509";
+
+        // setup our executor for all certificate requests with
+        // optional hedged retries and circuit breaker
+
+        long hedgeDelay = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DELAY, "0"));
+        long retryBackoff = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_RETRY_BACKOFF, "100"));
+        if (hedgeDelay > 0 || retryBackoff > 0) {
+            hedgeScheduler = Executors.newScheduledThreadPool(1);
+        }
+        requestExecutor = new HedgedRequestExecutor(hedgeScheduler, requestRetryCount, hedgeDelay, retryBackoff,
+                Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_FAILURES, "0")),
+                Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_OPEN_TIME, "30000")));
     }
 
     void setupHttpClient(HttpClient client, long requestTimeout, long connectTimeout) {
@@ -116,6 +137,9 @@ public class HttpCertSigner implements CertSigner {
     @Override
     public void close() {
         stopHttpClient();
+        if (hedgeScheduler != null) {
+            hedgeScheduler.shutdownNow();
+        }
     }
     
     @Override
@@ -137,79 +161,141 @@ public class HttpCertSigner implements CertSigner {
         return pkeyFactory.create();
     }
 
-    ContentResponse processX509CertRequest(final String csr, final List<Integer> extKeyUsage,
+    Request createX509CertRequest(final String csr, final List<Integer> extKeyUsage,
             int expiryTime, int retryCount) {
-        
-        ContentResponse response = null;
-        try {
-            Request request = httpClient.POST(x509CertUri);
-            request.header(HttpHeader.ACCEPT, CONTENT_JSON);
-            request.header(HttpHeader.CONTENT_TYPE, CONTENT_JSON);
-            
-            X509CertSignObject csrCert = new X509CertSignObject();
-            csrCert.setPem(csr);
-            csrCert.setX509ExtKeyUsage(extKeyUsage);
-            if (expiryTime > 0 && expiryTime < maxCertExpiryTimeMins) {
-                csrCert.setExpiryTime(expiryTime);
-            }
-            request.content(new StringContentProvider(JSON.string(csrCert)), CONTENT_JSON);
-            
-            // our max timeout is going to be 30 seconds. By default
-            // we're picking a small value to quickly recognize when
-            // our idle connections are disconnected by certsigner but
-            // we won't allow any connections taking longer than 30 secs
-            
-            long timeout = retryCount * requestTimeout;
-            if (timeout > 30) {
-                timeout = 30;
-            }
-            request.timeout(timeout, TimeUnit.SECONDS);
-            response = request.send();
-        } catch (Exception ex) {
-            LOGGER.error("Unable to process x509 certificate request", ex);
+
+        Request request = httpClient.POST(x509CertUri);
+        request.header(HttpHeader.ACCEPT, CONTENT_JSON);
+        request.header(HttpHeader.CONTENT_TYPE, CONTENT_JSON);
+
+        X509CertSignObject csrCert = new X509CertSignObject();
+        csrCert.setPem(csr);
+        csrCert.setX509ExtKeyUsage(extKeyUsage);
+        if (expiryTime > 0 && expiryTime < maxCertExpiryTimeMins) {
+            csrCert.setExpiryTime(expiryTime);
         }
-        return response;
+        request.content(new StringContentProvider(JSON.string(csrCert)), CONTENT_JSON);
+
+        request.timeout(getRequestTimeout(retryCount), TimeUnit.SECONDS);
+        return request;
     }
-    
-    @Override
-    public String generateX509Certificate(String csr, String keyUsage, int expireMins) {
-        
+
+    long getRequestTimeout(int retryCount) {
+
+        // our max timeout is going to be 30 seconds. By default
+        // we're picking a small value to quickly recognize when
+        // our idle connections are disconnected by certsigner but
+        // we won't allow any connections taking longer than 30 secs
+
+        return Math.min(retryCount * requestTimeout, MAX_REQUEST_TIMEOUT);
+    }
+
+    long getRequestDeadlineMs() {
+
+        // the deadline allows all our attempts to run one after
+        // the other, each with its own timeout, including the
+        // backoff between the attempts
+
+        long deadline = 0;
+        for (int i = 1; i <= requestRetryCount; i++) {
+            deadline += getRequestTimeout(i);
+        }
+        return TimeUnit.MILLISECONDS.convert(deadline, TimeUnit.SECONDS) +
+                requestExecutor.getMaxRetryBackoffMs();
+    }
+
+    List<Integer> getExtKeyUsage(final String keyUsage) {
+
         // Key Usage value used in Go - https://golang.org/src/crypto/x509/x509.go?s=18153:18173#L558
         // we're only interested in ExtKeyUsageClientAuth - with value of 2
-        
+
         List<Integer> extKeyUsage = null;
         if (InstanceProvider.ZTS_CERT_USAGE_CLIENT.equals(keyUsage)) {
             extKeyUsage = new ArrayList<>();
             extKeyUsage.add(2);
         }
+        return extKeyUsage;
+    }
 
-        ContentResponse response = null;
-        for (int i = 0; i < requestRetryCount; i++) {
-            response = processX509CertRequest(csr, extKeyUsage, expireMins, i + 1);
-            if (response != null) {
-                break;
-            }
-        }
-        if (response == null) {
-            return null;
+    String parseX509CertResponse(int status, final String data) {
+
+        // client errors indicate that the cert signer has rejected
+        // our request so there is no point in retrying it. the only
+        // exceptions are request timeouts and rate limiting
+
+        if (isNonRetryableStatus(status)) {
+            LOGGER.error("request to uri '" + x509CertUri + "' rejected with status: " + status);
+            throw new HedgedRequestExecutor.NonRetryableRequestException(
+                    "Request rejected by cert signer with status: " + status);
         }
-        
-        if (response.getStatus() != HttpStatus.CREATED_201) {
+
+        if (status != HttpStatus.CREATED_201) {
             LOGGER.error("unable to fetch requested uri '" + x509CertUri +
-                    "' status: " + response.getStatus());
+                    "' status: " + status);
             return null;
         }
 
-        String data = response.getContentAsString();
         if (data == null || data.isEmpty()) {
             LOGGER.error("received empty response from uri '" + x509CertUri +
-                    "' status: " + response.getStatus());
+                    "' status: " + status);
             return null;
         }
 
         X509CertSignObject pemCert = JSON.fromString(data, X509CertSignObject.class);
         return (pemCert != null) ? pemCert.getPem() : null;
     }
+
+    static boolean isNonRetryableStatus(int status) {
+        return HttpStatus.isClientError(status) && status != HttpStatus.REQUEST_TIMEOUT_408
+                && status != HttpStatus.TOO_MANY_REQUESTS_429;
+    }
+    
+    @Override
+    public String generateX509Certificate(String csr, String keyUsage, int expireMins) {
+
+        // the request is processed through our hedged executor without
+        // blocking any of the http client threads and we only wait for
+        // the result up to our request deadline
+
+        return requestExecutor.join(generateX509CertificateAsync(csr, keyUsage, expireMins),
+                getRequestDeadlineMs());
+    }
+
+    @Override
+    public CompletableFuture<String> generateX509CertificateAsync(String csr, String keyUsage, int expireMins) {
+
+        final List<Integer> extKeyUsage = getExtKeyUsage(keyUsage);
+        final AtomicInteger attempt = new AtomicInteger();
+        return requestExecutor.execute(() -> sendX509CertRequest(csr, extKeyUsage, expireMins,
+                attempt.incrementAndGet()));
+    }
+
+    CompletableFuture<String> sendX509CertRequest(final String csr, final List<Integer> extKeyUsage,
+            int expiryTime, int retryCount) {
+
+        // the request is processed by the http client without blocking
+        // the caller's thread and our future is completed from the
+        // client's thread once the full response has been received
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Request request = createX509CertRequest(csr, extKeyUsage, expiryTime, retryCount);
+        request.send(new BufferingResponseListener() {
+            @Override
+            public void onComplete(Result result) {
+                if (result.isFailed()) {
+                    future.completeExceptionally(result.getFailure());
+                    return;
+                }
+                try {
+                    future.complete(parseX509CertResponse(result.getResponse().getStatus(),
+                            getContentAsString()));
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+        });
+        return future;
+    }
     
     @Override
     public String getCACertificate() {
@@ -20,11 +20,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.zts.ResourceException;
 import com.yahoo.athenz.zts.cert.CertRecordStoreConnection;
 import com.yahoo.athenz.zts.cert.X509CertRecord;
@@ -42,11 +46,22 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
     private static final String SQL_UPDATE_X509_RECORD = "UPDATE certificates SET " +
             "currentSerial=?, currentTime=?, currentIP=?, prevSerial=?, prevTime=?, prevIP=?" +
             "WHERE provider=? AND instanceId=? AND service=?;";
+    private static final String SQL_UPDATE_X509_RECORD_IF_SERIAL = "UPDATE certificates SET " +
+            "currentSerial=?, currentTime=?, currentIP=?, prevSerial=?, prevTime=?, prevIP=? " +
+            "WHERE provider=? AND instanceId=? AND service=? AND currentSerial=?;";
     private static final String SQL_DELETE_X509_RECORD = "DELETE from certificates " +
             "WHERE provider=? AND instanceId=? AND service=?;";
     private static final String SQL_DELETE_EXPIRED_X509_RECORDS = "DELETE FROM certificates " +
             "WHERE currentTime < ADDDATE(NOW(), INTERVAL -? MINUTE);";
+    private static final String SQL_DELETE_EXPIRED_X509_RECORDS_BATCH = "DELETE FROM certificates " +
+            "WHERE provider=? AND currentTime < ? LIMIT ?;";
+    private static final String SQL_LIST_PROVIDERS = "SELECT DISTINCT provider FROM certificates;";
+    private static final String SQL_GET_LOCK = "SELECT GET_LOCK(?, 0);";
+    private static final String SQL_RELEASE_LOCK = "SELECT RELEASE_LOCK(?);";
+
+    private static final String CLEANUP_LOCK_PREFIX = "zts_cleanup_";
     
+    public static final String DB_COLUMN_PROVIDER       = "provider";
     public static final String DB_COLUMN_SERVICE        = "service";
     public static final String DB_COLUMN_CURRENT_IP     = "currentIP";
     public static final String DB_COLUMN_CURRENT_SERIAL = "currentSerial";
@@ -93,6 +108,14 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
         return ps.executeUpdate();
     }
 
+    int[] executeBatch(PreparedStatement ps, String caller) throws SQLException {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("{}: {}", caller, ps.toString());
+        }
+        ps.setQueryTimeout(queryTimeout);
+        return ps.executeBatch();
+    }
+
     ResultSet executeQuery(PreparedStatement ps, String caller) throws SQLException {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("{}: {}", caller, ps.toString());
@@ -156,6 +179,46 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
         return (affectedRows > 0);
     }
     
+    @Override
+    public boolean[] updateX509CertRecords(List<X509CertRecord> certRecords, List<String> currentSerials) {
+
+        boolean[] results = new boolean[certRecords.size()];
+        if (certRecords.isEmpty()) {
+            return results;
+        }
+
+        int[] affectedRows;
+        final String caller = "updateX509CertRecords";
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_UPDATE_X509_RECORD_IF_SERIAL)) {
+            for (int i = 0; i < results.length; i++) {
+                final X509CertRecord certRecord = certRecords.get(i);
+                ps.setString(1, certRecord.getCurrentSerial());
+                ps.setTimestamp(2, new java.sql.Timestamp(certRecord.getCurrentTime().getTime()));
+                ps.setString(3, certRecord.getCurrentIP());
+                ps.setString(4, certRecord.getPrevSerial());
+                ps.setTimestamp(5, new java.sql.Timestamp(certRecord.getPrevTime().getTime()));
+                ps.setString(6, certRecord.getPrevIP());
+                ps.setString(7, certRecord.getProvider());
+                ps.setString(8, certRecord.getInstanceId());
+                ps.setString(9, certRecord.getService());
+                ps.setString(10, currentSerials.get(i));
+                ps.addBatch();
+            }
+            affectedRows = executeBatch(ps, caller);
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+
+        // drivers are allowed to report success without the
+        // number of affected rows so we count those as updated
+
+        for (int i = 0; i < results.length && i < affectedRows.length; i++) {
+            results[i] = affectedRows[i] > 0 || affectedRows[i] == Statement.SUCCESS_NO_INFO;
+        }
+        return results;
+    }
+
     @Override
     public boolean insertX509CertRecord(X509CertRecord certRecord) {
 
@@ -231,6 +294,113 @@ public class JDBCCertRecordStoreConnection implements CertRecordStoreConnection
         return affectedRows;
     }
     
+    @Override
+    public List<String> getX509CertRecordProviders() {
+
+        final String caller = "getX509CertRecordProviders";
+        List<String> providers = new ArrayList<>();
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_LIST_PROVIDERS)) {
+            try (ResultSet rs = executeQuery(ps, caller)) {
+                while (rs.next()) {
+                    providers.add(rs.getString(DB_COLUMN_PROVIDER));
+                }
+            }
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+        return providers;
+    }
+
+    @Override
+    public int deleteExpiredX509CertRecords(String provider, Date expiryTime, int limit) {
+
+        int affectedRows;
+        final String caller = "deleteExpiredX509CertRecordsBatch";
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_DELETE_EXPIRED_X509_RECORDS_BATCH)) {
+            ps.setString(1, provider);
+            ps.setTimestamp(2, new java.sql.Timestamp(expiryTime.getTime()));
+            ps.setInt(3, limit);
+            affectedRows = executeUpdate(ps, caller);
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+        return affectedRows;
+    }
+
+    @Override
+    public boolean lockX509CertRecordProvider(String provider) {
+
+        final String caller = "lockX509CertRecordProvider";
+
+        // mysql named locks are held by the session so they're
+        // automatically released if the server loses its connection.
+        // with pooled connections the session outlives the close call
+        // so the lock must always be released explicitly
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_GET_LOCK)) {
+            ps.setString(1, getCleanupLockName(provider));
+            try (ResultSet rs = executeQuery(ps, caller)) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        } catch (SQLException ex) {
+            throw sqlError(ex, caller);
+        }
+    }
+
+    @Override
+    public boolean unlockX509CertRecordProvider(String provider) {
+
+        final String caller = "unlockX509CertRecordProvider";
+
+        // release_lock returns 1 if the lock was released, 0 if the
+        // lock is held by another session and null if it does not exist
+
+        boolean released = false;
+        try (PreparedStatement ps = con.prepareStatement(SQL_RELEASE_LOCK)) {
+            ps.setString(1, getCleanupLockName(provider));
+            try (ResultSet rs = executeQuery(ps, caller)) {
+                released = rs.next() && rs.getInt(1) == 1;
+            }
+        } catch (SQLException ex) {
+            LOGGER.error("{}: unable to release cleanup lock for {}: state - {}, code - {}, message - {}",
+                    caller, provider, ex.getSQLState(), ex.getErrorCode(), ex.getMessage());
+        }
+
+        // if we can't confirm the lock was released then we abort the
+        // connection so the pool discards it instead of handing out
+        // a session that might still hold the lock
+
+        if (!released) {
+            LOGGER.error("{}: cleanup lock for {} not released, aborting connection", caller, provider);
+            abortConnection();
+        }
+        return released;
+    }
+
+    void abortConnection() {
+
+        if (con == null) {
+            return;
+        }
+
+        try {
+            con.abort(Runnable::run);
+        } catch (SQLException ex) {
+            LOGGER.error("Failed to abort connection: state - {}, code - {}, message - {}",
+                    ex.getSQLState(), ex.getErrorCode(), ex.getMessage());
+        }
+    }
+
+    String getCleanupLockName(final String provider) {
+
+        // mysql limits lock names to 64 characters so we
+        // use the hash of the provider name instead
+
+        return CLEANUP_LOCK_PREFIX + Crypto.ybase64(Crypto.sha256(provider));
+    }
+
     RuntimeException sqlError(SQLException ex, String caller) {
         
         String sqlState = ex.getSQLState();
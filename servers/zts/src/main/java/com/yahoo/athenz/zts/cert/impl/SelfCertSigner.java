@@ -15,10 +15,23 @@
  */
 package com.yahoo.athenz.zts.cert.impl;
 
+import java.math.BigInteger;
 import java.security.PrivateKey;
+import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.common.server.cert.CertSigner;
@@ -26,11 +39,28 @@ import com.yahoo.athenz.zts.ZTSConsts;
 
 public class SelfCertSigner implements CertSigner {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SelfCertSigner.class);
+
     private X509Certificate caCertificate;
     private PrivateKey caPrivateKey;
     private int maxCertExpiryTimeMins;
+    private String caCertificatePem;
+
+    // high throughput mode settings where we keep the pre-parsed
+    // issuer name and a pool of content signers, and sign
+    // certificates in parallel with our own executor
+
+    private X500Name caIssuer;
+    private BlockingQueue<ContentSigner> contentSigners;
+    private ExecutorService signerExecutor;
+    private SecureRandom serialRandom;
 
     public SelfCertSigner(PrivateKey caPrivateKey, X509Certificate caCertificate) {
+        this(caPrivateKey, caCertificate,
+                Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_SELF_SIGNER_THREADS, "0")));
+    }
+
+    public SelfCertSigner(PrivateKey caPrivateKey, X509Certificate caCertificate, int signerThreads) {
         
         this.caCertificate = caCertificate;
         this.caPrivateKey = caPrivateKey;
@@ -38,20 +68,102 @@ public class SelfCertSigner implements CertSigner {
         // max certificate validity time in minutes
         
         maxCertExpiryTimeMins = Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_MAX_EXPIRY_TIME, "43200"));
+
+        // our ca certificate never changes so we only need to
+        // convert it once
+
+        caCertificatePem = Crypto.convertToPEMFormat(caCertificate);
+
+        if (signerThreads > 0) {
+            caIssuer = X500Name.getInstance(caCertificate.getSubjectX500Principal().getEncoded());
+            contentSigners = new ArrayBlockingQueue<>(signerThreads);
+            serialRandom = new SecureRandom();
+            signerExecutor = Executors.newFixedThreadPool(signerThreads, runnable -> {
+                Thread thread = new Thread(runnable, "zts-self-cert-signer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            LOGGER.info("SelfCertSigner: high throughput mode enabled with {} threads", signerThreads);
+        }
+    }
+
+    boolean isHighThroughputMode() {
+        return signerExecutor != null;
     }
 
     @Override
     public String generateX509Certificate(String csr, String keyUsage, int expiryTime) {
         int certExpiryTime = expiryTime == 0 ? maxCertExpiryTimeMins : expiryTime;
         PKCS10CertificationRequest certReq = Crypto.getPKCS10CertRequest(csr);
-        X509Certificate cert = Crypto.generateX509Certificate(certReq, caPrivateKey,
-                caCertificate, certExpiryTime, false);
+        X509Certificate cert = isHighThroughputMode() ? generatePooledX509Certificate(certReq, certExpiryTime) :
+                Crypto.generateX509Certificate(certReq, caPrivateKey, caCertificate, certExpiryTime, false);
         return Crypto.convertToPEMFormat(cert);
     }
 
+    X509Certificate generatePooledX509Certificate(PKCS10CertificationRequest certReq, int certExpiryTime) {
+
+        ContentSigner caSigner = contentSigners.poll();
+        if (caSigner == null) {
+            caSigner = Crypto.getContentSigner(caPrivateKey);
+        }
+
+        // since we're signing certificates in parallel we cannot use the
+        // current time as the serial number so we generate a random one
+
+        X509Certificate cert = Crypto.generateX509Certificate(certReq, caSigner, caIssuer,
+                new BigInteger(64, serialRandom), certExpiryTime, false);
+
+        // we only return the signer to the pool if the certificate
+        // was successfully generated otherwise its state is unknown
+
+        contentSigners.offer(caSigner);
+        return cert;
+    }
+
+    @Override
+    public CompletableFuture<String> generateX509CertificateAsync(String csr, String keyUsage, int expiryTime) {
+        if (!isHighThroughputMode()) {
+            return CertSigner.super.generateX509CertificateAsync(csr, keyUsage, expiryTime);
+        }
+        return CompletableFuture.supplyAsync(() -> generateX509Certificate(csr, keyUsage, expiryTime),
+                signerExecutor);
+    }
+
+    @Override
+    public boolean isBatchSigningSupported() {
+        return isHighThroughputMode();
+    }
+
+    @Override
+    public List<String> generateX509Certificates(List<String> csrs, String keyUsage, int expiryTime) {
+
+        if (!isHighThroughputMode()) {
+            return CertSigner.super.generateX509Certificates(csrs, keyUsage, expiryTime);
+        }
+
+        // sign all the requests in parallel and return null for
+        // any request that we were unable to process
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(csrs.size());
+        for (String csr : csrs) {
+            futures.add(generateX509CertificateAsync(csr, keyUsage, expiryTime));
+        }
+        List<String> pemCerts = new ArrayList<>(csrs.size());
+        for (CompletableFuture<String> future : futures) {
+            String pemCert = null;
+            try {
+                pemCert = future.join();
+            } catch (Exception ex) {
+                LOGGER.error("SelfCertSigner: unable to generate certificate: {}", ex.getMessage());
+            }
+            pemCerts.add(pemCert);
+        }
+        return pemCerts;
+    }
+
     @Override
     public String getCACertificate() {
-        return Crypto.convertToPEMFormat(caCertificate);
+        return caCertificatePem;
     }
 
     @Override
@@ -61,5 +173,8 @@ public class SelfCertSigner implements CertSigner {
     
     @Override
     public void close() {
+        if (signerExecutor != null) {
+            signerExecutor.shutdownNow();
+        }
     }
 }
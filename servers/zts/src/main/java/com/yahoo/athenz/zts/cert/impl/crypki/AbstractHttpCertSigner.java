@@ -18,10 +18,17 @@ package com.yahoo.athenz.zts.cert.impl.crypki;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
+import org.apache.http.HttpStatus;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -46,6 +53,7 @@ import com.yahoo.athenz.auth.PrivateKeyStoreFactory;
 import com.yahoo.athenz.common.server.cert.CertSigner;
 import com.yahoo.athenz.common.server.rest.ResourceException;
 import com.yahoo.athenz.zts.ZTSConsts;
+import com.yahoo.athenz.zts.cert.impl.HedgedRequestExecutor;
 import com.yahoo.athenz.zts.utils.ZTSUtils;
 
 public abstract class AbstractHttpCertSigner implements CertSigner {
@@ -61,10 +69,14 @@ public abstract class AbstractHttpCertSigner implements CertSigner {
     private CloseableHttpClient httpClient;
     private final PoolingHttpClientConnectionManager connManager;
     private final SslContextFactory sslContextFactory;
+    private ThreadPoolExecutor requestExecutorService;
+    private ScheduledExecutorService hedgeScheduler;
+    HedgedRequestExecutor requestExecutor;
     
     String x509CertUri;
     int requestRetryCount;
     int maxCertExpiryTimeMins;
+    long requestDeadlineMs;
 
     public AbstractHttpCertSigner() {
 
@@ -103,6 +115,32 @@ public abstract class AbstractHttpCertSigner implements CertSigner {
         this.httpClient = createHttpClient(connectionTimeoutSec, readTimeoutSec,
                 sslContextFactory.getSslContext(), this.connManager);
 
+        // our http client is blocking so with hedged requests or retries
+        // with backoff the attempts are processed by a dedicated pool that
+        // matches our connection pool size so requests do not wait for a
+        // connection. the threads are only created when needed and released
+        // once idle. otherwise the attempts run on the caller's thread
+
+        long hedgeDelay = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DELAY, "0"));
+        long retryBackoff = Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_RETRY_BACKOFF, "100"));
+        if (hedgeDelay > 0 || retryBackoff > 0) {
+            hedgeScheduler = Executors.newScheduledThreadPool(1);
+            requestExecutorService = new ThreadPoolExecutor(DEFAULT_MAX_POOL_TOTAL, DEFAULT_MAX_POOL_TOTAL,
+                    60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            requestExecutorService.allowCoreThreadTimeOut(true);
+        }
+
+        requestExecutor = new HedgedRequestExecutor(hedgeScheduler, requestRetryCount, hedgeDelay, retryBackoff,
+                Integer.parseInt(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_FAILURES, "0")),
+                Long.parseLong(System.getProperty(ZTSConsts.ZTS_PROP_CERTSIGN_CIRCUIT_OPEN_TIME, "30000")));
+
+        // each attempt is limited by our connect and read timeouts
+        // and we also wait for the backoff between the attempts
+
+        requestDeadlineMs = TimeUnit.MILLISECONDS.convert(
+                (long) requestRetryCount * (connectionTimeoutSec + readTimeoutSec), TimeUnit.SECONDS) +
+                requestExecutor.getMaxRetryBackoffMs();
+
         LOGGER.info("HttpCertSigner initialized with url: {} connectionTimeoutSec: {}, readTimeoutSec: {}",
                 x509CertUri, connectionTimeoutSec, readTimeoutSec);
         LOGGER.info("HttpCertSigner connection pool stats {} ", this.connManager.getTotalStats().toString());
@@ -175,6 +213,12 @@ public abstract class AbstractHttpCertSigner implements CertSigner {
 
     @Override
     public void close() {
+        if (requestExecutorService != null) {
+            requestExecutorService.shutdownNow();
+        }
+        if (hedgeScheduler != null) {
+            hedgeScheduler.shutdownNow();
+        }
         try {
             this.sslContextFactory.stop();
             this.httpClient.close();
@@ -205,8 +249,7 @@ public abstract class AbstractHttpCertSigner implements CertSigner {
         return pkeyFactory.create();
     }
 
-    @Override
-    public String generateX509Certificate(String csr, String keyUsage, int expireMins) {
+    StringEntity getX509CertSigningRequestEntity(String csr, String keyUsage, int expireMins) {
 
         StringEntity entity;
         try {
@@ -216,26 +259,66 @@ public abstract class AbstractHttpCertSigner implements CertSigner {
             LOGGER.error("unable to generate csr", t);
             return null;
         }
+        return entity;
+    }
+
+    HttpPost createX509CertRequest(StringEntity entity) {
 
         HttpPost httpPost = new HttpPost(x509CertUri);
         httpPost.setHeader("Accept", CONTENT_JSON);
         httpPost.setHeader("Content-Type", CONTENT_JSON);
         httpPost.setEntity(entity);
-        
-        // Retry configured number of times before returning failure
-
-        for (int i = 0; i < requestRetryCount; i++) {
-            try {
-                return processHttpResponse(httpPost, 201);
-            } catch (IOException e) {
-                LOGGER.error("Unable to process x509 certificate request to url {}, retrying {}/{}, {}",
-                        x509CertUri, i + 1, requestRetryCount, e);
-            }
+        return httpPost;
+    }
+
+    @Override
+    public String generateX509Certificate(String csr, String keyUsage, int expireMins) {
+
+        // the request is processed through our hedged executor which
+        // retries failed attempts up to the configured number of times
+        // and we only wait for the result up to our request deadline
+
+        return requestExecutor.join(generateX509CertificateAsync(csr, keyUsage, expireMins),
+                requestDeadlineMs);
+    }
+
+    @Override
+    public CompletableFuture<String> generateX509CertificateAsync(String csr, String keyUsage, int expireMins) {
+
+        StringEntity entity = getX509CertSigningRequestEntity(csr, keyUsage, expireMins);
+        if (entity == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // each attempt gets its own request object since hedged
+        // attempts might be processed at the same time
+
+        return requestExecutor.execute(() -> sendX509CertRequest(createX509CertRequest(entity)));
+    }
+
+    CompletableFuture<String> sendX509CertRequest(HttpPost httpPost) {
+
+        if (requestExecutorService != null) {
+            return CompletableFuture.supplyAsync(() -> processX509CertRequest(httpPost), requestExecutorService);
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            future.complete(processX509CertRequest(httpPost));
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    String processX509CertRequest(HttpPost httpPost) {
+        try {
+            return processHttpResponse(httpPost, 201);
+        } catch (IOException ex) {
+            LOGGER.error("Unable to process x509 certificate request to url {}, {}", x509CertUri, ex);
+            throw new UncheckedIOException(ex);
         }
-        
-        return null;
     }
-    
 
     /**
      * Process http response from crypki server
@@ -244,6 +327,8 @@ public abstract class AbstractHttpCertSigner implements CertSigner {
      * @return x509 Certificate or Null if expectedStatusCode doesn't match or empty response from the server.
      * @throws ClientProtocolException
      * @throws IOException
+     * @throws HedgedRequestExecutor.NonRetryableRequestException if the server rejected the request
+     *      with a client error status code
      */
     String processHttpResponse(HttpUriRequest request, int expectedStatusCode) throws ClientProtocolException, IOException {
 
@@ -262,6 +347,13 @@ public abstract class AbstractHttpCertSigner implements CertSigner {
             if (response.getEntity().getContent() != null) {
                 response.getEntity().getContent().close();
             }
+            // client errors indicate that the server has rejected our
+            // request so there is no point in retrying it. the only
+            // exceptions are request timeouts and rate limiting
+            if (isNonRetryableStatus(statusCode)) {
+                throw new HedgedRequestExecutor.NonRetryableRequestException(
+                        "Request rejected by cert signer with status: " + statusCode);
+            }
             return null;
         }
         // check for content
@@ -274,13 +366,18 @@ public abstract class AbstractHttpCertSigner implements CertSigner {
         }
     }
     
+    static boolean isNonRetryableStatus(int statusCode) {
+        return statusCode >= HttpStatus.SC_BAD_REQUEST && statusCode < HttpStatus.SC_INTERNAL_SERVER_ERROR
+                && statusCode != HttpStatus.SC_REQUEST_TIMEOUT && statusCode != 429;
+    }
+
     @Override
     public String getCACertificate() {
         HttpGet httpGet = new HttpGet(x509CertUri);
         String data = null;
         try {
             data = processHttpResponse(httpGet, 200);
-        } catch (IOException e) {
+        } catch (IOException | HedgedRequestExecutor.NonRetryableRequestException e) {
             LOGGER.error("Unable to process x509 CA certificate request", e);
         }
         if (LOGGER.isDebugEnabled()) {
@@ -18,6 +18,7 @@ package com.yahoo.athenz.zts.store;
 import java.util.List;
 import java.util.Set;
 
+import com.yahoo.athenz.zms.DomainModifiedList;
 import com.yahoo.athenz.zms.SignedDomain;
 import com.yahoo.athenz.zms.SignedDomains;
 
@@ -99,4 +100,28 @@ public interface ChangeLogStore {
      * @return true if store supports full refresh, false otherwise
      */
     boolean supportsFullRefresh();
+
+    /**
+     * The change log store supports receiving domain change
+     * notifications from ZMS Server
+     * @return true if store supports change notifications, false otherwise
+     */
+    default boolean supportsDomainChangeNotifications() {
+        return false;
+    }
+
+    /**
+     * Wait for domain change notifications from the server. The call
+     * returns once the server reports any domains modified since the
+     * given change tag or the given timeout expires.
+     * @param changeTagBuffer StringBuilder object that includes the change
+     * tag returned from the previous call. It will be updated to include
+     * the change tag that must be used for the next call
+     * @param timeout max number of seconds the server should wait for changes
+     * @return list of modified domains, empty list if there were no changes
+     * within the timeout period or null in case of failure
+     */
+    default DomainModifiedList getServerDomainChanges(StringBuilder changeTagBuffer, int timeout) {
+        return null;
+    }
 }
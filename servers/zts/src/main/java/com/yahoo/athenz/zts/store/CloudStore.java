@@ -18,14 +18,18 @@ package com.yahoo.athenz.zts.store;
 import java.util.HashMap;
 import java.util.Map;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.amazonaws.AmazonServiceException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.slf4j.Logger;
@@ -41,6 +45,8 @@ import com.amazonaws.services.securitytoken.AWSSecurityTokenService;
 import com.amazonaws.services.securitytoken.model.AssumeRoleRequest;
 import com.amazonaws.services.securitytoken.model.AssumeRoleResult;
 import com.amazonaws.services.securitytoken.model.Credentials;
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.common.metrics.impl.NoOpMetric;
 import com.yahoo.athenz.zts.AWSTemporaryCredentials;
 import com.yahoo.athenz.zts.ResourceException;
 import com.yahoo.athenz.zts.ZTSConsts;
@@ -54,16 +60,25 @@ public class CloudStore {
     private static final Logger LOGGER = LoggerFactory.getLogger(CloudStore.class);
     private static final String AWS_ROLE_SESSION_NAME = "athenz-zts-service";
 
+    // approximate number of bytes used by a cache entry in addition
+    // to its key and credential strings
+
+    private static final int CACHE_ENTRY_OVERHEAD = 256;
+
     String awsRole = null;
     String awsRegion;
     boolean awsEnabled;
     int cacheTimeout;
     int invalidCacheTimeout;
+    int credsRefreshInterval;
+    int credsRefreshMinHits;
     BasicSessionCredentials credentials;
     private Map<String, String> cloudAccountCache;
-    ConcurrentHashMap<String, AWSTemporaryCredentials> awsCredsCache;
+    Cache<String, CachedCredentials> awsCredsCache;
     ConcurrentHashMap<String, Long> awsInvalidCredsCache;
+    ConcurrentHashMap<String, CompletableFuture<AWSTemporaryCredentials>> awsCredsRequests;
     private HttpClient httpClient;
+    private Metric metric = new NoOpMetric();
 
     private ScheduledExecutorService scheduledThreadPool = null;
 
@@ -72,8 +87,8 @@ public class CloudStore {
         // initialize our account and cred cache
 
         cloudAccountCache = new HashMap<>();
-        awsCredsCache = new ConcurrentHashMap<>();
         awsInvalidCredsCache = new ConcurrentHashMap<>();
+        awsCredsRequests = new ConcurrentHashMap<>();
 
         // Instantiate and start our HttpClient
 
@@ -92,6 +107,22 @@ public class CloudStore {
         invalidCacheTimeout = Integer.parseInt(
                 System.getProperty(ZTSConsts.ZTS_PROP_AWS_CREDS_INVALID_CACHE_TIMEOUT, "120"));
 
+        // the credentials cache is bounded by the approximate number
+        // of bytes used by the cached entries
+
+        final long cacheMaxSize = Long.parseLong(
+                System.getProperty(ZTSConsts.ZTS_PROP_AWS_CREDS_CACHE_MAX_SIZE, "67108864"));
+        awsCredsCache = CacheBuilder.newBuilder().maximumWeight(cacheMaxSize)
+                .weigher((String key, CachedCredentials value) -> value.getWeight(key)).build();
+
+        // if configured, popular credentials are refreshed in the
+        // background before they're no longer served from the cache
+
+        credsRefreshInterval = Integer.parseInt(
+                System.getProperty(ZTSConsts.ZTS_PROP_AWS_CREDS_REFRESH_INTERVAL, "0"));
+        credsRefreshMinHits = Integer.parseInt(
+                System.getProperty(ZTSConsts.ZTS_PROP_AWS_CREDS_REFRESH_MIN_HITS, "5"));
+
         // initialize aws support
 
         awsEnabled = Boolean.parseBoolean(
@@ -138,6 +169,10 @@ public class CloudStore {
         return awsEnabled;
     }
 
+    public void setMetric(Metric metric) {
+        this.metric = metric;
+    }
+
     void initializeAwsSupport() {
 
         // these operations require initialization of aws objects so
@@ -169,6 +204,11 @@ public class CloudStore {
         scheduledThreadPool = Executors.newScheduledThreadPool(1);
         scheduledThreadPool.scheduleAtFixedRate(new AWSCredentialsUpdater(), credsUpdateTime,
                 credsUpdateTime, TimeUnit.SECONDS);
+
+        if (cacheTimeout > 0 && credsRefreshInterval > 0) {
+            scheduledThreadPool.scheduleAtFixedRate(this::refreshCachedCredentials, credsRefreshInterval,
+                    credsRefreshInterval, TimeUnit.SECONDS);
+        }
     }
 
     public AmazonS3 getS3Client() {
@@ -435,7 +475,8 @@ public class CloudStore {
         // entries that have been expired already
 
         long now = System.currentTimeMillis();
-        return awsCredsCache.entrySet().removeIf(entry -> entry.getValue().getExpiration().millis() < now);
+        return awsCredsCache.asMap().entrySet().removeIf(
+                entry -> entry.getValue().tempCreds.getExpiration().millis() < now);
     }
 
     boolean removeExpiredInvalidCredentials() {
@@ -489,25 +530,26 @@ public class CloudStore {
             return null;
         }
 
-        AWSTemporaryCredentials tempCreds = awsCredsCache.get(cacheKey);
-        if (tempCreds == null) {
+        CachedCredentials cachedCreds = awsCredsCache.getIfPresent(cacheKey);
+        if (cachedCreds == null) {
             return null;
         }
 
         // we're going to cache any creds for 10 mins only
 
-        long diffSeconds = (tempCreds.getExpiration().millis() - System.currentTimeMillis()) / 1000;
-        if (durationSeconds == null || durationSeconds <= 0) {
-            durationSeconds = 3600; // default 1 hour
-        }
-        if (durationSeconds - diffSeconds > cacheTimeout) {
+        if (cachedCreds.getCacheAge(durationSeconds) > cacheTimeout) {
             return null;
         }
 
-        return tempCreds;
+        cachedCreds.hits.incrementAndGet();
+        return cachedCreds.tempCreds;
     }
 
     void putCacheCreds(final String key, AWSTemporaryCredentials tempCreds) {
+        putCacheCreds(key, tempCreds, null);
+    }
+
+    void putCacheCreds(final String key, AWSTemporaryCredentials tempCreds, AWSRoleRequest roleRequest) {
 
         // if our cache is disabled we do nothing
 
@@ -515,7 +557,34 @@ public class CloudStore {
             return;
         }
 
-        awsCredsCache.put(key, tempCreds);
+        awsCredsCache.put(key, new CachedCredentials(tempCreds, roleRequest));
+    }
+
+    void refreshCachedCredentials() {
+
+        // we refresh the credentials that have been requested at least
+        // the configured number of times since they were fetched and
+        // would no longer be served from the cache before our next run
+
+        for (Map.Entry<String, CachedCredentials> entry : awsCredsCache.asMap().entrySet()) {
+
+            final CachedCredentials cachedCreds = entry.getValue();
+            final AWSRoleRequest roleRequest = cachedCreds.roleRequest;
+            if (roleRequest == null || cachedCreds.hits.get() < credsRefreshMinHits) {
+                continue;
+            }
+            if (cachedCreds.getCacheAge(roleRequest.durationSeconds) + credsRefreshInterval <= cacheTimeout) {
+                continue;
+            }
+
+            try {
+                metric.increment("aws_creds_refresh");
+                fetchAWSRoleCredentials(entry.getKey(), roleRequest);
+            } catch (Exception ex) {
+                LOGGER.error("CloudStore: unable to refresh credentials for {}: {}",
+                        entry.getKey(), ex.getMessage());
+            }
+        }
     }
 
     public AWSTemporaryCredentials assumeAWSRole(String account, String roleName, String principal,
@@ -532,8 +601,10 @@ public class CloudStore {
                 durationSeconds, externalId);
         AWSTemporaryCredentials tempCreds = getCachedCreds(cacheKey, durationSeconds);
         if (tempCreds != null) {
+            metric.increment("aws_creds_cache_hit");
             return tempCreds;
         }
+        metric.increment("aws_creds_cache_miss");
 
         // before going to AWS STS, check if we have the request in our failed
         // cache since we don't want to generate too many requests AWS STS
@@ -545,9 +616,46 @@ public class CloudStore {
             return null;
         }
 
-        AssumeRoleRequest req = getAssumeRoleRequest(account, roleName, principal,
-                durationSeconds, externalId);
+        return fetchAWSRoleCredentials(cacheKey, new AWSRoleRequest(account, roleName, principal,
+                durationSeconds, externalId));
+    }
+
+    AWSTemporaryCredentials fetchAWSRoleCredentials(final String cacheKey, AWSRoleRequest roleRequest) {
+
+        // if our cache is disabled we don't have a key to
+        // coalesce identical requests
 
+        if (cacheKey == null) {
+            return assumeAWSRoleRequest(null, roleRequest);
+        }
+
+        // only a single request for the same key is sent to AWS STS
+        // and all other concurrent requests wait for its result
+
+        CompletableFuture<AWSTemporaryCredentials> request = new CompletableFuture<>();
+        CompletableFuture<AWSTemporaryCredentials> pendingRequest = awsCredsRequests.putIfAbsent(cacheKey, request);
+        if (pendingRequest != null) {
+            metric.increment("aws_creds_coalesced");
+            return pendingRequest.join();
+        }
+
+        AWSTemporaryCredentials tempCreds = null;
+        try {
+            tempCreds = assumeAWSRoleRequest(cacheKey, roleRequest);
+        } finally {
+            awsCredsRequests.remove(cacheKey, request);
+            request.complete(tempCreds);
+        }
+        return tempCreds;
+    }
+
+    AWSTemporaryCredentials assumeAWSRoleRequest(final String cacheKey, AWSRoleRequest roleRequest) {
+
+        AssumeRoleRequest req = getAssumeRoleRequest(roleRequest.account, roleRequest.roleName,
+                roleRequest.principal, roleRequest.durationSeconds, roleRequest.externalId);
+
+        AWSTemporaryCredentials tempCreds;
+        Object timerMetric = metric.startTiming("aws_assume_role_timing", null);
         try {
             AWSSecurityTokenService client = getTokenServiceClient();
             AssumeRoleResult res = client.assumeRole(req);
@@ -579,9 +687,12 @@ public class CloudStore {
                     req.getRoleArn(), ex.getMessage());
 
             return null;
+
+        } finally {
+            metric.stopTiming(timerMetric);
         }
 
-        putCacheCreds(cacheKey, tempCreds);
+        putCacheCreds(cacheKey, tempCreds, roleRequest);
         return tempCreds;
     }
 
@@ -635,6 +746,57 @@ public class CloudStore {
         }
     }
 
+    static class AWSRoleRequest {
+
+        final String account;
+        final String roleName;
+        final String principal;
+        final Integer durationSeconds;
+        final String externalId;
+
+        AWSRoleRequest(final String account, final String roleName, final String principal,
+                Integer durationSeconds, final String externalId) {
+            this.account = account;
+            this.roleName = roleName;
+            this.principal = principal;
+            this.durationSeconds = durationSeconds;
+            this.externalId = externalId;
+        }
+    }
+
+    static class CachedCredentials {
+
+        final AWSTemporaryCredentials tempCreds;
+        final AWSRoleRequest roleRequest;
+        final AtomicInteger hits = new AtomicInteger();
+
+        CachedCredentials(AWSTemporaryCredentials tempCreds, AWSRoleRequest roleRequest) {
+            this.tempCreds = tempCreds;
+            this.roleRequest = roleRequest;
+        }
+
+        /**
+         * Return the number of seconds since the credentials were issued
+         * based on their expiry and requested duration
+         */
+        long getCacheAge(Integer durationSeconds) {
+            long diffSeconds = (tempCreds.getExpiration().millis() - System.currentTimeMillis()) / 1000;
+            if (durationSeconds == null || durationSeconds <= 0) {
+                durationSeconds = 3600; // default 1 hour
+            }
+            return durationSeconds - diffSeconds;
+        }
+
+        int getWeight(final String key) {
+            return CACHE_ENTRY_OVERHEAD + key.length() + length(tempCreds.getAccessKeyId())
+                    + length(tempCreds.getSecretAccessKey()) + length(tempCreds.getSessionToken());
+        }
+
+        private static int length(final String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+
     String getSshKeyReqType(String sshKeyReq) {
 
         Struct keyReq = JSON.fromString(sshKeyReq, Struct.class);
@@ -25,6 +25,8 @@ import com.yahoo.athenz.common.config.AthenzConfig;
 import com.yahoo.athenz.common.server.util.StringUtils;
 import com.yahoo.athenz.common.utils.SignUtils;
 import com.yahoo.athenz.zms.DomainData;
+import com.yahoo.athenz.zms.DomainModified;
+import com.yahoo.athenz.zms.DomainModifiedList;
 import com.yahoo.athenz.zms.Role;
 import com.yahoo.athenz.zms.SignedDomain;
 import com.yahoo.athenz.zms.SignedDomains;
@@ -48,6 +50,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import javax.ws.rs.core.EntityTag;
+
 import org.bouncycastle.asn1.x9.ECNamedCurveTable;
 import org.bouncycastle.asn1.x9.X9ECParameters;
 import org.bouncycastle.jcajce.provider.asymmetric.util.EC5Util;
@@ -60,16 +64,22 @@ public class DataStore implements DataCacheProvider {
     private CloudStore cloudStore;
     private final Cache<String, DataCache> cacheStore;
     final Cache<String, PublicKey> zmsPublicKeyCache;
+    final Cache<String, PublicKey> ztsPublicKeyCache;
     final Map<String, List<String>> hostCache;
     final Map<String, String> publicKeyCache;
     final JWKList ztsJWKList;
     final JWKList ztsJWKListStrictRFC;
+    JWKListEntry ztsJWKListEntry;
+    JWKListEntry ztsJWKListStrictRFCEntry;
 
     long updDomainRefreshTime;
     long delDomainRefreshTime;
     long checkDomainRefreshTime;
     long lastDeleteRunTime;
     long lastCheckRunTime;
+    boolean domainChangeNotifications;
+    int domainChangeTimeout;
+    long domainChangeRetryTime;
 
     private static final String ROLE_POSTFIX = ":role.";
 
@@ -80,10 +90,18 @@ public class DataStore implements DataCacheProvider {
     private final ReentrantReadWriteLock pkeyRWLock = new ReentrantReadWriteLock();
     private final Lock pkeyRLock = pkeyRWLock.readLock();
     private final Lock pkeyWLock = pkeyRWLock.writeLock();
+
+    // lock used to make sure the domain change listener and the data
+    // updater threads do not overwrite each other's updates
+
+    private final Object domainUpdateLock = new Object();
     
     private static final String ZTS_PROP_DOMAIN_UPDATE_TIMEOUT = "athenz.zts.zms_domain_update_timeout";
     private static final String ZTS_PROP_DOMAIN_DELETE_TIMEOUT = "athenz.zts.zms_domain_delete_timeout";
     private static final String ZTS_PROP_DOMAIN_CHECK_TIMEOUT = "athenz.zts.zms_domain_check_timeout";
+    private static final String ZTS_PROP_DOMAIN_CHANGE_NOTIFY = "athenz.zts.zms_domain_change_notify";
+    private static final String ZTS_PROP_DOMAIN_CHANGE_TIMEOUT = "athenz.zts.zms_domain_change_timeout";
+    private static final String ZTS_PROP_DOMAIN_CHANGE_RETRY_TIME = "athenz.zts.zms_domain_change_retry_time";
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DataStore.class);
     
@@ -98,6 +116,7 @@ public class DataStore implements DataCacheProvider {
 
         cacheStore = CacheBuilder.newBuilder().concurrencyLevel(25).build();
         zmsPublicKeyCache = CacheBuilder.newBuilder().concurrencyLevel(25).build();
+        ztsPublicKeyCache = CacheBuilder.newBuilder().concurrencyLevel(25).build();
 
         ztsJWKList = new JWKList();
         ztsJWKListStrictRFC = new JWKList();
@@ -127,6 +146,14 @@ public class DataStore implements DataCacheProvider {
         lastDeleteRunTime = System.currentTimeMillis();
         lastCheckRunTime = System.currentTimeMillis();
 
+        /* check if we're configured to receive domain change
+         * notifications from ZMS in addition to our polling */
+
+        domainChangeNotifications = Boolean.parseBoolean(
+                System.getProperty(ZTS_PROP_DOMAIN_CHANGE_NOTIFY, "false"));
+        domainChangeTimeout = ZTSUtils.retrieveConfigSetting(ZTS_PROP_DOMAIN_CHANGE_TIMEOUT, 20);
+        domainChangeRetryTime = ZTSUtils.retrieveConfigSetting(ZTS_PROP_DOMAIN_CHANGE_RETRY_TIME, 10);
+
         /* load the zms public key from configuration files */
         
         if (!loadAthenzPublicKeys()) {
@@ -142,6 +169,53 @@ public class DataStore implements DataCacheProvider {
         return rfc == Boolean.TRUE ? ztsJWKListStrictRFC : ztsJWKList;
     }
 
+    /**
+     * Return the ZTS public key with the given id from athenz.conf.
+     * These are the keys published in the server's JWK list.
+     * @param keyId public key identifier
+     * @return public key or null if not configured
+     */
+    public PublicKey getZtsPublicKey(final String keyId) {
+        return ztsPublicKeyCache.getIfPresent(keyId);
+    }
+
+    /**
+     * Return the serialized zts jwk list along with its ETag. The
+     * entry is generated once when the zts public keys are loaded
+     * so the jwk list can be returned without any processing.
+     * @param rfc flag to indicate ec curve names are restricted to RFC values
+     * @return serialized jwk list entry
+     */
+    public JWKListEntry getZtsJWKListEntry(Boolean rfc) {
+        return rfc == Boolean.TRUE ? ztsJWKListStrictRFCEntry : ztsJWKListEntry;
+    }
+
+    public static class JWKListEntry {
+
+        private final JWKList jwkList;
+        private final byte[] data;
+        private final String tag;
+
+        JWKListEntry(final JWKList jwkList) {
+            this.jwkList = jwkList;
+            this.data = JSON.bytes(jwkList);
+            this.tag = (data == null) ? null : new EntityTag(
+                    Crypto.ybase64(Crypto.sha256(data))).toString();
+        }
+
+        public JWKList getJWKList() {
+            return jwkList;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
     boolean loadAthenzPublicKeys() {
 
         final String rootDir = ZTSImpl.getRootDir();
@@ -186,6 +260,7 @@ public class DataStore implements DataCacheProvider {
                 final JWK jwk = getJWK(key, id, false);
                 if (jwk != null) {
                     jwkList.add(jwk);
+                    ztsPublicKeyCache.put(id, Crypto.loadPublicKey(Crypto.ybase64DecodeString(key)));
                 }
                 final JWK jwkRfc = getJWK(key, id, true);
                 if (jwkRfc != null) {
@@ -198,6 +273,12 @@ public class DataStore implements DataCacheProvider {
             }
             ztsJWKList.setKeys(jwkList);
             ztsJWKListStrictRFC.setKeys(jwkListStrictRFC);
+
+            // our key set only changes when the config is reloaded
+            // so we'll serialize our lists only once here
+
+            ztsJWKListEntry = new JWKListEntry(ztsJWKList);
+            ztsJWKListStrictRFCEntry = new JWKListEntry(ztsJWKListStrictRFC);
         } catch (IOException ex) {
             LOGGER.error("Unable to parse conf file {}, error: {}", confFileName, ex.getMessage());
             return false;
@@ -423,6 +504,15 @@ public class DataStore implements DataCacheProvider {
         ScheduledExecutorService scheduledThreadPool = Executors.newScheduledThreadPool(1);
         scheduledThreadPool.scheduleAtFixedRate(new DataUpdater(), updDomainRefreshTime,
                 updDomainRefreshTime, TimeUnit.SECONDS);
+
+        /* if configured and supported by our change log store, start
+         * our thread to receive domain change notifications from ZMS */
+
+        if (domainChangeNotifications && changeLogStore.supportsDomainChangeNotifications()) {
+            Thread listenerThread = new Thread(new DomainChangeListener(), "DomainChangeListener");
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+        }
     }
 
     boolean processLocalDomain(String domainName) {
@@ -713,6 +803,58 @@ public class DataStore implements DataCacheProvider {
         return result;
     }
     
+    /**
+     * Wait for domain change notifications from the ChangeLogStore (ZMS) and
+     * process the announced domains. Called by {@code DomainChangeListener.run()}
+     * thread. The periodic updates from {@code DataUpdater.run()} thread
+     * remain as a fallback in case any notifications are missed.
+     * @param changeTag change tag returned from the previous call. It is
+     *      updated to include the tag for the next call
+     * @return true if the notifications were processed, false otherwise
+     */
+    boolean processDomainChanges(StringBuilder changeTag) {
+
+        DomainModifiedList domainChanges = changeLogStore.getServerDomainChanges(changeTag,
+                domainChangeTimeout);
+        if (domainChanges == null) {
+            return false;
+        }
+
+        List<DomainModified> modList = domainChanges.getNameModList();
+        if (modList == null) {
+            return true;
+        }
+
+        for (DomainModified domainModified : modList) {
+            processDomainChange(domainModified.getName());
+        }
+
+        return true;
+    }
+
+    void processDomainChange(final String domainName) {
+
+        synchronized (domainUpdateLock) {
+
+            SignedDomain signedDomain = changeLogStore.getServerSignedDomain(domainName);
+            if (signedDomain == null) {
+                return;
+            }
+
+            /* it's possible that the data updater thread has already
+             * processed this change so we'll skip the domain if our
+             * local copy is not older than the one we just received */
+
+            DomainData localDomain = getDomainData(domainName);
+            if (localDomain != null && localDomain.getModified().millis()
+                    >= signedDomain.getDomain().getModified().millis()) {
+                return;
+            }
+
+            processDomain(signedDomain, true);
+        }
+    }
+
     /**
      * Poll for new domains and updated domains from the ChangeLogStore (ZMS). 
      * Called by {@code DataUpdater.run()} thread. Deletes are handled separately in {@code processDomainDeletes()}
@@ -720,6 +862,13 @@ public class DataStore implements DataCacheProvider {
      */
     public boolean processDomainUpdates() {
 
+        synchronized (domainUpdateLock) {
+            return processDomainUpdatesLocked();
+        }
+    }
+
+    boolean processDomainUpdatesLocked() {
+
         StringBuilder lastModTimestamp = new StringBuilder(128);
         SignedDomains signedDomains = changeLogStore.getUpdatedSignedDomains(lastModTimestamp);
         
@@ -1177,6 +1326,39 @@ public class DataStore implements DataCacheProvider {
         return publicKeyCache;
     }
 
+    class DomainChangeListener implements Runnable {
+
+        @Override
+        public void run() {
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("DomainChangeListener: Starting domain change listener thread...");
+            }
+
+            StringBuilder changeTag = new StringBuilder(128);
+            while (true) {
+
+                boolean result = false;
+                try {
+                    result = processDomainChanges(changeTag);
+                } catch (Throwable t) {
+                    LOGGER.error("DomainChangeListener: unable to process domain changes", t);
+                }
+
+                /* in case of failure we're going to wait before trying
+                 * again so we don't keep hammering our ZMS server */
+
+                if (!result) {
+                    try {
+                        TimeUnit.SECONDS.sleep(domainChangeRetryTime);
+                    } catch (InterruptedException ex) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
     class DataUpdater implements Runnable {
         
         @Override
@@ -21,6 +21,7 @@ import com.yahoo.athenz.auth.Authority;
 import com.yahoo.athenz.auth.Principal;
 import com.yahoo.athenz.auth.impl.SimplePrincipal;
 import com.yahoo.athenz.auth.token.PrincipalToken;
+import com.yahoo.athenz.zms.DomainModifiedList;
 import com.yahoo.athenz.zms.SignedDomain;
 import com.yahoo.athenz.zms.SignedDomains;
 import com.yahoo.athenz.zms.ZMSClient;
@@ -308,6 +309,48 @@ public class ZMSFileChangeLogStore implements ChangeLogStore {
         return signedDomains;
     }
 
+    @Override
+    public boolean supportsDomainChangeNotifications() {
+        return true;
+    }
+
+    @Override
+    public DomainModifiedList getServerDomainChanges(StringBuilder changeTagBuffer, int timeout) {
+
+        final String changeTag = changeTagBuffer.length() == 0 ? null : changeTagBuffer.toString();
+        Map<String, List<String>> responseHeaders = new HashMap<>();
+
+        DomainModifiedList domainChanges;
+        try (ZMSClient zmsClient = getZMSClient()) {
+            domainChanges = zmsClient.getDomainChanges(timeout, changeTag, responseHeaders);
+        } catch (ZMSClientException ex) {
+            LOGGER.error("Unable to retrieve domain changes from ZMS: {}", ex.getMessage());
+            return null;
+        }
+
+        // update our change tag for the next request
+
+        final String newChangeTag = retrieveTagHeader(responseHeaders);
+        if (newChangeTag == null) {
+            return null;
+        }
+        changeTagBuffer.setLength(0);
+        changeTagBuffer.append(newChangeTag);
+
+        // if there were no changes reported by the server we'll
+        // return an empty list back to the caller
+
+        if (domainChanges == null) {
+            domainChanges = new DomainModifiedList().setNameModList(new ArrayList<>());
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Number of ZMS domain changes: {}", domainChanges.getNameModList().size());
+        }
+
+        return domainChanges;
+    }
+
     public String retrieveLastModificationTime() {
         Struct lastModStruct = get(LAST_MOD_FNAME, Struct.class);
         if (lastModStruct == null) {
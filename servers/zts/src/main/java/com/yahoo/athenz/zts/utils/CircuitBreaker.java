@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.utils;
+
+/**
+ * Consecutive failure based circuit breaker. After the configured number
+ * of consecutive failed requests the circuit is opened and requests are
+ * rejected until the open time expires, at which point a single request
+ * is allowed through to probe the remote service. A successful request
+ * closes the circuit while a failed one keeps it open for another period.
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openTimeMs;
+
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+
+    /**
+     * Create a new circuit breaker
+     * @param failureThreshold number of consecutive failed requests that
+     *      opens the circuit. 0 disables the circuit breaker
+     * @param openTimeMs number of milliseconds the circuit stays open
+     */
+    public CircuitBreaker(int failureThreshold, long openTimeMs) {
+        this.failureThreshold = failureThreshold;
+        this.openTimeMs = openTimeMs;
+    }
+
+    /**
+     * Check if a new request is allowed
+     * @return true if the request can be sent, false if the circuit is open
+     */
+    public synchronized boolean allowRequest() {
+
+        if (failureThreshold <= 0 || consecutiveFailures < failureThreshold) {
+            return true;
+        }
+
+        // once the open time has expired we allow a single request
+        // through and keep the circuit open for everyone else until
+        // we know the outcome of that request
+
+        long now = System.currentTimeMillis();
+        if (now < openUntil) {
+            return false;
+        }
+        openUntil = now + openTimeMs;
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures += 1;
+        if (failureThreshold > 0 && consecutiveFailures >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openTimeMs;
+        }
+    }
+
+    public synchronized boolean isCircuitOpen() {
+        return failureThreshold > 0 && consecutiveFailures >= failureThreshold
+                && System.currentTimeMillis() < openUntil;
+    }
+}
@@ -58,6 +58,6 @@ public class IPBlock {
     }
     
     public static long convertMaskToLong(int value) {
-        return Math.round(Math.pow(2, 32) - Math.pow(2, (32 - value)));
+        return (0xFFFFFFFFL << (32 - value)) & 0xFFFFFFFFL;
     }
 }
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.utils;
+
+/**
+ * Set of IPv4 and IPv6 address blocks stored in compressed binary radix
+ * trees (one per address family) so that checking an address takes at
+ * most one node per distinct prefix bit instead of comparing the address
+ * against every configured block. Since we only need to know if an address
+ * is included in any block, prefixes that are covered by a shorter prefix
+ * are not stored at all. Address strings are parsed without any object
+ * allocation. The trie must be fully populated before it's shared with
+ * other threads; once published it is only read.
+ */
+public class IPBlockTrie {
+
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+
+    private Node ipv4Root = null;
+    private Node ipv6Root = null;
+    private int size = 0;
+
+    /**
+     * Add the given block to the trie
+     * @param ipBlock block in subnet/mask format e.g. 192.1.0.0/20 or 2600:1f14::/35
+     * @throws IllegalArgumentException if the block is not valid
+     */
+    public void add(final String ipBlock) {
+
+        int idx = ipBlock.indexOf('/');
+        if (idx == -1) {
+            throw new IllegalArgumentException("Invalid ipblock line - missing / separator");
+        }
+        final String subnet = ipBlock.substring(0, idx).trim();
+        final int mask = Integer.parseInt(ipBlock.substring(idx + 1).trim());
+
+        if (subnet.indexOf(':') == -1) {
+
+            // valid mask is 1..32
+
+            if (mask < 1 || mask > IPV4_BITS) {
+                throw new IllegalArgumentException("Invalid ipblock line - invalid mask: " + mask);
+            }
+            long addr = parseIPv4(subnet, 0, subnet.length());
+            if (addr == -1) {
+                throw new IllegalArgumentException("Invalid ipblock line - invalid address: " + subnet);
+            }
+            ipv4Root = insert(ipv4Root, addr << 32, 0, mask);
+
+        } else {
+
+            // valid mask is 1..128
+
+            if (mask < 1 || mask > IPV6_BITS) {
+                throw new IllegalArgumentException("Invalid ipblock line - invalid mask: " + mask);
+            }
+            if (!isValidIPv6(subnet)) {
+                throw new IllegalArgumentException("Invalid ipblock line - invalid address: " + subnet);
+            }
+            ipv6Root = insert(ipv6Root, parseIPv6(subnet, true), parseIPv6(subnet, false), mask);
+        }
+        size += 1;
+    }
+
+    /**
+     * @return true if no blocks have been added to the trie
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of blocks that have been added to the trie
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the given address is included in any of the blocks
+     * @param ipAddress IPv4 or IPv6 address
+     * @return true if the address is included in one of the blocks,
+     *      false otherwise or if the address is not valid
+     */
+    public boolean contains(final String ipAddress) {
+
+        if (ipAddress == null) {
+            return false;
+        }
+
+        if (ipAddress.indexOf(':') == -1) {
+            long addr = parseIPv4(ipAddress, 0, ipAddress.length());
+            return addr != -1 && lookup(ipv4Root, addr << 32, 0);
+        }
+
+        if (!isValidIPv6(ipAddress)) {
+            return false;
+        }
+
+        final long hi = parseIPv6(ipAddress, true);
+        final long lo = parseIPv6(ipAddress, false);
+
+        // IPv4-mapped addresses (::ffff:a.b.c.d) are also checked
+        // against our IPv4 blocks
+
+        if (hi == 0 && (lo >>> 32) == 0xFFFFL && lookup(ipv4Root, lo << 32, 0)) {
+            return true;
+        }
+        return lookup(ipv6Root, hi, lo);
+    }
+
+    static Node insert(Node node, long hi, long lo, int length) {
+
+        if (node == null) {
+            return new Node(hi, lo, length, true);
+        }
+
+        final int common = Math.min(commonPrefixLength(node.hi, node.lo, hi, lo),
+                Math.min(node.length, length));
+
+        if (common == node.length) {
+
+            // if this node is already a block then it covers the
+            // new one so there is nothing to do
+
+            if (node.terminal) {
+                return node;
+            }
+
+            // if the new block matches our node exactly then our
+            // node becomes a block and its children are no longer needed
+
+            if (length == node.length) {
+                node.terminal = true;
+                node.left = null;
+                node.right = null;
+                return node;
+            }
+
+            if (bit(hi, lo, node.length) == 0) {
+                node.left = insert(node.left, hi, lo, length);
+            } else {
+                node.right = insert(node.right, hi, lo, length);
+            }
+            return node;
+        }
+
+        // if the new block covers our node then it replaces the
+        // node along with all of its children
+
+        if (common == length) {
+            return new Node(hi, lo, length, true);
+        }
+
+        // otherwise we need a new branch node for the common prefix
+
+        Node branch = new Node(hi, lo, common, false);
+        Node leaf = new Node(hi, lo, length, true);
+        if (bit(hi, lo, common) == 0) {
+            branch.left = leaf;
+            branch.right = node;
+        } else {
+            branch.left = node;
+            branch.right = leaf;
+        }
+        return branch;
+    }
+
+    static boolean lookup(Node node, long hi, long lo) {
+
+        while (node != null) {
+            if (((node.hi ^ hi) & maskHi(node.length)) != 0 || ((node.lo ^ lo) & maskLo(node.length)) != 0) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+            node = (bit(hi, lo, node.length) == 0) ? node.left : node.right;
+        }
+        return false;
+    }
+
+    static int commonPrefixLength(long hi1, long lo1, long hi2, long lo2) {
+        long diff = hi1 ^ hi2;
+        if (diff != 0) {
+            return Long.numberOfLeadingZeros(diff);
+        }
+        diff = lo1 ^ lo2;
+        return (diff == 0) ? IPV6_BITS : 64 + Long.numberOfLeadingZeros(diff);
+    }
+
+    static int bit(long hi, long lo, int index) {
+        return (int) ((index < 64) ? (hi >>> (63 - index)) & 1 : (lo >>> (127 - index)) & 1);
+    }
+
+    static long maskHi(int length) {
+        if (length == 0) {
+            return 0;
+        }
+        return (length >= 64) ? -1L : -1L << (64 - length);
+    }
+
+    static long maskLo(int length) {
+        return (length <= 64) ? 0 : -1L << (128 - length);
+    }
+
+    /**
+     * Parse the IPv4 address in the given range of the string
+     * @param value string containing the address
+     * @param start start index of the address
+     * @param end end index (exclusive) of the address
+     * @return the address as an unsigned 32-bit value or -1 if not valid
+     */
+    static long parseIPv4(final String value, int start, int end) {
+
+        long addr = 0;
+        int octets = 0;
+        int idx = start;
+
+        while (idx < end) {
+
+            // each octet has 1 to 3 digits without any leading zeros
+
+            int octetStart = idx;
+            int octet = 0;
+            while (idx < end && idx - octetStart < 4) {
+                char c = value.charAt(idx);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                octet = octet * 10 + (c - '0');
+                idx += 1;
+            }
+            int digits = idx - octetStart;
+            if (digits == 0 || digits > 3 || octet > 255 || (digits > 1 && value.charAt(octetStart) == '0')) {
+                return -1;
+            }
+            addr = (addr << 8) | octet;
+            octets += 1;
+
+            if (idx == end) {
+                break;
+            }
+            if (value.charAt(idx) != '.' || octets == 4 || idx == end - 1) {
+                return -1;
+            }
+            idx += 1;
+        }
+        return (octets == 4) ? addr : -1;
+    }
+
+    static boolean isValidIPv6(final String value) {
+        return scanIPv6(value, 0) == 0;
+    }
+
+    /**
+     * Return the high or low 64 bits of the given IPv6 address
+     * that has already been validated with isValidIPv6
+     */
+    static long parseIPv6(final String value, boolean high) {
+        return scanIPv6(value, high ? 1 : 2);
+    }
+
+    /**
+     * Scan the IPv6 address in the string. Mode 0 validates the
+     * address and returns 0 if valid and -1 otherwise. Mode 1 and 2
+     * return the high and low 64 bits of the address respectively.
+     */
+    static long scanIPv6(final String value, int mode) {
+
+        final int end = value.length();
+        if (end < 2) {
+            return -1;
+        }
+
+        long hi = 0;
+        long lo = 0;
+        int group = 0;
+        int idx = 0;
+        boolean compressed = false;
+
+        // special handling for the address starting with ::
+
+        if (value.charAt(0) == ':') {
+            if (value.charAt(1) != ':') {
+                return -1;
+            }
+            compressed = true;
+            idx = 2;
+            group = 8 - countIPv6Groups(value, idx);
+            if (group < 1) {
+                return -1;
+            }
+        }
+
+        while (idx < end) {
+
+            int groupStart = idx;
+            int groupValue = 0;
+            int digit;
+            while (idx < end && (digit = hexDigit(value.charAt(idx))) != -1) {
+                groupValue = (groupValue << 4) | digit;
+                idx += 1;
+                if (idx - groupStart > 4) {
+                    break;
+                }
+            }
+
+            // the last two groups can be specified as an IPv4 address
+
+            if (idx < end && value.charAt(idx) == '.') {
+                if (group != 6) {
+                    return -1;
+                }
+                long addr = parseIPv4(value, groupStart, end);
+                if (addr == -1) {
+                    return -1;
+                }
+                lo |= addr;
+                group = 8;
+                break;
+            }
+
+            if (idx == groupStart || idx - groupStart > 4 || group > 7) {
+                return -1;
+            }
+            if (group < 4) {
+                hi |= (long) groupValue << ((3 - group) * 16);
+            } else {
+                lo |= (long) groupValue << ((7 - group) * 16);
+            }
+            group += 1;
+
+            if (idx == end) {
+                break;
+            }
+            if (value.charAt(idx) != ':' || ++idx == end) {
+                return -1;
+            }
+
+            // check if we have the zero compression marker in
+            // which case the remaining groups are right aligned
+
+            if (value.charAt(idx) == ':') {
+                if (compressed) {
+                    return -1;
+                }
+                compressed = true;
+                idx += 1;
+                int remaining = countIPv6Groups(value, idx);
+                if (group + remaining > 7) {
+                    return -1;
+                }
+                group = 8 - remaining;
+            }
+        }
+
+        if (group != 8) {
+            return -1;
+        }
+
+        switch (mode) {
+            case 1:
+                return hi;
+            case 2:
+                return lo;
+            default:
+                return 0;
+        }
+    }
+
+    static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    static int countIPv6Groups(final String value, int start) {
+
+        final int end = value.length();
+        if (start == end) {
+            return 0;
+        }
+        int groups = 1;
+        for (int idx = start; idx < end; idx++) {
+            char c = value.charAt(idx);
+            if (c == ':') {
+                groups += 1;
+            } else if (c == '.') {
+
+                // IPv4 address is two groups and must be
+                // the last component so we're done
+
+                return groups + 1;
+            }
+        }
+        return groups;
+    }
+
+    static class Node {
+
+        final long hi;
+        final long lo;
+        final int length;
+        boolean terminal;
+        Node left;
+        Node right;
+
+        Node(long hi, long lo, int length, boolean terminal) {
+            this.hi = hi & maskHi(length);
+            this.lo = lo & maskLo(length);
+            this.length = length;
+            this.terminal = terminal;
+        }
+    }
+}
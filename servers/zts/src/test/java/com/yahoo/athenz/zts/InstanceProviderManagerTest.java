@@ -23,6 +23,7 @@ import java.security.PrivateKey;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.testng.Assert.fail;
 import static org.testng.Assert.assertNotNull;
@@ -31,6 +32,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.assertFalse;
 
+import org.mockito.Mockito;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
@@ -193,7 +195,114 @@ public class InstanceProviderManagerTest {
         assertNotNull(client);
         client.close();
     }
+
+    @Test
+    public void testGetHttpsProviderShared() throws NoSuchAlgorithmException {
+
+        SignedDomain signedDomain = createSignedDomainHttpsEndpoint("coretech", "weather", true, true);
+        store.processDomain(signedDomain, false);
+
+        InstanceProviderManager provider = new InstanceProviderManager(store, SSLContext.getDefault(), null);
+        InstanceProvider client1 = provider.getProvider("coretech.weather");
+        assertTrue(client1 instanceof ManagedInstanceProvider);
+        client1.close();
+
+        // the same provider object is returned for all requests
+
+        InstanceProvider client2 = provider.getProvider("coretech.weather");
+        assertTrue(client1 == client2);
+        assertEquals(((ManagedInstanceProvider) client2).getProviderEndpoint(),
+                "https://provider.athenz.com:4443");
+    }
+
+    @Test
+    public void testGetHttpProviderEndpointUpdate() throws NoSuchAlgorithmException {
+
+        InstanceProviderManager provider = new InstanceProviderManager(null, SSLContext.getDefault(), null);
+        ManagedInstanceProvider client1 = provider.getHttpProvider("coretech.weather",
+                "https://provider.athenz.com:4443");
+        assertTrue(client1 == provider.getHttpProvider("coretech.weather", "https://provider.athenz.com:4443"));
+
+        ManagedInstanceProvider client2 = provider.getHttpProvider("coretech.weather",
+                "https://provider2.athenz.com:4443");
+        assertTrue(client1 != client2);
+        assertEquals(client2.getProviderEndpoint(), "https://provider2.athenz.com:4443");
+        assertTrue(client2 == provider.getHttpProvider("coretech.weather", "https://provider2.athenz.com:4443"));
+
+        // different providers have their own objects
+
+        ManagedInstanceProvider client3 = provider.getHttpProvider("coretech.weather2",
+                "https://provider2.athenz.com:4443");
+        assertTrue(client2 != client3);
+    }
     
+    @Test
+    public void testGetHttpProviderConcurrentCreate() throws NoSuchAlgorithmException {
+
+        InstanceProviderManager provider = Mockito.spy(new InstanceProviderManager(null,
+                SSLContext.getDefault(), null));
+
+        ManagedInstanceProvider client1 = Mockito.mock(ManagedInstanceProvider.class);
+        Mockito.when(client1.getProviderEndpoint()).thenReturn("https://provider.athenz.com:4443");
+        ManagedInstanceProvider client2 = Mockito.mock(ManagedInstanceProvider.class);
+        Mockito.when(client2.getProviderEndpoint()).thenReturn("https://provider.athenz.com:4443");
+
+        // another request creates the provider while ours is being set up
+
+        AtomicBoolean firstRequest = new AtomicBoolean(true);
+        Mockito.doAnswer(invocation -> {
+            if (firstRequest.getAndSet(false)) {
+                assertTrue(client2 == provider.getHttpProvider("coretech.weather",
+                        "https://provider.athenz.com:4443"));
+                return client1;
+            }
+            return client2;
+        }).when(provider).createHttpProvider("coretech.weather", "https://provider.athenz.com:4443");
+
+        // we use the provider that was created first and discard ours
+
+        assertTrue(client2 == provider.getHttpProvider("coretech.weather", "https://provider.athenz.com:4443"));
+        Mockito.verify(client1, Mockito.times(1)).closeProvider();
+        Mockito.verify(client2, Mockito.times(0)).closeProvider();
+        provider.close();
+    }
+
+    @Test
+    public void testClose() throws NoSuchAlgorithmException {
+
+        SignedDomain signedDomain = createSignedDomainClassEndpoint("coretech", "weather", true, true);
+        store.processDomain(signedDomain, false);
+
+        InstanceProviderManager provider = Mockito.spy(new InstanceProviderManager(store,
+                SSLContext.getDefault(), null));
+
+        ManagedInstanceProvider client1 = Mockito.mock(ManagedInstanceProvider.class);
+        Mockito.when(client1.getProviderEndpoint()).thenReturn("https://provider.athenz.com:4443");
+        ManagedInstanceProvider client2 = Mockito.mock(ManagedInstanceProvider.class);
+        Mockito.when(client2.getProviderEndpoint()).thenReturn("https://provider2.athenz.com:4443");
+        Mockito.doReturn(client1).when(provider).createHttpProvider("coretech.weather2",
+                "https://provider.athenz.com:4443");
+        Mockito.doReturn(client2).when(provider).createHttpProvider("coretech.weather2",
+                "https://provider2.athenz.com:4443");
+
+        assertTrue(client1 == provider.getHttpProvider("coretech.weather2", "https://provider.athenz.com:4443"));
+        assertTrue(client2 == provider.getHttpProvider("coretech.weather2", "https://provider2.athenz.com:4443"));
+        InstanceProvider classClient = provider.getProvider("coretech.weather");
+        assertNotNull(classClient);
+
+        // the replaced provider is only closed after a delay
+
+        Mockito.verify(client1, Mockito.times(0)).closeProvider();
+
+        // closing the manager closes both the replaced and the current
+        // providers and clears the cached class providers
+
+        provider.close();
+        Mockito.verify(client1, Mockito.times(1)).closeProvider();
+        Mockito.verify(client2, Mockito.times(1)).closeProvider();
+        assertTrue(classClient != provider.getProvider("coretech.weather"));
+    }
+
     @Test
     public void testGetHttpsProviderUnknownProvider() throws NoSuchAlgorithmException {
 
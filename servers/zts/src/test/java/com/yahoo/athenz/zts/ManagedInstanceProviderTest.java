@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.instance.provider.InstanceConfirmation;
+import com.yahoo.athenz.instance.provider.InstanceProvider;
+import com.yahoo.athenz.instance.provider.ResourceException;
+import com.yahoo.athenz.zts.utils.CircuitBreaker;
+
+import static org.testng.Assert.*;
+
+public class ManagedInstanceProviderTest {
+
+    private ExecutorService executor;
+    private ScheduledExecutorService scheduler;
+
+    @BeforeClass
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        scheduler = Executors.newScheduledThreadPool(1);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    private ManagedInstanceProvider createProvider(InstanceProvider provider, CircuitBreaker circuitBreaker,
+            long timeoutMs, Metric metric) {
+        return new ManagedInstanceProvider("athenz.provider", "https://provider.athenz.cloud/instance",
+                provider, executor, scheduler, circuitBreaker, timeoutMs, metric);
+    }
+
+    @Test
+    public void testConfirmInstance() {
+
+        InstanceProvider provider = Mockito.mock(InstanceProvider.class);
+        InstanceConfirmation confirmation = new InstanceConfirmation().setProvider("athenz.provider");
+        Mockito.when(provider.confirmInstance(confirmation)).thenReturn(confirmation);
+        Mockito.when(provider.refreshInstance(confirmation)).thenReturn(confirmation);
+        Mockito.when(provider.getProviderScheme()).thenReturn(InstanceProvider.Scheme.HTTP);
+
+        Metric metric = Mockito.mock(Metric.class);
+        for (long timeout : new long[] { 0, 1000 }) {
+            ManagedInstanceProvider managedProvider = createProvider(provider,
+                    new CircuitBreaker(1, 60000), timeout, metric);
+            assertEquals(managedProvider.getProviderEndpoint(), "https://provider.athenz.cloud/instance");
+            assertEquals(managedProvider.getProviderScheme(), InstanceProvider.Scheme.HTTP);
+            assertEquals(managedProvider.confirmInstance(confirmation), confirmation);
+            assertEquals(managedProvider.refreshInstance(confirmation), confirmation);
+        }
+
+        // the shared provider is only closed with closeProvider
+
+        ManagedInstanceProvider managedProvider = createProvider(provider,
+                new CircuitBreaker(1, 60000), 0, metric);
+        managedProvider.close();
+        Mockito.verify(provider, Mockito.times(0)).close();
+        managedProvider.closeProvider();
+        Mockito.verify(provider, Mockito.times(1)).close();
+        Mockito.verifyZeroInteractions(metric);
+    }
+
+    @Test
+    public void testConfirmInstanceTimeout() throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        InstanceProvider provider = Mockito.mock(InstanceProvider.class);
+        Mockito.when(provider.confirmInstance(Mockito.any())).thenAnswer(invocation -> {
+            latch.await(10, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+
+        Metric metric = Mockito.mock(Metric.class);
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 60000);
+        ManagedInstanceProvider managedProvider = createProvider(provider, circuitBreaker, 100, metric);
+
+        try {
+            managedProvider.confirmInstance(new InstanceConfirmation());
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.GATEWAY_TIMEOUT);
+            assertTrue(ex.getMessage().contains("timeout"));
+        }
+        latch.countDown();
+        Mockito.verify(metric, Mockito.timeout(1000).times(1))
+                .increment("provider_confirm_timeout", "athenz.provider");
+
+        // with our circuit open the provider is no longer contacted
+
+        assertTrue(circuitBreaker.isCircuitOpen());
+        try {
+            managedProvider.confirmInstance(new InstanceConfirmation());
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.SERVICE_UNAVAILABLE);
+        }
+        Mockito.verify(provider, Mockito.times(1)).confirmInstance(Mockito.any());
+        Mockito.verify(metric, Mockito.times(1)).increment("provider_circuit_open", "athenz.provider");
+    }
+
+    @Test
+    public void testConfirmInstanceFailures() {
+
+        InstanceProvider provider = Mockito.mock(InstanceProvider.class);
+        Mockito.when(provider.confirmInstance(Mockito.any()))
+                .thenThrow(new ResourceException(ResourceException.FORBIDDEN, "Invalid instance"));
+        Mockito.when(provider.refreshInstance(Mockito.any()))
+                .thenThrow(new ResourceException(ResourceException.FORBIDDEN, "Refresh Confirmation Exception",
+                        new IllegalStateException("connection refused")));
+
+        for (long timeout : new long[] { 0, 1000 }) {
+            CircuitBreaker circuitBreaker = new CircuitBreaker(1, 60000);
+            ManagedInstanceProvider managedProvider = createProvider(provider, circuitBreaker,
+                    timeout, Mockito.mock(Metric.class));
+
+            // requests rejected by the provider do not open the circuit
+
+            try {
+                managedProvider.confirmInstance(new InstanceConfirmation());
+                fail();
+            } catch (ResourceException ex) {
+                assertEquals(ex.getMessage(), "ResourceException (403): Invalid instance");
+            }
+            assertFalse(circuitBreaker.isCircuitOpen());
+
+            // while transport failures do
+
+            try {
+                managedProvider.refreshInstance(new InstanceConfirmation());
+                fail();
+            } catch (ResourceException ex) {
+                assertTrue(ex.getCause() instanceof IllegalStateException);
+            }
+            assertTrue(circuitBreaker.isCircuitOpen());
+        }
+    }
+
+    @Test
+    public void testConfirmInstanceServerError() throws InterruptedException {
+
+        InstanceProvider provider = Mockito.mock(InstanceProvider.class);
+        Mockito.when(provider.confirmInstance(Mockito.any()))
+                .thenThrow(new ResourceException(503, "Service Unavailable"));
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, 60000);
+        ManagedInstanceProvider managedProvider = createProvider(provider, circuitBreaker,
+                1000, Mockito.mock(Metric.class));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                managedProvider.confirmInstance(new InstanceConfirmation());
+                fail();
+            } catch (ResourceException ex) {
+                assertEquals(ex.getMessage(), "ResourceException (503): Service Unavailable");
+            }
+        }
+        assertTrue(circuitBreaker.isCircuitOpen());
+        try {
+            managedProvider.refreshInstance(new InstanceConfirmation());
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.SERVICE_UNAVAILABLE);
+            assertTrue(ex.getMessage().contains("is not available"));
+        }
+        Mockito.verify(provider, Mockito.times(0)).refreshInstance(Mockito.any());
+    }
+
+    @Test
+    public void testConfirmInstanceRejected() {
+
+        ExecutorService rejectingExecutor = Mockito.mock(ExecutorService.class);
+        Mockito.when(rejectingExecutor.submit(Mockito.any(Runnable.class)))
+                .thenThrow(new RejectedExecutionException("queue full"));
+
+        Metric metric = Mockito.mock(Metric.class);
+        InstanceProvider provider = Mockito.mock(InstanceProvider.class);
+        ManagedInstanceProvider managedProvider = new ManagedInstanceProvider("athenz.provider",
+                "https://provider.athenz.cloud/instance", provider, rejectingExecutor, scheduler,
+                new CircuitBreaker(1, 60000), 1000, metric);
+
+        try {
+            managedProvider.confirmInstance(new InstanceConfirmation());
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.SERVICE_UNAVAILABLE);
+            assertTrue(ex.getMessage().contains("too many pending requests"));
+        }
+        Mockito.verify(metric, Mockito.times(1)).increment("provider_request_rejected", "athenz.provider");
+        Mockito.verifyZeroInteractions(provider);
+    }
+
+    @Test
+    public void testGetResult() {
+
+        ManagedInstanceProvider managedProvider = createProvider(Mockito.mock(InstanceProvider.class),
+                new CircuitBreaker(0, 0), 1000, Mockito.mock(Metric.class));
+
+        CompletableFuture<InstanceConfirmation> future = new CompletableFuture<>();
+        future.completeExceptionally(new Exception("checked exception"));
+        try {
+            managedProvider.getResult(future);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.FORBIDDEN);
+            assertEquals(ex.getCause().getMessage(), "checked exception");
+        }
+
+        future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalArgumentException("runtime exception"));
+        try {
+            managedProvider.getResult(future);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertEquals(ex.getMessage(), "runtime exception");
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import java.io.File;
+import java.security.PrivateKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import com.yahoo.athenz.auth.ServerPrivateKey;
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.CryptoException;
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.common.metrics.impl.NoOpMetric;
+
+import static org.testng.Assert.*;
+
+public class SigningKeyPoolTest {
+
+    private final ServerPrivateKey rsaKey = new ServerPrivateKey(
+            Crypto.loadPrivateKey(new File("src/test/resources/zts_private.pem")), "0");
+    private final ServerPrivateKey ecKey = new ServerPrivateKey(
+            Crypto.loadPrivateKey(new File("src/test/resources/zts_private_ec.pem")), "ec.0");
+
+    @Test
+    public void testSigningKeyPoolInvalid() {
+
+        try {
+            new SigningKeyPool(null, new NoOpMetric());
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        try {
+            new SigningKeyPool(Collections.emptyList(), new NoOpMetric());
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testGetSigningKey() {
+
+        SigningKeyPool pool = new SigningKeyPool(Collections.singletonList(rsaKey), new NoOpMetric());
+        assertSame(pool.getSigningKey(), rsaKey);
+        assertSame(pool.getSigningKey(), rsaKey);
+
+        pool = new SigningKeyPool(Arrays.asList(rsaKey, ecKey), new NoOpMetric());
+        assertEquals(pool.getKeys().size(), 2);
+        assertSame(pool.getSigningKey(), rsaKey);
+        assertSame(pool.getSigningKey(), ecKey);
+        assertSame(pool.getSigningKey(), rsaKey);
+        assertSame(pool.getSigningKey(), ecKey);
+    }
+
+    @Test
+    public void testSign() {
+
+        Metric metric = Mockito.mock(Metric.class);
+        SigningKeyPool pool = new SigningKeyPool(Arrays.asList(rsaKey, ecKey), metric);
+
+        // sign multiple times with each key to verify the signer
+        // objects are correctly reset after each call
+
+        for (int i = 0; i < 3; i++) {
+            final String data = "v=Z1;d=coretech;r=readers;t=" + i;
+
+            String signature = pool.sign(data, rsaKey);
+            assertEquals(signature, Crypto.sign(data, rsaKey.getKey()));
+            assertTrue(Crypto.verify(data, Crypto.extractPublicKey(rsaKey.getKey()), signature));
+
+            signature = pool.sign(data, ecKey);
+            assertTrue(Crypto.verify(data, Crypto.extractPublicKey(ecKey.getKey()), signature));
+        }
+
+        Mockito.verify(metric, Mockito.times(6)).increment(SigningKeyPool.METRIC_TOKEN_SIGN);
+        Mockito.verify(metric, Mockito.never()).increment(SigningKeyPool.METRIC_TOKEN_SIGN_FAILURE);
+    }
+
+    @Test
+    public void testSignFailure() {
+
+        Metric metric = Mockito.mock(Metric.class);
+        ServerPrivateKey invalidKey = new ServerPrivateKey(Mockito.mock(PrivateKey.class), "invalid");
+        SigningKeyPool pool = new SigningKeyPool(Collections.singletonList(invalidKey), metric);
+
+        try {
+            pool.sign("data", invalidKey);
+            fail();
+        } catch (CryptoException ignored) {
+        }
+
+        Mockito.verify(metric, Mockito.times(1)).increment(SigningKeyPool.METRIC_TOKEN_SIGN_FAILURE);
+    }
+
+    @Test
+    public void testLoadSigningKeys() {
+
+        assertTrue(SigningKeyPool.loadSigningKeys(null).isEmpty());
+        assertTrue(SigningKeyPool.loadSigningKeys("").isEmpty());
+
+        List<ServerPrivateKey> keys = SigningKeyPool.loadSigningKeys(
+                "rsa.1:src/test/resources/zts_private.pem, ec.1:src/test/resources/zts_private_ec.pem");
+        assertEquals(keys.size(), 2);
+        assertEquals(keys.get(0).getId(), "rsa.1");
+        assertEquals(keys.get(0).getAlgorithm(), rsaKey.getAlgorithm());
+        assertEquals(keys.get(1).getId(), "ec.1");
+        assertEquals(keys.get(1).getAlgorithm(), ecKey.getAlgorithm());
+    }
+
+    @Test
+    public void testLoadSigningKeysInvalid() {
+
+        final String[] values = { "src/test/resources/zts_private.pem", ":src/test/resources/zts_private.pem",
+                "rsa.1:" };
+        for (String value : values) {
+            try {
+                SigningKeyPool.loadSigningKeys(value);
+                fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+
+        try {
+            SigningKeyPool.loadSigningKeys("rsa.1:src/test/resources/unknown.pem");
+            fail();
+        } catch (CryptoException ignored) {
+        }
+    }
+}
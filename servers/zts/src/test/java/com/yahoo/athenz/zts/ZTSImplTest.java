@@ -74,6 +74,7 @@ import com.yahoo.athenz.zts.ZTSImpl.AthenzObject;
 import com.yahoo.athenz.zts.ZTSImpl.ServiceX509RefreshRequestStatus;
 import com.yahoo.athenz.zts.ZTSAuthorizer.AccessStatus;
 import com.yahoo.athenz.zts.cache.DataCache;
+import com.yahoo.athenz.zts.cache.IssuedTokenCache;
 import com.yahoo.athenz.zts.cert.*;
 import com.yahoo.athenz.zts.store.ChangeLogStore;
 import com.yahoo.athenz.zts.store.CloudStore;
@@ -82,6 +83,7 @@ import com.yahoo.athenz.zts.store.MockCloudStore;
 import com.yahoo.athenz.zts.store.impl.MockZMSFileChangeLogStore;
 import com.yahoo.athenz.zts.store.impl.ZMSFileChangeLogStore;
 import com.yahoo.athenz.zts.utils.ZTSUtils;
+import com.yahoo.rdl.JSON;
 import com.yahoo.rdl.Schema;
 import com.yahoo.rdl.Timestamp;
 
@@ -1135,7 +1137,7 @@ public class ZTSImplTest {
                 "v=U1;d=user_domain;n=user;s=signature", 0, null);
         ResourceContext context = createResourceContext(principal);
 
-        JWKList list = zts.getJWKList(context, false);
+        JWKList list = getJWKList(context, false);
         assertNotNull(list);
         List<JWK> keys = list.getKeys();
         assertEquals(keys.size(), 2);
@@ -1152,7 +1154,7 @@ public class ZTSImplTest {
         // execute the same test with argument passed as null
         // for the Boolean rfc object so it should be same result
 
-        list = zts.getJWKList(context, null);
+        list = getJWKList(context, null);
         assertNotNull(list);
         keys = list.getKeys();
         assertEquals(keys.size(), 2);
@@ -1169,7 +1171,7 @@ public class ZTSImplTest {
         // now let's try with rfc option on in which case
         // we'll get the curve name as P-256
 
-        list = zts.getJWKList(context, true);
+        list = getJWKList(context, true);
         assertNotNull(list);
         keys = list.getKeys();
         assertEquals(keys.size(), 2);
@@ -1184,6 +1186,85 @@ public class ZTSImplTest {
         assertEquals(key2.getCrv(), "P-256", key2.getCrv());
     }
 
+    private JWKList getJWKList(ResourceContext context, Boolean rfc) {
+        Response response = zts.getJWKList(context, rfc, null);
+        assertEquals(response.getStatus(), ResourceException.OK);
+        assertNotNull(response.getHeaderString("ETag"));
+        return JSON.fromBytes((byte[]) response.getEntity(), JWKList.class);
+    }
+
+    @Test
+    public void testGetJWKListNotModified() {
+
+        Principal principal = SimplePrincipal.create("user_domain", "user1",
+                "v=U1;d=user_domain;n=user;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        Response response = zts.getJWKList(context, false, null);
+        final String tag = response.getHeaderString("ETag");
+        assertNotNull(tag);
+
+        // the list is serialized only once so we must get the same data back
+
+        Response response2 = zts.getJWKList(context, false, null);
+        assertSame(response2.getEntity(), response.getEntity());
+        assertEquals(response2.getHeaderString("ETag"), tag);
+
+        // with the matching tag we get not modified response
+
+        response = zts.getJWKList(context, false, tag);
+        assertEquals(response.getStatus(), ResourceException.NOT_MODIFIED);
+        assertEquals(response.getHeaderString("ETag"), tag);
+        assertNull(response.getEntity());
+
+        // rfc list has a different tag
+
+        response = zts.getJWKList(context, true, tag);
+        assertEquals(response.getStatus(), ResourceException.OK);
+        assertNotEquals(response.getHeaderString("ETag"), tag);
+
+        response = zts.getJWKList(context, false, "\"invalid-tag\"");
+        assertEquals(response.getStatus(), ResourceException.OK);
+    }
+
+    @Test
+    public void testGetJWKListNoTag() {
+
+        Principal principal = SimplePrincipal.create("user_domain", "user1",
+                "v=U1;d=user_domain;n=user;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        // without a computed tag we must not include the header
+        // or return not modified response
+
+        DataStore.JWKListEntry entry = Mockito.mock(DataStore.JWKListEntry.class);
+        Mockito.when(entry.getJWKList()).thenReturn(new JWKList());
+        DataStore mockDataStore = Mockito.mock(DataStore.class);
+        Mockito.when(mockDataStore.getZtsJWKListEntry(false)).thenReturn(entry);
+
+        DataStore savedDataStore = zts.dataStore;
+        zts.dataStore = mockDataStore;
+
+        Response response = zts.getJWKList(context, false, "\"tag\"");
+        assertEquals(response.getStatus(), ResourceException.OK);
+        assertNull(response.getHeaderString("ETag"));
+        assertNotNull(response.getEntity());
+
+        zts.dataStore = savedDataStore;
+    }
+
+    @Test
+    public void testGetETag() {
+
+        assertNull(zts.getETag(null));
+        assertEquals(zts.getETag(Timestamp.fromMillis(1000)),
+                new EntityTag(Timestamp.fromMillis(1000).toString()).toString());
+
+        assertNull(zts.setETag(Response.status(ResourceException.OK), null).build().getHeaderString("ETag"));
+        assertEquals(zts.setETag(Response.status(ResourceException.OK), "\"tag\"").build()
+                .getHeaderString("ETag"), "\"tag\"");
+    }
+
     @Test
     public void testGetHostServicesInvalidHost() {
         
@@ -5529,6 +5610,54 @@ public class ZTSImplTest {
         }
     }
     
+    @Test
+    public void testPostInstanceRegisterInformationProviderUnavailable() throws IOException {
+
+        ChangeLogStore structStore = new ZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                privateKey, "0");
+        
+        DataStore store = new DataStore(structStore, null);
+        ZTSImpl ztsImpl = new ZTSImpl(mockCloudStore, store);
+        
+        SignedDomain providerDomain = signedAuthorizedProviderDomain();
+        store.processDomain(providerDomain, false);
+        
+        SignedDomain tenantDomain = signedBootstrapTenantDomain("athenz.provider", "athenz", "production");
+        store.processDomain(tenantDomain, false);
+        
+        Path path = Paths.get("src/test/resources/athenz.instanceid.csr");
+        String certCsr = new String(Files.readAllBytes(path));
+
+        InstanceProviderManager instanceProviderManager = Mockito.mock(InstanceProviderManager.class);
+        InstanceProvider providerClient = Mockito.mock(InstanceProvider.class);
+        
+        Mockito.when(instanceProviderManager.getProvider("athenz.provider")).thenReturn(providerClient);
+        Mockito.when(providerClient.confirmInstance(Mockito.any()))
+                .thenThrow(new com.yahoo.athenz.instance.provider.ResourceException(503, "Provider is not available"))
+                .thenThrow(new com.yahoo.athenz.instance.provider.ResourceException(504, "Provider timeout"));
+        
+        ztsImpl.instanceProviderManager = instanceProviderManager;
+        
+        InstanceRegisterInformation info = new InstanceRegisterInformation()
+                .setAttestationData("attestationData").setCsr(certCsr)
+                .setDomain("athenz").setService("production")
+                .setProvider("athenz.provider");
+        
+        ResourceContext context = createResourceContext(null);
+
+        // requests the provider was not able to process are not rejected
+
+        for (int code : new int[] { 503, 504 }) {
+            try {
+                ztsImpl.postInstanceRegisterInformation(context, info);
+                fail();
+            } catch (ResourceException ex) {
+                assertEquals(ex.getCode(), code);
+                assertTrue(ex.getMessage().contains("unable to verify attestation data"));
+            }
+        }
+    }
+    
     @Test
     public void testPostInstanceRegisterInformationNoAuthorizedProvider() throws IOException {
 
@@ -6386,6 +6515,73 @@ public class ZTSImplTest {
         }
     }
     
+    @Test
+    public void testPostInstanceRefreshInformationProviderTimeout() throws IOException {
+
+        ChangeLogStore structStore = new ZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                privateKey, "0");
+        
+        DataStore store = new DataStore(structStore, null);
+        ZTSImpl ztsImpl = new ZTSImpl(mockCloudStore, store);
+        
+        SignedDomain providerDomain = signedAuthorizedProviderDomain();
+        store.processDomain(providerDomain, false);
+        
+        SignedDomain tenantDomain = signedBootstrapTenantDomain("athenz.provider", "athenz", "production");
+        store.processDomain(tenantDomain, false);
+        
+        Path path = Paths.get("src/test/resources/athenz.instanceid.csr");
+        String certCsr = new String(Files.readAllBytes(path));
+
+        InstanceProviderManager instanceProviderManager = Mockito.mock(InstanceProviderManager.class);
+        InstanceProvider providerClient = Mockito.mock(InstanceProvider.class);
+        
+        InstanceCertManager instanceManager = Mockito.spy(ztsImpl.instanceCertManager);
+        
+        Mockito.when(instanceProviderManager.getProvider("athenz.provider")).thenReturn(providerClient);
+        Mockito.when(providerClient.refreshInstance(Mockito.any())).thenThrow(new com.yahoo.athenz.instance.provider.ResourceException(504, "Provider timeout"));
+        
+        X509CertRecord certRecord = new X509CertRecord();
+        certRecord.setInstanceId("1001");
+        certRecord.setProvider("athenz.provider");
+        certRecord.setService("athenz.production");
+        certRecord.setCurrentSerial("16503746516960996918");
+        certRecord.setPrevSerial("16503746516960996918");
+        Mockito.when(instanceManager.getX509CertRecord("athenz.provider", "1001", "athenz.production")).thenReturn(certRecord);
+        Mockito.when(instanceManager.updateX509CertRecord(Mockito.any())).thenReturn(true);
+        
+        path = Paths.get("src/test/resources/athenz.instanceid.pem");
+        String pem = new String(Files.readAllBytes(path));
+        InstanceIdentity identity = new InstanceIdentity().setName("athenz.production")
+                .setX509Certificate(pem);
+        Mockito.doReturn(identity).when(instanceManager).generateIdentity(Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.anyInt());
+        
+        ztsImpl.instanceProviderManager = instanceProviderManager;
+        ztsImpl.instanceCertManager = instanceManager;
+        
+        InstanceRefreshInformation info = new InstanceRefreshInformation()
+                .setCsr(certCsr).setToken(true);
+        
+        CertificateAuthority certAuthority = new CertificateAuthority();
+        SimplePrincipal principal = (SimplePrincipal) SimplePrincipal.create("athenz", "production",
+                "v=S1;d=athenz;n=production;s=signature", 0, certAuthority);
+        
+        X509Certificate cert = Crypto.loadX509Certificate(pem);
+        principal.setX509Certificate(cert);
+        
+        ResourceContext context = createResourceContext(principal);
+        
+        try {
+            ztsImpl.postInstanceRefreshInformation(context,
+                "athenz.provider", "athenz", "production", "1001", info);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), 504, ex.getMessage());
+            assertTrue(ex.getMessage().contains("unable to verify attestation data"), ex.getMessage());
+        }
+    }
+    
     @Test
     public void testPostInstanceRefreshInformationNotFound() throws IOException {
 
@@ -7484,7 +7680,18 @@ public class ZTSImplTest {
 
         Response response = ztsImpl.getDomainSignedPolicyData(context, "coretech", null);
         assertEquals(response.getStatus(), 200);
-        
+
+        DomainSignedPolicyData data = JSON.fromBytes((byte[]) response.getEntity(),
+                DomainSignedPolicyData.class);
+        assertEquals(data.getSignedPolicyData().getPolicyData().getDomain(), "coretech");
+        assertEquals(ztsImpl.signedPolicyCache.size(), 1);
+
+        // second request must be served from our cache
+
+        Response response2 = ztsImpl.getDomainSignedPolicyData(context, "coretech", null);
+        assertEquals(response2.getStatus(), 200);
+        assertSame(response2.getEntity(), response.getEntity());
+
         // invalid domain
         
         try {
@@ -7495,6 +7702,76 @@ public class ZTSImplTest {
         }
     }
 
+    @Test
+    public void testGetSignedDomainPolicyDataDomainModified() {
+
+        ChangeLogStore structStore = new ZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                privateKey, "0");
+
+        DataStore store = new DataStore(structStore, null);
+
+        ZTSImpl ztsImpl = new ZTSImpl(mockCloudStore, store);
+        ZTSImpl.serverHostName = "localhost";
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processDomain(signedDomain, false);
+
+        Principal principal = SimplePrincipal.create("user_domain", "user",
+                "v=U1;d=user_domain;n=user;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        Response response = ztsImpl.getDomainSignedPolicyData(context, "coretech", null);
+        assertEquals(response.getStatus(), 200);
+        DomainSignedPolicyData data = JSON.fromBytes((byte[]) response.getEntity(),
+                DomainSignedPolicyData.class);
+
+        // update the domain with a new modified timestamp and verify
+        // that we get back newly signed policy data
+
+        signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        signedDomain.getDomain().setModified(Timestamp.fromMillis(
+                data.getSignedPolicyData().getModified().millis() + 1000));
+        store.processDomain(signedDomain, false);
+
+        Response response2 = ztsImpl.getDomainSignedPolicyData(context, "coretech", null);
+        assertEquals(response2.getStatus(), 200);
+        assertNotSame(response2.getEntity(), response.getEntity());
+        DomainSignedPolicyData data2 = JSON.fromBytes((byte[]) response2.getEntity(),
+                DomainSignedPolicyData.class);
+        assertEquals(data2.getSignedPolicyData().getModified(), signedDomain.getDomain().getModified());
+    }
+
+    @Test
+    public void testGetSignedDomainPolicyDataCacheDisabled() {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_SIGNED_POLICY_CACHE_SIZE, "0");
+
+        ChangeLogStore structStore = new ZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                privateKey, "0");
+
+        DataStore store = new DataStore(structStore, null);
+
+        ZTSImpl ztsImpl = new ZTSImpl(mockCloudStore, store);
+        ZTSImpl.serverHostName = "localhost";
+        assertNull(ztsImpl.signedPolicyCache);
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processDomain(signedDomain, false);
+
+        Principal principal = SimplePrincipal.create("user_domain", "user",
+                "v=U1;d=user_domain;n=user;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        Response response = ztsImpl.getDomainSignedPolicyData(context, "coretech", null);
+        assertEquals(response.getStatus(), 200);
+
+        Response response2 = ztsImpl.getDomainSignedPolicyData(context, "coretech", null);
+        assertEquals(response2.getStatus(), 200);
+        assertNotSame(response2.getEntity(), response.getEntity());
+
+        System.clearProperty(ZTSConsts.ZTS_PROP_SIGNED_POLICY_CACHE_SIZE);
+    }
+
     @Test
     public void testGetSignedDomainPolicyDataNoChanges() {
 
@@ -7520,6 +7797,90 @@ public class ZTSImplTest {
         assertEquals(response.getStatus(), ResourceException.NOT_MODIFIED);
     }
 
+    @Test
+    public void testPostSignedPolicyRequest() {
+
+        ChangeLogStore structStore = new ZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                privateKey, "0");
+
+        DataStore store = new DataStore(structStore, null);
+
+        ZTSImpl ztsImpl = new ZTSImpl(mockCloudStore, store);
+        ZTSImpl.serverHostName = "localhost";
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processDomain(signedDomain, false);
+        SignedDomain signedDomain2 = createSignedDomain("sports", "weather", "storage", true);
+        store.processDomain(signedDomain2, false);
+
+        Principal principal = SimplePrincipal.create("user_domain", "user",
+                "v=U1;d=user_domain;n=user;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        // sports domain has not been modified since our tag so it
+        // must not be included in the response
+
+        EntityTag eTag = new EntityTag(signedDomain2.getDomain().getModified().toString());
+        List<DomainPolicyTag> domainTags = new ArrayList<>();
+        domainTags.add(new DomainPolicyTag().setDomainName("CoreTech"));
+        domainTags.add(new DomainPolicyTag().setDomainName("sports").setMatchingTag(eTag.toString()));
+        domainTags.add(new DomainPolicyTag().setDomainName("unknowndomain"));
+
+        SignedPolicyDataList result = ztsImpl.postSignedPolicyRequest(context,
+                new SignedPolicyRequest().setDomains(domainTags));
+        assertEquals(result.getDomains().size(), 1);
+        assertEquals(result.getDomains().get(0).getSignedPolicyData().getPolicyData().getDomain(), "coretech");
+        assertEquals(result.getUnknownDomains().size(), 1);
+        assertEquals(result.getUnknownDomains().get(0), "unknowndomain");
+
+        // the same signed policy data must be returned by the single domain api
+
+        Response response = ztsImpl.getDomainSignedPolicyData(context, "coretech", null);
+        DomainSignedPolicyData data = JSON.fromBytes((byte[]) response.getEntity(),
+                DomainSignedPolicyData.class);
+        assertEquals(data.getSignature(), result.getDomains().get(0).getSignature());
+
+        // with no tags both domains are returned
+
+        domainTags = new ArrayList<>();
+        domainTags.add(new DomainPolicyTag().setDomainName("coretech"));
+        domainTags.add(new DomainPolicyTag().setDomainName("sports"));
+
+        result = ztsImpl.postSignedPolicyRequest(context, new SignedPolicyRequest().setDomains(domainTags));
+        assertEquals(result.getDomains().size(), 2);
+        assertNull(result.getUnknownDomains());
+    }
+
+    @Test
+    public void testPostSignedPolicyRequestInvalid() {
+
+        Principal principal = SimplePrincipal.create("user_domain", "user",
+                "v=U1;d=user_domain;n=user;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        try {
+            zts.postSignedPolicyRequest(context, new SignedPolicyRequest());
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), 400);
+        }
+
+        List<DomainPolicyTag> domainTags = new ArrayList<>();
+        domainTags.add(new DomainPolicyTag().setDomainName("coretech"));
+        domainTags.add(new DomainPolicyTag().setDomainName("sports"));
+
+        int maxDomains = zts.signedPolicyMaxDomains;
+        zts.signedPolicyMaxDomains = 1;
+        try {
+            zts.postSignedPolicyRequest(context, new SignedPolicyRequest().setDomains(domainTags));
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.BAD_REQUEST);
+            assertTrue(ex.getMessage().contains("Too many domains requested: 2, the limit is 1"));
+        }
+        zts.signedPolicyMaxDomains = maxDomains;
+    }
+
     @Test
     public void testCreatePrincipalForName() {
         Principal principal = zts.createPrincipalForName("athenz.provider");
@@ -10550,4 +10911,201 @@ public class ZTSImplTest {
         assertNull(zts.privateECKey);
         assertNull(zts.privateRSAKey);
     }
+
+    @Test
+    public void testLoadSigningKeyPool() {
+
+        // without any additional keys we only have our primary key
+
+        System.clearProperty(ZTSConsts.ZTS_PROP_ADDITIONAL_SIGNING_KEYS);
+        zts.loadSigningKeyPool();
+        assertEquals(zts.signingKeyPool.getKeys().size(), 1);
+        assertSame(zts.signingKeyPool.getSigningKey(), zts.privateKey);
+
+        System.setProperty(ZTSConsts.ZTS_PROP_ADDITIONAL_SIGNING_KEYS,
+                "ec.1:src/test/resources/zts_private_ec.pem");
+        zts.loadSigningKeyPool();
+        assertEquals(zts.signingKeyPool.getKeys().size(), 2);
+        assertSame(zts.signingKeyPool.getKeys().get(0), zts.privateKey);
+        assertEquals(zts.signingKeyPool.getKeys().get(1).getId(), "ec.1");
+
+        // invalid entries are rejected
+
+        System.setProperty(ZTSConsts.ZTS_PROP_ADDITIONAL_SIGNING_KEYS, "src/test/resources/zts_private_ec.pem");
+        try {
+            zts.loadSigningKeyPool();
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        System.clearProperty(ZTSConsts.ZTS_PROP_ADDITIONAL_SIGNING_KEYS);
+        zts.loadSigningKeyPool();
+    }
+
+    @Test
+    public void testVerifySigningKeyPool() {
+
+        DataStore savedDataStore = zts.dataStore;
+        DataStore mockDataStore = Mockito.mock(DataStore.class);
+        zts.dataStore = mockDataStore;
+
+        // with only our primary key there is nothing to check
+
+        System.clearProperty(ZTSConsts.ZTS_PROP_ADDITIONAL_SIGNING_KEYS);
+        zts.loadSigningKeyPool();
+        zts.verifySigningKeyPool();
+
+        System.setProperty(ZTSConsts.ZTS_PROP_ADDITIONAL_SIGNING_KEYS,
+                "ec.1:src/test/resources/zts_private_ec.pem");
+        zts.loadSigningKeyPool();
+
+        // additional key not included in the zts public keys is rejected
+
+        try {
+            zts.verifySigningKeyPool();
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().contains("ec.1 is not included in the ZTS public keys"));
+        }
+
+        // public key that doesn't match our signing key is rejected
+
+        PrivateKey rsaKey = Crypto.loadPrivateKey(new File("src/test/resources/zts_private.pem"));
+        Mockito.when(mockDataStore.getZtsPublicKey("ec.1")).thenReturn(Crypto.extractPublicKey(rsaKey));
+        try {
+            zts.verifySigningKeyPool();
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().contains("ec.1 does not match the ZTS public key"));
+        }
+
+        PrivateKey ecKey = Crypto.loadPrivateKey(new File("src/test/resources/zts_private_ec.pem"));
+        Mockito.when(mockDataStore.getZtsPublicKey("ec.1")).thenReturn(Crypto.extractPublicKey(ecKey));
+        zts.verifySigningKeyPool();
+
+        System.clearProperty(ZTSConsts.ZTS_PROP_ADDITIONAL_SIGNING_KEYS);
+        zts.loadSigningKeyPool();
+        zts.dataStore = savedDataStore;
+    }
+
+    @Test
+    public void testClose() {
+
+        InstanceCertManager savedCertManager = zts.instanceCertManager;
+        InstanceCertManager certManager = Mockito.mock(InstanceCertManager.class);
+        zts.instanceCertManager = certManager;
+
+        InstanceProviderManager savedProviderManager = zts.instanceProviderManager;
+        InstanceProviderManager providerManager = Mockito.mock(InstanceProviderManager.class);
+        zts.instanceProviderManager = providerManager;
+
+        zts.close();
+        Mockito.verify(certManager, Mockito.times(1)).shutdown();
+        Mockito.verify(providerManager, Mockito.times(1)).close();
+
+        zts.instanceCertManager = savedCertManager;
+        zts.instanceProviderManager = savedProviderManager;
+    }
+
+    @Test
+    public void testGetRoleTokenIssuedTokenCache() {
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processDomain(signedDomain, false);
+
+        Principal principal = SimplePrincipal.create("user_domain", "user1",
+                "v=U1;d=user_domain;n=user1;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        zts.issuedTokenCache = new IssuedTokenCache(10, 60);
+
+        // identical requests return the same token
+
+        RoleToken roleToken1 = zts.getRoleToken(context, "coretech", null, null, 1200, null);
+        RoleToken roleToken2 = zts.getRoleToken(context, "coretech", null, null, 1200, null);
+        assertEquals(roleToken2.getToken(), roleToken1.getToken());
+        assertEquals(roleToken2.getExpiryTime(), roleToken1.getExpiryTime());
+        assertEquals(zts.issuedTokenCache.size(), 1);
+
+        // different set of roles and expiry generate new tokens
+
+        RoleToken roleToken3 = zts.getRoleToken(context, "coretech", "readers", null, 1200, null);
+        assertNotEquals(roleToken3.getToken(), roleToken1.getToken());
+        RoleToken roleToken4 = zts.getRoleToken(context, "coretech", null, null, 1000, null);
+        assertNotEquals(roleToken4.getToken(), roleToken1.getToken());
+
+        // tokens without enough lifetime are not cached
+
+        long cacheSize = zts.issuedTokenCache.size();
+        zts.getRoleToken(context, "coretech", null, 100, 100, null);
+        assertEquals(zts.issuedTokenCache.size(), cacheSize);
+
+        // once the domain is modified we must get a new token
+
+        DomainData domainData = store.getDataCache("coretech").getDomainData();
+        domainData.setModified(Timestamp.fromMillis(domainData.getModified().millis() + 1000));
+        RoleToken roleToken5 = zts.getRoleToken(context, "coretech", null, null, 1200, null);
+        assertNotEquals(roleToken5.getToken(), roleToken1.getToken());
+
+        zts.issuedTokenCache = null;
+    }
+
+    @Test
+    public void testGetIssuedTokenEntryMinExpiryTime() {
+
+        zts.issuedTokenCache = new IssuedTokenCache(10, 60);
+        assertNull(zts.getIssuedTokenEntry(null, 0, "coretech", "user_domain"));
+
+        // token issued 30 secs ago with 1200 secs lifetime
+
+        long now = System.currentTimeMillis() / 1000;
+        zts.issuedTokenCache.putEntry("key1", new IssuedTokenCache.Entry("token", null, now - 30, now + 1170));
+
+        assertNotNull(zts.getIssuedTokenEntry("key1", 0, "coretech", "user_domain"));
+        assertNotNull(zts.getIssuedTokenEntry("key1", 1000, "coretech", "user_domain"));
+        assertNull(zts.getIssuedTokenEntry("key1", 1200, "coretech", "user_domain"));
+
+        zts.issuedTokenCache = null;
+    }
+
+    @Test
+    public void testPostAccessTokenRequestIssuedTokenCache() {
+
+        SignedDomain signedDomain = createSignedDomain("coretech", "weather", "storage", true);
+        store.processDomain(signedDomain, false);
+
+        Principal principal = SimplePrincipal.create("user_domain", "user1",
+                "v=U1;d=user_domain;n=user1;s=signature", 0, null);
+        ResourceContext context = createResourceContext(principal);
+
+        zts.issuedTokenCache = new IssuedTokenCache(10, 60);
+
+        final String request = "grant_type=client_credentials&scope=coretech:domain openid coretech:service.api&expires_in=1200";
+        AccessTokenResponse resp1 = zts.postAccessTokenRequest(context, request);
+        assertNotNull(resp1.getId_token());
+
+        AccessTokenResponse resp2 = zts.postAccessTokenRequest(context, request);
+        assertEquals(resp2.getAccess_token(), resp1.getAccess_token());
+        assertEquals(resp2.getId_token(), resp1.getId_token());
+        assertEquals(resp2.getScope(), resp1.getScope());
+        assertTrue(resp2.getExpires_in() <= 1200 && resp2.getExpires_in() > 1100);
+        assertEquals(zts.issuedTokenCache.size(), 1);
+
+        // without openid scope we must not get the cached id token
+
+        AccessTokenResponse resp3 = zts.postAccessTokenRequest(context,
+                "grant_type=client_credentials&scope=coretech:domain&expires_in=1200");
+        assertNull(resp3.getId_token());
+        assertEquals(zts.issuedTokenCache.size(), 2);
+
+        // once the domain is modified we must get a new token
+
+        DomainData domainData = store.getDataCache("coretech").getDomainData();
+        domainData.setModified(Timestamp.fromMillis(domainData.getModified().millis() + 1000));
+        AccessTokenResponse resp4 = zts.postAccessTokenRequest(context, request);
+        assertNotNull(resp4.getId_token());
+        assertEquals(zts.issuedTokenCache.size(), 3);
+
+        zts.issuedTokenCache = null;
+    }
 }
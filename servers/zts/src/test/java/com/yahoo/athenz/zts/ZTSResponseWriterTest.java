@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.rdl.Timestamp;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class ZTSResponseWriterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private <T> void verifyWriter(ZTSResponseWriter<T> writer, T value) throws IOException {
+
+        // our writer must generate the same json as the object mapper
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(value, value.getClass(), value.getClass(), null,
+                MediaType.APPLICATION_JSON_TYPE, null, out);
+        assertEquals(mapper.readTree(out.toByteArray()), mapper.readTree(mapper.writeValueAsBytes(value)));
+    }
+
+    @Test
+    public void testAccessTokenResponseWriter() throws IOException {
+
+        ZTSResponseWriter.AccessTokenResponseWriter writer = new ZTSResponseWriter.AccessTokenResponseWriter();
+        assertTrue(writer.isWriteable(AccessTokenResponse.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(writer.isWriteable(RoleToken.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+        assertEquals(writer.getSize(null, AccessTokenResponse.class, null, null, null), -1);
+
+        verifyWriter(writer, new AccessTokenResponse().setAccess_token("access-token")
+                .setToken_type("Bearer").setExpires_in(3600).setScope("coretech:role.readers")
+                .setRefresh_token("refresh-token").setId_token("id-token"));
+
+        // optional fields not set or empty and required fields not set
+
+        verifyWriter(writer, new AccessTokenResponse().setAccess_token("access-token")
+                .setToken_type("Bearer").setScope(""));
+        verifyWriter(writer, new AccessTokenResponse().setExpires_in(0));
+    }
+
+    @Test
+    public void testRoleTokenWriter() throws IOException {
+
+        ZTSResponseWriter.RoleTokenWriter writer = new ZTSResponseWriter.RoleTokenWriter();
+        assertTrue(writer.isWriteable(RoleToken.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(writer.isWriteable(Object.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+
+        verifyWriter(writer, new RoleToken().setToken("v=Z1;d=coretech;r=readers;s=signature")
+                .setExpiryTime(System.currentTimeMillis() / 1000));
+        verifyWriter(writer, new RoleToken());
+    }
+
+    @Test
+    public void testInstanceIdentityWriter() throws IOException {
+
+        ZTSResponseWriter.InstanceIdentityWriter writer = new ZTSResponseWriter.InstanceIdentityWriter();
+        assertTrue(writer.isWriteable(InstanceIdentity.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("certUsage", "client");
+        attributes.put("certSubject", "cn=\"coretech.api\"");
+
+        verifyWriter(writer, new InstanceIdentity().setProvider("athenz.provider").setName("coretech.api")
+                .setInstanceId("id-001").setX509Certificate("x509-cert").setX509CertificateSigner("x509-signer")
+                .setSshCertificate("ssh-cert").setSshCertificateSigner("ssh-signer")
+                .setServiceToken("service-token").setAttributes(attributes));
+        verifyWriter(writer, new InstanceIdentity().setProvider("athenz.provider").setName("coretech.api")
+                .setInstanceId("id-001").setX509Certificate("x509-cert").setAttributes(Collections.emptyMap()));
+        verifyWriter(writer, new InstanceIdentity());
+    }
+
+    @Test
+    public void testDomainSignedPolicyDataWriter() throws IOException {
+
+        ZTSResponseWriter.DomainSignedPolicyDataWriter writer = new ZTSResponseWriter.DomainSignedPolicyDataWriter();
+        assertTrue(writer.isWriteable(DomainSignedPolicyData.class, null, null, MediaType.APPLICATION_JSON_TYPE));
+
+        List<Assertion> assertions = new ArrayList<>();
+        assertions.add(new Assertion().setRole("coretech:role.readers").setResource("coretech:*")
+                .setAction("read").setEffect(AssertionEffect.ALLOW).setId(100L));
+        assertions.add(new Assertion().setRole("coretech:role.readers").setResource("coretech:secret")
+                .setAction("read").setEffect(AssertionEffect.DENY));
+        assertions.add(new Assertion().setRole("coretech:role.writers").setResource("coretech:*")
+                .setAction("write"));
+
+        List<Policy> policies = new ArrayList<>();
+        policies.add(new Policy().setName("coretech:policy.readers").setModified(Timestamp.fromCurrentTime())
+                .setAssertions(assertions));
+        policies.add(new Policy().setName("coretech:policy.empty").setAssertions(new ArrayList<>()));
+        policies.add(new Policy().setName("coretech:policy.null"));
+
+        SignedPolicyData signedPolicyData = new SignedPolicyData()
+                .setPolicyData(new PolicyData().setDomain("coretech").setPolicies(policies))
+                .setZmsKeyId("0").setZmsSignature("zms-signature")
+                .setModified(Timestamp.fromCurrentTime()).setExpires(Timestamp.fromCurrentTime());
+
+        verifyWriter(writer, new DomainSignedPolicyData().setSignedPolicyData(signedPolicyData)
+                .setKeyId("0").setSignature("zts-signature"));
+
+        verifyWriter(writer, new DomainSignedPolicyData().setSignedPolicyData(new SignedPolicyData()
+                .setPolicyData(new PolicyData().setDomain("coretech"))));
+        verifyWriter(writer, new DomainSignedPolicyData());
+    }
+
+    @Test
+    public void testWritersMatchRdlTypes() throws Exception {
+
+        // the writers duplicate the field layout of the rdl generated
+        // classes so we populate every property of each type, including
+        // any nested types, based on its setters. any field added to the
+        // rdl types but not to the writers is detected here
+
+        List<ZTSResponseWriter<?>> writers = new ArrayList<>();
+        writers.add(new ZTSResponseWriter.AccessTokenResponseWriter());
+        writers.add(new ZTSResponseWriter.RoleTokenWriter());
+        writers.add(new ZTSResponseWriter.InstanceIdentityWriter());
+        writers.add(new ZTSResponseWriter.DomainSignedPolicyDataWriter());
+
+        for (ZTSResponseWriter<?> writer : writers) {
+            final Class<?> type = getResponseType(writer);
+            verifyRdlWriter(writer, createRdlObject(type, false));
+            verifyRdlWriter(writer, createRdlObject(type, true));
+            verifyRdlWriter(writer, type.newInstance());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void verifyRdlWriter(ZTSResponseWriter<T> writer, Object value) throws IOException {
+        verifyWriter(writer, (T) value);
+    }
+
+    private Class<?> getResponseType(ZTSResponseWriter<?> writer) {
+        ParameterizedType superType = (ParameterizedType) writer.getClass().getGenericSuperclass();
+        return (Class<?>) superType.getActualTypeArguments()[0];
+    }
+
+    /**
+     * Create an instance of the given rdl type with all of its properties
+     * set either to non-empty values or to empty strings and collections
+     */
+    private Object createRdlObject(Class<?> type, boolean emptyValues) throws Exception {
+
+        Object object = type.newInstance();
+        for (Method method : type.getMethods()) {
+            if (!method.getName().startsWith("set") || method.getParameterCount() != 1
+                    || method.getReturnType() != type) {
+                continue;
+            }
+            final String name = method.getName().substring(3);
+            method.invoke(object, createRdlValue(method.getGenericParameterTypes()[0], name, emptyValues));
+        }
+        return object;
+    }
+
+    private Object createRdlValue(Type valueType, final String name, boolean emptyValues) throws Exception {
+
+        if (valueType instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) valueType;
+            final Type[] arguments = parameterizedType.getActualTypeArguments();
+            if (parameterizedType.getRawType() == List.class) {
+                List<Object> list = new ArrayList<>();
+                if (!emptyValues) {
+                    list.add(createRdlValue(arguments[0], name, false));
+                }
+                return list;
+            } else if (parameterizedType.getRawType() == Map.class) {
+                Map<Object, Object> map = new HashMap<>();
+                if (!emptyValues) {
+                    map.put(createRdlValue(arguments[0], name + "-key", false),
+                            createRdlValue(arguments[1], name, false));
+                }
+                return map;
+            }
+            throw new IllegalArgumentException("Unsupported type: " + valueType);
+        }
+
+        final Class<?> valueClass = (Class<?>) valueType;
+        if (valueClass == String.class) {
+            return emptyValues ? "" : name + "-value";
+        } else if (valueClass == Integer.class || valueClass == int.class) {
+            return 3600;
+        } else if (valueClass == Long.class || valueClass == long.class) {
+            return 1000L;
+        } else if (valueClass == Boolean.class || valueClass == boolean.class) {
+            return Boolean.TRUE;
+        } else if (valueClass == Timestamp.class) {
+            return Timestamp.fromMillis(1577836800000L);
+        } else if (valueClass.isEnum()) {
+            return valueClass.getEnumConstants()[0];
+        } else if (valueClass.getPackage() == AccessTokenResponse.class.getPackage()) {
+            return createRdlObject(valueClass, emptyValues);
+        }
+        throw new IllegalArgumentException("Unsupported type: " + valueType);
+    }
+
+    @Test
+    public void testWriteToDoesNotCloseStream() throws IOException {
+
+        OutputStream out = Mockito.mock(OutputStream.class);
+        ZTSResponseWriter.RoleTokenWriter writer = new ZTSResponseWriter.RoleTokenWriter();
+        writer.writeTo(new RoleToken().setToken("token").setExpiryTime(100), RoleToken.class,
+                RoleToken.class, null, MediaType.APPLICATION_JSON_TYPE, null, out);
+        Mockito.verify(out, Mockito.never()).close();
+    }
+}
@@ -18,6 +18,7 @@ package com.yahoo.athenz.zts;
 import static org.testng.Assert.assertNotNull;
 
 import com.yahoo.athenz.auth.impl.FilePrivateKeyStore;
+import org.mockito.Mockito;
 import org.testng.annotations.Test;
 
 import java.io.File;
@@ -32,6 +33,20 @@ public class ZTSTest {
         assertNotNull(zts);
     }
 
+    @Test
+    public void testZTSLifecycleListener() {
+
+        ZTSBinder binder = Mockito.mock(ZTSBinder.class);
+        ZTS.ZTSLifecycleListener listener = new ZTS.ZTSLifecycleListener(binder);
+
+        listener.onStartup(null);
+        listener.onReload(null);
+        Mockito.verify(binder, Mockito.times(0)).close();
+
+        listener.onShutdown(null);
+        Mockito.verify(binder, Mockito.times(1)).close();
+    }
+
     @Test
     public void testZTSBinder() {
         System.setProperty(ZTSConsts.ZTS_PROP_CHANGE_LOG_STORE_DIR, ZTS_DATA_STORE_PATH);
@@ -48,6 +63,7 @@ public class ZTSTest {
 
         ZTSBinder binder = new ZTSBinder();
         binder.configure();
+        binder.close();
         ZTSTestUtils.deleteDirectory(new File(ZTS_DATA_STORE_PATH));
         System.clearProperty(ZTSConsts.ZTS_PROP_CHANGE_LOG_STORE_DIR);
         System.clearProperty(ZTSConsts.ZTS_PROP_CHANGE_LOG_STORE_FACTORY_CLASS);
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class IssuedTokenCacheTest {
+
+    @Test
+    public void testGenerateKey() {
+
+        final String key1 = IssuedTokenCache.generateKey("roletoken", "coretech", 100, "user.joe",
+                new HashSet<>(Arrays.asList("writers", "readers")), "10.11.12.13", null);
+        final String key2 = IssuedTokenCache.generateKey("roletoken", "coretech", 100, "user.joe",
+                new HashSet<>(Arrays.asList("readers", "writers")), "10.11.12.13", null);
+        assertEquals(key1, key2);
+        assertEquals(key1, "roletoken;coretech;100;user.joe;readers,writers;10.11.12.13;");
+
+        assertNotEquals(IssuedTokenCache.generateKey("roletoken", "coretech", 101, "user.joe",
+                new HashSet<>(Arrays.asList("readers", "writers")), "10.11.12.13", null), key1);
+        assertNotEquals(IssuedTokenCache.generateKey("accesstoken", "coretech", 100, "user.joe",
+                new HashSet<>(Arrays.asList("readers", "writers")), "10.11.12.13", null), key1);
+        assertNotEquals(IssuedTokenCache.generateKey("roletoken", "coretech", 100, "user.joe",
+                new HashSet<>(Arrays.asList("readers")), "10.11.12.13", null), key1);
+    }
+
+    @Test
+    public void testGetEntry() {
+
+        IssuedTokenCache cache = new IssuedTokenCache(10, 60);
+        assertNull(cache.getEntry("key1"));
+
+        long now = System.currentTimeMillis() / 1000;
+        cache.putEntry("key1", new IssuedTokenCache.Entry("token", "idtoken", now, now + 3600));
+        IssuedTokenCache.Entry entry = cache.getEntry("key1");
+        assertNotNull(entry);
+        assertEquals(entry.getToken(), "token");
+        assertEquals(entry.getIdToken(), "idtoken");
+        assertEquals(entry.getIssueTime(), now);
+        assertEquals(entry.getExpiryTime(), now + 3600);
+        assertEquals(cache.size(), 1);
+
+        // entries issued outside of our reuse window or in the future are
+        // not returned and removed from the cache
+
+        cache.putEntry("key2", new IssuedTokenCache.Entry("token", null, now - 120, now + 3600));
+        assertNull(cache.getEntry("key2"));
+        cache.putEntry("key3", new IssuedTokenCache.Entry("token", null, now + 120, now + 3600));
+        assertNull(cache.getEntry("key3"));
+        assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testGetEntryMinExpiryTime() {
+
+        IssuedTokenCache cache = new IssuedTokenCache(10, 60);
+
+        long now = System.currentTimeMillis() / 1000;
+        cache.putEntry("key1", new IssuedTokenCache.Entry("token", null, now - 30, now + 1170));
+        assertNotNull(cache.getEntry("key1", 0));
+        assertNotNull(cache.getEntry("key1", 1000));
+
+        // tokens without the requested lifetime remaining are not
+        // returned but are kept in the cache for other requests
+
+        assertNull(cache.getEntry("key1", 1200));
+        assertEquals(cache.size(), 1);
+        assertNotNull(cache.getEntry("key1"));
+    }
+
+    @Test
+    public void testIsCacheable() {
+
+        IssuedTokenCache cache = new IssuedTokenCache(10, 60);
+        assertTrue(cache.isCacheable(3600));
+        assertTrue(cache.isCacheable(120));
+        assertFalse(cache.isCacheable(119));
+    }
+}
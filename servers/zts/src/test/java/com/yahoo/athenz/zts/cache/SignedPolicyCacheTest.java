@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cache;
+
+import com.yahoo.athenz.zts.DomainSignedPolicyData;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class SignedPolicyCacheTest {
+
+    @Test
+    public void testGetSignedPolicyData() {
+
+        SignedPolicyCache cache = new SignedPolicyCache(10, 1000);
+        assertNull(cache.getEntry("coretech", 100, "0"));
+
+        final byte[] data = "signed-policy-data".getBytes();
+        final DomainSignedPolicyData signedPolicyData = new DomainSignedPolicyData().setKeyId("0");
+        long expiryTime = System.currentTimeMillis() + 60000;
+        cache.putEntry("coretech", new SignedPolicyCache.Entry(100, "0", expiryTime, signedPolicyData, data));
+        assertEquals(cache.size(), 1);
+
+        SignedPolicyCache.Entry entry = cache.getEntry("coretech", 100, "0");
+        assertSame(entry.getData(), data);
+        assertSame(entry.getSignedPolicyData(), signedPolicyData);
+
+        // different modified timestamp or key id
+
+        assertNull(cache.getEntry("coretech", 101, "0"));
+        assertNull(cache.getEntry("coretech", 100, "1"));
+        assertNull(cache.getEntry("sports", 100, "0"));
+
+        cache.invalidate("coretech");
+        assertNull(cache.getEntry("coretech", 100, "0"));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testGetSignedPolicyDataRefreshWindow() {
+
+        SignedPolicyCache cache = new SignedPolicyCache(10, 60000);
+
+        // our entry expires within the refresh window so it must
+        // not be returned
+
+        final byte[] data = "signed-policy-data".getBytes();
+        final DomainSignedPolicyData signedPolicyData = new DomainSignedPolicyData().setKeyId("0");
+        cache.putEntry("coretech", new SignedPolicyCache.Entry(100, "0",
+                System.currentTimeMillis() + 30000, signedPolicyData, data));
+        assertNull(cache.getEntry("coretech", 100, "0"));
+
+        cache.putEntry("coretech", new SignedPolicyCache.Entry(100, "0",
+                System.currentTimeMillis() + 120000, signedPolicyData, data));
+        assertSame(cache.getEntry("coretech", 100, "0").getData(), data);
+    }
+
+    @Test
+    public void testMaxSize() {
+
+        SignedPolicyCache cache = new SignedPolicyCache(1, 1000);
+        long expiryTime = System.currentTimeMillis() + 60000;
+        cache.putEntry("coretech", new SignedPolicyCache.Entry(100, "0", expiryTime, null, "data1".getBytes()));
+        cache.putEntry("sports", new SignedPolicyCache.Entry(100, "0", expiryTime, null, "data2".getBytes()));
+        assertEquals(cache.size(), 1);
+        assertNotNull(cache.getEntry("sports", 100, "0"));
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.common.metrics.impl.NoOpMetric;
+import com.yahoo.athenz.common.server.cert.CertSigner;
+
+public class CertSigningBatcherTest {
+
+    /**
+     * Stub signer that records every batch and single request call
+     */
+    static class BatchCertSigner implements CertSigner {
+
+        final List<List<String>> batches = new ArrayList<>();
+        final List<String> singleRequests = new ArrayList<>();
+
+        @Override
+        public synchronized String generateX509Certificate(String csr, String keyUsage, int expiryTime) {
+            singleRequests.add(csr);
+            return "single-" + csr;
+        }
+
+        @Override
+        public boolean isBatchSigningSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized List<String> generateX509Certificates(List<String> csrs, String keyUsage, int expiryTime) {
+            batches.add(new ArrayList<>(csrs));
+            List<String> certs = new ArrayList<>();
+            for (String csr : csrs) {
+                certs.add("batch-" + keyUsage + "-" + csr);
+            }
+            return certs;
+        }
+    }
+
+    private List<String> signConcurrently(CertSigningBatcher batcher, List<String> csrs,
+            List<String> keyUsages) throws Exception {
+
+        ExecutorService executor = Executors.newFixedThreadPool(csrs.size());
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < csrs.size(); i++) {
+            final String csr = csrs.get(i);
+            final String keyUsage = keyUsages.get(i);
+            futures.add(executor.submit(() -> batcher.generateX509Certificate(csr, keyUsage, 60)));
+        }
+        List<String> certs = new ArrayList<>();
+        for (Future<String> future : futures) {
+            certs.add(future.get());
+        }
+        executor.shutdown();
+        return certs;
+    }
+
+    @Test
+    public void testGenerateX509CertificateBatch() throws Exception {
+
+        BatchCertSigner certSigner = new BatchCertSigner();
+        Metric metric = Mockito.mock(Metric.class);
+
+        // with a long window the batch is sent as soon as it is full
+
+        CertSigningBatcher batcher = new CertSigningBatcher(certSigner, metric, 4, 10000, 2, 60000);
+        List<String> certs = signConcurrently(batcher, Arrays.asList("csr1", "csr2", "csr3", "csr4"),
+                Arrays.asList("client", "client", "client", "client"));
+
+        assertEquals(certs, Arrays.asList("batch-client-csr1", "batch-client-csr2",
+                "batch-client-csr3", "batch-client-csr4"));
+        assertEquals(certSigner.batches.size(), 1);
+        assertEquals(certSigner.batches.get(0).size(), 4);
+        assertTrue(certSigner.singleRequests.isEmpty());
+
+        Mockito.verify(metric, Mockito.times(1)).increment(CertSigningBatcher.METRIC_CERT_SIGN_BATCH);
+        Mockito.verify(metric, Mockito.times(1)).increment(CertSigningBatcher.METRIC_CERT_SIGN_BATCH_REQUESTS, null, 4);
+        Mockito.verify(metric, Mockito.times(1)).startTiming(CertSigningBatcher.METRIC_CERT_SIGN_BATCH_TIMING, null);
+        Mockito.verify(metric, Mockito.times(4)).startTiming(CertSigningBatcher.METRIC_CERT_SIGN_REQUEST_TIMING, null);
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testGenerateX509CertificateSingleRequest() {
+
+        BatchCertSigner certSigner = new BatchCertSigner();
+        CertSigningBatcher batcher = new CertSigningBatcher(certSigner, new NoOpMetric(), 10, 5, 1, 60000);
+
+        // a single request within the window is signed without the batch call
+
+        assertEquals(batcher.generateX509Certificate("csr1", null, 60), "single-csr1");
+        assertTrue(certSigner.batches.isEmpty());
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testGenerateX509CertificateGroupedByKeyUsage() {
+
+        BatchCertSigner certSigner = new BatchCertSigner();
+        CertSigningBatcher batcher = new CertSigningBatcher(certSigner, new NoOpMetric(), 10, 5, 1, 60000);
+
+        List<CertSigningBatcher.SigningRequest> requests = new ArrayList<>();
+        requests.add(new CertSigningBatcher.SigningRequest("csr1", "client", 60));
+        requests.add(new CertSigningBatcher.SigningRequest("csr2", "server", 60));
+        requests.add(new CertSigningBatcher.SigningRequest("csr3", "client", 60));
+        requests.add(new CertSigningBatcher.SigningRequest("csr4", "client", 30));
+
+        batcher.submitBatches(requests);
+
+        assertEquals(requests.get(0).result.join(), "batch-client-csr1");
+        assertEquals(requests.get(1).result.join(), "single-csr2");
+        assertEquals(requests.get(2).result.join(), "batch-client-csr3");
+        assertEquals(requests.get(3).result.join(), "single-csr4");
+
+        assertEquals(certSigner.batches.size(), 1);
+        assertEquals(certSigner.batches.get(0), Arrays.asList("csr1", "csr3"));
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testSignBatchFallback() {
+
+        CertSigner certSigner = Mockito.mock(CertSigner.class);
+        Mockito.when(certSigner.generateX509Certificate("csr1", "client", 60)).thenReturn("single-csr1");
+        Mockito.when(certSigner.generateX509Certificate("csr2", "client", 60)).thenReturn("single-csr2");
+        Mockito.when(certSigner.generateX509Certificates(Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenThrow(new IllegalStateException("batch failure"))
+                .thenReturn(null)
+                .thenReturn(Arrays.asList("batch-csr1"))
+                .thenReturn(Arrays.asList("batch-csr1", null));
+        Metric metric = Mockito.mock(Metric.class);
+
+        CertSigningBatcher batcher = new CertSigningBatcher(certSigner, metric, 10, 5, 1, 60000);
+
+        // exception, null response and invalid number of certificates
+        // cause all requests to be signed individually
+
+        for (int i = 0; i < 3; i++) {
+            List<CertSigningBatcher.SigningRequest> batch = new ArrayList<>();
+            batch.add(new CertSigningBatcher.SigningRequest("csr1", "client", 60));
+            batch.add(new CertSigningBatcher.SigningRequest("csr2", "client", 60));
+            batcher.signBatch(batch);
+            assertEquals(batch.get(0).result.join(), "single-csr1");
+            assertEquals(batch.get(1).result.join(), "single-csr2");
+        }
+
+        // only the failed request is signed individually
+
+        List<CertSigningBatcher.SigningRequest> batch = new ArrayList<>();
+        batch.add(new CertSigningBatcher.SigningRequest("csr1", "client", 60));
+        batch.add(new CertSigningBatcher.SigningRequest("csr2", "client", 60));
+        batcher.signBatch(batch);
+        assertEquals(batch.get(0).result.join(), "batch-csr1");
+        assertEquals(batch.get(1).result.join(), "single-csr2");
+
+        Mockito.verify(metric, Mockito.times(7)).increment(CertSigningBatcher.METRIC_CERT_SIGN_BATCH_FALLBACK);
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testSignRequestException() {
+
+        CertSigner certSigner = Mockito.mock(CertSigner.class);
+        Mockito.when(certSigner.generateX509Certificate("csr1", "client", 60))
+                .thenThrow(new IllegalStateException("signer failure"));
+
+        CertSigningBatcher batcher = new CertSigningBatcher(certSigner, new NoOpMetric(), 10, 5, 1, 60000);
+        assertNull(batcher.generateX509Certificate("csr1", "client", 60));
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testGenerateX509CertificateSignerError() throws Exception {
+
+        // the signer fails with an error for both the batch and the
+        // individual calls so all our callers must still return
+
+        CertSigner certSigner = Mockito.mock(CertSigner.class);
+        Mockito.when(certSigner.generateX509Certificates(Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenThrow(new AssertionError("batch failure"));
+        Mockito.when(certSigner.generateX509Certificate(Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenThrow(new AssertionError("signer failure"));
+
+        CertSigningBatcher batcher = new CertSigningBatcher(certSigner, new NoOpMetric(), 2, 10000, 1, 60000);
+        List<String> certs = signConcurrently(batcher, Arrays.asList("csr1", "csr2"),
+                Arrays.asList("client", "client"));
+        assertEquals(certs, Arrays.asList(null, null));
+
+        // our dispatcher is still running and processes new requests
+
+        certs = signConcurrently(batcher, Arrays.asList("csr3", "csr4"), Arrays.asList("client", "client"));
+        assertEquals(certs, Arrays.asList(null, null));
+        Mockito.verify(certSigner, Mockito.times(2)).generateX509Certificates(Mockito.any(),
+                Mockito.any(), Mockito.anyInt());
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testGenerateX509CertificateTimeout() {
+
+        // the signer never returns so the caller gives up once
+        // the batch window and the request timeout expire
+
+        CountDownLatch latch = new CountDownLatch(1);
+        CertSigner certSigner = Mockito.mock(CertSigner.class);
+        Mockito.when(certSigner.generateX509Certificate(Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenAnswer(invocation -> {
+                    latch.await();
+                    return "single-csr1";
+                });
+
+        CertSigningBatcher batcher = new CertSigningBatcher(certSigner, new NoOpMetric(), 10, 5, 1, 50);
+        assertNull(batcher.generateX509Certificate("csr1", "client", 60));
+
+        // once the signer completes our dispatcher is available again
+
+        latch.countDown();
+        Mockito.when(certSigner.generateX509Certificate(Mockito.any(), Mockito.any(), Mockito.anyInt()))
+                .thenReturn("single-csr2");
+        CertSigningBatcher.SigningRequest request = new CertSigningBatcher.SigningRequest("csr2", "client", 60);
+        batcher.signBatch(Collections.singletonList(request));
+        assertEquals(request.result.join(), "single-csr2");
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testSignBatchIncomplete() {
+
+        // any request not completed by the batch processing
+        // is completed exceptionally
+
+        CertSigningBatcher batcher = new CertSigningBatcher(new BatchCertSigner(), new NoOpMetric(),
+                10, 5, 1, 60000) {
+            @Override
+            void processBatch(List<SigningRequest> batch) {
+            }
+        };
+        CertSigningBatcher.SigningRequest request = new CertSigningBatcher.SigningRequest("csr1", "client", 60);
+        batcher.signBatch(Collections.singletonList(request));
+        assertTrue(request.result.isCompletedExceptionally());
+        batcher.shutdown();
+    }
+
+    @Test
+    public void testGenerateX509CertificateAfterShutdown() {
+
+        BatchCertSigner certSigner = new BatchCertSigner();
+        CertSigningBatcher batcher = new CertSigningBatcher(certSigner, new NoOpMetric(), 10, 5, 1, 60000);
+        batcher.shutdown();
+
+        // requests after shutdown are processed by the caller
+
+        assertEquals(batcher.generateX509Certificate("csr1", "client", 60), "single-csr1");
+        assertEquals(certSigner.singleRequests, Arrays.asList("csr1"));
+    }
+}
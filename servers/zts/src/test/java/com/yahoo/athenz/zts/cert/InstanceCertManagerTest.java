@@ -5,10 +5,11 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
+import java.util.Date;
 
 import com.yahoo.athenz.common.server.ssh.SSHSigner;
 import com.yahoo.athenz.zts.*;
@@ -25,7 +26,7 @@ import static org.testng.Assert.fail;
 
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.common.server.cert.CertSigner;
-import com.yahoo.athenz.zts.utils.IPBlock;
+import com.yahoo.athenz.zts.utils.IPBlockTrie;
 import com.yahoo.athenz.auth.Principal;
 
 public class InstanceCertManagerTest {
@@ -154,6 +155,49 @@ public class InstanceCertManagerTest {
         assertNull(identity);
         instanceManager.shutdown();
     }
+
+    @Test
+    public void testGenerateX509CertificateBatcher() {
+
+        CertSigner certSigner = Mockito.mock(com.yahoo.athenz.common.server.cert.CertSigner.class);
+        CertSigningBatcher batcher = Mockito.mock(CertSigningBatcher.class);
+        Mockito.when(batcher.generateX509Certificate("csr", null, 0)).thenReturn("batch-cert");
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, false);
+        instanceManager.setCertSigner(certSigner);
+        instanceManager.setCertSigningBatcher(batcher);
+        assertEquals(instanceManager.generateX509Certificate("csr", null, 0), "batch-cert");
+        Mockito.verify(certSigner, Mockito.times(0)).generateX509Certificate(Mockito.any(), Mockito.any(), Mockito.anyInt());
+
+        instanceManager.shutdown();
+        Mockito.verify(batcher, Mockito.times(1)).shutdown();
+    }
+
+    @Test
+    public void testLoadCertSigningBatcher() {
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, false);
+        assertFalse(instanceManager.isCertSigningBatchEnabled());
+
+        // batching is only enabled if configured and supported by the signer
+
+        CertSigner certSigner = Mockito.mock(com.yahoo.athenz.common.server.cert.CertSigner.class);
+        Mockito.when(certSigner.isBatchSigningSupported()).thenReturn(false).thenReturn(true);
+        instanceManager.setCertSigner(certSigner);
+
+        instanceManager.loadCertSigningBatcher();
+        assertFalse(instanceManager.isCertSigningBatchEnabled());
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_SIGN_BATCH_WINDOW, "5");
+        instanceManager.loadCertSigningBatcher();
+        assertFalse(instanceManager.isCertSigningBatchEnabled());
+
+        instanceManager.loadCertSigningBatcher();
+        assertTrue(instanceManager.isCertSigningBatchEnabled());
+
+        instanceManager.shutdown();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_SIGN_BATCH_WINDOW);
+    }
     
     @Test
     public void testGetX509CertRecordWithCertificate() throws IOException {
@@ -615,10 +659,99 @@ public class InstanceCertManagerTest {
         System.clearProperty(ZTSConsts.ZTS_PROP_INSTANCE_CERT_IP_FNAME);
     }
 
+    @Test
+    public void testVerifyIPAddressAccessIPv6() {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_REFRESH_IP_FNAME,
+                "src/test/resources/ipv6_ipblocks.txt");
+
+        InstanceCertManager instance = new InstanceCertManager(null, null, true);
+        instance.setCertSigner(null);
+
+        // invalid ipv6 entries are skipped
+
+        assertTrue(instance.verifyCertRefreshIPAddress("10.1.3.25"));
+        assertTrue(instance.verifyCertRefreshIPAddress("::ffff:10.1.3.25"));
+        assertFalse(instance.verifyCertRefreshIPAddress("10.1.9.25"));
+        assertTrue(instance.verifyCertRefreshIPAddress("2600:1f14:10::1"));
+        assertFalse(instance.verifyCertRefreshIPAddress("2600:1f14:2000::1"));
+        assertTrue(instance.verifyCertRefreshIPAddress("2a05:d018:0:8abc::25"));
+        assertFalse(instance.verifyCertRefreshIPAddress("2a05:d018::25"));
+
+        // invalid addresses are rejected
+
+        assertFalse(instance.verifyCertRefreshIPAddress("10.1.3.256"));
+        assertFalse(instance.verifyCertRefreshIPAddress("2600:1f14::10::1"));
+
+        instance.shutdown();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_REFRESH_IP_FNAME);
+    }
+
+    @Test
+    public void testReloadAllowedIPAddresses() throws IOException {
+
+        Path ipDir = Files.createTempDirectory("zts_ipblocks");
+        Path refreshFile = ipDir.resolve("cert_refresh_ipblocks.txt");
+        Path providerFile = ipDir.resolve("ipblocks_provider.txt");
+        Path providerMapFile = ipDir.resolve("instance_cert_ipblocks.txt");
+
+        Files.copy(Paths.get("src/test/resources/ipv6_ipblocks.txt"), refreshFile);
+        Files.copy(Paths.get("src/test/resources/ipblocks_k8s.txt"), providerFile);
+        Files.write(providerMapFile, ("{\"ipblocks\":[{\"filename\":\"" + providerFile
+                + "\",\"providers\":[\"k8s.provider\"]}]}").getBytes());
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERT_REFRESH_IP_FNAME, refreshFile.toString());
+        System.setProperty(ZTSConsts.ZTS_PROP_INSTANCE_CERT_IP_FNAME, providerMapFile.toString());
+
+        InstanceCertManager instance = new InstanceCertManager(null, null, true);
+        instance.setCertSigner(null);
+
+        assertTrue(instance.verifyCertRefreshIPAddress("10.1.3.25"));
+        assertFalse(instance.verifyCertRefreshIPAddress("11.1.3.25"));
+        assertTrue(instance.verifyInstanceCertIPAddress("k8s.provider", "11.2.3.25"));
+        assertFalse(instance.verifyInstanceCertIPAddress("k8s.provider", "11.1.3.25"));
+
+        // swap the files and reload
+
+        Files.copy(Paths.get("src/test/resources/ipblocks_athenz.txt"), refreshFile,
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(Paths.get("src/test/resources/ipblocks_athenz.txt"), providerFile,
+                StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(instance.reloadAllowedIPAddresses());
+
+        assertFalse(instance.verifyCertRefreshIPAddress("10.1.3.25"));
+        assertTrue(instance.verifyCertRefreshIPAddress("11.1.3.25"));
+        assertFalse(instance.verifyInstanceCertIPAddress("k8s.provider", "11.2.3.25"));
+        assertTrue(instance.verifyInstanceCertIPAddress("k8s.provider", "11.1.3.25"));
+
+        // invalid files keep the current blocks
+
+        Files.copy(Paths.get("src/test/resources/invalid_ipblocks.txt"), providerFile,
+                StandardCopyOption.REPLACE_EXISTING);
+        assertFalse(instance.reloadAllowedIPAddresses());
+
+        Files.copy(Paths.get("src/test/resources/invalid_ipblocks.txt"), refreshFile,
+                StandardCopyOption.REPLACE_EXISTING);
+        assertFalse(instance.reloadAllowedIPAddresses());
+
+        assertTrue(instance.verifyCertRefreshIPAddress("11.1.3.25"));
+        assertTrue(instance.verifyInstanceCertIPAddress("k8s.provider", "11.1.3.25"));
+        assertFalse(instance.verifyInstanceCertIPAddress("k8s.provider", "11.2.3.25"));
+
+        instance.shutdown();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERT_REFRESH_IP_FNAME);
+        System.clearProperty(ZTSConsts.ZTS_PROP_INSTANCE_CERT_IP_FNAME);
+
+        Files.delete(refreshFile);
+        Files.delete(providerFile);
+        Files.delete(providerMapFile);
+        Files.delete(ipDir);
+    }
+
     @Test
     public void testLoadAllowedIPAddresses() {
         
-        List<IPBlock> ipBlocks = new ArrayList<>();
+        IPBlockTrie ipBlocks = new IPBlockTrie();
 
         InstanceCertManager instance = new InstanceCertManager(null, null, true);
         instance.setCertSigner(null);
@@ -814,6 +947,191 @@ public class InstanceCertManagerTest {
         cleaner.run();
     }
 
+    @Test
+    public void testExpiredX509CertRecordCleanerBatches() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+
+        Mockito.when(storeConn.getX509CertRecordProviders()).thenReturn(Arrays.asList("ostk", "aws", "gcp"));
+        Mockito.when(storeConn.lockX509CertRecordProvider("ostk")).thenReturn(true);
+        Mockito.when(storeConn.lockX509CertRecordProvider("aws")).thenReturn(false);
+        Mockito.when(storeConn.lockX509CertRecordProvider("gcp")).thenReturn(true);
+        Mockito.when(storeConn.unlockX509CertRecordProvider(ArgumentMatchers.anyString())).thenReturn(true);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(ArgumentMatchers.eq("ostk"),
+                ArgumentMatchers.any(), ArgumentMatchers.eq(10))).thenReturn(10).thenReturn(10).thenReturn(5);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(ArgumentMatchers.eq("gcp"),
+                ArgumentMatchers.any(), ArgumentMatchers.eq(10))).thenReturn(3);
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, true);
+        InstanceCertManager.ExpiredX509CertRecordCleaner cleaner =
+                instanceManager.new ExpiredX509CertRecordCleaner(store, 100, 10, 0, 3600);
+
+        // aws provider is locked by another server so we skip it
+
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 28);
+        Mockito.verify(storeConn, Mockito.times(0)).deleteExpiredX509CertRecords(ArgumentMatchers.eq("aws"),
+                ArgumentMatchers.any(), ArgumentMatchers.anyInt());
+        Mockito.verify(storeConn, Mockito.times(1)).unlockX509CertRecordProvider("ostk");
+        Mockito.verify(storeConn, Mockito.times(0)).unlockX509CertRecordProvider("aws");
+        Mockito.verify(storeConn, Mockito.times(1)).unlockX509CertRecordProvider("gcp");
+        Mockito.verify(storeConn, Mockito.times(0)).deleteExpiredX509CertRecords(ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    public void testExpiredX509CertRecordCleanerResume() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+
+        Mockito.when(storeConn.getX509CertRecordProviders()).thenReturn(Arrays.asList("ostk", "aws"));
+        Mockito.when(storeConn.lockX509CertRecordProvider(ArgumentMatchers.anyString())).thenReturn(true);
+        Mockito.when(storeConn.unlockX509CertRecordProvider(ArgumentMatchers.anyString())).thenReturn(true);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(ArgumentMatchers.eq("ostk"),
+                ArgumentMatchers.any(), ArgumentMatchers.eq(10))).thenReturn(5);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(ArgumentMatchers.eq("aws"),
+                ArgumentMatchers.any(), ArgumentMatchers.eq(10))).thenReturn(2);
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, true);
+
+        // with no run time we're not going to process any providers
+
+        InstanceCertManager.ExpiredX509CertRecordCleaner cleaner =
+                instanceManager.new ExpiredX509CertRecordCleaner(store, 100, 10, 0, 0);
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 0);
+        Mockito.verify(storeConn, Mockito.times(1)).unlockX509CertRecordProvider("ostk");
+        Mockito.verify(storeConn, Mockito.times(0)).lockX509CertRecordProvider("aws");
+
+        // process the first provider and then resume with the second
+        // provider only during the next run with the same expiry time
+
+        cleaner = Mockito.spy(instanceManager.new ExpiredX509CertRecordCleaner(store, 100, 10, 0, 3600));
+        Mockito.doReturn(true).doReturn(false).when(cleaner)
+                .cleanupProviderExpiredX509CertRecords(ArgumentMatchers.any(), ArgumentMatchers.anyString(),
+                        ArgumentMatchers.anyLong());
+        cleaner.cleanupExpiredX509CertRecordsInBatches();
+
+        Mockito.doCallRealMethod().when(cleaner)
+                .cleanupProviderExpiredX509CertRecords(ArgumentMatchers.any(), ArgumentMatchers.anyString(),
+                        ArgumentMatchers.anyLong());
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 2);
+        Mockito.verify(storeConn, Mockito.times(0)).deleteExpiredX509CertRecords(ArgumentMatchers.eq("ostk"),
+                ArgumentMatchers.any(), ArgumentMatchers.anyInt());
+
+        // the next run starts a new cycle with all providers
+
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 7);
+    }
+
+    @Test
+    public void testExpiredX509CertRecordCleanerBatchesNotSupported() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.getX509CertRecordProviders()).thenReturn(null);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(100)).thenReturn(25);
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, true);
+        InstanceCertManager.ExpiredX509CertRecordCleaner cleaner =
+                instanceManager.new ExpiredX509CertRecordCleaner(store, 100, 10, 1000, 3600);
+
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 25);
+        cleaner.run();
+        Mockito.verify(storeConn, Mockito.times(2)).deleteExpiredX509CertRecords(100);
+    }
+
+    @Test
+    public void testExpiredX509CertRecordCleanerBatchDeleteNotSupported() {
+
+        // default implementation reports batched deletes as not supported
+
+        CertRecordStoreConnection defaultConn = Mockito.mock(CertRecordStoreConnection.class,
+                Mockito.CALLS_REAL_METHODS);
+        assertEquals(defaultConn.deleteExpiredX509CertRecords("ostk", new Date(), 10), -1);
+        assertTrue(defaultConn.unlockX509CertRecordProvider("ostk"));
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.getX509CertRecordProviders()).thenReturn(Arrays.asList("ostk", "aws"));
+        Mockito.when(storeConn.lockX509CertRecordProvider(ArgumentMatchers.anyString())).thenReturn(true);
+        Mockito.when(storeConn.unlockX509CertRecordProvider(ArgumentMatchers.anyString())).thenReturn(true);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(ArgumentMatchers.anyString(),
+                ArgumentMatchers.any(), ArgumentMatchers.anyInt())).thenReturn(-1);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(100)).thenReturn(25);
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, true);
+        InstanceCertManager.ExpiredX509CertRecordCleaner cleaner =
+                instanceManager.new ExpiredX509CertRecordCleaner(store, 100, 10, 1000, 3600);
+
+        // we fall back to the regular delete after the first provider
+
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 25);
+        Mockito.verify(storeConn, Mockito.times(1)).unlockX509CertRecordProvider("ostk");
+        Mockito.verify(storeConn, Mockito.times(0)).lockX509CertRecordProvider("aws");
+
+        // next run goes straight to the regular delete
+
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 25);
+        Mockito.verify(storeConn, Mockito.times(1)).getX509CertRecordProviders();
+        Mockito.verify(storeConn, Mockito.times(1)).deleteExpiredX509CertRecords(ArgumentMatchers.anyString(),
+                ArgumentMatchers.any(), ArgumentMatchers.anyInt());
+        Mockito.verify(storeConn, Mockito.times(2)).deleteExpiredX509CertRecords(100);
+    }
+
+    @Test
+    public void testExpiredX509CertRecordCleanerUnlockFailure() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.getX509CertRecordProviders()).thenReturn(Arrays.asList("ostk", "aws"));
+        Mockito.when(storeConn.lockX509CertRecordProvider(ArgumentMatchers.anyString())).thenReturn(true);
+        Mockito.when(storeConn.unlockX509CertRecordProvider("ostk")).thenReturn(false).thenReturn(true);
+        Mockito.when(storeConn.unlockX509CertRecordProvider("aws")).thenReturn(true);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(ArgumentMatchers.eq("ostk"),
+                ArgumentMatchers.any(), ArgumentMatchers.eq(10))).thenReturn(5);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(ArgumentMatchers.eq("aws"),
+                ArgumentMatchers.any(), ArgumentMatchers.eq(10))).thenReturn(2);
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, true);
+        InstanceCertManager.ExpiredX509CertRecordCleaner cleaner =
+                instanceManager.new ExpiredX509CertRecordCleaner(store, 100, 10, 0, 3600);
+
+        // the connection is no longer usable once the lock
+        // can't be released so we stop with the first provider
+
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 5);
+        Mockito.verify(storeConn, Mockito.times(0)).lockX509CertRecordProvider("aws");
+
+        // next run resumes with the same provider
+
+        assertEquals(cleaner.cleanupExpiredX509CertRecordsInBatches(), 7);
+        Mockito.verify(storeConn, Mockito.times(2)).lockX509CertRecordProvider("ostk");
+        Mockito.verify(storeConn, Mockito.times(1)).lockX509CertRecordProvider("aws");
+    }
+
+    @Test
+    public void testExpiredX509CertRecordCleanerRateLimit() {
+
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(ArgumentMatchers.eq("ostk"),
+                ArgumentMatchers.any(), ArgumentMatchers.eq(10))).thenReturn(10).thenReturn(0);
+
+        InstanceCertManager instanceManager = new InstanceCertManager(null, null, true);
+        InstanceCertManager.ExpiredX509CertRecordCleaner cleaner =
+                instanceManager.new ExpiredX509CertRecordCleaner(null, 100, 10, 100, 3600);
+
+        // 10 records with a rate of 100 per second requires 100ms pause
+
+        long startTime = System.currentTimeMillis();
+        assertTrue(cleaner.cleanupProviderExpiredX509CertRecords(storeConn, "ostk", startTime));
+        assertTrue(System.currentTimeMillis() - startTime >= 90);
+    }
+
     @Test
     public void testReadFileContentsException() {
 
@@ -0,0 +1,507 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import com.yahoo.athenz.common.metrics.Metric;
+import com.yahoo.athenz.zts.ResourceException;
+
+public class WriteBehindCertRecordStoreTest {
+
+    private X509CertRecord createCertRecord(final String instanceId, final String serial) {
+
+        X509CertRecord certRecord = new X509CertRecord();
+        Date now = new Date();
+
+        certRecord.setService("cn");
+        certRecord.setProvider("ostk");
+        certRecord.setInstanceId(instanceId);
+        certRecord.setCurrentIP("current-ip");
+        certRecord.setCurrentSerial(serial);
+        certRecord.setCurrentTime(now);
+        certRecord.setPrevIP("prev-ip");
+        certRecord.setPrevSerial("prev-serial");
+        certRecord.setPrevTime(now);
+        return certRecord;
+    }
+
+    private WriteBehindCertRecordStore.WriteBehindCertRecordStoreConnection getReadConnection(
+            WriteBehindCertRecordStore writeBehindStore, CertRecordStoreConnection storeConn,
+            final String instanceId, final String serial) {
+
+        // records must be read through the store before their
+        // updates can be deferred
+
+        Mockito.when(storeConn.getX509CertRecord("ostk", instanceId, "cn"))
+                .thenReturn(createCertRecord(instanceId, serial));
+        WriteBehindCertRecordStore.WriteBehindCertRecordStoreConnection conn =
+                (WriteBehindCertRecordStore.WriteBehindCertRecordStoreConnection) writeBehindStore.getConnection();
+        assertNotNull(conn.getX509CertRecord("ostk", instanceId, "cn"));
+        return conn;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testUpdateCoalescedAndFlushed() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList()))
+                .thenReturn(new boolean[] { true, true });
+
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 0, 100);
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial1")));
+
+            // lookups are served from the pending records and further
+            // updates keep the serial number the store has
+
+            X509CertRecord certRecord = conn.getX509CertRecord("ostk", "id1", "cn");
+            assertEquals(certRecord.getCurrentSerial(), "serial1");
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial2")));
+            assertEquals(conn.getX509CertRecord("ostk", "id1", "cn").getCurrentSerial(), "serial2");
+        }
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id2", "serial5")) {
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id2", "serial6")));
+        }
+
+        Mockito.verify(store, times(2)).getConnection();
+        Mockito.verify(storeConn, times(0)).updateX509CertRecord(any());
+        assertEquals(writeBehindStore.getPendingRecordCount(), 2);
+
+        assertEquals(writeBehindStore.flush(), 2);
+        assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+
+        ArgumentCaptor<List<X509CertRecord>> recordCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<String>> serialCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(storeConn, times(1)).updateX509CertRecords(recordCaptor.capture(),
+                serialCaptor.capture());
+        assertEquals(recordCaptor.getValue().size(), 2);
+        for (int i = 0; i < 2; i++) {
+            final String serial = recordCaptor.getValue().get(i).getCurrentSerial();
+            assertEquals(serialCaptor.getValue().get(i), "serial2".equals(serial) ? "serial0" : "serial5");
+        }
+
+        // nothing else to flush
+
+        assertEquals(writeBehindStore.flush(), 0);
+        Mockito.verify(store, times(3)).getConnection();
+
+        writeBehindStore.close();
+        Mockito.verify(store, times(1)).close();
+    }
+
+    @Test
+    public void testUpdateWithoutReadWritesThrough() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.updateX509CertRecord(any())).thenReturn(false).thenReturn(true);
+
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 0, 100);
+
+        // without knowing the serial number in the store we cannot
+        // defer the update so the caller gets the store result
+
+        try (CertRecordStoreConnection conn = writeBehindStore.getConnection()) {
+            assertFalse(conn.updateX509CertRecord(createCertRecord("id1", "serial1")));
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial2")));
+        }
+
+        Mockito.verify(storeConn, times(2)).updateX509CertRecord(any());
+        assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+        writeBehindStore.close();
+    }
+
+    @Test
+    public void testGetRecordReturnsCopy() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList()))
+                .thenReturn(new boolean[] { true });
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 0, 100);
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            X509CertRecord certRecord = createCertRecord("id1", "serial1");
+            assertTrue(conn.updateX509CertRecord(certRecord));
+            certRecord.setCurrentSerial("serial2");
+
+            X509CertRecord pendingRecord = conn.getX509CertRecord("ostk", "id1", "cn");
+            assertEquals(pendingRecord.getCurrentSerial(), "serial1");
+            pendingRecord.setCurrentSerial("serial3");
+
+            assertEquals(conn.getX509CertRecord("ostk", "id1", "cn").getCurrentSerial(), "serial1");
+        }
+        writeBehindStore.close();
+    }
+
+    @Test
+    public void testGetRecordFromStore() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        X509CertRecord certRecord = createCertRecord("id1", "serial1");
+        Mockito.when(storeConn.getX509CertRecord("ostk", "id1", "cn")).thenReturn(certRecord);
+
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 0, 100);
+
+        try (CertRecordStoreConnection conn = writeBehindStore.getConnection()) {
+            conn.setOperationTimeout(10);
+            assertEquals(conn.getX509CertRecord("ostk", "id1", "cn"), certRecord);
+            assertNull(conn.getX509CertRecord("ostk", "id2", "cn"));
+        }
+
+        assertEquals(writeBehindStore.storeSerials.getIfPresent(
+                WriteBehindCertRecordStore.getRecordKey("ostk", "id1", "cn")), "serial1");
+        assertNull(writeBehindStore.storeSerials.getIfPresent(
+                WriteBehindCertRecordStore.getRecordKey("ostk", "id2", "cn")));
+
+        Mockito.verify(store, times(1)).getConnection();
+        Mockito.verify(storeConn, times(1)).setOperationTimeout(10);
+        Mockito.verify(storeConn, times(1)).close();
+        writeBehindStore.close();
+    }
+
+    @Test
+    public void testMaxPendingWritesThrough() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.updateX509CertRecord(any())).thenReturn(true);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList()))
+                .thenReturn(new boolean[] { true, true });
+
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 0, 2);
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial1")));
+        }
+        assertEquals(writeBehindStore.getPendingRecordCount(), 1);
+
+        // reaching the limit asks the background thread to write
+        // the pending records and does not block the request
+
+        X509CertRecord certRecord = createCertRecord("id2", "serial3");
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id2", "serial2")) {
+            assertTrue(conn.updateX509CertRecord(certRecord));
+        }
+        Mockito.verify(storeConn, Mockito.timeout(5000).times(1)).updateX509CertRecords(anyList(), anyList());
+
+        // once we're at the limit updates are written through
+
+        writeBehindStore.pendingRecords.put("ostk:id4:cn", new WriteBehindCertRecordStore.PendingCertRecord(
+                createCertRecord("id4", "serial4"), "serial0"));
+        writeBehindStore.pendingRecords.put("ostk:id5:cn", new WriteBehindCertRecordStore.PendingCertRecord(
+                createCertRecord("id5", "serial5"), "serial0"));
+
+        X509CertRecord updateRecord = createCertRecord("id3", "serial7");
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id3", "serial6")) {
+            assertTrue(conn.updateX509CertRecord(updateRecord));
+        }
+        Mockito.verify(storeConn, times(1)).updateX509CertRecord(updateRecord);
+        Mockito.verify(storeConn, Mockito.timeout(5000).times(2)).updateX509CertRecords(anyList(), anyList());
+
+        writeBehindStore.close();
+    }
+
+    @Test
+    public void testFlushFailureWritesThrough() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList()))
+                .thenThrow(new ResourceException(500, "db failure"))
+                .thenReturn(new boolean[] { true });
+        Mockito.when(storeConn.updateX509CertRecord(any()))
+                .thenThrow(new ResourceException(500, "db failure"));
+
+        Metric metric = Mockito.mock(Metric.class);
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, metric, 0, 100);
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial1")));
+        }
+
+        assertEquals(writeBehindStore.flush(), 0);
+        assertTrue(writeBehindStore.isFlushFailed());
+        assertEquals(writeBehindStore.getPendingRecordCount(), 1);
+        Mockito.verify(metric, times(1)).increment(WriteBehindCertRecordStore.METRIC_WRITE_BEHIND_FLUSH_FAILURE);
+
+        // while the store is failing updates are written through
+        // so the caller sees the failure
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id2", "serial2")) {
+            conn.updateX509CertRecord(createCertRecord("id2", "serial3"));
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), 500);
+        }
+        assertEquals(writeBehindStore.getPendingRecordCount(), 1);
+
+        assertEquals(writeBehindStore.flush(), 1);
+        assertFalse(writeBehindStore.isFlushFailed());
+        assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+        writeBehindStore.close();
+    }
+
+    @Test
+    public void testFlushDropsRecordsUpdatedByOtherServers() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList()))
+                .thenReturn(new boolean[] { false });
+
+        Metric metric = Mockito.mock(Metric.class);
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, metric, 0, 100);
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial1")));
+        }
+
+        // the conflicting update is not written but reported
+
+        assertEquals(writeBehindStore.flush(), 0);
+        assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+        assertFalse(writeBehindStore.isFlushFailed());
+        Mockito.verify(metric, times(1)).increment(WriteBehindCertRecordStore.METRIC_WRITE_BEHIND_CONFLICT, "ostk");
+        Mockito.verify(storeConn, times(0)).updateX509CertRecord(any());
+
+        // the record is now read from the store again
+
+        Mockito.when(storeConn.getX509CertRecord("ostk", "id1", "cn"))
+                .thenReturn(createCertRecord("id1", "serial9"));
+        try (CertRecordStoreConnection conn = writeBehindStore.getConnection()) {
+            assertEquals(conn.getX509CertRecord("ostk", "id1", "cn").getCurrentSerial(), "serial9");
+        }
+        writeBehindStore.close();
+    }
+
+    @Test
+    public void testFlushKeepsRecordUpdatedDuringFlush() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 0, 100);
+        final String key = WriteBehindCertRecordStore.getRecordKey("ostk", "id1", "cn");
+
+        // while the batch is being written the record is updated again
+
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList())).thenAnswer(invocation -> {
+            try (CertRecordStoreConnection conn = writeBehindStore.getConnection()) {
+                assertEquals(conn.getX509CertRecord("ostk", "id1", "cn").getCurrentSerial(), "serial1");
+                assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial2")));
+            }
+            return new boolean[] { true };
+        });
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial1")));
+        }
+        assertEquals(writeBehindStore.pendingRecords.get(key).storeSerial, "serial0");
+
+        // the newer record stays pending and is now based on
+        // the serial number we have just written
+
+        assertEquals(writeBehindStore.flush(), 1);
+        assertEquals(writeBehindStore.getPendingRecordCount(), 1);
+        assertEquals(writeBehindStore.pendingRecords.get(key).certRecord.getCurrentSerial(), "serial2");
+        assertEquals(writeBehindStore.pendingRecords.get(key).storeSerial, "serial1");
+
+        Mockito.doReturn(new boolean[] { true }).when(storeConn).updateX509CertRecords(anyList(), anyList());
+        writeBehindStore.close();
+        Mockito.verify(storeConn, times(2)).updateX509CertRecords(anyList(), anyList());
+    }
+
+    @Test
+    public void testWriteThroughOperations() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.updateX509CertRecord(any())).thenReturn(true);
+        Mockito.when(storeConn.insertX509CertRecord(any())).thenReturn(true);
+        Mockito.when(storeConn.deleteX509CertRecord("ostk", "id2", "cn")).thenReturn(true);
+        Mockito.when(storeConn.deleteExpiredX509CertRecords(100)).thenReturn(5);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList()))
+                .thenReturn(new boolean[] { true });
+
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 0, 100);
+
+        // revoked records are written through immediately
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            conn.updateX509CertRecord(createCertRecord("id1", "serial1"));
+            X509CertRecord revokedRecord = createCertRecord("id1", WriteBehindCertRecordStore.REVOKED_SERIAL);
+            assertTrue(conn.updateX509CertRecord(revokedRecord));
+            Mockito.verify(storeConn, times(1)).updateX509CertRecord(revokedRecord);
+            assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+        }
+
+        // inserts and deletes replace any pending updates
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id2", "serial0")) {
+            conn.updateX509CertRecord(createCertRecord("id2", "serial2"));
+            X509CertRecord insertRecord = createCertRecord("id2", "serial3");
+            assertTrue(conn.insertX509CertRecord(insertRecord));
+            Mockito.verify(storeConn, times(1)).insertX509CertRecord(insertRecord);
+            assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+        }
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id2", "serial3")) {
+            conn.updateX509CertRecord(createCertRecord("id2", "serial4"));
+            assertTrue(conn.deleteX509CertRecord("ostk", "id2", "cn"));
+            assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+        }
+
+        // expired record cleanup flushes pending records first
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id3", "serial0")) {
+            conn.updateX509CertRecord(createCertRecord("id3", "serial5"));
+            assertEquals(writeBehindStore.getPendingRecordCount(), 1);
+            assertEquals(conn.deleteExpiredX509CertRecords(100), 5);
+            Mockito.verify(storeConn, times(1)).updateX509CertRecords(anyList(), anyList());
+            assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+        }
+        writeBehindStore.close();
+    }
+
+    @Test
+    public void testBatchedCleanupOperations() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.getX509CertRecordProviders()).thenReturn(Arrays.asList("ostk", "aws"));
+        Mockito.when(storeConn.lockX509CertRecordProvider("ostk")).thenReturn(true);
+        Mockito.when(storeConn.unlockX509CertRecordProvider("ostk")).thenReturn(true);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList()))
+                .thenReturn(new boolean[] { true });
+        Date expiryTime = new Date();
+        Mockito.when(storeConn.deleteExpiredX509CertRecords("ostk", expiryTime, 10)).thenReturn(7);
+
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 0, 100);
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            assertEquals(conn.getX509CertRecordProviders().size(), 2);
+            assertTrue(conn.lockX509CertRecordProvider("ostk"));
+
+            // pending records are written before expired records are deleted
+
+            conn.updateX509CertRecord(createCertRecord("id1", "serial1"));
+            assertEquals(conn.deleteExpiredX509CertRecords("ostk", expiryTime, 10), 7);
+            assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+
+            assertTrue(conn.unlockX509CertRecordProvider("ostk"));
+        }
+
+        Mockito.verify(storeConn, times(1)).updateX509CertRecords(anyList(), anyList());
+        Mockito.verify(storeConn, times(1)).unlockX509CertRecordProvider("ostk");
+        writeBehindStore.close();
+    }
+
+    @Test
+    public void testStoreDelegation() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 1000, 100);
+
+        writeBehindStore.setOperationTimeout(10);
+        Mockito.verify(store, times(1)).setOperationTimeout(10);
+
+        writeBehindStore.clearConnections();
+        Mockito.verify(store, times(1)).clearConnections();
+
+        writeBehindStore.log(null, "10.1.1.1", "ostk", "id1", null);
+        Mockito.verify(store, times(1)).log(null, "10.1.1.1", "ostk", "id1", null);
+
+        writeBehindStore.close();
+        Mockito.verify(store, times(1)).close();
+
+        // flush requests after close are ignored
+
+        writeBehindStore.requestFlush();
+        writeBehindStore.requestFlush();
+    }
+
+    @Test
+    public void testCloseFlushesPendingRecords() {
+
+        CertRecordStore store = Mockito.mock(CertRecordStore.class);
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(store.getConnection()).thenReturn(storeConn);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList()))
+                .thenReturn(new boolean[] { true });
+
+        WriteBehindCertRecordStore writeBehindStore = new WriteBehindCertRecordStore(store, 60000, 100);
+
+        try (CertRecordStoreConnection conn = getReadConnection(writeBehindStore, storeConn, "id1", "serial0")) {
+            assertTrue(conn.updateX509CertRecord(createCertRecord("id1", "serial1")));
+        }
+
+        writeBehindStore.close();
+        assertEquals(writeBehindStore.getPendingRecordCount(), 0);
+        Mockito.verify(storeConn, times(1)).updateX509CertRecords(anyList(), anyList());
+        Mockito.verify(store, times(1)).close();
+    }
+
+    @Test
+    public void testDefaultUpdateX509CertRecords() {
+
+        CertRecordStoreConnection storeConn = Mockito.mock(CertRecordStoreConnection.class);
+        Mockito.when(storeConn.updateX509CertRecords(anyList(), anyList())).thenCallRealMethod();
+        Mockito.when(storeConn.updateX509CertRecord(any())).thenReturn(true);
+        Mockito.when(storeConn.getX509CertRecord("ostk", "id1", "cn"))
+                .thenReturn(createCertRecord("id1", "serial0"));
+        Mockito.when(storeConn.getX509CertRecord("ostk", "id2", "cn"))
+                .thenReturn(createCertRecord("id2", "serial5"));
+
+        // only the record whose serial matches is updated
+
+        List<X509CertRecord> certRecords = Arrays.asList(createCertRecord("id1", "serial1"),
+                createCertRecord("id2", "serial2"), createCertRecord("id3", "serial3"));
+        boolean[] results = storeConn.updateX509CertRecords(certRecords,
+                Arrays.asList("serial0", "serial0", "serial0"));
+        assertTrue(results[0]);
+        assertFalse(results[1]);
+        assertFalse(results[2]);
+        Mockito.verify(storeConn, times(1)).updateX509CertRecord(any());
+    }
+}
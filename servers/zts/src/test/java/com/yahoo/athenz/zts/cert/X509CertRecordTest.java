@@ -16,6 +16,7 @@
 package com.yahoo.athenz.zts.cert;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import java.util.Date;
@@ -52,4 +53,41 @@ public class X509CertRecordTest {
         assertEquals(certRecord.getPrevTime(), now);
         assertTrue(certRecord.getClientCert());
     }
+
+    @Test
+    public void testX509CertRecordCopy() {
+
+        X509CertRecord certRecord = new X509CertRecord();
+        Date now = new Date();
+
+        certRecord.setService("cn");
+        certRecord.setProvider("ostk");
+        certRecord.setInstanceId("instance-id");
+        certRecord.setCurrentIP("current-ip");
+        certRecord.setCurrentSerial("current-serial");
+        certRecord.setCurrentTime(now);
+        certRecord.setPrevIP("prev-ip");
+        certRecord.setPrevSerial("prev-serial");
+        certRecord.setPrevTime(now);
+        certRecord.setClientCert(true);
+
+        X509CertRecord copy = new X509CertRecord(certRecord);
+        assertEquals(copy.getService(), "cn");
+        assertEquals(copy.getProvider(), "ostk");
+        assertEquals(copy.getCurrentIP(), "current-ip");
+        assertEquals(copy.getCurrentSerial(), "current-serial");
+        assertEquals(copy.getCurrentTime(), now);
+        assertEquals(copy.getInstanceId(), "instance-id");
+        assertEquals(copy.getPrevIP(), "prev-ip");
+        assertEquals(copy.getPrevSerial(), "prev-serial");
+        assertEquals(copy.getPrevTime(), now);
+        assertTrue(copy.getClientCert());
+
+        // dates are not shared with the original record
+
+        long nowMillis = now.getTime();
+        copy.getCurrentTime().setTime(0);
+        assertEquals(certRecord.getCurrentTime().getTime(), nowMillis);
+        assertNull(new X509CertRecord(new X509CertRecord()).getCurrentTime());
+    }
 }
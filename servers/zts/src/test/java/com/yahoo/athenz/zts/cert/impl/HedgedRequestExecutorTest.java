@@ -0,0 +1,358 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.cert.impl;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class HedgedRequestExecutorTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @BeforeMethod
+    public void setup() {
+        scheduler = Executors.newScheduledThreadPool(1);
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Stub signer that returns a new future for every attempt so the
+     * test can decide when and how each attempt is completed.
+     */
+    static class StubSigner {
+
+        final List<CompletableFuture<String>> attempts = new ArrayList<>();
+
+        synchronized CompletableFuture<String> sign() {
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            attempts.add(attempt);
+            return attempt;
+        }
+
+        synchronized int getAttemptCount() {
+            return attempts.size();
+        }
+
+        synchronized CompletableFuture<String> getAttempt(int index) {
+            return attempts.get(index);
+        }
+    }
+
+    private void waitForAttempts(StubSigner signer, int count) throws InterruptedException {
+        for (int i = 0; i < 100 && signer.getAttemptCount() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(signer.getAttemptCount(), count);
+    }
+
+    @Test
+    public void testExecuteSuccess() throws Exception {
+
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 3, 0, 0, 0);
+        CompletableFuture<String> result = executor.execute(() -> CompletableFuture.completedFuture("cert"));
+        assertEquals(result.get(), "cert");
+        assertFalse(executor.isCircuitOpen());
+    }
+
+    @Test
+    public void testExecuteRetryFailedAttempts() throws Exception {
+
+        AtomicInteger count = new AtomicInteger();
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 3, 0, 0, 0);
+
+        // first attempt fails with an exception, second with null
+        // response and the third one succeeds
+
+        CompletableFuture<String> result = executor.execute(() -> {
+            switch (count.incrementAndGet()) {
+                case 1:
+                    CompletableFuture<String> future = new CompletableFuture<>();
+                    future.completeExceptionally(new IllegalStateException("failure"));
+                    return future;
+                case 2:
+                    return CompletableFuture.completedFuture(null);
+                default:
+                    return CompletableFuture.completedFuture("cert");
+            }
+        });
+        assertEquals(result.get(), "cert");
+        assertEquals(count.get(), 3);
+    }
+
+    @Test
+    public void testExecuteSupplierException() throws Exception {
+
+        AtomicInteger count = new AtomicInteger();
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 2, 0, 0, 0);
+
+        CompletableFuture<String> result = executor.execute(() -> {
+            count.incrementAndGet();
+            throw new IllegalArgumentException("invalid request");
+        });
+        assertNull(result.get());
+        assertEquals(count.get(), 2);
+    }
+
+    @Test
+    public void testExecuteAllAttemptsFail() throws Exception {
+
+        AtomicInteger count = new AtomicInteger();
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 3, 0, 0, 0);
+
+        CompletableFuture<String> result = executor.execute(() -> {
+            count.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+        assertNull(result.get());
+        assertEquals(count.get(), 3);
+    }
+
+    @Test
+    public void testExecuteNonRetryableAttempt() throws Exception {
+
+        AtomicInteger count = new AtomicInteger();
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 3, 0, 0, 1, 100);
+
+        // rejected requests are not retried and since the signer
+        // is responding they do not open the circuit
+
+        for (int i = 0; i < 2; i++) {
+            assertNull(executor.execute(() -> {
+                count.incrementAndGet();
+                return CompletableFuture.<String>supplyAsync(() -> {
+                    throw new HedgedRequestExecutor.NonRetryableRequestException("rejected");
+                });
+            }).get());
+        }
+        assertEquals(count.get(), 2);
+        assertFalse(executor.isCircuitOpen());
+    }
+
+    @Test
+    public void testExecuteRetryBackoff() throws Exception {
+
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 3, 0, 100, 0, 0);
+        assertEquals(executor.getRetryBackoffMs(1), 100);
+        assertEquals(executor.getRetryBackoffMs(2), 200);
+        assertEquals(executor.getMaxRetryBackoffMs(), 300);
+
+        // failed attempts are only retried once the backoff expires
+
+        StubSigner signer = new StubSigner();
+        CompletableFuture<String> result = executor.execute(signer::sign);
+        signer.getAttempt(0).complete(null);
+        Thread.sleep(50);
+        assertEquals(signer.getAttemptCount(), 1);
+
+        waitForAttempts(signer, 2);
+        signer.getAttempt(1).complete("cert");
+        assertEquals(result.get(), "cert");
+
+        // without a scheduler the attempts are retried right away
+
+        executor = new HedgedRequestExecutor(null, 3, 0, 100, 0, 0);
+        assertEquals(executor.getMaxRetryBackoffMs(), 0);
+        AtomicInteger count = new AtomicInteger();
+        assertNull(executor.execute(() -> {
+            count.incrementAndGet();
+            return CompletableFuture.<String>completedFuture(null);
+        }).get());
+        assertEquals(count.get(), 3);
+    }
+
+    @Test
+    public void testExecuteRetryBackoffRejected() throws Exception {
+
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 3, 0, 100, 1, 100);
+        scheduler.shutdownNow();
+
+        AtomicInteger count = new AtomicInteger();
+        assertNull(executor.execute(() -> {
+            count.incrementAndGet();
+            return CompletableFuture.<String>completedFuture(null);
+        }).get());
+        assertEquals(count.get(), 1);
+        assertTrue(executor.isCircuitOpen());
+    }
+
+    @Test
+    public void testExecuteHedgedAttempt() throws Exception {
+
+        StubSigner signer = new StubSigner();
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 2, 20, 0, 0);
+
+        CompletableFuture<String> result = executor.execute(signer::sign);
+
+        // the first attempt is slow so we should get a hedged attempt
+        // and the first one to complete is returned
+
+        waitForAttempts(signer, 2);
+        signer.getAttempt(1).complete("hedged-cert");
+        assertEquals(result.get(1, TimeUnit.SECONDS), "hedged-cert");
+
+        signer.getAttempt(0).complete("slow-cert");
+        assertEquals(result.get(), "hedged-cert");
+    }
+
+    @Test
+    public void testExecuteHedgedAttemptsLimit() throws Exception {
+
+        StubSigner signer = new StubSigner();
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 2, 10, 0, 0);
+
+        CompletableFuture<String> result = executor.execute(signer::sign);
+        waitForAttempts(signer, 2);
+
+        // no more attempts are started once we reach our limit
+
+        Thread.sleep(50);
+        assertEquals(signer.getAttemptCount(), 2);
+        assertFalse(result.isDone());
+
+        // the result is not completed until all pending attempts fail
+
+        signer.getAttempt(0).complete(null);
+        assertFalse(result.isDone());
+        signer.getAttempt(1).completeExceptionally(new IllegalStateException("failure"));
+        assertNull(result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception {
+
+        AtomicInteger count = new AtomicInteger();
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 1, 0, 2, 100);
+
+        assertNull(executor.execute(() -> {
+            count.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }).get());
+        assertFalse(executor.isCircuitOpen());
+
+        assertNull(executor.execute(() -> {
+            count.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }).get());
+        assertTrue(executor.isCircuitOpen());
+        assertEquals(count.get(), 2);
+
+        // while the circuit is open the requests are rejected
+        // without contacting the signer
+
+        assertNull(executor.execute(() -> {
+            count.incrementAndGet();
+            return CompletableFuture.completedFuture("cert");
+        }).get());
+        assertEquals(count.get(), 2);
+
+        // once the open time expires a single probe request
+        // is allowed and success closes the circuit
+
+        Thread.sleep(150);
+        assertFalse(executor.isCircuitOpen());
+
+        StubSigner signer = new StubSigner();
+        CompletableFuture<String> probe = executor.execute(signer::sign);
+        assertEquals(signer.getAttemptCount(), 1);
+
+        assertNull(executor.execute(signer::sign).get());
+        assertEquals(signer.getAttemptCount(), 1);
+
+        signer.getAttempt(0).complete("cert");
+        assertEquals(probe.get(), "cert");
+        assertFalse(executor.isCircuitOpen());
+        assertEquals(executor.execute(() -> CompletableFuture.completedFuture("cert")).get(), "cert");
+    }
+
+    @Test
+    public void testCircuitBreakerProbeFailure() throws Exception {
+
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 1, 0, 1, 100);
+
+        assertNull(executor.execute(() -> CompletableFuture.<String>completedFuture(null)).get());
+        assertTrue(executor.isCircuitOpen());
+
+        // failed probe request opens the circuit again
+
+        Thread.sleep(150);
+        assertNull(executor.execute(() -> CompletableFuture.<String>completedFuture(null)).get());
+        assertTrue(executor.isCircuitOpen());
+
+        AtomicInteger count = new AtomicInteger();
+        assertNull(executor.execute(() -> {
+            count.incrementAndGet();
+            return CompletableFuture.completedFuture("cert");
+        }).get());
+        assertEquals(count.get(), 0);
+    }
+
+    @Test
+    public void testJoin() {
+
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 1, 0, 0, 0);
+        assertEquals(executor.join(executor.execute(() -> CompletableFuture.completedFuture("cert")), 100), "cert");
+        assertNull(executor.join(executor.execute(() -> CompletableFuture.<String>completedFuture(null)), 100));
+
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("failed"));
+        assertNull(executor.join(failed, 100));
+    }
+
+    @Test
+    public void testJoinDeadline() throws Exception {
+
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 2, 0, 1, 1000);
+        StubSigner signer = new StubSigner();
+
+        // the request is completed once the deadline passes so the
+        // late response is ignored and the circuit is opened
+
+        CompletableFuture<String> result = executor.execute(signer::sign);
+        assertNull(executor.join(result, 50));
+        assertTrue(result.isDone());
+        assertTrue(executor.isCircuitOpen());
+
+        signer.getAttempt(0).complete(null);
+        assertEquals(signer.getAttemptCount(), 1);
+        assertNull(result.get());
+    }
+
+    @Test
+    public void testJoinInterrupted() {
+
+        HedgedRequestExecutor executor = new HedgedRequestExecutor(scheduler, 1, 0, 0, 0);
+        StubSigner signer = new StubSigner();
+
+        Thread.currentThread().interrupt();
+        assertNull(executor.join(executor.execute(signer::sign), 1000));
+        assertTrue(Thread.interrupted());
+    }
+}
@@ -17,6 +17,8 @@ package com.yahoo.athenz.zts.cert.impl;
 
 import static org.testng.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeoutException;
 
 import com.yahoo.athenz.common.server.cert.CertSigner;
@@ -27,6 +29,9 @@ import com.yahoo.athenz.zts.ZTSConsts;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
 import org.mockito.Mockito;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -49,6 +54,37 @@ public class HttpCertSignerTest {
         certSigner.close();
     }
 
+    private void mockSend(Request request, int status, final String content) {
+
+        Response response = Mockito.mock(Response.class);
+        Mockito.when(response.getStatus()).thenReturn(status);
+        Result result = Mockito.mock(Result.class);
+        Mockito.when(result.isFailed()).thenReturn(false);
+        Mockito.when(result.getResponse()).thenReturn(response);
+
+        Mockito.doAnswer(invocation -> {
+            BufferingResponseListener listener = invocation.getArgument(0);
+            if (content != null) {
+                listener.onContent(response, ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+            }
+            listener.onComplete(result);
+            return null;
+        }).when(request).send(Mockito.any(Response.CompleteListener.class));
+    }
+
+    private void mockSendFailure(Request request, Throwable failure) {
+
+        Result result = Mockito.mock(Result.class);
+        Mockito.when(result.isFailed()).thenReturn(true);
+        Mockito.when(result.getFailure()).thenReturn(failure);
+
+        Mockito.doAnswer(invocation -> {
+            BufferingResponseListener listener = invocation.getArgument(0);
+            listener.onComplete(result);
+            return null;
+        }).when(request).send(Mockito.any(Response.CompleteListener.class));
+    }
+
     @Test
     public void testGenerateX509CertificateException() throws Exception {
  
@@ -60,9 +96,10 @@ public class HttpCertSignerTest {
         
         Request request = Mockito.mock(Request.class);
         Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
-        Mockito.when(request.send()).thenThrow(new TimeoutException());
+        mockSendFailure(request, new TimeoutException());
 
         assertNull(certSigner.generateX509Certificate("csr", null, 0));
+        Mockito.verify(request, Mockito.times(3)).send(Mockito.any(Response.CompleteListener.class));
         certSigner.close();
     }
 
@@ -78,14 +115,33 @@ public class HttpCertSignerTest {
         Request request = Mockito.mock(Request.class);
         Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
 
-        ContentResponse response = Mockito.mock(ContentResponse.class);
-        Mockito.when(request.send()).thenReturn(response);
-        Mockito.when(response.getStatus()).thenReturn(400);
+        mockSend(request, 400, null);
+
+        // rejected requests are not retried
+
+        assertNull(certSigner.generateX509Certificate("csr", null, 0));
+        Mockito.verify(request, Mockito.times(1)).send(Mockito.any(Response.CompleteListener.class));
+
+        // server errors are retried up to our retry count
 
+        mockSend(request, 503, null);
         assertNull(certSigner.generateX509Certificate("csr", null, 0));
+        Mockito.verify(request, Mockito.times(4)).send(Mockito.any(Response.CompleteListener.class));
         certSigner.close();
     }
 
+    @Test
+    public void testIsNonRetryableStatus() {
+
+        assertTrue(HttpCertSigner.isNonRetryableStatus(400));
+        assertTrue(HttpCertSigner.isNonRetryableStatus(403));
+        assertFalse(HttpCertSigner.isNonRetryableStatus(408));
+        assertFalse(HttpCertSigner.isNonRetryableStatus(429));
+        assertFalse(HttpCertSigner.isNonRetryableStatus(500));
+        assertFalse(HttpCertSigner.isNonRetryableStatus(503));
+        assertFalse(HttpCertSigner.isNonRetryableStatus(201));
+    }
+
     @Test
     public void testGenerateX509CertificateResponseNull() throws Exception {
 
@@ -98,10 +154,7 @@ public class HttpCertSignerTest {
         Request request = Mockito.mock(Request.class);
         Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
 
-        ContentResponse response = Mockito.mock(ContentResponse.class);
-        Mockito.when(request.send()).thenReturn(response);
-        Mockito.when(response.getStatus()).thenReturn(201);
-        Mockito.when(response.getContentAsString()).thenReturn(null);
+        mockSend(request, 201, null);
 
         assertNull(certSigner.generateX509Certificate("csr", null, 0));
         certSigner.close();
@@ -119,10 +172,7 @@ public class HttpCertSignerTest {
         Request request = Mockito.mock(Request.class);
         Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
 
-        ContentResponse response = Mockito.mock(ContentResponse.class);
-        Mockito.when(request.send()).thenReturn(response);
-        Mockito.when(response.getStatus()).thenReturn(201);
-        Mockito.when(response.getContentAsString()).thenReturn("");
+        mockSend(request, 201, "");
 
         assertNull(certSigner.generateX509Certificate("csr", null, 0));
         certSigner.close();
@@ -140,10 +190,7 @@ public class HttpCertSignerTest {
         Request request = Mockito.mock(Request.class);
         Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
 
-        ContentResponse response = Mockito.mock(ContentResponse.class);
-        Mockito.when(request.send()).thenReturn(response);
-        Mockito.when(response.getStatus()).thenReturn(201);
-        Mockito.when(response.getContentAsString()).thenReturn("{\"pem\": \"pem-value\"}");
+        mockSend(request, 201, "{\"pem\": \"pem-value\"}");
 
         String pem = certSigner.generateX509Certificate("csr", null, 0);
         assertEquals(pem, "pem-value");
@@ -173,15 +220,131 @@ public class HttpCertSignerTest {
         Request request = Mockito.mock(Request.class);
         Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
 
-        ContentResponse response = Mockito.mock(ContentResponse.class);
-        Mockito.when(request.send()).thenReturn(response);
-        Mockito.when(response.getStatus()).thenReturn(201);
-        Mockito.when(response.getContentAsString()).thenReturn("{\"pem2\": \"pem-value\"}");
+        mockSend(request, 201, "{\"pem2\": \"pem-value\"}");
 
         assertNull(certSigner.generateX509Certificate("csr", null, 0));
 
-        Mockito.when(response.getContentAsString()).thenReturn("invalid-json");
+        mockSend(request, 201, "invalid-json");
+        assertNull(certSigner.generateX509Certificate("csr", null, 0));
+        certSigner.close();
+    }
+
+    @Test
+    public void testGenerateX509CertificateDeadline() throws Exception {
+
+        HttpClient httpClient = Mockito.mock(HttpClient.class);
+
+        HttpCertSignerFactory certFactory = new HttpCertSignerFactory();
+        HttpCertSigner certSigner = (HttpCertSigner) certFactory.create();
+        certSigner.setHttpClient(httpClient);
+
+        // by default each attempt is allowed a longer timeout
+        // capped at 30 seconds plus the backoff between attempts
+
+        assertEquals(certSigner.getRequestDeadlineMs(), 30300);
+        certSigner.requestTimeout = 20;
+        assertEquals(certSigner.getRequestDeadlineMs(), 80300);
+
+        // the response never arrives so we give up at the deadline
+
+        certSigner.requestTimeout = 1;
+        certSigner.requestRetryCount = 1;
+
+        Request request = Mockito.mock(Request.class);
+        Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
+
+        long startTime = System.currentTimeMillis();
         assertNull(certSigner.generateX509Certificate("csr", null, 0));
+        assertTrue(System.currentTimeMillis() - startTime >= 900);
+        certSigner.close();
+    }
+
+    @Test
+    public void testGenerateX509CertificateAsync() throws Exception {
+
+        HttpClient httpClient = Mockito.mock(HttpClient.class);
+
+        HttpCertSignerFactory certFactory = new HttpCertSignerFactory();
+        HttpCertSigner certSigner = (HttpCertSigner) certFactory.create();
+        certSigner.setHttpClient(httpClient);
+
+        Request request = Mockito.mock(Request.class);
+        Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
+
+        Response response = Mockito.mock(Response.class);
+        Mockito.when(response.getStatus()).thenReturn(201);
+        Result result = Mockito.mock(Result.class);
+        Mockito.when(result.isFailed()).thenReturn(false);
+        Mockito.when(result.getResponse()).thenReturn(response);
+
+        Mockito.doAnswer(invocation -> {
+            BufferingResponseListener listener = invocation.getArgument(0);
+            listener.onContent(response, ByteBuffer.wrap("{\"pem\": \"pem-value\"}"
+                    .getBytes(StandardCharsets.UTF_8)));
+            listener.onComplete(result);
+            return null;
+        }).when(request).send(Mockito.any(Response.CompleteListener.class));
+
+        assertEquals(certSigner.generateX509CertificateAsync("csr", null, 0).get(), "pem-value");
+        assertEquals(certSigner.generateX509CertificateAsync("csr",
+                InstanceProvider.ZTS_CERT_USAGE_CLIENT, 30).get(), "pem-value");
+        certSigner.close();
+    }
+
+    @Test
+    public void testGenerateX509CertificateAsyncFailure() throws Exception {
+
+        HttpClient httpClient = Mockito.mock(HttpClient.class);
+
+        HttpCertSignerFactory certFactory = new HttpCertSignerFactory();
+        HttpCertSigner certSigner = (HttpCertSigner) certFactory.create();
+        certSigner.setHttpClient(httpClient);
+
+        Request request = Mockito.mock(Request.class);
+        Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
+
+        Result result = Mockito.mock(Result.class);
+        Mockito.when(result.isFailed()).thenReturn(true);
+        Mockito.when(result.getFailure()).thenReturn(new TimeoutException());
+
+        Mockito.doAnswer(invocation -> {
+            BufferingResponseListener listener = invocation.getArgument(0);
+            listener.onComplete(result);
+            return null;
+        }).when(request).send(Mockito.any(Response.CompleteListener.class));
+
+        // all configured attempts are used before giving up
+
+        assertNull(certSigner.generateX509CertificateAsync("csr", null, 0).get());
+        Mockito.verify(request, Mockito.times(3)).send(Mockito.any(Response.CompleteListener.class));
+        certSigner.close();
+    }
+
+    @Test
+    public void testGenerateX509CertificateAsyncInvalidStatus() throws Exception {
+
+        HttpClient httpClient = Mockito.mock(HttpClient.class);
+
+        HttpCertSignerFactory certFactory = new HttpCertSignerFactory();
+        HttpCertSigner certSigner = (HttpCertSigner) certFactory.create();
+        certSigner.setHttpClient(httpClient);
+
+        Request request = Mockito.mock(Request.class);
+        Mockito.when(httpClient.POST("https://localhost:443/certsign/v2/x509")).thenReturn(request);
+
+        Response response = Mockito.mock(Response.class);
+        Mockito.when(response.getStatus()).thenReturn(400);
+        Result result = Mockito.mock(Result.class);
+        Mockito.when(result.isFailed()).thenReturn(false);
+        Mockito.when(result.getResponse()).thenReturn(response);
+
+        Mockito.doAnswer(invocation -> {
+            BufferingResponseListener listener = invocation.getArgument(0);
+            listener.onComplete(result);
+            return null;
+        }).when(request).send(Mockito.any(Response.CompleteListener.class));
+
+        assertNull(certSigner.generateX509CertificateAsync("csr", null, 0).get());
         certSigner.close();
     }
 
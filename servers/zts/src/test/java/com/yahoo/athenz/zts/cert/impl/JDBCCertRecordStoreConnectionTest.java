@@ -24,7 +24,11 @@ import java.sql.SQLException;
 import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
@@ -34,6 +38,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
@@ -298,6 +304,80 @@ public class JDBCCertRecordStoreConnectionTest {
         jdbcConn.close();
     }
 
+    @Test
+    public void testUpdateX509Records() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Date now = new Date();
+        List<X509CertRecord> certRecords = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            X509CertRecord certRecord = new X509CertRecord();
+            certRecord.setService("cn");
+            certRecord.setProvider("ostk");
+            certRecord.setInstanceId("instance-id" + i);
+            certRecord.setCurrentIP("current-ip");
+            certRecord.setCurrentSerial("current-serial");
+            certRecord.setCurrentTime(now);
+            certRecord.setPrevIP("prev-ip");
+            certRecord.setPrevSerial("prev-serial");
+            certRecord.setPrevTime(now);
+            certRecords.add(certRecord);
+        }
+
+        // records that no longer have the expected serial are not updated
+
+        Mockito.doReturn(new int[] { 1, Statement.SUCCESS_NO_INFO, 0 }).when(mockPrepStmt).executeBatch();
+        boolean[] results = jdbcConn.updateX509CertRecords(certRecords,
+                Arrays.asList("serial0", "serial1", "serial2"));
+        assertEquals(results.length, 3);
+        assertTrue(results[0]);
+        assertTrue(results[1]);
+        assertFalse(results[2]);
+
+        Mockito.verify(mockPrepStmt, times(3)).addBatch();
+        Mockito.verify(mockPrepStmt, times(1)).executeBatch();
+        Mockito.verify(mockPrepStmt, times(0)).executeUpdate();
+        Mockito.verify(mockPrepStmt, times(1)).setString(8, "instance-id0");
+        Mockito.verify(mockPrepStmt, times(1)).setString(8, "instance-id2");
+        Mockito.verify(mockPrepStmt, times(1)).setString(10, "serial0");
+        Mockito.verify(mockPrepStmt, times(1)).setString(10, "serial2");
+
+        // empty list does not execute any statements
+
+        assertEquals(jdbcConn.updateX509CertRecords(new ArrayList<>(), new ArrayList<>()).length, 0);
+        Mockito.verify(mockPrepStmt, times(1)).executeBatch();
+
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testUpdateX509RecordsException() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        X509CertRecord certRecord = new X509CertRecord();
+        Date now = new Date();
+        certRecord.setService("cn");
+        certRecord.setProvider("ostk");
+        certRecord.setInstanceId("instance-id");
+        certRecord.setCurrentTime(now);
+        certRecord.setPrevTime(now);
+
+        Mockito.doThrow(new SQLException("error", "state", 503))
+                .when(mockPrepStmt).executeBatch();
+
+        try {
+            jdbcConn.updateX509CertRecords(Collections.singletonList(certRecord),
+                    Collections.singletonList("serial0"));
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), 500);
+        }
+
+        jdbcConn.close();
+    }
+
     @Test
     public void testDeleteX509Record() throws Exception {
         
@@ -400,4 +480,144 @@ public class JDBCCertRecordStoreConnectionTest {
         
         jdbcConn.close();
     }
+
+    @Test
+    public void testGetX509CertRecordProviders() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+        Mockito.when(mockResultSet.getString(JDBCCertRecordStoreConnection.DB_COLUMN_PROVIDER))
+                .thenReturn("ostk").thenReturn("aws");
+
+        List<String> providers = jdbcConn.getX509CertRecordProviders();
+        assertEquals(providers.size(), 2);
+        assertEquals(providers.get(0), "ostk");
+        assertEquals(providers.get(1), "aws");
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testGetX509CertRecordProvidersException() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Mockito.when(mockPrepStmt.executeQuery()).thenThrow(new SQLException("exc", "exc", 101));
+        try {
+            jdbcConn.getX509CertRecordProviders();
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.INTERNAL_SERVER_ERROR);
+        }
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testDeleteExpiredX509CertRecordsBatch() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Date expiryTime = new Date();
+        Mockito.doReturn(100).when(mockPrepStmt).executeUpdate();
+        assertEquals(jdbcConn.deleteExpiredX509CertRecords("ostk", expiryTime, 100), 100);
+
+        Mockito.verify(mockPrepStmt, times(1)).setString(1, "ostk");
+        Mockito.verify(mockPrepStmt, times(1)).setTimestamp(2, new java.sql.Timestamp(expiryTime.getTime()));
+        Mockito.verify(mockPrepStmt, times(1)).setInt(3, 100);
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testDeleteExpiredX509CertRecordsBatchException() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Mockito.when(mockPrepStmt.executeUpdate()).thenThrow(new SQLTimeoutException("exc", "exc", 101));
+        try {
+            jdbcConn.deleteExpiredX509CertRecords("ostk", new Date(), 100);
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.SERVICE_UNAVAILABLE);
+        }
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testLockX509CertRecordProvider() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+        final String lockName = jdbcConn.getCleanupLockName("ostk");
+        assertTrue(lockName.startsWith("zts_cleanup_"));
+        assertTrue(lockName.length() <= 64);
+        assertEquals(jdbcConn.getCleanupLockName("ostk"), lockName);
+        assertNotEquals(jdbcConn.getCleanupLockName("aws"), lockName);
+
+        Mockito.when(mockResultSet.next()).thenReturn(true);
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(1).thenReturn(0).thenReturn(1);
+
+        assertTrue(jdbcConn.lockX509CertRecordProvider("ostk"));
+        assertFalse(jdbcConn.lockX509CertRecordProvider("ostk"));
+        assertTrue(jdbcConn.unlockX509CertRecordProvider("ostk"));
+
+        Mockito.verify(mockPrepStmt, times(3)).setString(1, lockName);
+        Mockito.verify(mockConn, times(0)).abort(ArgumentMatchers.any());
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testUnlockX509CertRecordProviderNotReleased() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        // lock held by another session or not found at all
+
+        Mockito.when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        Mockito.when(mockResultSet.getInt(1)).thenReturn(0);
+
+        assertFalse(jdbcConn.unlockX509CertRecordProvider("ostk"));
+        assertFalse(jdbcConn.unlockX509CertRecordProvider("ostk"));
+
+        // connection is aborted so the pool discards it
+
+        Mockito.verify(mockConn, times(2)).abort(ArgumentMatchers.any());
+        jdbcConn.close();
+    }
+
+    @Test
+    public void testUnlockX509CertRecordProviderAbortFailure() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Mockito.when(mockResultSet.next()).thenReturn(false);
+        Mockito.doThrow(new SQLException("exc", "exc", 101)).when(mockConn).abort(ArgumentMatchers.any());
+
+        assertFalse(jdbcConn.unlockX509CertRecordProvider("ostk"));
+        Mockito.verify(mockConn, times(1)).abort(ArgumentMatchers.any());
+        jdbcConn.close();
+
+        // no connection to abort after close
+
+        jdbcConn.abortConnection();
+        Mockito.verify(mockConn, times(1)).abort(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void testLockX509CertRecordProviderException() throws Exception {
+
+        JDBCCertRecordStoreConnection jdbcConn = new JDBCCertRecordStoreConnection(mockConn);
+
+        Mockito.when(mockPrepStmt.executeQuery()).thenThrow(new SQLException("exc", "exc", 101));
+        try {
+            jdbcConn.lockX509CertRecordProvider("ostk");
+            fail();
+        } catch (ResourceException ex) {
+            assertEquals(ex.getCode(), ResourceException.INTERNAL_SERVER_ERROR);
+        }
+
+        // failure to release the lock aborts the connection
+
+        assertFalse(jdbcConn.unlockX509CertRecordProvider("ostk"));
+        Mockito.verify(mockConn, times(1)).abort(ArgumentMatchers.any());
+        jdbcConn.close();
+    }
 }
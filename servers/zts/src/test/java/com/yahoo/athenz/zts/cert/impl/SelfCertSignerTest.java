@@ -17,6 +17,14 @@ package com.yahoo.athenz.zts.cert.impl;
 
 import static org.testng.Assert.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+
+import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.common.server.cert.CertSigner;
 import com.yahoo.athenz.zts.ZTSConsts;
 
@@ -83,4 +91,56 @@ public class SelfCertSignerTest {
         assertNull(certSigner);
         System.clearProperty(ZTSConsts.ZTS_PROP_SELF_SIGNER_CERT_DN);
     }
+
+    @Test
+    public void testGenerateX509Certificate() throws IOException {
+
+        SelfCertSigner certSigner = (SelfCertSigner) new SelfCertSignerFactory().create();
+        assertFalse(certSigner.isHighThroughputMode());
+        assertFalse(certSigner.isBatchSigningSupported());
+
+        final String csr = new String(Files.readAllBytes(Paths.get("src/test/resources/athenz.instanceid.csr")));
+        X509Certificate cert = Crypto.loadX509Certificate(certSigner.generateX509Certificate(csr, null, 60));
+        assertEquals(cert.getSubjectX500Principal(), Crypto.loadX509Certificate(
+                certSigner.generateX509CertificateAsync(csr, null, 60).join()).getSubjectX500Principal());
+
+        List<String> certs = certSigner.generateX509Certificates(Arrays.asList(csr, csr), null, 60);
+        assertEquals(certs.size(), 2);
+        assertNotNull(certs.get(0));
+        assertNotNull(certs.get(1));
+        assertEquals(certSigner.getCACertificate(), certSigner.getCACertificate());
+        certSigner.close();
+    }
+
+    @Test
+    public void testGenerateX509CertificateHighThroughput() throws IOException {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_SELF_SIGNER_THREADS, "2");
+        SelfCertSigner certSigner = (SelfCertSigner) new SelfCertSignerFactory().create();
+        System.clearProperty(ZTSConsts.ZTS_PROP_SELF_SIGNER_THREADS);
+
+        assertTrue(certSigner.isHighThroughputMode());
+        assertTrue(certSigner.isBatchSigningSupported());
+
+        final String csr = new String(Files.readAllBytes(Paths.get("src/test/resources/athenz.instanceid.csr")));
+        X509Certificate caCert = Crypto.loadX509Certificate(certSigner.getCACertificate());
+
+        X509Certificate cert1 = Crypto.loadX509Certificate(certSigner.generateX509Certificate(csr, null, 60));
+        X509Certificate cert2 = Crypto.loadX509Certificate(certSigner.generateX509CertificateAsync(csr, null, 0).join());
+        assertEquals(cert1.getIssuerX500Principal(), caCert.getSubjectX500Principal());
+        assertEquals(cert2.getIssuerX500Principal(), caCert.getSubjectX500Principal());
+        assertNotEquals(cert1.getSerialNumber(), cert2.getSerialNumber());
+
+        // invalid requests are returned as null entries
+
+        List<String> certs = certSigner.generateX509Certificates(Arrays.asList(csr, "invalid-csr", csr), null, 60);
+        assertEquals(certs.size(), 3);
+        assertNotNull(certs.get(0));
+        assertNull(certs.get(1));
+        assertNotNull(certs.get(2));
+        assertNotEquals(Crypto.loadX509Certificate(certs.get(0)).getSerialNumber(),
+                Crypto.loadX509Certificate(certs.get(2)).getSerialNumber());
+
+        certSigner.close();
+    }
 }
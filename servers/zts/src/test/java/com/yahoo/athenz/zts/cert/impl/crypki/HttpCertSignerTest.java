@@ -91,7 +91,17 @@ public class HttpCertSignerTest {
         CloseableHttpResponse response = mockRequest(400, null);
         Mockito.when(httpClient.execute(Mockito.any(HttpPost.class))).thenReturn(response);
 
+        // rejected requests are not retried
+
         assertNull(certSigner.generateX509Certificate("csr", null, 0));
+        Mockito.verify(httpClient, times(1)).execute(Mockito.any(HttpPost.class));
+
+        // server errors are retried up to our retry count
+
+        response = mockRequest(500, null);
+        Mockito.when(httpClient.execute(Mockito.any(HttpPost.class))).thenReturn(response);
+        assertNull(certSigner.generateX509Certificate("csr", null, 0));
+        Mockito.verify(httpClient, times(4)).execute(Mockito.any(HttpPost.class));
         certSigner.close();
     }
 
@@ -145,6 +155,35 @@ public class HttpCertSignerTest {
     
 
 
+    @Test
+    public void testGenerateX509CertificateHedged() throws Exception {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DELAY, "100");
+        CloseableHttpClient httpClient = Mockito.mock(CloseableHttpClient.class);
+
+        HttpCertSignerFactory certFactory = new HttpCertSignerFactory();
+        HttpCertSigner certSigner = (HttpCertSigner) certFactory.create();
+        certSigner.setHttpClient(httpClient);
+
+        // retry count times the connect and read timeouts
+        // plus the backoff between the attempts
+
+        assertEquals(certSigner.requestDeadlineMs, 45300);
+
+        // with hedging enabled the attempts run on our request pool
+
+        CloseableHttpResponse response = mockRequest(201, "{\"cert\": \"pem-value\"}");
+        Mockito.when(httpClient.execute(Mockito.any(HttpPost.class))).thenReturn(response);
+        assertEquals(certSigner.generateX509Certificate("csr", null, 0), "pem-value");
+
+        Mockito.when(httpClient.execute(Mockito.any(HttpPost.class))).thenThrow(new IOException());
+        assertNull(certSigner.generateX509Certificate("csr", null, 0));
+        Mockito.verify(httpClient, times(4)).execute(Mockito.any(HttpPost.class));
+
+        certSigner.close();
+        System.clearProperty(ZTSConsts.ZTS_PROP_CERTSIGN_HEDGE_DELAY);
+    }
+
     @Test
     public void testGenerateX509CertificateInvalidData() throws Exception {
 
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.perf;
+
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.yahoo.athenz.auth.Principal;
+import com.yahoo.athenz.auth.PrivateKeyStore;
+import com.yahoo.athenz.zts.cert.CertRecordStore;
+import com.yahoo.athenz.zts.cert.CertRecordStoreConnection;
+import com.yahoo.athenz.zts.cert.CertRecordStoreFactory;
+import com.yahoo.athenz.zts.cert.X509CertRecord;
+
+/**
+ * Cert record store kept in memory so the benchmarks measure the
+ * request processing in ZTS rather than the latency of the store.
+ * The records are copied in and out of the store the same way
+ * they would be serialized by a real implementation.
+ */
+public class InMemoryCertRecordStoreFactory implements CertRecordStoreFactory {
+
+    @Override
+    public CertRecordStore create(PrivateKeyStore pkeyStore) {
+        return new InMemoryCertRecordStore();
+    }
+
+    static class InMemoryCertRecordStore implements CertRecordStore {
+
+        private final ConcurrentHashMap<String, X509CertRecord> certRecords = new ConcurrentHashMap<>();
+
+        @Override
+        public CertRecordStoreConnection getConnection() {
+            return new InMemoryCertRecordStoreConnection(certRecords);
+        }
+
+        @Override
+        public void setOperationTimeout(int opTimeout) {
+        }
+
+        @Override
+        public void clearConnections() {
+        }
+
+        @Override
+        public void log(Principal principal, String ip, String provider, String instanceId,
+                X509Certificate x509Cert) {
+        }
+    }
+
+    static class InMemoryCertRecordStoreConnection implements CertRecordStoreConnection {
+
+        private final ConcurrentHashMap<String, X509CertRecord> certRecords;
+
+        InMemoryCertRecordStoreConnection(ConcurrentHashMap<String, X509CertRecord> certRecords) {
+            this.certRecords = certRecords;
+        }
+
+        static String recordKey(String provider, String instanceId, String service) {
+            return provider + ":" + instanceId + ":" + service;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void setOperationTimeout(int opTimeout) {
+        }
+
+        @Override
+        public X509CertRecord getX509CertRecord(String provider, String instanceId, String service) {
+            X509CertRecord certRecord = certRecords.get(recordKey(provider, instanceId, service));
+            return certRecord == null ? null : new X509CertRecord(certRecord);
+        }
+
+        @Override
+        public boolean updateX509CertRecord(X509CertRecord certRecord) {
+            final String key = recordKey(certRecord.getProvider(), certRecord.getInstanceId(),
+                    certRecord.getService());
+            return certRecords.computeIfPresent(key, (k, v) -> new X509CertRecord(certRecord)) != null;
+        }
+
+        @Override
+        public boolean insertX509CertRecord(X509CertRecord certRecord) {
+            final String key = recordKey(certRecord.getProvider(), certRecord.getInstanceId(),
+                    certRecord.getService());
+            certRecords.put(key, new X509CertRecord(certRecord));
+            return true;
+        }
+
+        @Override
+        public boolean deleteX509CertRecord(String provider, String instanceId, String service) {
+            return certRecords.remove(recordKey(provider, instanceId, service)) != null;
+        }
+
+        @Override
+        public int deleteExpiredX509CertRecords(int expiryTimeMins) {
+            final long expiryTime = System.currentTimeMillis() - expiryTimeMins * 60000L;
+            int count = certRecords.size();
+            certRecords.values().removeIf(certRecord -> certRecord.getCurrentTime().before(new Date(expiryTime)));
+            return count - certRecords.size();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.perf;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PrivateKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Response;
+
+import com.yahoo.athenz.auth.Principal;
+import com.yahoo.athenz.auth.impl.CertificateAuthority;
+import com.yahoo.athenz.auth.impl.FilePrivateKeyStore;
+import com.yahoo.athenz.auth.impl.SimplePrincipal;
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.common.utils.SignUtils;
+import com.yahoo.athenz.zms.Assertion;
+import com.yahoo.athenz.zms.DomainData;
+import com.yahoo.athenz.zms.DomainPolicies;
+import com.yahoo.athenz.zms.Policy;
+import com.yahoo.athenz.zms.Role;
+import com.yahoo.athenz.zms.RoleMember;
+import com.yahoo.athenz.zms.ServiceIdentity;
+import com.yahoo.athenz.zms.SignedDomain;
+import com.yahoo.athenz.zms.SignedPolicies;
+import com.yahoo.athenz.zts.InstanceIdentity;
+import com.yahoo.athenz.zts.InstanceRefreshInformation;
+import com.yahoo.athenz.zts.InstanceRegisterInformation;
+import com.yahoo.athenz.zts.ResourceContext;
+import com.yahoo.athenz.zts.RsrcCtxWrapper;
+import com.yahoo.athenz.zts.ZTSConsts;
+import com.yahoo.athenz.zts.ZTSImpl;
+import com.yahoo.athenz.zts.store.CloudStore;
+import com.yahoo.athenz.zts.store.DataStore;
+import com.yahoo.athenz.zts.store.impl.ZMSFileChangeLogStore;
+import com.yahoo.rdl.Timestamp;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the certificate issuance throughput of the instance register
+ * and refresh requests processed end to end by ZTSImpl, so capacity can
+ * be planned without an external signer. Each operation runs the
+ * provider authorization, csr validation, provider confirmation with
+ * a class based provider that accepts every instance, certificate
+ * signing with the self cert signer and the cert record write into
+ * an in-memory cert record store. The selfSignerThreads parameter
+ * compares the default signer with the high throughput mode.
+ *
+ * mvn -Djmh test-compile exec:exec@jmh-benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(Threads.MAX)
+@Fork(1)
+public class InstanceCertIssuanceBenchmark {
+
+    private static final String PROVIDER = "athenz.provider";
+    private static final String DOMAIN = "athenz";
+    private static final String SERVICE = "production";
+    private static final String DNS_SUFFIX = "ostk.athenz.cloud";
+
+    @State(Scope.Benchmark)
+    public static class ZTSState {
+
+        @Param({"0", "4"})
+        public String selfSignerThreads;
+
+        ZTSImpl ztsImpl;
+        CloudStore cloudStore;
+        PrivateKey csrPrivateKey;
+        Path dataStoreDir;
+        final AtomicInteger threadIndex = new AtomicInteger();
+
+        @Setup
+        public void setup() throws Exception {
+
+            dataStoreDir = Files.createTempDirectory("zts_cert_benchmark");
+
+            System.setProperty(ZTSConsts.ZTS_PROP_METRIC_FACTORY_CLASS, ZTSConsts.ZTS_METRIC_FACTORY_CLASS);
+            System.setProperty(ZTSConsts.ZTS_PROP_PRIVATE_KEY_STORE_FACTORY_CLASS,
+                    "com.yahoo.athenz.auth.impl.FilePrivateKeyStoreFactory");
+            System.setProperty(FilePrivateKeyStore.ATHENZ_PROP_PRIVATE_KEY, "src/test/resources/zts_private.pem");
+            System.setProperty(ZTSConsts.ZTS_PROP_ATHENZ_CONF, "src/test/resources/athenz.conf");
+            System.setProperty(ZTSConsts.ZTS_PROP_CERT_ALLOWED_O_VALUES, "Athenz");
+            System.setProperty(ZTSConsts.ZTS_PROP_CERT_SIGNER_FACTORY_CLASS,
+                    "com.yahoo.athenz.zts.cert.impl.SelfCertSignerFactory");
+            System.setProperty(ZTSConsts.ZTS_PROP_SELF_SIGNER_PRIVATE_KEY_FNAME,
+                    "src/test/resources/private_encrypted.key");
+            System.setProperty(ZTSConsts.ZTS_PROP_SELF_SIGNER_PRIVATE_KEY_PASSWORD, "athenz");
+            System.setProperty(ZTSConsts.ZTS_PROP_SELF_SIGNER_THREADS, selfSignerThreads);
+            System.setProperty(ZTSConsts.ZTS_PROP_CERT_RECORD_STORE_FACTORY_CLASS,
+                    InMemoryCertRecordStoreFactory.class.getName());
+
+            // the domains are signed with the same key that is configured
+            // as the zms public key in the athenz.conf file
+
+            PrivateKey privateKey = Crypto.loadPrivateKey(new File("src/test/resources/zts_private.pem"));
+
+            cloudStore = new CloudStore();
+            cloudStore.setHttpClient(null);
+
+            DataStore dataStore = new DataStore(new ZMSFileChangeLogStore(dataStoreDir.toString(),
+                    privateKey, "0"), cloudStore);
+            dataStore.processDomain(signedDomain(providerSysAuthDomain(), privateKey), false);
+            dataStore.processDomain(signedDomain(tenantDomain(), privateKey), false);
+
+            ztsImpl = new ZTSImpl(cloudStore, dataStore);
+            csrPrivateKey = Crypto.generateRSAPrivateKey(2048);
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            ztsImpl.close();
+            cloudStore.close();
+            Files.walk(dataStoreDir).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+
+        String generateCsr(final String instanceId) throws Exception {
+            GeneralName[] sanArray = new GeneralName[] {
+                    new GeneralName(GeneralName.dNSName, SERVICE + "." + DOMAIN + "." + DNS_SUFFIX),
+                    new GeneralName(GeneralName.dNSName, instanceId + ".instanceid.athenz." + DNS_SUFFIX)
+            };
+            return Crypto.generateX509CSR(csrPrivateKey, "c=US,o=Athenz,cn=" + DOMAIN + "." + SERVICE, sanArray);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class InstanceState {
+
+        String instanceId;
+        InstanceRegisterInformation registerInfo;
+        InstanceRefreshInformation refreshInfo;
+        ResourceContext registerContext;
+        ResourceContext refreshContext;
+        SimplePrincipal principal;
+
+        @Setup
+        public void setup(ZTSState ztsState) throws Exception {
+
+            // each thread registers and refreshes its own instance so
+            // the cert records are not shared between threads
+
+            instanceId = "instance-" + ztsState.threadIndex.incrementAndGet();
+            final String csr = ztsState.generateCsr(instanceId);
+
+            registerInfo = new InstanceRegisterInformation().setAttestationData("attestationData")
+                    .setCsr(csr).setDomain(DOMAIN).setService(SERVICE).setProvider(PROVIDER);
+            refreshInfo = new InstanceRefreshInformation().setCsr(csr);
+            registerContext = resourceContext(null);
+
+            // register the instance so the refresh requests are authenticated
+            // with a certificate that matches the cert record
+
+            Response response = ztsState.ztsImpl.postInstanceRegisterInformation(registerContext, registerInfo);
+            InstanceIdentity identity = (InstanceIdentity) response.getEntity();
+
+            principal = (SimplePrincipal) SimplePrincipal.create(DOMAIN, SERVICE,
+                    "v=S1;d=athenz;n=production;s=signature", 0, new CertificateAuthority());
+            principal.setX509Certificate(Crypto.loadX509Certificate(identity.getX509Certificate()));
+            refreshContext = resourceContext(principal);
+        }
+    }
+
+    static ResourceContext resourceContext(Principal principal) {
+
+        // the mocks are stub only so they do not record the
+        // invocations made during the measurement
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class, Mockito.withSettings().stubOnly());
+        Mockito.when(request.getRemoteAddr()).thenReturn("10.11.12.13");
+        Mockito.when(request.isSecure()).thenReturn(true);
+
+        RsrcCtxWrapper context = Mockito.mock(RsrcCtxWrapper.class, Mockito.withSettings().stubOnly());
+        Mockito.when(context.principal()).thenReturn(principal);
+        Mockito.when(context.request()).thenReturn(request);
+        Mockito.when(context.response()).thenReturn(Mockito.mock(HttpServletResponse.class,
+                Mockito.withSettings().stubOnly()));
+        return context;
+    }
+
+    static DomainData providerSysAuthDomain() {
+
+        Role role = new Role().setName("sys.auth:role.providers")
+                .setRoleMembers(Collections.singletonList(new RoleMember().setMemberName(PROVIDER)));
+
+        List<Assertion> assertions = new ArrayList<>();
+        assertions.add(new Assertion().setResource("sys.auth:instance").setAction("launch")
+                .setRole("sys.auth:role.providers"));
+        assertions.add(new Assertion().setResource("sys.auth:dns." + DNS_SUFFIX).setAction("launch")
+                .setRole("sys.auth:role.providers"));
+        Policy policy = new Policy().setName("sys.auth:policy.providers").setAssertions(assertions);
+
+        return new DomainData().setName("sys.auth").setRoles(Collections.singletonList(role))
+                .setPolicies(signedPolicies("sys.auth", policy));
+    }
+
+    static DomainData tenantDomain() {
+
+        Role role = new Role().setName(DOMAIN + ":role.providers")
+                .setRoleMembers(Collections.singletonList(new RoleMember().setMemberName(PROVIDER)));
+
+        Assertion assertion = new Assertion().setResource(DOMAIN + ":service." + SERVICE)
+                .setAction("launch").setRole(DOMAIN + ":role.providers");
+        Policy policy = new Policy().setName(DOMAIN + ":policy.providers")
+                .setAssertions(Collections.singletonList(assertion));
+
+        // the provider service is in the tenant domain and its endpoint
+        // loads the benchmark provider class
+
+        ServiceIdentity providerService = new ServiceIdentity().setName(PROVIDER)
+                .setProviderEndpoint("class://" + BenchmarkInstanceProvider.class.getName());
+
+        return new DomainData().setName(DOMAIN).setRoles(Collections.singletonList(role))
+                .setServices(Collections.singletonList(providerService))
+                .setPolicies(signedPolicies(DOMAIN, policy));
+    }
+
+    static SignedPolicies signedPolicies(final String domainName, Policy policy) {
+        DomainPolicies domainPolicies = new DomainPolicies().setDomain(domainName)
+                .setPolicies(Collections.singletonList(policy));
+        return new SignedPolicies().setContents(domainPolicies).setKeyId("0");
+    }
+
+    static SignedDomain signedDomain(DomainData domain, PrivateKey privateKey) {
+        SignedPolicies signedPolicies = domain.getPolicies();
+        signedPolicies.setSignature(Crypto.sign(SignUtils.asCanonicalString(signedPolicies.getContents()),
+                privateKey));
+        domain.setModified(Timestamp.fromCurrentTime());
+        return new SignedDomain().setDomain(domain).setKeyId("0")
+                .setSignature(Crypto.sign(SignUtils.asCanonicalString(domain), privateKey));
+    }
+
+    @Benchmark
+    public void registerInstance(ZTSState ztsState, InstanceState instanceState, Blackhole blackhole) {
+        blackhole.consume(ztsState.ztsImpl.postInstanceRegisterInformation(instanceState.registerContext,
+                instanceState.registerInfo));
+    }
+
+    @Benchmark
+    public void refreshInstance(ZTSState ztsState, InstanceState instanceState, Blackhole blackhole) {
+
+        InstanceIdentity identity = ztsState.ztsImpl.postInstanceRefreshInformation(instanceState.refreshContext,
+                PROVIDER, DOMAIN, SERVICE, instanceState.instanceId, instanceState.refreshInfo);
+
+        // the next refresh is authenticated with the new certificate
+        // since the cert record now holds its serial number
+
+        instanceState.principal.setX509Certificate(Crypto.loadX509Certificate(identity.getX509Certificate()));
+        blackhole.consume(identity);
+    }
+}
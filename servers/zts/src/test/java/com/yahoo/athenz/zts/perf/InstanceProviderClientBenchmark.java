@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.perf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.athenz.instance.provider.InstanceConfirmation;
+import com.yahoo.athenz.instance.provider.InstanceProviderClient;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares creating a new provider client for every confirmation request,
+ * which was required before providers were shared, against a shared
+ * client with persistent pooled connections. The provider is a local mock
+ * server so the results show the client setup and connection costs
+ * rather than the provider latency.
+ *
+ * mvn -Djmh test-compile exec:exec@jmh-benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class InstanceProviderClientBenchmark {
+
+    private static final byte[] CONFIRMATION_RESPONSE =
+            "{\"provider\":\"athenz.provider\",\"domain\":\"athenz\",\"service\":\"api\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    HttpServer mockProvider;
+    String providerUrl;
+    InstanceProviderClient sharedClient;
+    InstanceConfirmation confirmation;
+
+    @Setup
+    public void setup() throws IOException {
+
+        mockProvider = HttpServer.create(new InetSocketAddress("localhost", 0), 256);
+        mockProvider.createContext("/instance", InstanceProviderClientBenchmark::confirmInstance);
+        mockProvider.setExecutor(Executors.newFixedThreadPool(8));
+        mockProvider.start();
+
+        providerUrl = "http://localhost:" + mockProvider.getAddress().getPort();
+        sharedClient = new InstanceProviderClient(providerUrl, null, null, 10000, 10000, 20, 40);
+        confirmation = new InstanceConfirmation().setProvider("athenz.provider")
+                .setDomain("athenz").setService("api").setAttestationData("attestation-data");
+    }
+
+    @TearDown
+    public void tearDown() {
+        sharedClient.close();
+        mockProvider.stop(0);
+    }
+
+    static void confirmInstance(HttpExchange exchange) throws IOException {
+        try (InputStream input = exchange.getRequestBody()) {
+            byte[] buffer = new byte[1024];
+            while (input.read(buffer) != -1) {
+                // consume the request body
+            }
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, CONFIRMATION_RESPONSE.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(CONFIRMATION_RESPONSE);
+        }
+    }
+
+    @Benchmark
+    public InstanceConfirmation newClientPerRequest() {
+        InstanceProviderClient client = new InstanceProviderClient(providerUrl, null, null, 10000, 10000);
+        try {
+            return client.postInstanceConfirmation(confirmation);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Benchmark
+    public InstanceConfirmation sharedPooledClient() {
+        return sharedClient.postInstanceConfirmation(confirmation);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.perf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import com.yahoo.athenz.auth.util.Crypto;
+import com.yahoo.athenz.auth.util.X509CSRFields;
+import org.bouncycastle.pkcs.PKCS10CertificationRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares extracting the csr fields required by X509CertRequest with
+ * the individual Crypto.extractX509CSR* methods against the single
+ * pass decoding in X509CSRFields.
+ *
+ * mvn -Djmh test-compile exec:exec@jmh-benchmarks
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class X509CertRequestBenchmark {
+
+    PKCS10CertificationRequest certReq;
+
+    @Setup
+    public void setup() throws IOException {
+        final String csr = new String(Files.readAllBytes(Paths.get("src/test/resources/athenz.instanceid.csr")));
+        certReq = Crypto.getPKCS10CertRequest(csr);
+    }
+
+    @Benchmark
+    public void extractFields(Blackhole blackhole) {
+        blackhole.consume(Crypto.extractX509CSRDnsNames(certReq));
+        blackhole.consume(Crypto.extractX509CSRIPAddresses(certReq));
+        blackhole.consume(Crypto.extractX509CSRCommonName(certReq));
+        blackhole.consume(Crypto.extractX509CSRURIs(certReq));
+        blackhole.consume(Crypto.extractX509CSRSubjectOField(certReq));
+        blackhole.consume(Crypto.extractX509CSRSubjectOUField(certReq));
+        blackhole.consume(Crypto.extractX509CSRPublicKey(certReq));
+    }
+
+    @Benchmark
+    public void decodeFields(Blackhole blackhole) {
+        X509CSRFields csrFields = new X509CSRFields(certReq);
+        blackhole.consume(csrFields.getDnsNames());
+        blackhole.consume(csrFields.getIPAddresses());
+        blackhole.consume(csrFields.getCommonName());
+        blackhole.consume(csrFields.getURIs());
+        blackhole.consume(csrFields.getSubjectOField());
+        blackhole.consume(csrFields.getSubjectOUField());
+        blackhole.consume(csrFields.getPublicKey());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.perf;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import com.yahoo.athenz.zts.*;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.servlet.ServletContainer;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * End-to-end throughput of the ZTS response types served by jersey
+ * running inside an embedded jetty server with and without the
+ * streaming ZTS response writers registered.
+ *
+ * mvn -Djmh test-compile exec:exec@jmh-benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class ZTSResponseThroughputBenchmark {
+
+    @Path("/zts/v1")
+    public static class BenchmarkResource {
+
+        private static final AccessTokenResponse ACCESS_TOKEN_RESPONSE =
+                ZTSResponseWriterBenchmark.BenchmarkResponses.accessTokenResponse();
+        private static final RoleToken ROLE_TOKEN =
+                ZTSResponseWriterBenchmark.BenchmarkResponses.roleToken();
+        private static final InstanceIdentity INSTANCE_IDENTITY =
+                ZTSResponseWriterBenchmark.BenchmarkResponses.instanceIdentity();
+        private static final DomainSignedPolicyData DOMAIN_SIGNED_POLICY_DATA =
+                ZTSResponseWriterBenchmark.BenchmarkResponses.domainSignedPolicyData(20, 5);
+
+        @GET
+        @Path("/oauth2/token")
+        @Produces(MediaType.APPLICATION_JSON)
+        public AccessTokenResponse getAccessTokenResponse() {
+            return ACCESS_TOKEN_RESPONSE;
+        }
+
+        @GET
+        @Path("/domain/coretech/token")
+        @Produces(MediaType.APPLICATION_JSON)
+        public RoleToken getRoleToken() {
+            return ROLE_TOKEN;
+        }
+
+        @GET
+        @Path("/instance")
+        @Produces(MediaType.APPLICATION_JSON)
+        public InstanceIdentity getInstanceIdentity() {
+            return INSTANCE_IDENTITY;
+        }
+
+        @GET
+        @Path("/domain/coretech/signed_policy_data")
+        @Produces(MediaType.APPLICATION_JSON)
+        public DomainSignedPolicyData getDomainSignedPolicyData() {
+            return DOMAIN_SIGNED_POLICY_DATA;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class JettyServer {
+
+        @Param({"jackson", "streaming"})
+        public String writer;
+
+        Server server;
+        HttpClient httpClient;
+        String baseUri;
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+
+            ResourceConfig config = new ResourceConfig();
+            config.register(BenchmarkResource.class);
+            if ("streaming".equals(writer)) {
+                config.register(ZTSResponseWriter.AccessTokenResponseWriter.class);
+                config.register(ZTSResponseWriter.RoleTokenWriter.class);
+                config.register(ZTSResponseWriter.InstanceIdentityWriter.class);
+                config.register(ZTSResponseWriter.DomainSignedPolicyDataWriter.class);
+            }
+
+            server = new Server();
+            ServerConnector connector = new ServerConnector(server);
+            connector.setPort(0);
+            server.addConnector(connector);
+
+            ServletContextHandler context = new ServletContextHandler();
+            context.addServlet(new ServletHolder(new ServletContainer(config)), "/*");
+            server.setHandler(context);
+            server.start();
+
+            baseUri = "http://localhost:" + connector.getLocalPort() + "/zts/v1";
+
+            httpClient = new HttpClient();
+            httpClient.setMaxConnectionsPerDestination(64);
+            httpClient.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws Exception {
+            httpClient.stop();
+            server.stop();
+        }
+
+        int get(final String path) throws Exception {
+            ContentResponse response = httpClient.GET(baseUri + path);
+            if (response.getStatus() != 200) {
+                throw new IllegalStateException("Unexpected response status: " + response.getStatus());
+            }
+            return response.getContent().length;
+        }
+    }
+
+    @Benchmark
+    public int accessTokenResponse(JettyServer server) throws Exception {
+        return server.get("/oauth2/token");
+    }
+
+    @Benchmark
+    public int roleToken(JettyServer server) throws Exception {
+        return server.get("/domain/coretech/token");
+    }
+
+    @Benchmark
+    public int instanceIdentity(JettyServer server) throws Exception {
+        return server.get("/instance");
+    }
+
+    @Benchmark
+    public int domainSignedPolicyData(JettyServer server) throws Exception {
+        return server.get("/domain/coretech/signed_policy_data");
+    }
+}
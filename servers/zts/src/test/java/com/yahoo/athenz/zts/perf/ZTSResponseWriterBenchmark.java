@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.yahoo.athenz.zts.*;
+import com.yahoo.rdl.Timestamp;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compares the streaming ZTS response writers against the jackson object
+ * writer that is used by the default jersey json provider for the same
+ * response objects.
+ *
+ * mvn -Djmh test-compile exec:exec@jmh-benchmarks
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ZTSResponseWriterBenchmark {
+
+    private final ObjectWriter objectWriter = new ObjectMapper().writer();
+    private final ZTSResponseWriter.AccessTokenResponseWriter accessTokenResponseWriter =
+            new ZTSResponseWriter.AccessTokenResponseWriter();
+    private final ZTSResponseWriter.RoleTokenWriter roleTokenWriter = new ZTSResponseWriter.RoleTokenWriter();
+    private final ZTSResponseWriter.InstanceIdentityWriter instanceIdentityWriter =
+            new ZTSResponseWriter.InstanceIdentityWriter();
+    private final ZTSResponseWriter.DomainSignedPolicyDataWriter domainSignedPolicyDataWriter =
+            new ZTSResponseWriter.DomainSignedPolicyDataWriter();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+    private final MultivaluedHashMap<String, Object> headers = new MultivaluedHashMap<>();
+
+    private AccessTokenResponse accessTokenResponse;
+    private RoleToken roleToken;
+    private InstanceIdentity instanceIdentity;
+    private DomainSignedPolicyData domainSignedPolicyData;
+
+    @Setup
+    public void setup() {
+        accessTokenResponse = BenchmarkResponses.accessTokenResponse();
+        roleToken = BenchmarkResponses.roleToken();
+        instanceIdentity = BenchmarkResponses.instanceIdentity();
+        domainSignedPolicyData = BenchmarkResponses.domainSignedPolicyData(20, 5);
+    }
+
+    private int jackson(Object value) throws IOException {
+        out.reset();
+        objectWriter.writeValue(out, value);
+        return out.size();
+    }
+
+    @Benchmark
+    public int accessTokenResponseJackson() throws IOException {
+        return jackson(accessTokenResponse);
+    }
+
+    @Benchmark
+    public int accessTokenResponseStreaming() throws IOException {
+        out.reset();
+        accessTokenResponseWriter.writeTo(accessTokenResponse, AccessTokenResponse.class,
+                AccessTokenResponse.class, null, MediaType.APPLICATION_JSON_TYPE, headers, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int roleTokenJackson() throws IOException {
+        return jackson(roleToken);
+    }
+
+    @Benchmark
+    public int roleTokenStreaming() throws IOException {
+        out.reset();
+        roleTokenWriter.writeTo(roleToken, RoleToken.class, RoleToken.class, null,
+                MediaType.APPLICATION_JSON_TYPE, headers, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int instanceIdentityJackson() throws IOException {
+        return jackson(instanceIdentity);
+    }
+
+    @Benchmark
+    public int instanceIdentityStreaming() throws IOException {
+        out.reset();
+        instanceIdentityWriter.writeTo(instanceIdentity, InstanceIdentity.class, InstanceIdentity.class,
+                null, MediaType.APPLICATION_JSON_TYPE, headers, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int domainSignedPolicyDataJackson() throws IOException {
+        return jackson(domainSignedPolicyData);
+    }
+
+    @Benchmark
+    public int domainSignedPolicyDataStreaming() throws IOException {
+        out.reset();
+        domainSignedPolicyDataWriter.writeTo(domainSignedPolicyData, DomainSignedPolicyData.class,
+                DomainSignedPolicyData.class, null, MediaType.APPLICATION_JSON_TYPE, headers, out);
+        return out.size();
+    }
+
+    static class BenchmarkResponses {
+
+        static AccessTokenResponse accessTokenResponse() {
+            return new AccessTokenResponse().setAccess_token(token(800)).setToken_type("Bearer")
+                    .setExpires_in(3600).setScope("coretech:role.readers coretech:role.writers")
+                    .setId_token(token(600));
+        }
+
+        static RoleToken roleToken() {
+            return new RoleToken().setToken("v=Z1;d=coretech;r=readers,writers;p=user_domain.user;h=localhost;"
+                    + "a=aAkjbbDMhnLX;t=1592351860;e=1592355460;k=0;i=10.11.12.13;s=" + token(344))
+                    .setExpiryTime(1592355460);
+        }
+
+        static InstanceIdentity instanceIdentity() {
+            Map<String, String> attributes = new HashMap<>();
+            attributes.put("certUsage", "client");
+            return new InstanceIdentity().setProvider("athenz.aws.us-west-2").setName("coretech.api")
+                    .setInstanceId("i-0123456789abcdef").setX509Certificate(token(1800))
+                    .setX509CertificateSigner(token(1600)).setAttributes(attributes);
+        }
+
+        static DomainSignedPolicyData domainSignedPolicyData(int policyCount, int assertionCount) {
+            List<Policy> policies = new ArrayList<>();
+            for (int i = 0; i < policyCount; i++) {
+                List<Assertion> assertions = new ArrayList<>();
+                for (int j = 0; j < assertionCount; j++) {
+                    assertions.add(new Assertion().setRole("coretech:role.role" + i)
+                            .setResource("coretech:resource" + j).setAction("read")
+                            .setEffect(AssertionEffect.ALLOW).setId((long) (i * assertionCount + j)));
+                }
+                policies.add(new Policy().setName("coretech:policy.policy" + i)
+                        .setModified(Timestamp.fromCurrentTime()).setAssertions(assertions));
+            }
+            SignedPolicyData signedPolicyData = new SignedPolicyData()
+                    .setPolicyData(new PolicyData().setDomain("coretech").setPolicies(policies))
+                    .setZmsKeyId("0").setZmsSignature(token(100)).setModified(Timestamp.fromCurrentTime())
+                    .setExpires(Timestamp.fromCurrentTime());
+            return new DomainSignedPolicyData().setSignedPolicyData(signedPolicyData)
+                    .setKeyId("0").setSignature(token(100));
+        }
+
+        static String token(int length) {
+            StringBuilder token = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                token.append((char) ('a' + (i % 26)));
+            }
+            return token.toString();
+        }
+    }
+}
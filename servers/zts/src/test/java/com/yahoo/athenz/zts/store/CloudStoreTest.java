@@ -17,10 +17,19 @@ package com.yahoo.athenz.zts.store;
 
 import static org.testng.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import com.amazonaws.services.securitytoken.AWSSecurityTokenServiceClient;
+import com.yahoo.athenz.common.metrics.Metric;
 import com.yahoo.athenz.common.server.rest.Http;
 import com.yahoo.rdl.Timestamp;
 import org.eclipse.jetty.client.HttpClient;
@@ -1079,4 +1088,193 @@ public class CloudStoreTest {
         updater.run();
         updater.run();
     }
+
+    private AssumeRoleResult createAssumeRoleResult(final String accessKeyId) {
+        Credentials creds = new Credentials().withAccessKeyId(accessKeyId)
+                .withSecretAccessKey("secretaccesskey").withSessionToken("sessiontoken")
+                .withExpiration(new Date(System.currentTimeMillis() + 3600 * 1000));
+        return new AssumeRoleResult().withCredentials(creds);
+    }
+
+    @Test
+    public void testAssumeAWSRoleCacheMetrics() {
+        MockCloudStore cloudStore = new MockCloudStore();
+        cloudStore.awsEnabled = true;
+        cloudStore.setAssumeRoleResult(createAssumeRoleResult("accesskeyid"));
+        cloudStore.setReturnSuperAWSRole(true);
+
+        Metric metric = Mockito.mock(Metric.class);
+        cloudStore.setMetric(metric);
+
+        assertNotNull(cloudStore.assumeAWSRole("account", "syncer", "athenz.syncer", null, null));
+        assertNotNull(cloudStore.assumeAWSRole("account", "syncer", "athenz.syncer", null, null));
+
+        Mockito.verify(metric, Mockito.times(1)).increment("aws_creds_cache_miss");
+        Mockito.verify(metric, Mockito.times(1)).increment("aws_creds_cache_hit");
+        Mockito.verify(metric, Mockito.times(1)).startTiming("aws_assume_role_timing", null);
+        Mockito.verify(metric, Mockito.times(1)).stopTiming(Mockito.any());
+        cloudStore.close();
+    }
+
+    @Test
+    public void testAssumeAWSRoleCoalescedRequests() throws Exception {
+
+        CountDownLatch requestLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        AWSSecurityTokenServiceClient client = Mockito.mock(AWSSecurityTokenServiceClient.class);
+        Mockito.when(client.assumeRole(Mockito.any(AssumeRoleRequest.class))).thenAnswer(invocation -> {
+            requestLatch.countDown();
+            releaseLatch.await(10, TimeUnit.SECONDS);
+            return createAssumeRoleResult("accesskeyid");
+        });
+
+        MockCloudStore cloudStore = new MockCloudStore() {
+            @Override
+            AWSSecurityTokenServiceClient getTokenServiceClient() {
+                return client;
+            }
+        };
+        cloudStore.awsEnabled = true;
+        cloudStore.setReturnSuperAWSRole(true);
+
+        Metric metric = Mockito.mock(Metric.class);
+        cloudStore.setMetric(metric);
+
+        // the first request is blocked in AWS STS while all others
+        // must wait for its result instead of sending their own
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<AWSTemporaryCredentials>> results = new ArrayList<>();
+        results.add(executor.submit(() -> cloudStore.assumeAWSRole("account", "syncer", "athenz.syncer", null, null)));
+        assertTrue(requestLatch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(() -> cloudStore.assumeAWSRole("account", "syncer", "athenz.syncer", null, null)));
+        }
+        Mockito.verify(metric, Mockito.timeout(5000).times(3)).increment("aws_creds_coalesced");
+        releaseLatch.countDown();
+
+        for (Future<AWSTemporaryCredentials> result : results) {
+            assertEquals(result.get(10, TimeUnit.SECONDS).getAccessKeyId(), "accesskeyid");
+        }
+        Mockito.verify(client, Mockito.times(1)).assumeRole(Mockito.any(AssumeRoleRequest.class));
+        assertTrue(cloudStore.awsCredsRequests.isEmpty());
+
+        executor.shutdownNow();
+        cloudStore.close();
+    }
+
+    @Test
+    public void testAssumeAWSRoleCoalescedRequestsFailure() {
+        MockCloudStore cloudStore = new MockCloudStore();
+        cloudStore.awsEnabled = true;
+        cloudStore.setReturnSuperAWSRole(true);
+        cloudStore.setGetServiceException(403, true);
+
+        // failed requests are not left pending
+
+        final String cacheKey = cloudStore.getCacheKey("account", "syncer", "athenz.syncer", null, null);
+        assertNull(cloudStore.fetchAWSRoleCredentials(cacheKey,
+                new CloudStore.AWSRoleRequest("account", "syncer", "athenz.syncer", null, null)));
+        assertTrue(cloudStore.awsCredsRequests.isEmpty());
+        assertTrue(cloudStore.isFailedTempCredsRequest(cacheKey));
+        cloudStore.close();
+    }
+
+    @Test
+    public void testAssumeAWSRoleCacheDisabled() {
+        MockCloudStore cloudStore = new MockCloudStore();
+        cloudStore.awsEnabled = true;
+        cloudStore.cacheTimeout = 0;
+        cloudStore.setAssumeRoleResult(createAssumeRoleResult("accesskeyid"));
+        cloudStore.setReturnSuperAWSRole(true);
+
+        assertNotNull(cloudStore.assumeAWSRole("account", "syncer", "athenz.syncer", null, null));
+        assertNotNull(cloudStore.assumeAWSRole("account", "syncer", "athenz.syncer", null, null));
+        assertEquals(cloudStore.awsCredsCache.size(), 0);
+        assertTrue(cloudStore.awsCredsRequests.isEmpty());
+        cloudStore.close();
+    }
+
+    @Test
+    public void testCredsCacheMaxSize() {
+
+        System.setProperty(ZTSConsts.ZTS_PROP_AWS_CREDS_CACHE_MAX_SIZE, "8192");
+        CloudStore cloudStore = new CloudStore();
+        System.clearProperty(ZTSConsts.ZTS_PROP_AWS_CREDS_CACHE_MAX_SIZE);
+
+        for (int i = 0; i < 100; i++) {
+            AWSTemporaryCredentials creds = new AWSTemporaryCredentials();
+            creds.setAccessKeyId("keyid");
+            creds.setSecretAccessKey("accesskey");
+            creds.setSessionToken("token");
+            creds.setExpiration(Timestamp.fromMillis(System.currentTimeMillis() + 3600 * 1000));
+            cloudStore.putCacheCreds("account:role" + i + ":user::", creds);
+        }
+
+        // older entries are evicted once we reach our max size
+
+        long cacheSize = cloudStore.awsCredsCache.size();
+        assertTrue(cacheSize > 0);
+        assertTrue(cacheSize < 100);
+        assertNotNull(cloudStore.getCachedCreds("account:role99:user::", null));
+        assertNull(cloudStore.getCachedCreds("account:role0:user::", null));
+        cloudStore.close();
+    }
+
+    @Test
+    public void testRefreshCachedCredentials() {
+        MockCloudStore cloudStore = new MockCloudStore();
+        cloudStore.awsEnabled = true;
+        cloudStore.cacheTimeout = 600;
+        cloudStore.credsRefreshInterval = 60;
+        cloudStore.credsRefreshMinHits = 2;
+        cloudStore.setAssumeRoleResult(createAssumeRoleResult("newkeyid"));
+
+        Metric metric = Mockito.mock(Metric.class);
+        cloudStore.setMetric(metric);
+
+        // credentials issued 9 mins and 30 secs ago will no longer
+        // be returned from the cache before our next refresh run
+
+        final long expiry = System.currentTimeMillis() + (3600 - 570) * 1000;
+        cloudStore.putCacheCreds("account:popular:user::", createTempCreds(expiry),
+                new CloudStore.AWSRoleRequest("account", "popular", "user", null, null));
+        cloudStore.putCacheCreds("account:unpopular:user::", createTempCreds(expiry),
+                new CloudStore.AWSRoleRequest("account", "unpopular", "user", null, null));
+        cloudStore.putCacheCreds("account:recent:user::", createTempCreds(System.currentTimeMillis() + 3600 * 1000),
+                new CloudStore.AWSRoleRequest("account", "recent", "user", null, null));
+        cloudStore.putCacheCreds("account:norequest:user::", createTempCreds(expiry));
+
+        for (int i = 0; i < 2; i++) {
+            assertNotNull(cloudStore.getCachedCreds("account:popular:user::", null));
+            assertNotNull(cloudStore.getCachedCreds("account:recent:user::", null));
+            assertNotNull(cloudStore.getCachedCreds("account:norequest:user::", null));
+        }
+        assertNotNull(cloudStore.getCachedCreds("account:unpopular:user::", null));
+
+        cloudStore.refreshCachedCredentials();
+
+        // only our popular credentials are refreshed and their
+        // hit count is reset
+
+        Mockito.verify(metric, Mockito.times(1)).increment("aws_creds_refresh");
+        CloudStore.CachedCredentials cachedCreds = cloudStore.awsCredsCache.getIfPresent("account:popular:user::");
+        assertNotNull(cachedCreds);
+        assertEquals(cachedCreds.tempCreds.getAccessKeyId(), "newkeyid");
+        assertEquals(cachedCreds.hits.get(), 0);
+
+        assertEquals(cloudStore.getCachedCreds("account:unpopular:user::", null).getAccessKeyId(), "keyid");
+        assertEquals(cloudStore.getCachedCreds("account:recent:user::", null).getAccessKeyId(), "keyid");
+        assertEquals(cloudStore.getCachedCreds("account:norequest:user::", null).getAccessKeyId(), "keyid");
+        cloudStore.close();
+    }
+
+    private AWSTemporaryCredentials createTempCreds(long expiry) {
+        AWSTemporaryCredentials creds = new AWSTemporaryCredentials();
+        creds.setAccessKeyId("keyid");
+        creds.setSecretAccessKey("accesskey");
+        creds.setSessionToken("token");
+        creds.setExpiration(Timestamp.fromMillis(expiry));
+        return creds;
+    }
 }
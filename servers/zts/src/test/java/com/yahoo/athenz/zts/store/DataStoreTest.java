@@ -168,6 +168,20 @@ public class DataStoreTest {
         System.clearProperty("athenz.zts.zms_domain_check_timeout");
     }
 
+    @Test
+    public void testGetZtsPublicKey() {
+
+        ChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null);
+
+        // the zts public keys from athenz.conf are available by key id
+
+        assertNotNull(store.getZtsPublicKey("0"));
+        assertEquals(store.getZtsPublicKey("ec.0").getAlgorithm(), "ECDSA");
+        assertNull(store.getZtsPublicKey("unknown"));
+    }
+
     @Test
     public void testLoadZMSPublicKeysInvalidKeys() {
 
@@ -4007,4 +4021,99 @@ public class DataStoreTest {
         assertNotNull(store.getDomainData("coretech"));
         assertNull(store.getDomainData("finance"));
     }
+
+    @Test
+    public void testProcessDomainChanges() {
+
+        MockZMSFileChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null);
+        addDomainToDataStore(store, "coretech");
+
+        List<SignedDomain> domains = new ArrayList<>();
+        domains.add(createSignedDomain("sports", "weather"));
+        SignedDomains signedDomains = new SignedDomains();
+        signedDomains.setDomains(domains);
+        clogStore.setSignedDomains(signedDomains);
+
+        List<DomainModified> modList = new ArrayList<>();
+        modList.add(new DomainModified().setName("sports").setModified(System.currentTimeMillis()));
+        clogStore.setDomainChanges(new DomainModifiedList().setNameModList(modList));
+        clogStore.setTagHeader("tag1");
+
+        StringBuilder changeTag = new StringBuilder();
+        assertTrue(store.processDomainChanges(changeTag));
+        assertEquals(changeTag.toString(), "tag1");
+
+        assertNotNull(store.getDomainData("sports"));
+        assertNotNull(store.getDomainData("coretech"));
+    }
+
+    @Test
+    public void testProcessDomainChangesNoChanges() {
+
+        MockZMSFileChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null);
+        addDomainToDataStore(store, "coretech");
+
+        clogStore.setDomainChanges(null);
+        clogStore.setTagHeader("tag2");
+
+        StringBuilder changeTag = new StringBuilder("tag1");
+        assertTrue(store.processDomainChanges(changeTag));
+        assertEquals(changeTag.toString(), "tag2");
+        assertNotNull(store.getDomainData("coretech"));
+    }
+
+    @Test
+    public void testProcessDomainChangesFailure() {
+
+        MockZMSFileChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null);
+
+        clogStore.setDomainChangesExc();
+
+        StringBuilder changeTag = new StringBuilder("tag1");
+        assertFalse(store.processDomainChanges(changeTag));
+        assertEquals(changeTag.toString(), "tag1");
+    }
+
+    @Test
+    public void testProcessDomainChangeLocalNewer() {
+
+        MockZMSFileChangeLogStore clogStore = new MockZMSFileChangeLogStore("/tmp/zts_server_unit_tests/zts_root",
+                pkey, "0");
+        DataStore store = new DataStore(clogStore, null);
+
+        SignedDomain signedDomain = createSignedDomain("sports", "weather");
+        signedDomain.getDomain().setModified(Timestamp.fromMillis(System.currentTimeMillis() - 60000));
+        List<SignedDomain> domains = new ArrayList<>();
+        domains.add(signedDomain);
+        SignedDomains signedDomains = new SignedDomains();
+        signedDomains.setDomains(domains);
+        clogStore.setSignedDomains(signedDomains);
+
+        // our local copy is newer than the server one so
+        // no changes will be applied
+
+        addDomainToDataStore(store, "sports");
+        store.processDomainChange("sports");
+        assertNull(store.getDomainData("sports").getServices());
+
+        // with no server domain there are no changes
+
+        clogStore.setSignedDomains(null);
+        store.processDomainChange("sports");
+        assertNull(store.getDomainData("sports").getServices());
+    }
+
+    @Test
+    public void testChangeLogStoreDefaultDomainChanges() {
+
+        ChangeLogStore clogStore = Mockito.mock(ChangeLogStore.class, Mockito.CALLS_REAL_METHODS);
+        assertFalse(clogStore.supportsDomainChangeNotifications());
+        assertNull(clogStore.getServerDomainChanges(new StringBuilder(), 10));
+    }
 }
@@ -26,6 +26,7 @@ import java.util.Map;
 import org.mockito.Mockito;
 
 import com.yahoo.athenz.zms.DomainList;
+import com.yahoo.athenz.zms.DomainModifiedList;
 import com.yahoo.athenz.zms.SignedDomains;
 import com.yahoo.athenz.zms.ZMSClient;
 import com.yahoo.athenz.zms.ZMSClientException;
@@ -93,6 +94,18 @@ public class MockZMSFileChangeLogStore extends ZMSFileChangeLogStore {
                 .thenThrow(new ZMSClientException(500, "Invalid request"));
     }
 
+    @SuppressWarnings("unchecked")
+    public void setDomainChanges(DomainModifiedList domainChanges) {
+        when(zms.getDomainChanges(Mockito.any(), Mockito.any(), Mockito.<Map>any()))
+                .thenReturn(domainChanges);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void setDomainChangesExc() {
+        when(zms.getDomainChanges(Mockito.any(), Mockito.any(), Mockito.<Map>any()))
+                .thenThrow(new ZMSClientException(500, "Invalid request"));
+    }
+
     public void setTagHeader(String tagHeader) {
         this.tagHeader = tagHeader;
     }
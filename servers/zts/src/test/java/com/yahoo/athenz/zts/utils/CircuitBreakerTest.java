@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.utils;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testCircuitBreakerDisabled() {
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker(0, 60000);
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.recordFailure();
+        }
+        assertFalse(circuitBreaker.isCircuitOpen());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testCircuitBreakerOpen() {
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, 60000);
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertFalse(circuitBreaker.isCircuitOpen());
+        assertTrue(circuitBreaker.allowRequest());
+
+        // a success resets the failure count
+
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordFailure();
+        circuitBreaker.recordFailure();
+        assertFalse(circuitBreaker.isCircuitOpen());
+
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.isCircuitOpen());
+        assertFalse(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordSuccess();
+        assertFalse(circuitBreaker.isCircuitOpen());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testCircuitBreakerProbe() throws InterruptedException {
+
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.isCircuitOpen());
+        assertFalse(circuitBreaker.allowRequest());
+
+        Thread.sleep(100);
+
+        // only a single request is allowed through once
+        // the open time has expired
+
+        assertFalse(circuitBreaker.isCircuitOpen());
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+
+        // a failed probe keeps the circuit open
+
+        circuitBreaker.recordFailure();
+        assertTrue(circuitBreaker.isCircuitOpen());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+}
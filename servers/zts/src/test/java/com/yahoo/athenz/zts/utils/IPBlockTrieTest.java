@@ -0,0 +1,267 @@
+/*
+ * Copyright 2020 Verizon Media
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.yahoo.athenz.zts.utils;
+
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.util.Random;
+
+import com.google.common.net.InetAddresses;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class IPBlockTrieTest {
+
+    @Test
+    public void testInvalidIPBlock() {
+
+        final String[] ipBlocks = {
+                "10.1.1.1", "10.1.1.1%32", "10.1.1.1-24", "10.1.1.256/24", "10.1.1.0/33",
+                "10.1.1.0/-1", "10.1.1.0/0", "172.300.10.2/32", "10.1.1/24", "10.01.1.0/24",
+                "2600:1f14::/0", "2600:1f14::/129", "2600:1f14:::/64", "2600::1f14::/64",
+                "10.1.1.0/abc"
+        };
+
+        IPBlockTrie trie = new IPBlockTrie();
+        for (String ipBlock : ipBlocks) {
+            try {
+                trie.add(ipBlock);
+                fail(ipBlock);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        assertTrue(trie.isEmpty());
+    }
+
+    @Test
+    public void testContainsIPv4() {
+
+        IPBlockTrie trie = new IPBlockTrie();
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.contains("10.1.0.1"));
+
+        trie.add("10.1.0.1/32");
+        trie.add("10.1.0.0/21");
+        trie.add("35.160.0.0/13");
+        trie.add(" 192.168.1.0 / 24 ");
+        assertEquals(trie.size(), 4);
+        assertFalse(trie.isEmpty());
+
+        assertTrue(trie.contains("10.1.0.0"));
+        assertTrue(trie.contains("10.1.0.1"));
+        assertTrue(trie.contains("10.1.3.25"));
+        assertTrue(trie.contains("10.1.7.255"));
+        assertFalse(trie.contains("10.1.8.0"));
+        assertFalse(trie.contains("10.0.0.0"));
+        assertFalse(trie.contains("10.2.1.255"));
+
+        assertTrue(trie.contains("35.166.98.147"));
+        assertFalse(trie.contains("35.168.0.0"));
+
+        assertTrue(trie.contains("192.168.1.255"));
+        assertFalse(trie.contains("192.168.2.1"));
+
+        // IPv4-mapped IPv6 addresses are checked against IPv4 blocks
+
+        assertTrue(trie.contains("::ffff:10.1.3.25"));
+        assertTrue(trie.contains("::ffff:a01:319"));
+        assertFalse(trie.contains("::ffff:10.1.9.25"));
+        assertFalse(trie.contains("::10.1.3.25"));
+    }
+
+    @Test
+    public void testContainsIPv6() {
+
+        IPBlockTrie trie = new IPBlockTrie();
+        trie.add("2600:1f14::/35");
+        trie.add("2a05:d018:0:8000::/52");
+        trie.add("::1/128");
+
+        assertTrue(trie.contains("2600:1f14::1"));
+        assertTrue(trie.contains("2600:1f14:1fff:ffff:ffff:ffff:ffff:ffff"));
+        assertFalse(trie.contains("2600:1f14:2000::"));
+        assertTrue(trie.contains("2600:1F14:0:0:0:0:0:1"));
+        assertFalse(trie.contains("2600:1f16::"));
+        assertTrue(trie.contains("2a05:d018:0:8fff::10"));
+        assertFalse(trie.contains("2a05:d018:0:9000::10"));
+        assertTrue(trie.contains("::1"));
+        assertFalse(trie.contains("::2"));
+        assertFalse(trie.contains("::"));
+
+        // IPv6 blocks do not match IPv4 addresses
+
+        assertFalse(trie.contains("10.1.0.1"));
+    }
+
+    @Test
+    public void testCoveredPrefixes() {
+
+        // blocks covered by a shorter prefix are not stored
+        // and a shorter prefix replaces longer ones
+
+        IPBlockTrie trie = new IPBlockTrie();
+        trie.add("10.1.2.0/24");
+        trie.add("10.1.3.0/24");
+        trie.add("10.1.2.128/25");
+        assertTrue(trie.contains("10.1.2.200"));
+        assertTrue(trie.contains("10.1.3.1"));
+        assertFalse(trie.contains("10.1.4.1"));
+
+        trie.add("10.1.0.0/16");
+        assertTrue(trie.contains("10.1.4.1"));
+        assertTrue(trie.contains("10.1.255.255"));
+        assertFalse(trie.contains("10.2.0.0"));
+
+        trie.add("10.0.0.0/8");
+        trie.add("10.1.0.0/16");
+        assertTrue(trie.contains("10.2.0.0"));
+        assertFalse(trie.contains("11.0.0.0"));
+
+        trie.add("128.0.0.0/1");
+        assertTrue(trie.contains("255.255.255.255"));
+        assertTrue(trie.contains("128.0.0.0"));
+        assertFalse(trie.contains("127.255.255.255"));
+        assertEquals(trie.size(), 7);
+    }
+
+    @Test
+    public void testContainsInvalidAddress() {
+
+        IPBlockTrie trie = new IPBlockTrie();
+        trie.add("0.0.0.0/1");
+        trie.add("128.0.0.0/1");
+        trie.add("::/1");
+        trie.add("8000::/1");
+
+        final String[] addresses = {
+                null, "", "10", "10.1.1", "10.1.1.1.1", "10.1.1.256", "10.1987.0.1", "10..1.1",
+                "10.1.1.", ".10.1.1", "010.1.1.1", "10.1.1.1 ", "a.b.c.d", ":", ":1", "1:",
+                ":::", "1::2::3", "1:2:3:4:5:6:7:8:9", "12345::", "::1.2.3", "::1.2.3.4.5",
+                "1:2:3:4:5:6:7:1.2.3.4", "::g", "fe80::1%eth0", "::1:2:3:4:5:6:7:8", "1::2:3:4:5:6:7:8",
+                "1.2.3.4::", "::ffff:1.2.3.256"
+        };
+        for (String address : addresses) {
+            assertFalse(trie.contains(address), String.valueOf(address));
+        }
+    }
+
+    @DataProvider
+    public static Object[][] ipv6Addresses() {
+        return new Object[][] {
+                { "::" }, { "::1" }, { "1::" }, { "1::2" }, { "1:2:3:4:5:6:7:8" }, { "1:2:3:4:5:6:7::" },
+                { "::2:3:4:5:6:7:8" }, { "fe80::1:2" }, { "2600:1F14:ABCD::ffff" }, { "::ffff:10.1.2.3" },
+                { "64:ff9b::192.0.2.33" }, { "1:2:3:4:5:6:1.2.3.4" }, { "0:0:0:0:0:0:0:0" },
+                { "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff" }, { "1:0:0:0::8" }
+        };
+    }
+
+    @Test(dataProvider = "ipv6Addresses")
+    public void testParseIPv6(final String address) {
+
+        assertTrue(IPBlockTrie.isValidIPv6(address));
+
+        byte[] expected = InetAddresses.forString(address).getAddress();
+        if (expected.length == 4) {
+
+            // guava converts IPv4-mapped addresses to IPv4
+
+            assertEquals(IPBlockTrie.parseIPv6(address, true), 0);
+            assertEquals(IPBlockTrie.parseIPv6(address, false), 0xFFFF00000000L | toLong(expected, 0, 4));
+            return;
+        }
+        assertEquals(IPBlockTrie.parseIPv6(address, true), toLong(expected, 0, 8));
+        assertEquals(IPBlockTrie.parseIPv6(address, false), toLong(expected, 8, 16));
+    }
+
+    @Test
+    public void testContainsRandomBlocks() {
+
+        // compare the trie against a linear check of all blocks
+
+        Random random = new Random(12345);
+        final int count = 200;
+        BigInteger[] subnets = new BigInteger[count];
+        int[] masks = new int[count];
+        boolean[] ipv6 = new boolean[count];
+
+        IPBlockTrie trie = new IPBlockTrie();
+        for (int i = 0; i < count; i++) {
+            ipv6[i] = random.nextBoolean();
+            byte[] addr = new byte[ipv6[i] ? 16 : 4];
+            random.nextBytes(addr);
+            masks[i] = 1 + random.nextInt(ipv6[i] ? 72 : 24);
+            subnets[i] = new BigInteger(1, addr);
+            trie.add(InetAddresses.toAddrString(toInetAddress(addr)) + "/" + masks[i]);
+        }
+
+        for (int i = 0; i < 20000; i++) {
+            boolean checkIPv6 = random.nextBoolean();
+            byte[] addr = new byte[checkIPv6 ? 16 : 4];
+            random.nextBytes(addr);
+
+            // make sure we get enough hits by reusing a subnet prefix
+
+            if (random.nextBoolean()) {
+                int idx = random.nextInt(count);
+                if (ipv6[idx] == checkIPv6) {
+                    byte[] subnet = toBytes(subnets[idx], addr.length);
+                    System.arraycopy(subnet, 0, addr, 0, masks[idx] / 8);
+                }
+            }
+
+            BigInteger value = new BigInteger(1, addr);
+            boolean expected = false;
+            for (int j = 0; j < count && !expected; j++) {
+                if (ipv6[j] != checkIPv6) {
+                    continue;
+                }
+                int shift = addr.length * 8 - masks[j];
+                expected = value.shiftRight(shift).equals(subnets[j].shiftRight(shift));
+            }
+            final String address = InetAddresses.toAddrString(toInetAddress(addr));
+            if (checkIPv6 && address.indexOf(':') == -1) {
+                continue;
+            }
+            assertEquals(trie.contains(address), expected, address);
+        }
+    }
+
+    private static long toLong(byte[] bytes, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static byte[] toBytes(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        byte[] result = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, result, length - copy, copy);
+        return result;
+    }
+
+    private static InetAddress toInetAddress(byte[] addr) {
+        try {
+            return InetAddress.getByAddress(addr);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -34,9 +35,12 @@ import com.yahoo.rdl.Timestamp;
 import com.yahoo.athenz.auth.util.Crypto;
 import com.yahoo.athenz.common.utils.SignUtils;
 import com.yahoo.athenz.zts.DomainMetrics;
+import com.yahoo.athenz.zts.DomainPolicyTag;
 import com.yahoo.athenz.zts.DomainSignedPolicyData;
 import com.yahoo.athenz.zts.PolicyData;
 import com.yahoo.athenz.zts.SignedPolicyData;
+import com.yahoo.athenz.zts.SignedPolicyDataList;
+import com.yahoo.athenz.zts.SignedPolicyRequest;
 import com.yahoo.athenz.zts.ZTSClient;
 import com.yahoo.athenz.zts.ZTSClientException;
 
@@ -133,28 +137,27 @@ public class PolicyUpdater {
                 throw new Exception("no configured domains to process");
             }
             
-            for (String domain : domainList) {
-
-                LOG.info("Fetching signed policies for domain:" + domain);
-                
-                String matchingTag = getEtagForExistingPolicy(zts, configuration, domain);
-                
-                Map<String, List<String>> responseHeaders = null;
-                DomainSignedPolicyData domainSignedPolicyData = null;
-                try {
-                    domainSignedPolicyData = zts.getDomainSignedPolicyData(domain, matchingTag,
-                            responseHeaders);
-                } catch (Exception exc) {
-                    domainSignedPolicyData = null;
-                    LOG.error("PolicyUpdater: Unable to retrieve policies from zts for domain="
-                            + domain, exc);
-                }
-                if (domainSignedPolicyData == null) {
-                    if (matchingTag != null && !matchingTag.isEmpty()) {
-                        LOG.info("PolicyUpdater: Policies not updated since last fetch time");
+            // we're going to retrieve the signed policies for our domains
+            // in batches with a single request for each batch. if the batch
+            // request fails (e.g. the ZTS server does not support the api)
+            // then we fall back to retrieving the policies one domain at a time
+
+            final int batchSize = Math.max(configuration.getDomainBatchSize(), 1);
+            boolean batchRequests = batchSize > 1;
+            for (int idx = 0; idx < domainList.size(); idx += batchSize) {
+
+                List<String> domainBatch = domainList.subList(idx,
+                        Math.min(idx + batchSize, domainList.size()));
+
+                if (batchRequests) {
+                    batchRequests = processDomainBatch(zts, configuration, domainBatch);
+                    if (batchRequests) {
+                        continue;
                     }
-                } else if (validateSignedPolicies(zts, configuration, domainSignedPolicyData, domain)) {
-                    writePolicies(configuration, domain, domainSignedPolicyData);
+                }
+
+                for (String domain : domainBatch) {
+                    processDomain(zts, configuration, domain);
                 }
             }
             
@@ -164,6 +167,74 @@ public class PolicyUpdater {
         }
     }
 
+    static boolean processDomainBatch(ZTSClient zts, PolicyUpdaterConfiguration configuration,
+            List<String> domainBatch) throws IOException {
+
+        LOG.info("Fetching signed policies for domains:" + domainBatch);
+
+        List<DomainPolicyTag> domainTags = new ArrayList<>();
+        for (String domain : domainBatch) {
+            domainTags.add(new DomainPolicyTag().setDomainName(domain)
+                    .setMatchingTag(getEtagForExistingPolicy(zts, configuration, domain)));
+        }
+
+        SignedPolicyDataList signedPolicyDataList;
+        try {
+            signedPolicyDataList = zts.postSignedPolicyRequest(new SignedPolicyRequest().setDomains(domainTags));
+        } catch (Exception exc) {
+            LOG.error("PolicyUpdater: Unable to retrieve policies from zts for domains="
+                    + domainBatch, exc);
+            return false;
+        }
+
+        // the server only returns the domains that have been modified
+        // since our last fetch time
+
+        for (DomainSignedPolicyData domainSignedPolicyData : signedPolicyDataList.getDomains()) {
+            final String domain = domainSignedPolicyData.getSignedPolicyData().getPolicyData().getDomain();
+            if (!domainBatch.contains(domain)) {
+                LOG.error("PolicyUpdater: Ignoring policies for unrequested domain=" + domain);
+                continue;
+            }
+            if (validateSignedPolicies(zts, configuration, domainSignedPolicyData, domain)) {
+                writePolicies(configuration, domain, domainSignedPolicyData);
+            }
+        }
+
+        if (signedPolicyDataList.getUnknownDomains() != null) {
+            for (String domain : signedPolicyDataList.getUnknownDomains()) {
+                LOG.error("PolicyUpdater: Unable to retrieve policies from zts for unknown domain=" + domain);
+            }
+        }
+        return true;
+    }
+
+    static void processDomain(ZTSClient zts, PolicyUpdaterConfiguration configuration,
+            String domain) throws IOException {
+
+        LOG.info("Fetching signed policies for domain:" + domain);
+
+        String matchingTag = getEtagForExistingPolicy(zts, configuration, domain);
+
+        Map<String, List<String>> responseHeaders = null;
+        DomainSignedPolicyData domainSignedPolicyData = null;
+        try {
+            domainSignedPolicyData = zts.getDomainSignedPolicyData(domain, matchingTag,
+                    responseHeaders);
+        } catch (Exception exc) {
+            domainSignedPolicyData = null;
+            LOG.error("PolicyUpdater: Unable to retrieve policies from zts for domain="
+                    + domain, exc);
+        }
+        if (domainSignedPolicyData == null) {
+            if (matchingTag != null && !matchingTag.isEmpty()) {
+                LOG.info("PolicyUpdater: Policies not updated since last fetch time");
+            }
+        } else if (validateSignedPolicies(zts, configuration, domainSignedPolicyData, domain)) {
+            writePolicies(configuration, domain, domainSignedPolicyData);
+        }
+    }
+
     static boolean validateSignedPolicies(ZTSClient zts, PolicyUpdaterConfiguration configuration,
             DomainSignedPolicyData domainSignedPolicyData, String domain) {
         
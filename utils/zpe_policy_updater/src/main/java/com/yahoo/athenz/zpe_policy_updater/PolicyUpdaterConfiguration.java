@@ -44,6 +44,7 @@ public class PolicyUpdaterConfiguration {
     private static final String ZPU_PROP_DEBUG       = "athenz.zpe_policy_updater.debug";
     private static final String ZPU_PROP_POLDIR      = "athenz.zpe_policy_updater.dir";
     private static final String ZPU_PROP_POL_TMP_DIR = "athenz.zpe_policy_updater.tmp_dir";
+    private static final String ZPU_PROP_BATCH_SIZE  = "athenz.zpe_policy_updater.domain_batch_size";
     static final String ZPU_PROP_TEST_ROOT_PATH      = "athenz.zpe_policy_updater.test_root_path";
     
     private static final String ATHENZ_CONFIG_FILE = "/conf/athenz/athenz.conf";
@@ -70,11 +71,17 @@ public class PolicyUpdaterConfiguration {
     private String defaultZPUConfigFile;
     private List<String> domainList  = null;
     private String zpuDirOwner = null;
+    private int domainBatchSize;
 
     public PolicyUpdaterConfiguration() {
         
         debugMode = Boolean.parseBoolean(System.getProperty(ZPU_PROP_DEBUG, "false"));
 
+        // number of domains to retrieve signed policies for in a single
+        // request. setting the value to 1 disables batched requests
+
+        domainBatchSize = Integer.parseInt(System.getProperty(ZPU_PROP_BATCH_SIZE, "100"));
+
         rootDir = System.getenv("ROOT");
         if (null == rootDir) {
             rootDir = File.separator + "home" + File.separator + "athenz";
@@ -269,4 +276,12 @@ public class PolicyUpdaterConfiguration {
     public String getZpuDirOwner() {
         return zpuDirOwner;
     }
+
+    public int getDomainBatchSize() {
+        return domainBatchSize;
+    }
+
+    public void setDomainBatchSize(int domainBatchSize) {
+        this.domainBatchSize = domainBatchSize;
+    }
 }
@@ -27,14 +27,21 @@ import com.yahoo.athenz.zts.ZTSClient;
 public class DebugZTSClientFactory implements ZTSClientFactory {
 
     private String keyId = "0";
+    private boolean signedPolicyRequestSupported = true;
+
     public void setPublicKeyId(String keyId) {
         this.keyId  = keyId;
     }
+
+    public void setSignedPolicyRequestSupported(boolean signedPolicyRequestSupported) {
+        this.signedPolicyRequestSupported = signedPolicyRequestSupported;
+    }
     
     @Override
     public ZTSClient create() throws IOException {
         ZTSMock zts = new ZTSMock();
         zts.setPublicKeyId(keyId);
+        zts.setSignedPolicyRequestSupported(signedPolicyRequestSupported);
         ServiceIdentityProvider siaProvider = Mockito.mock(SimpleServiceIdentityProvider.class);
         ZTSClient client = new ZTSClient("http://localhost:10080", "domain", "service", siaProvider);
         client.setZTSRDLGeneratedClient(zts);
@@ -390,6 +390,65 @@ public class PolicyUpdaterTest {
         Files.delete(path);
     }
     
+    @Test
+    public void TestPolicyUpdaterBatchNotSupported() throws Exception {
+
+        PolicyUpdaterConfiguration configuration = new PolicyUpdaterConfiguration();
+        configuration.init(pathToAthenzConfigFile, pathToZPUTestConfigFile);
+        configuration.setPolicyFileDir(configuration.getRootDir() + TEST_POLICY_DIR);
+        configuration.setPolicyFileTmpDir(configuration.getRootDir() + TEST_POLICY_TEMP_DIR);
+
+        // with the batch api not supported we fall back to
+        // retrieving the policies for each domain separately
+
+        DebugZTSClientFactory ztsFactory = new DebugZTSClientFactory();
+        ztsFactory.setPublicKeyId("0");
+        ztsFactory.setSignedPolicyRequestSupported(false);
+        PolicyUpdater.policyUpdater(configuration, ztsFactory);
+
+        Path path = Paths.get(configuration.getRootDir() + TEST_POLICY_DIR
+                + File.separator + "sports.pol");
+        DomainSignedPolicyData domainPolicySignedData =
+                JSON.fromBytes(Files.readAllBytes(path), DomainSignedPolicyData.class);
+        Assert.assertTrue(PolicyUpdater.validateSignedPolicies(null, configuration,
+                domainPolicySignedData, "sports"));
+        Files.delete(path);
+
+        path = Paths.get(configuration.getRootDir() + TEST_POLICY_DIR + File.separator + "sys.auth.pol");
+        domainPolicySignedData = JSON.fromBytes(Files.readAllBytes(path), DomainSignedPolicyData.class);
+        Assert.assertTrue(PolicyUpdater.validateSignedPolicies(null, configuration,
+                domainPolicySignedData, "sys.auth"));
+        Files.delete(path);
+    }
+
+    @Test
+    public void TestPolicyUpdaterBatchSize() throws Exception {
+
+        PolicyUpdaterConfiguration configuration = new PolicyUpdaterConfiguration();
+        configuration.init(pathToAthenzConfigFile, pathToZPUTestConfigFile);
+        configuration.setPolicyFileDir(configuration.getRootDir() + TEST_POLICY_DIR);
+        configuration.setPolicyFileTmpDir(configuration.getRootDir() + TEST_POLICY_TEMP_DIR);
+        Assert.assertEquals(configuration.getDomainBatchSize(), 100);
+
+        // a batch size of 1 disables batched requests
+
+        configuration.setDomainBatchSize(1);
+
+        DebugZTSClientFactory ztsFactory = new DebugZTSClientFactory();
+        ztsFactory.setPublicKeyId("0");
+        ztsFactory.setSignedPolicyRequestSupported(false);
+        PolicyUpdater.policyUpdater(configuration, ztsFactory);
+
+        Path path = Paths.get(configuration.getRootDir() + TEST_POLICY_DIR
+                + File.separator + "sports.pol");
+        Assert.assertTrue(Files.exists(path));
+        Files.delete(path);
+
+        path = Paths.get(configuration.getRootDir() + TEST_POLICY_DIR + File.separator + "sys.auth.pol");
+        Assert.assertTrue(Files.exists(path));
+        Files.delete(path);
+    }
+
     @Test
     public void TestPolicyUpdaterEmptyDomainList() throws Exception {
         PolicyUpdaterConfiguration configuration = new PolicyUpdaterConfiguration();
@@ -30,6 +30,7 @@ import com.yahoo.athenz.common.utils.SignUtils;
 import com.yahoo.athenz.zts.Assertion;
 import com.yahoo.athenz.zts.AssertionEffect;
 import com.yahoo.athenz.zts.DomainMetrics;
+import com.yahoo.athenz.zts.DomainPolicyTag;
 import com.yahoo.athenz.zts.DomainSignedPolicyData;
 import com.yahoo.athenz.zts.Policy;
 import com.yahoo.athenz.zts.PolicyData;
@@ -38,6 +39,8 @@ import com.yahoo.athenz.zts.RoleToken;
 import com.yahoo.athenz.zts.ServiceIdentity;
 import com.yahoo.athenz.zts.ServiceIdentityList;
 import com.yahoo.athenz.zts.SignedPolicyData;
+import com.yahoo.athenz.zts.SignedPolicyDataList;
+import com.yahoo.athenz.zts.SignedPolicyRequest;
 import com.yahoo.athenz.zts.ZTSClientException;
 import com.yahoo.athenz.zts.ZTSRDLGeneratedClient;
 
@@ -46,6 +49,7 @@ public class ZTSMock extends ZTSRDLGeneratedClient {
     private PrivateKey ztsPrivateKeyK1 = null;
     private PrivateKey zmsPrivateKeyK0 = null;
     private String keyId = "0";
+    private boolean signedPolicyRequestSupported = true;
 
     public ZTSMock() throws IOException {
         super("http://localhost:10080");
@@ -66,6 +70,31 @@ public class ZTSMock extends ZTSRDLGeneratedClient {
     void setPublicKeyId(String keyId) {
         this.keyId = keyId;
     }
+
+    void setSignedPolicyRequestSupported(boolean signedPolicyRequestSupported) {
+        this.signedPolicyRequestSupported = signedPolicyRequestSupported;
+    }
+
+    @Override
+    public SignedPolicyDataList postSignedPolicyRequest(SignedPolicyRequest request) {
+
+        if (!signedPolicyRequestSupported) {
+            throw new ZTSClientException(404, "Not Found");
+        }
+
+        List<DomainSignedPolicyData> domains = new ArrayList<>();
+        List<String> unknownDomains = new ArrayList<>();
+        for (DomainPolicyTag domainTag : request.getDomains()) {
+            DomainSignedPolicyData data = getDomainSignedPolicyData(domainTag.getDomainName(),
+                    domainTag.getMatchingTag(), null);
+            if (data == null) {
+                unknownDomains.add(domainTag.getDomainName());
+            } else {
+                domains.add(data);
+            }
+        }
+        return new SignedPolicyDataList().setDomains(domains).setUnknownDomains(unknownDomains);
+    }
     
     @Override
     public DomainSignedPolicyData getDomainSignedPolicyData(String domainName,